@@ -0,0 +1,123 @@
+package com.example.dispatch.benchmark;
+
+import com.example.dispatch.util.MinCostMatching;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量分配的稀疏最小费用匹配（DispatchService.assignBatch的求解部分）
+ * 与assignBatch相同的形状：每个任务16辆候选车辆加一列"本批不分配"。
+ * Setup时先在小规模随机实例上与穷举结果比对总费用，不一致时直接失败。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchMatchingBenchmark {
+
+    private static final int CANDIDATES = 16; // 与DispatchService.BATCH_CANDIDATES相同
+    private static final double UNASSIGNED_COST = 1_000_000;
+
+    @Param({ "500" })
+    public int tasks;
+
+    @Param({ "1000" })
+    public int vehicles;
+
+    private int[][] rowColumns;
+    private double[][] rowCosts;
+
+    @Setup
+    public void setup() {
+        verifyAgainstBruteForce(new Random(7), 2000);
+
+        Random random = new Random(42);
+        rowColumns = new int[tasks][];
+        rowCosts = new double[tasks][];
+        for (int i = 0; i < tasks; i++) {
+            fillRow(random, i, tasks, vehicles, CANDIDATES);
+        }
+    }
+
+    @Benchmark
+    public int[] solve() {
+        return MinCostMatching.solve(vehicles + tasks, rowColumns, rowCosts);
+    }
+
+    /**
+     * 第i行：从前m列中随机取k个不同的候选（费用为0~50公里），再加只属于该行的"不分配"列
+     */
+    private void fillRow(Random random, int i, int n, int m, int k) {
+        k = Math.min(k, m);
+        rowColumns[i] = new int[k + 1];
+        rowCosts[i] = new double[k + 1];
+        boolean[] picked = new boolean[m];
+        for (int c = 0; c < k; c++) {
+            int column;
+            do {
+                column = random.nextInt(m);
+            } while (picked[column]);
+            picked[column] = true;
+            rowColumns[i][c] = column;
+            rowCosts[i][c] = random.nextDouble() * 50;
+        }
+        rowColumns[i][k] = m + i;
+        rowCosts[i][k] = UNASSIGNED_COST * (2.0 - (double) i / n);
+    }
+
+    private void verifyAgainstBruteForce(Random random, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            int n = 1 + random.nextInt(6);
+            int m = 1 + random.nextInt(7);
+            rowColumns = new int[n][];
+            rowCosts = new double[n][];
+            for (int i = 0; i < n; i++) {
+                fillRow(random, i, n, m, 1 + random.nextInt(m));
+            }
+            int[] matched = MinCostMatching.solve(m + n, rowColumns, rowCosts);
+            double expected = bruteForce(0, new boolean[m + n], n);
+            double actual = 0;
+            boolean[] used = new boolean[m + n];
+            for (int i = 0; i < n; i++) {
+                int column = matched[i];
+                if (column < 0 || used[column]) {
+                    throw new IllegalStateException("第" + round + "轮匹配无效");
+                }
+                used[column] = true;
+                actual += costOf(i, column);
+            }
+            if (Math.abs(actual - expected) > 1e-6) {
+                throw new IllegalStateException("第" + round + "轮总费用 " + actual + " ≠ 穷举 " + expected);
+            }
+        }
+    }
+
+    private double bruteForce(int row, boolean[] used, int n) {
+        if (row == n) {
+            return 0;
+        }
+        double best = Double.POSITIVE_INFINITY;
+        for (int k = 0; k < rowColumns[row].length; k++) {
+            int column = rowColumns[row][k];
+            if (!used[column]) {
+                used[column] = true;
+                best = Math.min(best, rowCosts[row][k] + bruteForce(row + 1, used, n));
+                used[column] = false;
+            }
+        }
+        return best;
+    }
+
+    private double costOf(int row, int column) {
+        for (int k = 0; k < rowColumns[row].length; k++) {
+            if (rowColumns[row][k] == column) {
+                return rowCosts[row][k];
+            }
+        }
+        throw new IllegalStateException("第" + row + "行没有列 " + column);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.dispatch.benchmark;
+
+import com.example.dispatch.api.Json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把JMH的JSON结果整理成简短的对比报告（Markdown表格）
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.example.dispatch.benchmark.BenchmarkReport results.json [baseline.json]
+ * </pre>
+ *
+ * 给出基线时增加“变化”列：平均时间模式下负数表示变快，吞吐量模式下正数表示变快。
+ */
+public class BenchmarkReport {
+
+    private static final class Result {
+        final double score;
+        final double error;
+        final String unit;
+
+        Result(double score, double error, String unit) {
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("用法: BenchmarkReport <results.json> [baseline.json]");
+            System.exit(2);
+        }
+        Map<String, Result> current = load(Path.of(args[0]));
+        Map<String, Result> baseline = args.length > 1 ? load(Path.of(args[1])) : Map.of();
+
+        StringBuilder out = new StringBuilder();
+        out.append(baseline.isEmpty() ? "| 基准 | 结果 | 单位 |\n|---|---:|---|\n"
+                : "| 基准 | 结果 | 基线 | 变化 | 单位 |\n|---|---:|---:|---:|---|\n");
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result result = entry.getValue();
+            out.append("| ").append(entry.getKey())
+                    .append(" | ").append(format(result));
+            if (!baseline.isEmpty()) {
+                Result base = baseline.get(entry.getKey());
+                if (base == null || base.score == 0 || !base.unit.equals(result.unit)) {
+                    out.append(" | - | - ");
+                } else {
+                    double change = (result.score - base.score) / base.score * 100;
+                    out.append(" | ").append(format(base))
+                            .append(String.format(" | %+.1f%%%s ", change, significance(result, base)));
+                }
+            }
+            out.append(" | ").append(result.unit).append(" |\n");
+        }
+        System.out.print(out);
+    }
+
+    /**
+     * 误差范围有重叠时标记为不显著
+     */
+    private static String significance(Result a, Result b) {
+        return Math.abs(a.score - b.score) <= a.error + b.error ? "（不显著）" : "";
+    }
+
+    private static String format(Result result) {
+        return Double.isNaN(result.error) ? String.format("%.3f", result.score)
+                : String.format("%.3f ± %.3f", result.score, result.error);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Result> load(Path file) throws IOException {
+        Object parsed = Json.parse(Files.readString(file, StandardCharsets.UTF_8));
+        if (!(parsed instanceof List)) {
+            throw new IllegalArgumentException(file + " 不是JMH的JSON结果");
+        }
+        Map<String, Result> results = new LinkedHashMap<>(); // 保持JMH的输出顺序
+        for (Object item : (List<Object>) parsed) {
+            Map<String, Object> run = (Map<String, Object>) item;
+            String name = (String) run.get("benchmark");
+            name = name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1);
+            Map<String, Object> params = (Map<String, Object>) run.getOrDefault("params", new LinkedHashMap<>());
+            if (params != null && !params.isEmpty()) {
+                name += " " + params;
+            }
+            Map<String, Object> metric = (Map<String, Object>) run.get("primaryMetric");
+            results.put(name, new Result(number(metric.get("score")),
+                    number(metric.get("scoreError")), (String) metric.get("scoreUnit")));
+        }
+        return results;
+    }
+
+    private static double number(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+}
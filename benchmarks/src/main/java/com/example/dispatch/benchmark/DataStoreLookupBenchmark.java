@@ -0,0 +1,89 @@
+package com.example.dispatch.benchmark;
+
+import com.example.dispatch.model.Task;
+import com.example.dispatch.model.Vehicle;
+import com.example.dispatch.util.DataStore;
+import com.example.dispatch.util.FxUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DataStore内存索引查询（不连接数据库：直接填充内存列表）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataStoreLookupBenchmark {
+
+    @Param({ "10000" })
+    public int size;
+
+    private String[] vehicleIds;
+    private String[] taskNames;
+    private int next;
+
+    @Setup
+    public void setup() {
+        FxUtils.setHeadless();
+        List<Vehicle> vehicles = new ArrayList<>(size);
+        List<Task> tasks = new ArrayList<>(size);
+        vehicleIds = new String[1024];
+        taskNames = new String[1024];
+        LocalDateTime eta = LocalDateTime.now().plusDays(1);
+        String[] statuses = { "空闲", "出车", "维修" };
+        for (int i = 0; i < size; i++) {
+            vehicles.add(new Vehicle(String.format("V%06d", i), "司机" + i, statuses[i % 3], "车库"));
+            Task task = new Task("任务-" + i, "市中心", eta.plusMinutes(i));
+            task.setStatus(i % 4 == 0 ? "待分配" : "已完成");
+            tasks.add(task);
+        }
+        for (int i = 0; i < vehicleIds.length; i++) {
+            vehicleIds[i] = vehicles.get((i * 7919) % size).getId();
+            taskNames[i] = tasks.get((i * 7919) % size).getName();
+        }
+        FxUtils.runOnFxThread(() -> {
+            DataStore.VEHICLES.setAll(vehicles);
+            DataStore.TASKS.setAll(tasks);
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        DataStore.shutdown();
+    }
+
+    @Benchmark
+    public Vehicle findVehicleById() throws SQLException {
+        return DataStore.findVehicleById(vehicleIds[next++ & (vehicleIds.length - 1)]);
+    }
+
+    @Benchmark
+    public Task findTaskByName() throws SQLException {
+        return DataStore.findTaskByName(taskNames[next++ & (taskNames.length - 1)]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Vehicle> getAvailableVehicles() throws SQLException {
+        return DataStore.getAvailableVehicles();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Task> getPendingTasks() throws SQLException {
+        return DataStore.getPendingTasks();
+    }
+
+    @Benchmark
+    public int countVehiclesByStatus() {
+        return DataStore.countVehiclesByStatus("空闲");
+    }
+}
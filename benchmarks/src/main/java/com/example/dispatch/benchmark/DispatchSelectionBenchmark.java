@@ -0,0 +1,133 @@
+package com.example.dispatch.benchmark;
+
+import com.example.dispatch.model.GeoPoint;
+import com.example.dispatch.model.Task;
+import com.example.dispatch.model.Vehicle;
+import com.example.dispatch.service.DispatchService;
+import com.example.dispatch.service.Gazetteer;
+import com.example.dispatch.service.VehicleLoadTracker;
+import com.example.dispatch.service.VehicleLocator;
+import com.example.dispatch.util.GridSpatialIndex;
+import com.example.dispatch.util.ObservableListIndex;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DispatchService.assignSmart各策略的选车部分
+ * assignSmart最后一步是写数据库，这里只测选车：直接调用DispatchService的选车步骤和负载跟踪器，
+ * 在1千/1万/10万辆车上测量一次选车（选中后立即释放预留，保证每次调用状态相同）。
+ * "fastest"策略目前等同于简单策略（simple）。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchSelectionBenchmark {
+
+    private static final String IDLE = "空闲";
+
+    @Param({ "1000", "10000", "100000" })
+    public int vehicles;
+
+    private ObservableListIndex<String, Vehicle>.Secondary<String> byStatus;
+    private VehicleLoadTracker tracker;
+    private VehicleLocator locator;
+    private GeoPoint[] targets;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        ObservableList<Vehicle> vehicleList = FXCollections.observableArrayList();
+        ObservableList<Task> taskList = FXCollections.observableArrayList();
+        ObservableListIndex<String, Vehicle> vehicleIndex = new ObservableListIndex<>(vehicleList, Vehicle::getId);
+        ObservableListIndex<String, Task> taskIndex = new ObservableListIndex<>(taskList, Task::getName);
+        byStatus = vehicleIndex.addSecondary(Vehicle::getStatus, Comparator.comparing(Vehicle::getId)); // 同DataStore
+        tracker = new VehicleLoadTracker(vehicleIndex, taskIndex);
+
+        // 70%空闲，每辆车的位置是一个登记过坐标的地名，分布在约50公里见方的城区
+        Gazetteer gazetteer = new Gazetteer();
+        Map<String, GeoPoint> places = new HashMap<>();
+        List<Vehicle> fleet = new ArrayList<>(vehicles);
+        for (int i = 0; i < vehicles; i++) {
+            String id = String.format("V%06d", i);
+            boolean idle = random.nextInt(10) < 7;
+            fleet.add(new Vehicle(id, "司机" + i, idle ? IDLE : "出车", "位置" + i));
+            places.put("位置" + i, randomPoint(random));
+        }
+        gazetteer.replaceAll(places);
+        locator = new VehicleLocator(vehicleIndex, gazetteer);
+        vehicleList.addAll(fleet);
+
+        // 每辆车0~3个未完成任务，让负载有差异
+        List<Task> tasks = new ArrayList<>();
+        LocalDateTime eta = LocalDateTime.now().plusDays(1);
+        for (int i = 0; i < vehicles; i++) {
+            for (int j = random.nextInt(4); j > 0; j--) {
+                Task task = new Task("T" + i + "-" + j, "目的地", eta);
+                task.assignVehicle(fleet.get(i).getId());
+                task.setStatus("进行中");
+                tasks.add(task);
+            }
+        }
+        taskList.addAll(tasks);
+
+        targets = new GeoPoint[1024];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = randomPoint(random);
+        }
+    }
+
+    private static GeoPoint randomPoint(Random random) {
+        return new GeoPoint(39.70 + random.nextDouble() * 0.45, 116.10 + random.nextDouble() * 0.60);
+    }
+
+    /**
+     * 简单策略：按ID顺序遍历空闲车辆视图（同DataStore.getAvailableVehiclesView），预留第一辆能预留的车辆
+     */
+    @Benchmark
+    public Vehicle simple() {
+        Vehicle vehicle = DispatchService.reserveFirstAvailable(byStatus.view(IDLE), tracker);
+        if (vehicle != null) {
+            tracker.release(vehicle.getId());
+        }
+        return vehicle;
+    }
+
+    /**
+     * 就近策略：在空闲车辆空间索引中查询最近的候选并预留第一辆
+     */
+    @Benchmark
+    public GridSpatialIndex.Neighbor<String> nearest() {
+        GeoPoint target = targets[next++ & (targets.length - 1)];
+        GridSpatialIndex.Neighbor<String> candidate = DispatchService.reserveNearest(locator, tracker, target);
+        if (candidate != null) {
+            tracker.release(candidate.getKey());
+        }
+        return candidate;
+    }
+
+    /**
+     * 负载均衡策略：从最小堆取负载最小的空闲车辆（assignByLoadBalance的选车步骤就是这一调用）
+     */
+    @Benchmark
+    public String loadBalance() {
+        String vehicleId = tracker.reserveLeastLoaded();
+        if (vehicleId != null) {
+            tracker.release(vehicleId);
+        }
+        return vehicleId;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.dispatch.benchmark;
+
+import com.example.dispatch.util.PasswordUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 密码校验（每次登录一次）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PasswordBenchmark {
+
+    private final String hash = PasswordUtils.hashPassword("admin123");
+
+    @Benchmark
+    public boolean verifyCorrect() {
+        return PasswordUtils.verifyPassword("admin123", hash);
+    }
+
+    @Benchmark
+    public boolean verifyWrong() {
+        return PasswordUtils.verifyPassword("wrong-password", hash);
+    }
+}
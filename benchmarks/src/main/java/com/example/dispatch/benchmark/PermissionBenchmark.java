@@ -0,0 +1,65 @@
+package com.example.dispatch.benchmark;
+
+import com.example.dispatch.model.User;
+import com.example.dispatch.util.PermissionManager;
+import com.example.dispatch.util.SessionManager;
+import com.example.dispatch.util.UserRoles;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 权限检查：预计算位掩码与原先按角色字符串逐个比较的写法对比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermissionBenchmark {
+
+    @Param({ UserRoles.DRIVER, UserRoles.CUSTOMER })
+    public String role;
+
+    private User user;
+
+    @Setup
+    public void setup() {
+        user = new User(1, "bench", "", role, LocalDateTime.now());
+        SessionManager.setCurrentUser(user);
+    }
+
+    @TearDown
+    public void tearDown() {
+        SessionManager.logout();
+    }
+
+    /**
+     * 当前会话的权限检查（会话创建时已计算掩码）
+     */
+    @Benchmark
+    public boolean sessionMask() {
+        return SessionManager.canCompleteTasks();
+    }
+
+    /**
+     * 按用户检查（每次按角色查一次掩码）
+     */
+    @Benchmark
+    public boolean userMask() {
+        return PermissionManager.canCompleteTasks(user);
+    }
+
+    /**
+     * 原先的实现：角色字符串逐个比较
+     */
+    @Benchmark
+    public boolean stringChain() {
+        String r = user.getRole();
+        return UserRoles.ADMIN.equals(r) ||
+                UserRoles.DISPATCHER.equals(r) ||
+                UserRoles.DRIVER.equals(r);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.dispatch.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * 内存中的ResultSet（动态代理），用于脱离数据库测量结果集映射
+ * 只实现映射代码用到的 next / getString / getInt / wasNull，可通过 {@link #rewind()} 反复遍历。
+ */
+final class SyntheticResultSet {
+
+    private final Map<String, Object>[] rows;
+    private int cursor = -1;
+    private boolean lastWasNull;
+    private final ResultSet proxy;
+
+    SyntheticResultSet(Map<String, Object>[] rows) {
+        this.rows = rows;
+        this.proxy = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[] { ResultSet.class }, (p, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++cursor < rows.length;
+                        case "getString": {
+                            Object value = column((String) args[0]);
+                            return value == null ? null : value.toString();
+                        }
+                        case "getInt": {
+                            Object value = column((String) args[0]);
+                            return value == null ? 0 : ((Number) value).intValue();
+                        }
+                        case "wasNull":
+                            return lastWasNull;
+                        case "close":
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private Object column(String label) throws SQLException {
+        Map<String, Object> row = rows[cursor];
+        if (!row.containsKey(label)) {
+            throw new SQLException("Column '" + label + "' not found.");
+        }
+        Object value = row.get(label);
+        lastWasNull = value == null;
+        return value;
+    }
+
+    ResultSet resultSet() {
+        return proxy;
+    }
+
+    void rewind() {
+        cursor = -1;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.dispatch.benchmark;
+
+import com.example.dispatch.dao.TaskDAO;
+import com.example.dispatch.model.Task;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TaskDAO结果集映射（每次调用映射rows行）
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskMappingBenchmark {
+
+    @Param({ "1000" })
+    public int rows;
+
+    private final TaskDAO dao = new TaskDAO();
+    private MethodHandle mapper;
+    private SyntheticResultSet resultSet;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        // 映射方法是私有的，通过方法句柄调用，调用开销可忽略
+        mapper = MethodHandles.privateLookupIn(TaskDAO.class, MethodHandles.lookup())
+                .findVirtual(TaskDAO.class, "mapResultSetToTask", MethodType.methodType(Task.class, ResultSet.class));
+
+        DateTimeFormatter format = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 8, 0);
+        Map<String, Object>[] data = new Map[rows];
+        for (int i = 0; i < rows; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("name", "任务-" + i);
+            row.put("destination", "目的地-" + (i % 50));
+            row.put("eta", base.plusMinutes(i).format(format));
+            row.put("vehicle_id", i % 3 == 0 ? null : "V" + (i % 500));
+            row.put("status", i % 3 == 0 ? "待分配" : "进行中");
+            row.put("created_by", i % 7 == 0 ? null : i % 20);
+            data[i] = row;
+        }
+        resultSet = new SyntheticResultSet(data);
+    }
+
+    @Benchmark
+    public void mapRows(Blackhole bh) throws Throwable {
+        resultSet.rewind();
+        ResultSet rs = resultSet.resultSet();
+        while (rs.next()) {
+            bh.consume((Task) mapper.invokeExact(dao, rs));
+        }
+    }
+}
@@ -1,13 +1,19 @@
 package com.example.dispatch;
 
+import com.example.dispatch.api.HeadlessServer;
+import com.example.dispatch.storage.Storage;
 import com.example.dispatch.util.DataStore;
+import com.example.dispatch.util.StartupTimer;
 import com.example.dispatch.view.LoginView;
 import com.example.dispatch.view.MainView;
 import com.example.dispatch.view.RegisterView;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
+import java.util.concurrent.CompletionException;
+
 public class MainApp extends Application {
     private static MainApp instance;
     private Stage primaryStage;
@@ -24,48 +30,59 @@ public class MainApp extends Application {
 
     @Override
     public void start(Stage stage) {
-        try {
-            this.primaryStage = stage;
-            System.out.println("正在启动车辆调度管理系统...");
-
-            // 初始化数据库和数据存储
-            DataStore.initialize();
-
-            // 创建场景
-            createScenes();
-
-            stage.setTitle("车辆调度管理系统");
-            stage.setScene(loginScene);
-
-            // 程序关闭时清理资源
-            stage.setOnCloseRequest(event -> {
-                System.out.println("正在关闭系统...");
-                DataStore.shutdown();
-                System.out.println("系统已关闭");
-            });
-
-            stage.show();
-            System.out.println("车辆调度管理系统启动完成");
-
-        } catch (Exception e) {
-            System.err.println("系统启动失败: " + e.getMessage());
-            e.printStackTrace();
-
-            // 显示错误对话框
-            javafx.scene.control.Alert alert = new javafx.scene.control.Alert(
-                    javafx.scene.control.Alert.AlertType.ERROR);
-            alert.setTitle("启动失败");
-            alert.setHeaderText("系统启动失败");
-            alert.setContentText("错误信息: " + e.getMessage() + "\n\n请检查数据库配置。");
-            alert.showAndWait();
-
-            // 退出程序
-            System.exit(1);
-        }
+        long start = StartupTimer.begin();
+        this.primaryStage = stage;
+        System.out.println("正在启动车辆调度管理系统...");
+
+        // 后台加载数据，登录界面先显示出来；用户登录期间数据即可加载完成
+        DataStore.initializeAsync().whenComplete((ignored, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                showStartupError(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause()
+                        : error);
+            } else {
+                StartupTimer.report();
+            }
+        }));
+
+        // 创建场景（主界面依赖登录用户的角色，登录后再创建）
+        createScenes();
+
+        stage.setTitle("车辆调度管理系统");
+        stage.setScene(loginScene);
+
+        // 程序关闭时清理资源
+        stage.setOnCloseRequest(event -> {
+            System.out.println("正在关闭系统...");
+            DataStore.shutdown();
+            System.out.println("系统已关闭");
+        });
+
+        stage.show();
+        StartupTimer.end("登录界面", start);
+        System.out.println("车辆调度管理系统启动完成");
     }
 
     /**
-     * 创建所有场景
+     * 显示启动错误并退出
+     */
+    private void showStartupError(Throwable e) {
+        System.err.println("系统启动失败: " + e.getMessage());
+
+        // 显示错误对话框
+        javafx.scene.control.Alert alert = new javafx.scene.control.Alert(
+                javafx.scene.control.Alert.AlertType.ERROR);
+        alert.setTitle("启动失败");
+        alert.setHeaderText("系统启动失败");
+        alert.setContentText("错误信息: " + e.getMessage() + "\n\n请检查数据库配置。");
+        alert.showAndWait();
+
+        // 退出程序
+        System.exit(1);
+    }
+
+    /**
+     * 创建登录场景
      */
     private void createScenes() {
         // 创建登录界面
@@ -78,23 +95,22 @@ public class MainApp extends Application {
 
         // 创建场景
         loginScene = new Scene(loginView, 400, 300);
-        mainScene = new Scene(createMainView(), 1000, 600);
-    }
-
-    /**
-     * 创建主界面视图
-     */
-    private MainView createMainView() {
-        MainView mainView = new MainView();
-        return mainView;
     }
 
     /**
      * 显示主界面
+     * 主界面按当前用户的角色构建，每次登录只构建一次；数据尚未加载完成时等待加载完成后再显示
      */
     private void showMainView() {
-        // 重新创建主界面以确保显示最新用户信息
-        mainScene = new Scene(createMainView(), 1000, 600);
+        if (!DataStore.isInitialized()) {
+            primaryStage.setTitle("车辆调度管理系统 - 正在加载数据...");
+            DataStore.initializeAsync().thenRun(() -> Platform.runLater(this::showMainView));
+            return;
+        }
+
+        long start = System.nanoTime();
+        mainScene = new Scene(new MainView(), 1000, 600);
+        System.out.printf("主界面已创建（%.1f ms）%n", (System.nanoTime() - start) / 1e6);
 
         primaryStage.setScene(mainScene);
         primaryStage.setTitle("车辆调度管理系统 - " + com.example.dispatch.util.SessionManager.getCurrentUsername());
@@ -133,6 +149,22 @@ public class MainApp extends Application {
     }
 
     public static void main(String[] args) {
+        // --memory[=快照文件]：使用内存存储，不连接MySQL
+        Storage.configure(args);
+
+        // --headless：不启动界面，以HTTP JSON接口提供服务
+        for (String arg : args) {
+            if ("--headless".equals(arg)) {
+                try {
+                    HeadlessServer.run(args);
+                } catch (Exception e) {
+                    System.err.println("系统启动失败: " + e.getMessage());
+                    e.printStackTrace();
+                    System.exit(1);
+                }
+                return;
+            }
+        }
         launch(args);
     }
 }
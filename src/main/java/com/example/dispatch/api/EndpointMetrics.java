@@ -0,0 +1,81 @@
+package com.example.dispatch.api;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个接口的延迟统计
+ * 计数和累计耗时用LongAdder，延迟分布按微秒的2的幂分桶，记录一次请求无锁且O(1)；
+ * 百分位取所在桶的上界（不超过最大值），误差在2倍以内。
+ */
+public class EndpointMetrics {
+
+    private static final int BUCKETS = 40; // 2^39微秒约6天，足够覆盖任何请求
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    /**
+     * 记录一次请求
+     *
+     * @param nanos 处理耗时
+     * @param error 是否失败（状态码 ≥ 500）
+     */
+    public void record(long nanos, boolean error) {
+        count.increment();
+        if (error) {
+            errors.increment();
+        }
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+        long micros = Math.max(1, nanos / 1_000);
+        int bucket = Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+        histogram.incrementAndGet(bucket);
+    }
+
+    /**
+     * 估算百分位延迟（毫秒）
+     */
+    public double percentileMillis(double percentile) {
+        long total = 0;
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = histogram.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min((1L << (i + 1)) / 1000.0, maxNanos.get() / 1e6);
+            }
+        }
+        return maxNanos.get() / 1e6;
+    }
+
+    /**
+     * 统计快照（用于JSON输出）
+     */
+    public Map<String, Object> snapshot() {
+        long n = count.sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", n);
+        result.put("errors", errors.sum());
+        result.put("avgMs", n == 0 ? 0.0 : Math.round(totalNanos.sum() / 1e3 / n) / 1000.0);
+        result.put("p50Ms", percentileMillis(0.50));
+        result.put("p95Ms", percentileMillis(0.95));
+        result.put("p99Ms", percentileMillis(0.99));
+        result.put("maxMs", Math.round(maxNanos.get() / 1e3) / 1000.0);
+        return result;
+    }
+}
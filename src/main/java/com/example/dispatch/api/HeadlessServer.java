@@ -0,0 +1,478 @@
+package com.example.dispatch.api;
+
+import com.example.dispatch.dao.OperationLogPage;
+import com.example.dispatch.dao.OperationLogQuery;
+import com.example.dispatch.database.ConnectionPool;
+import com.example.dispatch.database.DatabaseManager;
+import com.example.dispatch.model.OperationLog;
+import com.example.dispatch.model.Task;
+import com.example.dispatch.model.User;
+import com.example.dispatch.model.Vehicle;
+import com.example.dispatch.service.AuthService;
+import com.example.dispatch.service.DispatchService;
+import com.example.dispatch.storage.JdbcStorage;
+import com.example.dispatch.storage.Storage;
+import com.example.dispatch.util.DataStore;
+import com.example.dispatch.util.FxUtils;
+import com.example.dispatch.util.Permission;
+import com.example.dispatch.util.Session;
+import com.example.dispatch.util.SessionManager;
+import com.example.dispatch.util.StartupTimer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 无界面模式的HTTP JSON接口
+ * 使用JDK自带的HttpServer，请求在有界线程池中处理（队列满时由接收线程自己处理，形成背压），
+ * 数据库访问复用连接池。除登录外的接口都需要请求头 Authorization: Bearer &lt;token&gt;，
+ * 请求处理期间会话绑定到当前线程，DataStore中的权限检查按该会话进行。
+ *
+ * <pre>
+ * POST /api/login            {"username","password"} → {"token"}
+ * POST /api/logout
+ * GET  /api/vehicles         ?status=
+ * GET  /api/tasks            ?status=
+ * GET  /api/tasks/pending
+ * POST /api/tasks/assign     {"task", "vehicle"?, "strategy"?}
+ * POST /api/tasks/complete   {"task"}
+ * GET  /api/logs             ?limit=&amp;type=&amp;entity=
+ * GET  /api/metrics         （需要查看操作日志权限）
+ * </pre>
+ */
+public class HeadlessServer {
+
+    private static final int DEFAULT_PORT = 8080;
+    // 工作线程比连接池大：大部分接口只读内存索引，不占用数据库连接
+    private static final int WORKER_THREADS = 64;
+    private static final int WORKER_QUEUE_SIZE = 1024;
+    private static final int DEFAULT_LOG_LIMIT = 50;
+    private static final int MAX_LOG_LIMIT = 500;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+    private final AuthService authService = new AuthService();
+    private final DispatchService dispatchService = new DispatchService();
+    private final Map<String, EndpointMetrics> metrics = new ConcurrentSkipListMap<>();
+
+    /**
+     * 接口处理函数，返回值序列化为JSON
+     */
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(Request request) throws Exception;
+    }
+
+    /**
+     * 带HTTP状态码的接口错误
+     */
+    private static final class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * 一次请求的参数和会话
+     */
+    private static final class Request {
+        private final HttpExchange exchange;
+        private final Map<String, String> query;
+        private final Session session;
+        private Map<String, Object> body;
+
+        Request(HttpExchange exchange, Session session) {
+            this.exchange = exchange;
+            this.query = parseQuery(exchange.getRequestURI().getRawQuery());
+            this.session = session;
+        }
+
+        String query(String name) {
+            return query.get(name);
+        }
+
+        Map<String, Object> body() throws IOException {
+            if (body == null) {
+                try (InputStream in = exchange.getRequestBody()) {
+                    byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+                    if (bytes.length > MAX_BODY_BYTES) {
+                        throw new ApiException(413, "请求体过大");
+                    }
+                    body = Json.parseObject(new String(bytes, StandardCharsets.UTF_8));
+                }
+            }
+            return body;
+        }
+
+        String required(String field) throws IOException {
+            Object value = body().get(field);
+            if (value == null || value.toString().isBlank()) {
+                throw new ApiException(400, "缺少参数: " + field);
+            }
+            return value.toString();
+        }
+
+        String optional(String field) throws IOException {
+            Object value = body().get(field);
+            return value == null || value.toString().isBlank() ? null : value.toString();
+        }
+
+        void require(Permission permission) {
+            if (!session.hasPermission(permission)) {
+                throw new ApiException(403, "没有权限: " + permission);
+            }
+        }
+    }
+
+    public HeadlessServer(int port) throws IOException {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(WORKER_THREADS, WORKER_THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(WORKER_QUEUE_SIZE), r -> {
+                    Thread thread = new Thread(r, "http-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executor);
+
+        route("POST", "/api/login", false, this::login);
+        route("POST", "/api/logout", true, this::logout);
+        route("GET", "/api/vehicles", true, this::listVehicles);
+        route("GET", "/api/tasks", true, this::listTasks);
+        route("GET", "/api/tasks/pending", true, this::listPendingTasks);
+        route("POST", "/api/tasks/assign", true, this::assignTask);
+        route("POST", "/api/tasks/complete", true, this::completeTask);
+        route("GET", "/api/logs", true, this::listLogs);
+        route("GET", "/api/metrics", true, this::metrics);
+    }
+
+    /**
+     * 以无界面模式启动：初始化数据后启动HTTP服务，直到进程退出
+     *
+     * @param args 命令行参数，支持 --port=端口
+     */
+    public static void run(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            }
+        }
+
+        System.out.println("正在以无界面模式启动车辆调度管理系统...");
+        FxUtils.setHeadless();
+        DataStore.initialize();
+
+        long start = StartupTimer.begin();
+        HeadlessServer headless = new HeadlessServer(port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("正在关闭系统...");
+            headless.stop();
+            DataStore.shutdown();
+            System.out.println("系统已关闭");
+        }, "headless-shutdown"));
+        headless.start();
+        StartupTimer.end("HTTP服务", start);
+        StartupTimer.report();
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("HTTP接口已启动: http://localhost:" + server.getAddress().getPort() + "/api");
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    private void route(String method, String path, boolean authenticated, Handler handler) {
+        EndpointMetrics endpointMetrics = metrics.computeIfAbsent(method + " " + path, k -> new EndpointMetrics());
+        server.createContext(path, exchange -> {
+            long start = System.nanoTime();
+            int status = 200;
+            Object result;
+            try {
+                // createContext按前缀匹配，这里只接受完整路径
+                if (!path.equals(exchange.getRequestURI().getPath())) {
+                    throw new ApiException(404, "接口不存在");
+                }
+                if (!method.equals(exchange.getRequestMethod())) {
+                    throw new ApiException(405, "不支持的请求方法: " + exchange.getRequestMethod());
+                }
+                Session session = null;
+                if (authenticated) {
+                    session = SessionManager.bind(bearerToken(exchange));
+                    if (session == null) {
+                        throw new ApiException(401, "未登录或会话已过期");
+                    }
+                }
+                result = handler.handle(new Request(exchange, session));
+            } catch (ApiException e) {
+                status = e.status;
+                result = error(e.getMessage());
+            } catch (SecurityException e) {
+                status = 403;
+                result = error(e.getMessage());
+            } catch (IllegalArgumentException e) {
+                status = 400;
+                result = error(e.getMessage());
+            } catch (SQLException e) {
+                status = 500;
+                result = error("数据库错误: " + e.getMessage());
+                System.err.println(method + " " + path + " 失败: " + e.getMessage());
+            } catch (Exception e) {
+                status = 500;
+                result = error(e.getMessage());
+                System.err.println(method + " " + path + " 失败: " + e.getMessage());
+            } finally {
+                SessionManager.unbind();
+            }
+
+            try {
+                send(exchange, status, result);
+            } finally {
+                endpointMetrics.record(System.nanoTime() - start, status >= 500);
+            }
+        });
+    }
+
+    private static void send(HttpExchange exchange, int status, Object result) throws IOException {
+        byte[] bytes = Json.write(result).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String bearerToken(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        return header.substring(7).trim();
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("error", message == null ? "内部错误" : message);
+        return result;
+    }
+
+    // ==================== 接口 ====================
+
+    private Object login(Request request) throws Exception {
+        User user = authService.login(request.required("username"), request.required("password"));
+        if (user == null) {
+            throw new ApiException(401, "用户名或密码错误");
+        }
+        Session session = SessionManager.getRegistry().create(user);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("token", session.getToken());
+        result.put("username", user.getUsername());
+        result.put("role", user.getRole());
+        return result;
+    }
+
+    private Object logout(Request request) {
+        SessionManager.logout();
+        return Map.of("ok", true);
+    }
+
+    private Object listVehicles(Request request) {
+        request.require(Permission.VIEW_VEHICLES);
+        String status = request.query("status");
+        List<Vehicle> vehicles = status != null ? DataStore.getVehiclesByStatus(status)
+                : FxUtils.callOnFxThread(() -> new ArrayList<>(DataStore.VEHICLES));
+        List<Object> result = new ArrayList<>(vehicles.size());
+        for (Vehicle vehicle : vehicles) {
+            result.add(toJson(vehicle));
+        }
+        return result;
+    }
+
+    private Object listTasks(Request request) {
+        request.require(Permission.VIEW_TASKS);
+        String status = request.query("status");
+        List<Task> tasks = status != null ? DataStore.getTasksByStatus(status)
+                : FxUtils.callOnFxThread(() -> new ArrayList<>(DataStore.TASKS));
+        return toJson(tasks);
+    }
+
+    private Object listPendingTasks(Request request) throws SQLException {
+        request.require(Permission.VIEW_TASKS);
+        return toJson(DataStore.getPendingTasks());
+    }
+
+    private Object assignTask(Request request) throws Exception {
+        request.require(Permission.ASSIGN_VEHICLES);
+        Task task = DataStore.findTaskByName(request.required("task"));
+        if (task == null) {
+            throw new ApiException(404, "任务不存在");
+        }
+        if (task.getVehicleId() != null) {
+            throw new ApiException(409, "任务已分配车辆 " + task.getVehicleId());
+        }
+
+        String vehicleId = request.optional("vehicle");
+        if (vehicleId != null) {
+            Vehicle vehicle = DataStore.findVehicleById(vehicleId);
+            if (vehicle == null) {
+                throw new ApiException(404, "车辆不存在");
+            }
+            if (!DataStore.getLoadTracker().reserve(vehicleId)) {
+                throw new ApiException(409, "车辆 " + vehicleId + " 不空闲或已被其它调度选中");
+            }
+            try {
+                DataStore.assignVehicleToTask(task.getName(), vehicleId);
+            } catch (SQLException | RuntimeException e) {
+                DataStore.getLoadTracker().release(vehicleId);
+                throw e;
+            }
+        } else {
+            String strategy = request.optional("strategy");
+            Vehicle vehicle = dispatchService.assignSmart(task, strategy != null ? strategy : "nearest");
+            if (vehicle == null) {
+                throw new ApiException(409, "没有可用车辆");
+            }
+            vehicleId = vehicle.getId();
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("task", task.getName());
+        result.put("vehicle", vehicleId);
+        return result;
+    }
+
+    private Object completeTask(Request request) throws Exception {
+        request.require(Permission.COMPLETE_TASKS);
+        String taskName = request.required("task");
+        if (DataStore.findTaskByName(taskName) == null) {
+            throw new ApiException(404, "任务不存在");
+        }
+        DataStore.completeTask(taskName);
+        return Map.of("task", taskName, "status", "已完成");
+    }
+
+    private Object listLogs(Request request) throws SQLException {
+        request.require(Permission.VIEW_OPERATION_LOGS);
+        int limit = DEFAULT_LOG_LIMIT;
+        if (request.query("limit") != null) {
+            limit = Math.max(1, Math.min(MAX_LOG_LIMIT, Integer.parseInt(request.query("limit"))));
+        }
+        OperationLogQuery query = new OperationLogQuery()
+                .operationType(request.query("type"))
+                .entityType(request.query("entity"));
+        OperationLogPage page = DataStore.getOperationLogPage(query, null, limit);
+
+        List<Object> logs = new ArrayList<>(page.getLogs().size());
+        for (OperationLog log : page.getLogs()) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("id", log.getId());
+            item.put("operationType", log.getOperationType());
+            item.put("entityType", log.getEntityType());
+            item.put("entityId", log.getEntityId());
+            item.put("description", log.getDescription());
+            item.put("userId", log.getUserId());
+            item.put("createdAt", log.getCreatedAt());
+            logs.add(item);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("logs", logs);
+        result.put("hasMore", page.hasMore());
+        return result;
+    }
+
+    private Object metrics(Request request) throws SQLException {
+        // 连接池、会话数等运行指标只对能查看操作日志的用户（管理员、调度员）开放
+        request.require(Permission.VIEW_OPERATION_LOGS);
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        metrics.forEach((name, endpoint) -> endpoints.put(name, endpoint.snapshot()));
+
+        Map<String, Object> workers = new LinkedHashMap<>();
+        workers.put("active", executor.getActiveCount());
+        workers.put("poolSize", executor.getPoolSize());
+        workers.put("queued", executor.getQueue().size());
+        workers.put("completed", executor.getCompletedTaskCount());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("endpoints", endpoints);
+        result.put("workers", workers);
+        result.put("storage", Storage.get().getName());
+        if (Storage.get() instanceof JdbcStorage) {
+            ConnectionPool pool = DatabaseManager.getPool();
+            Map<String, Object> connections = new LinkedHashMap<>();
+            connections.put("active", pool.getActiveCount());
+            connections.put("idle", pool.getIdleCount());
+            connections.put("max", pool.getMaxSize());
+            result.put("connections", connections);
+        }
+        result.put("sessions", SessionManager.getRegistry().size());
+        return result;
+    }
+
+    private static List<Object> toJson(List<Task> tasks) {
+        List<Object> result = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("name", task.getName());
+            item.put("destination", task.getDestination());
+            item.put("eta", task.getEta());
+            item.put("vehicleId", task.getVehicleId());
+            item.put("status", task.getStatus());
+            item.put("createdBy", task.getCreatedBy());
+            result.add(item);
+        }
+        return result;
+    }
+
+    private static Map<String, Object> toJson(Vehicle vehicle) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("id", vehicle.getId());
+        item.put("driver", vehicle.getDriver());
+        item.put("status", vehicle.getStatus());
+        item.put("location", vehicle.getLocation());
+        item.put("createdBy", vehicle.getCreatedBy());
+        return item;
+    }
+}
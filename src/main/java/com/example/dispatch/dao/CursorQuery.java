@@ -0,0 +1,56 @@
+package com.example.dispatch.dao;
+
+import com.example.dispatch.database.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 游标查询：结果集由服务器端游标分批返回（连接参数useCursorFetch=true配合fetchSize），
+ * 每行映射后立即交给回调，不在内存中累积，遍历百万行的堆占用也只有一批的大小。
+ * 语句不经过语句缓存，fetchSize只作用于本次查询。
+ */
+final class CursorQuery {
+
+    static final int FETCH_SIZE = 1000;
+
+    /**
+     * 结果集行映射
+     */
+    @FunctionalInterface
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private CursorQuery() {
+    }
+
+    /**
+     * 执行查询并逐行回调
+     *
+     * @return 回调的行数
+     */
+    static <T> int forEach(String sql, List<Object> params, RowMapper<T> mapper, Consumer<? super T> action)
+            throws SQLException {
+        int rows = 0;
+        try (Connection conn = DatabaseManager.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(FETCH_SIZE);
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(mapper.map(rs));
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+}
@@ -2,42 +2,85 @@ package com.example.dispatch.dao;
 
 import com.example.dispatch.database.DatabaseManager;
 import com.example.dispatch.model.OperationLog;
+import com.example.dispatch.storage.OperationLogStore;
 
 import java.sql.*;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * 操作日志数据访问对象
+ * 每日汇总表operation_log_daily与日志在同一事务中维护，统计查询只读汇总行，与日志总量无关。
  */
-public class OperationLogDAO {
+public class OperationLogDAO implements OperationLogStore {
+
+    // 日期由数据库按created_at计算，与重建汇总时的DATE(created_at)一致
+    private static final String ROLLUP_INCREMENT_SQL = "INSERT INTO operation_log_daily "
+            + "(day, operation_type, entity_type, user_id, count) VALUES (DATE(?), ?, ?, ?, 1) "
+            + "ON DUPLICATE KEY UPDATE count = count + 1";
+    private static final String ROLLUP_SELECT_SQL = "SELECT DATE(created_at), operation_type, entity_type, "
+            + "COALESCE(user_id, 0), COUNT(*) FROM operation_logs";
+    private static final String ROLLUP_GROUP_BY = " GROUP BY DATE(created_at), operation_type, entity_type, "
+            + "COALESCE(user_id, 0)";
 
     /**
      * 保存操作日志
      */
     public void save(OperationLog log) throws SQLException {
+        saveBatch(List.of(log));
+    }
+
+    /**
+     * 批量保存操作日志（单个事务，驱动改写为多行INSERT），同时累加每日汇总
+     */
+    public void saveBatch(List<OperationLog> logs) throws SQLException {
+        if (logs.isEmpty()) {
+            return;
+        }
         String sql = "INSERT INTO operation_logs (operation_type, entity_type, entity_id, description, user_id, created_at) "
-                +
-                "VALUES (?, ?, ?, ?, ?, ?)";
+                + "VALUES (?, ?, ?, ?, ?, ?)";
 
         try (Connection conn = DatabaseManager.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-
-            stmt.setString(1, log.getOperationType());
-            stmt.setString(2, log.getEntityType());
-            stmt.setString(3, log.getEntityId());
-            stmt.setString(4, log.getDescription());
-            if (log.getUserId() != null) {
-                stmt.setInt(5, log.getUserId());
-            } else {
-                stmt.setNull(5, Types.INTEGER);
+                PreparedStatement stmt = conn.prepareStatement(sql);
+                PreparedStatement rollup = conn.prepareStatement(ROLLUP_INCREMENT_SQL)) {
+            conn.setAutoCommit(false);
+            try {
+                for (OperationLog log : logs) {
+                    // 截到秒再绑定：TIMESTAMP列会把小数秒四舍五入，23:59:59.5之后的日志会落到第二天，
+                    // 汇总的日期必须和写入的行一致
+                    Timestamp createdAt = Timestamp.valueOf(log.getCreatedAt().truncatedTo(ChronoUnit.SECONDS));
+                    stmt.setString(1, log.getOperationType());
+                    stmt.setString(2, log.getEntityType());
+                    stmt.setString(3, log.getEntityId());
+                    stmt.setString(4, log.getDescription());
+                    if (log.getUserId() != null) {
+                        stmt.setInt(5, log.getUserId());
+                    } else {
+                        stmt.setNull(5, Types.INTEGER);
+                    }
+                    stmt.setTimestamp(6, createdAt);
+                    stmt.addBatch();
+
+                    rollup.setTimestamp(1, createdAt);
+                    rollup.setString(2, log.getOperationType());
+                    rollup.setString(3, log.getEntityType());
+                    rollup.setInt(4, log.getUserId() != null ? log.getUserId() : 0);
+                    rollup.addBatch();
+                }
+                stmt.executeBatch();
+                rollup.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
-            stmt.setTimestamp(6, Timestamp.valueOf(log.getCreatedAt()));
-
-            stmt.executeUpdate();
         }
     }
 
@@ -79,6 +122,98 @@ public class OperationLogDAO {
         return logs;
     }
 
+    /**
+     * 组合条件分页查询操作日志（按 created_at, id 倒序）
+     * 使用键集分页：下一页从上一页最后一条记录之后开始，不使用OFFSET，翻页代价与页码无关
+     *
+     * @param query    查询条件
+     * @param after    上一页返回的游标，null表示第一页
+     * @param pageSize 每页条数
+     */
+    public OperationLogPage findPage(OperationLogQuery query, OperationLogPage.Cursor after, int pageSize)
+            throws SQLException {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("每页条数必须大于0: " + pageSize);
+        }
+
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = selectWhere(query, params);
+        if (after != null) {
+            Timestamp cursorTime = Timestamp.valueOf(after.getCreatedAt());
+            sql.append(" AND (created_at < ? OR (created_at = ? AND id < ?))");
+            params.add(cursorTime);
+            params.add(cursorTime);
+            params.add(after.getId());
+        }
+        // 多取一条用于判断是否还有下一页
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?");
+        params.add(pageSize + 1);
+
+        List<OperationLog> logs = new ArrayList<>(pageSize + 1);
+        try (Connection conn = DatabaseManager.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    logs.add(mapResultSetToOperationLog(rs));
+                }
+            }
+        }
+
+        OperationLogPage.Cursor next = null;
+        if (logs.size() > pageSize) {
+            logs.remove(pageSize);
+            OperationLog last = logs.get(pageSize - 1);
+            next = new OperationLogPage.Cursor(last.getCreatedAt(), last.getId());
+        }
+        return new OperationLogPage(logs, next);
+    }
+
+    /**
+     * 按查询条件逐行遍历操作日志（按 created_at, id 倒序，游标分批读取，内存占用与日志条数无关）
+     * 用于导出、统计等需要遍历大量日志的场景
+     *
+     * @return 日志条数
+     */
+    public int forEach(OperationLogQuery query, Consumer<? super OperationLog> action) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = selectWhere(query, params);
+        sql.append(" ORDER BY created_at DESC, id DESC");
+        return CursorQuery.forEach(sql.toString(), params, this::mapResultSetToOperationLog, action);
+    }
+
+    /**
+     * 由查询条件生成 SELECT ... WHERE 语句，参数依次加入params
+     */
+    private static StringBuilder selectWhere(OperationLogQuery query, List<Object> params) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM operation_logs WHERE 1 = 1");
+        if (query.getOperationType() != null) {
+            sql.append(" AND operation_type = ?");
+            params.add(query.getOperationType());
+        }
+        if (query.getEntityType() != null) {
+            sql.append(" AND entity_type = ?");
+            params.add(query.getEntityType());
+        }
+        if (query.getUserId() != null) {
+            sql.append(" AND user_id = ?");
+            params.add(query.getUserId());
+        }
+        if (query.getStartTime() != null) {
+            sql.append(" AND created_at >= ?");
+            params.add(Timestamp.valueOf(query.getStartTime()));
+        }
+        if (query.getEndTime() != null) {
+            sql.append(" AND created_at <= ?");
+            params.add(Timestamp.valueOf(query.getEndTime()));
+        }
+        return sql;
+    }
+
     /**
      * 根据时间范围查询操作日志
      */
@@ -166,23 +301,66 @@ public class OperationLogDAO {
 
     /**
      * 删除指定时间之前的日志
+     * 更早的日期的汇总行直接删除，截止时间所在的那一天只剩部分日志，由剩余日志重新汇总
      */
     public int deleteBefore(LocalDateTime beforeTime) throws SQLException {
-        String sql = "DELETE FROM operation_logs WHERE created_at < ?";
+        Timestamp before = Timestamp.valueOf(beforeTime);
 
         try (Connection conn = DatabaseManager.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
+                PreparedStatement delete = conn.prepareStatement("DELETE FROM operation_logs WHERE created_at < ?");
+                PreparedStatement deleteRollup = conn.prepareStatement(
+                        "DELETE FROM operation_log_daily WHERE day <= DATE(?)");
+                PreparedStatement resummarize = conn.prepareStatement("INSERT INTO operation_log_daily "
+                        + "(day, operation_type, entity_type, user_id, count) " + ROLLUP_SELECT_SQL
+                        + " WHERE created_at >= DATE(?) AND created_at < DATE(?) + INTERVAL 1 DAY" + ROLLUP_GROUP_BY
+                        + " ON DUPLICATE KEY UPDATE count = VALUES(count)")) {
+            conn.setAutoCommit(false);
+            try {
+                delete.setTimestamp(1, before);
+                int deleted = delete.executeUpdate();
+                deleteRollup.setTimestamp(1, before);
+                deleteRollup.executeUpdate();
+                resummarize.setTimestamp(1, before);
+                resummarize.setTimestamp(2, before);
+                resummarize.executeUpdate();
+                conn.commit();
+                return deleted;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
 
-            stmt.setTimestamp(1, Timestamp.valueOf(beforeTime));
-            return stmt.executeUpdate();
+    /**
+     * 由原始日志重建每日汇总（在调用方的连接上执行，用于恢复备份等直接改写日志表之后）
+     *
+     * @return 汇总行数
+     */
+    public static int rebuildDailyRollup(Connection conn) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM operation_log_daily");
+            int rows = stmt.executeUpdate("INSERT INTO operation_log_daily "
+                    + "(day, operation_type, entity_type, user_id, count) " + ROLLUP_SELECT_SQL + ROLLUP_GROUP_BY);
+            conn.commit();
+            return rows;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
         }
     }
 
     /**
-     * 获取操作日志总数
+     * 获取操作日志总数（汇总行之和）
      */
     public int count() throws SQLException {
-        String sql = "SELECT COUNT(*) FROM operation_logs";
+        String sql = "SELECT COALESCE(SUM(count), 0) FROM operation_log_daily";
 
         try (Connection conn = DatabaseManager.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql);
@@ -199,7 +377,7 @@ public class OperationLogDAO {
      * 获取按操作类型统计的数据
      */
     public Map<String, Integer> getOperationTypeStatistics() throws SQLException {
-        String sql = "SELECT operation_type, COUNT(*) as count FROM operation_logs GROUP BY operation_type";
+        String sql = "SELECT operation_type, SUM(count) as count FROM operation_log_daily GROUP BY operation_type";
         Map<String, Integer> stats = new HashMap<>();
 
         try (Connection conn = DatabaseManager.getConnection();
@@ -217,7 +395,7 @@ public class OperationLogDAO {
      * 获取按实体类型统计的数据
      */
     public Map<String, Integer> getEntityTypeStatistics() throws SQLException {
-        String sql = "SELECT entity_type, COUNT(*) as count FROM operation_logs GROUP BY entity_type";
+        String sql = "SELECT entity_type, SUM(count) as count FROM operation_log_daily GROUP BY entity_type";
         Map<String, Integer> stats = new HashMap<>();
 
         try (Connection conn = DatabaseManager.getConnection();
@@ -232,13 +410,13 @@ public class OperationLogDAO {
     }
 
     /**
-     * 获取最近N天的日志统计
+     * 获取最近N天的日志统计（按整天统计，包括N天前当天的全部日志）
      */
     public Map<String, Integer> getRecentDaysStatistics(int days) throws SQLException {
-        String sql = "SELECT DATE(created_at) as date, COUNT(*) as count " +
-                "FROM operation_logs " +
-                "WHERE created_at >= DATE_SUB(NOW(), INTERVAL ? DAY) " +
-                "GROUP BY DATE(created_at) " +
+        String sql = "SELECT day as date, SUM(count) as count " +
+                "FROM operation_log_daily " +
+                "WHERE day >= DATE(DATE_SUB(NOW(), INTERVAL ? DAY)) " +
+                "GROUP BY day " +
                 "ORDER BY date DESC";
         Map<String, Integer> stats = new HashMap<>();
 
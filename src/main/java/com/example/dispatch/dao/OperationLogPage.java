@@ -0,0 +1,55 @@
+package com.example.dispatch.dao;
+
+import com.example.dispatch.model.OperationLog;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 操作日志分页结果（按 created_at, id 倒序的键集分页）
+ */
+public class OperationLogPage {
+    private final List<OperationLog> logs;
+    private final Cursor nextCursor;
+
+    public OperationLogPage(List<OperationLog> logs, Cursor nextCursor) {
+        this.logs = logs;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<OperationLog> getLogs() {
+        return logs;
+    }
+
+    /**
+     * 下一页游标，null表示没有更多数据
+     */
+    public Cursor getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    /**
+     * 分页游标：上一页最后一条日志的 (created_at, id)
+     */
+    public static final class Cursor {
+        private final LocalDateTime createdAt;
+        private final int id;
+
+        public Cursor(LocalDateTime createdAt, int id) {
+            this.createdAt = createdAt;
+            this.id = id;
+        }
+
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+
+        public int getId() {
+            return id;
+        }
+    }
+}
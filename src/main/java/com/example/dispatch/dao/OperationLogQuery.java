@@ -0,0 +1,56 @@
+package com.example.dispatch.dao;
+
+import java.time.LocalDateTime;
+
+/**
+ * 操作日志查询条件
+ * 未设置（null）的条件不参与筛选，所有条件在SQL中组合执行
+ */
+public class OperationLogQuery {
+    private String operationType;
+    private String entityType;
+    private Integer userId;
+    private LocalDateTime startTime; // 包含
+    private LocalDateTime endTime; // 包含
+
+    public OperationLogQuery operationType(String operationType) {
+        this.operationType = operationType;
+        return this;
+    }
+
+    public OperationLogQuery entityType(String entityType) {
+        this.entityType = entityType;
+        return this;
+    }
+
+    public OperationLogQuery userId(Integer userId) {
+        this.userId = userId;
+        return this;
+    }
+
+    public OperationLogQuery timeRange(LocalDateTime startTime, LocalDateTime endTime) {
+        this.startTime = startTime;
+        this.endTime = endTime;
+        return this;
+    }
+
+    public String getOperationType() {
+        return operationType;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+}
@@ -0,0 +1,509 @@
+package com.example.dispatch.dao;
+
+import com.example.dispatch.model.OperationLog;
+import com.example.dispatch.storage.Storage;
+import com.example.dispatch.util.MpscRingBuffer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 操作日志异步写入器
+ * 调用方把日志放入无锁环形队列后立即返回；后台写线程按条数或时间间隔批量写入operation_logs。
+ * 队列满时调用方短暂等待（背压），仍无空间则直接写入本地溢出文件。
+ * 数据库不可用时整批日志追加到溢出文件，数据库恢复后自动回放。
+ * 回放时因数据本身被拒绝（SQLState 22数据错误、23约束冲突）的日志移到 .rejected 文件，不再重试。
+ */
+public class OperationLogSink {
+
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final int BATCH_SIZE = 500;
+    private static final long FLUSH_INTERVAL_MS = 200; // 队列中最早一条日志最多等待的时间
+    private static final long OFFER_TIMEOUT_MS = 100; // 队列满时调用方最多等待的时间
+    private static final long REPLAY_INTERVAL_MS = 5_000; // 溢出文件回放重试间隔
+    private static final Path SPILL_FILE = Paths.get("logs", "operation_logs.spill");
+    private static final Path REPLAYING_FILE = Paths.get("logs", "operation_logs.spill.replaying");
+    private static final Path REJECTED_FILE = Paths.get("logs", "operation_logs.rejected");
+    private static final String NULL_FIELD = "\\N";
+
+    private static final MpscRingBuffer<OperationLog> QUEUE = new MpscRingBuffer<>(QUEUE_CAPACITY);
+    private static final Object SPILL_LOCK = new Object();
+    // 写数据库期间持有，pause借此等待正在进行的写入结束
+    private static final Object WRITE_LOCK = new Object();
+
+    // 统计
+    private static final LongAdder enqueued = new LongAdder();
+    private static final LongAdder written = new LongAdder();
+    private static final LongAdder spilled = new LongAdder();
+    private static final LongAdder replayed = new LongAdder();
+    private static final LongAdder rejected = new LongAdder();
+    private static final LongAdder flushes = new LongAdder();
+
+    private static volatile Thread writer;
+    private static volatile boolean running = false;
+    private static volatile boolean stopped = false;
+    private static volatile boolean paused = false;
+    private static volatile boolean spillPending = true; // 启动时检查一次遗留的溢出文件
+
+    /**
+     * 记录系统操作日志（无用户ID）
+     */
+    public static void log(String operationType, String entityType, String entityId, String description) {
+        submit(new OperationLog(operationType, entityType, entityId, description));
+    }
+
+    /**
+     * 提交操作日志，通常只需几微秒
+     */
+    public static void submit(OperationLog log) {
+        if (stopped) {
+            // 写线程已停止，同步写入
+            writeBatch(new ArrayList<>(List.of(log)));
+            return;
+        }
+        ensureStarted();
+
+        if (QUEUE.offer(log)) {
+            onEnqueued();
+            return;
+        }
+
+        // 队列已满：唤醒写线程并短暂等待
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(OFFER_TIMEOUT_MS);
+        while (System.nanoTime() < deadline) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(100_000);
+            if (QUEUE.offer(log)) {
+                onEnqueued();
+                return;
+            }
+        }
+
+        System.err.println("操作日志队列已满，写入本地溢出文件");
+        spill(List.of(log));
+    }
+
+    private static void onEnqueued() {
+        enqueued.increment();
+        if (QUEUE.size() >= BATCH_SIZE) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private static void ensureStarted() {
+        if (running) {
+            return;
+        }
+        synchronized (OperationLogSink.class) {
+            if (running || stopped) {
+                return;
+            }
+            Thread t = new Thread(OperationLogSink::runWriter, "operation-log-writer");
+            t.setDaemon(true);
+            writer = t;
+            running = true;
+            t.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(OperationLogSink::shutdown, "operation-log-flush"));
+        }
+    }
+
+    /**
+     * 写线程主循环
+     */
+    private static void runWriter() {
+        List<OperationLog> batch = new ArrayList<>(BATCH_SIZE);
+        long firstQueuedAt = 0;
+        long lastReplayAttempt = 0;
+
+        while (running || !QUEUE.isEmpty() || !batch.isEmpty()) {
+            if (paused && running) {
+                // 暂停期间日志留在队列中（队列满时进入溢出文件），恢复后照常写入
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MS));
+                continue;
+            }
+            QUEUE.drainTo(batch, BATCH_SIZE - batch.size());
+            long now = System.currentTimeMillis();
+            if (!batch.isEmpty() && firstQueuedAt == 0) {
+                firstQueuedAt = now;
+            }
+
+            boolean full = batch.size() >= BATCH_SIZE;
+            boolean due = !batch.isEmpty() && (!running || now - firstQueuedAt >= FLUSH_INTERVAL_MS);
+            if (full || due) {
+                writeBatch(batch);
+                batch.clear();
+                firstQueuedAt = 0;
+                continue;
+            }
+
+            if (spillPending && running && now - lastReplayAttempt >= REPLAY_INTERVAL_MS) {
+                lastReplayAttempt = now;
+                synchronized (WRITE_LOCK) {
+                    if (!paused) {
+                        replaySpill();
+                    }
+                }
+            }
+
+            long parkMs = batch.isEmpty() ? FLUSH_INTERVAL_MS : Math.max(1, FLUSH_INTERVAL_MS - (now - firstQueuedAt));
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(parkMs));
+        }
+    }
+
+    /**
+     * 写入一批日志，失败则转存溢出文件
+     */
+    private static void writeBatch(List<OperationLog> batch) {
+        synchronized (WRITE_LOCK) {
+            if (paused) {
+                spill(batch);
+                return;
+            }
+            try {
+                Storage.get().operationLogs().saveBatch(batch);
+                written.add(batch.size());
+                flushes.increment();
+            } catch (SQLException e) {
+                System.err.println("批量写入操作日志失败，转存本地文件: " + e.getMessage());
+                spill(batch);
+            }
+        }
+    }
+
+    /**
+     * 追加到本地溢出文件
+     */
+    private static void spill(List<OperationLog> logs) {
+        synchronized (SPILL_LOCK) {
+            try {
+                Files.createDirectories(SPILL_FILE.getParent());
+                try (BufferedWriter out = Files.newBufferedWriter(SPILL_FILE, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    for (OperationLog log : logs) {
+                        out.write(encode(log));
+                        out.newLine();
+                    }
+                }
+                spilled.add(logs.size());
+                spillPending = true;
+            } catch (IOException e) {
+                System.err.println("写入操作日志溢出文件失败，丢失 " + logs.size() + " 条日志: " + e.getMessage());
+                logs.forEach(log -> System.err.println("  " + log));
+            }
+        }
+    }
+
+    /**
+     * 回放溢出文件。文件先改名再读取，回放期间新的溢出写入新文件；
+     * 数据库仍不可用时把未回放的行放回溢出文件
+     */
+    private static void replaySpill() {
+        try {
+            synchronized (SPILL_LOCK) {
+                if (!Files.exists(REPLAYING_FILE)) {
+                    if (!Files.exists(SPILL_FILE)) {
+                        spillPending = false;
+                        return;
+                    }
+                    Files.move(SPILL_FILE, REPLAYING_FILE, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+
+            int count = 0;
+            boolean failed = false;
+            try (BufferedReader in = Files.newBufferedReader(REPLAYING_FILE, StandardCharsets.UTF_8)) {
+                List<String> lines = new ArrayList<>(BATCH_SIZE);
+                while (true) {
+                    lines.clear();
+                    String line;
+                    while (lines.size() < BATCH_SIZE && (line = in.readLine()) != null) {
+                        if (!line.isEmpty()) {
+                            lines.add(line);
+                        }
+                    }
+                    if (lines.isEmpty()) {
+                        break;
+                    }
+
+                    List<String> valid = new ArrayList<>(lines.size());
+                    List<OperationLog> chunk = new ArrayList<>(lines.size());
+                    for (String l : lines) {
+                        OperationLog log = decode(l);
+                        if (log != null) {
+                            valid.add(l);
+                            chunk.add(log);
+                        } else {
+                            reject(List.of(l));
+                        }
+                    }
+                    try {
+                        Storage.get().operationLogs().saveBatch(chunk);
+                        count += chunk.size();
+                    } catch (SQLException e) {
+                        if (!isRejectedData(e)) {
+                            putBack(valid, in);
+                            failed = true;
+                            break;
+                        }
+                        // 批中有数据被拒绝的日志：逐条重试，找出并移走被拒绝的行
+                        int saved = replayOneByOne(valid, chunk, in);
+                        if (saved < 0) {
+                            failed = true;
+                            break;
+                        }
+                        count += saved;
+                    }
+                }
+            }
+            Files.deleteIfExists(REPLAYING_FILE);
+
+            replayed.add(count);
+            written.add(count);
+            if (count > 0) {
+                System.out.println("已回放溢出文件中的 " + count + " 条操作日志");
+            }
+            synchronized (SPILL_LOCK) {
+                spillPending = failed || Files.exists(SPILL_FILE);
+            }
+        } catch (IOException e) {
+            System.err.println("回放操作日志溢出文件失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 逐条回放一批日志，被拒绝的行移到 .rejected 文件
+     *
+     * @return 写入的条数；遇到数据库不可用等可重试的错误时把剩余行放回溢出文件并返回-1
+     */
+    private static int replayOneByOne(List<String> lines, List<OperationLog> logs, BufferedReader rest)
+            throws IOException {
+        int saved = 0;
+        for (int i = 0; i < logs.size(); i++) {
+            try {
+                Storage.get().operationLogs().saveBatch(List.of(logs.get(i)));
+                saved++;
+            } catch (SQLException e) {
+                if (!isRejectedData(e)) {
+                    putBack(lines.subList(i, lines.size()), rest);
+                    replayed.add(saved);
+                    written.add(saved);
+                    return -1;
+                }
+                System.err.println("操作日志被数据库拒绝（SQLState " + e.getSQLState() + "），移到 " + REJECTED_FILE
+                        + ": " + e.getMessage());
+                reject(List.of(lines.get(i)));
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * 数据本身被拒绝（数据错误、约束冲突），重试也不会成功；连接错误等其它情况可以稍后重试
+     */
+    private static boolean isRejectedData(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLDataException || t instanceof SQLIntegrityConstraintViolationException) {
+                return true;
+            }
+            if (t instanceof SQLException) {
+                String state = ((SQLException) t).getSQLState();
+                if (state != null && (state.startsWith("22") || state.startsWith("23"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 追加到被拒绝日志文件（保留原始行，供人工检查）
+     */
+    private static void reject(List<String> lines) throws IOException {
+        synchronized (SPILL_LOCK) {
+            Files.createDirectories(REJECTED_FILE.getParent());
+            try (BufferedWriter out = Files.newBufferedWriter(REJECTED_FILE, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (String line : lines) {
+                    out.write(line);
+                    out.newLine();
+                }
+            }
+            rejected.add(lines.size());
+        }
+    }
+
+    private static void putBack(List<String> pending, BufferedReader rest) throws IOException {
+        synchronized (SPILL_LOCK) {
+            Files.createDirectories(SPILL_FILE.getParent());
+            try (BufferedWriter out = Files.newBufferedWriter(SPILL_FILE, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (String line : pending) {
+                    out.write(line);
+                    out.newLine();
+                }
+                String line;
+                while ((line = rest.readLine()) != null) {
+                    out.write(line);
+                    out.newLine();
+                }
+            }
+        }
+    }
+
+    // 溢出文件格式：每行一条日志，字段以制表符分隔
+    private static String encode(OperationLog log) {
+        return String.join("\t",
+                log.getCreatedAt().toString(),
+                escape(log.getOperationType()),
+                escape(log.getEntityType()),
+                escape(log.getEntityId()),
+                escape(log.getDescription()),
+                log.getUserId() == null ? NULL_FIELD : log.getUserId().toString());
+    }
+
+    private static OperationLog decode(String line) {
+        String[] f = line.split("\t", -1);
+        if (f.length != 6) {
+            System.err.println("溢出日志行格式错误，移到 " + REJECTED_FILE + ": " + line);
+            return null;
+        }
+        try {
+            Integer userId = NULL_FIELD.equals(f[5]) ? null : Integer.valueOf(f[5]);
+            return new OperationLog(0, unescape(f[1]), unescape(f[2]), unescape(f[3]), unescape(f[4]), userId,
+                    LocalDateTime.parse(f[0]));
+        } catch (RuntimeException e) {
+            System.err.println("溢出日志行格式错误，移到 " + REJECTED_FILE + ": " + line);
+            return null;
+        }
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return NULL_FIELD;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String unescape(String value) {
+        if (NULL_FIELD.equals(value)) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                switch (next) {
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    default:
+                        sb.append(next);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 暂停写入数据库并等待正在进行的写入结束（用于从备份恢复期间）
+     * 暂停期间提交的日志留在队列中，队列满或写线程停止时进入溢出文件，resume后写入
+     */
+    public static void pause() {
+        paused = true;
+        synchronized (WRITE_LOCK) {
+            // 等待正在进行的写入或回放结束
+        }
+        System.out.println("操作日志写入已暂停");
+    }
+
+    /**
+     * 恢复写入数据库
+     */
+    public static void resume() {
+        paused = false;
+        spillPending = true;
+        Thread t = writer;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+        System.out.println("操作日志写入已恢复");
+    }
+
+    /**
+     * 停止写线程并写出队列中剩余的日志
+     */
+    public static void shutdown() {
+        Thread t;
+        synchronized (OperationLogSink.class) {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+            running = false;
+            t = writer;
+        }
+        if (t != null) {
+            LockSupport.unpark(t);
+            try {
+                t.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        System.out.println("操作日志写入器已停止: " + getStatus());
+    }
+
+    /**
+     * 运行统计
+     */
+    public static String getStatus() {
+        return "入队=" + enqueued.sum() + ", 已写入=" + written.sum() + ", 批次=" + flushes.sum()
+                + ", 溢出=" + spilled.sum() + ", 回放=" + replayed.sum() + ", 拒绝=" + rejected.sum()
+                + ", 队列中=" + QUEUE.size();
+    }
+}
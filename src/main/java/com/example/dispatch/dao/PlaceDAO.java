@@ -0,0 +1,53 @@
+package com.example.dispatch.dao;
+
+import com.example.dispatch.database.DatabaseManager;
+import com.example.dispatch.model.GeoPoint;
+
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 地名→坐标对照表（places）数据访问类
+ */
+public class PlaceDAO {
+
+    /**
+     * 获取全部地名坐标
+     */
+    public Map<String, GeoPoint> findAll() throws SQLException {
+        Map<String, GeoPoint> places = new HashMap<>();
+        String sql = "SELECT name, latitude, longitude FROM places";
+
+        try (Connection conn = DatabaseManager.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql);
+                ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                places.put(rs.getString("name"),
+                        new GeoPoint(rs.getDouble("latitude"), rs.getDouble("longitude")));
+            }
+        }
+        return places;
+    }
+
+    /**
+     * 新增或更新地名坐标
+     */
+    public void save(String name, GeoPoint point) throws SQLException {
+        String sql = "INSERT INTO places (name, latitude, longitude) VALUES (?, ?, ?) "
+                + "ON DUPLICATE KEY UPDATE latitude = VALUES(latitude), longitude = VALUES(longitude)";
+
+        try (Connection conn = DatabaseManager.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, name);
+            stmt.setDouble(2, point.getLatitude());
+            stmt.setDouble(3, point.getLongitude());
+            stmt.executeUpdate();
+
+            // 记录操作日志
+            OperationLogSink.log("UPDATE", "SYSTEM", name, "设置地名坐标: " + name + " " + point);
+        }
+    }
+}
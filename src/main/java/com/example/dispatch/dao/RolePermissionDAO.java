@@ -0,0 +1,38 @@
+package com.example.dispatch.dao;
+
+import com.example.dispatch.database.DatabaseManager;
+import com.example.dispatch.util.Permission;
+
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 角色权限表（role_permissions）数据访问类
+ */
+public class RolePermissionDAO {
+
+    /**
+     * 获取所有角色的权限掩码（表中未知的权限名忽略）
+     */
+    public Map<String, Long> findAll() throws SQLException {
+        Map<String, Long> masks = new HashMap<>();
+        String sql = "SELECT role, permission FROM role_permissions";
+
+        try (Connection conn = DatabaseManager.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql);
+                ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                String role = rs.getString("role");
+                String name = rs.getString("permission");
+                try {
+                    masks.merge(role, Permission.valueOf(name).bit(), (a, b) -> a | b);
+                } catch (IllegalArgumentException e) {
+                    System.err.println("忽略未知权限: " + role + " / " + name);
+                }
+            }
+        }
+        return masks;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.dispatch.dao;
+
+import com.example.dispatch.database.DatabaseManager;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 增量同步数据访问类
+ * 删除记录（tombstone）与删除操作在同一事务中写入sync_tombstones，客户端按时间水位线拉取。
+ */
+public class SyncDAO {
+
+    // 特殊删除记录：数据被整体替换（如从备份恢复），客户端收到后改为全量加载
+    public static final String RESYNC = "RESYNC";
+
+    /**
+     * 一条删除记录
+     */
+    public static final class Tombstone {
+        private final String entityType;
+        private final String entityKey;
+        private final LocalDateTime deletedAt;
+
+        public Tombstone(String entityType, String entityKey, LocalDateTime deletedAt) {
+            this.entityType = entityType;
+            this.entityKey = entityKey;
+            this.deletedAt = deletedAt;
+        }
+
+        public String getEntityType() {
+            return entityType;
+        }
+
+        public String getEntityKey() {
+            return entityKey;
+        }
+
+        public LocalDateTime getDeletedAt() {
+            return deletedAt;
+        }
+    }
+
+    /**
+     * 在调用方的事务中记录一条删除
+     */
+    public static void recordDeletion(Connection conn, String entityType, String entityKey) throws SQLException {
+        String sql = "INSERT INTO sync_tombstones (entity_type, entity_key) VALUES (?, ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, entityType);
+            stmt.setString(2, entityKey);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * 记录一次整体替换，其它客户端下次增量同步时改为全量加载
+     */
+    public static void recordResync(Connection conn, String reason) throws SQLException {
+        recordDeletion(conn, RESYNC, reason);
+    }
+
+    /**
+     * 数据库当前时间（水位线以数据库时钟为准，避免客户端时钟偏差）
+     */
+    public LocalDateTime currentTimestamp() throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+                PreparedStatement stmt = conn.prepareStatement("SELECT CURRENT_TIMESTAMP");
+                ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getTimestamp(1).toLocalDateTime();
+        }
+    }
+
+    /**
+     * 获取指定时间（含）之后的删除记录
+     */
+    public List<Tombstone> findTombstonesSince(LocalDateTime since) throws SQLException {
+        List<Tombstone> tombstones = new ArrayList<>();
+        String sql = "SELECT entity_type, entity_key, deleted_at FROM sync_tombstones "
+                + "WHERE deleted_at >= ? ORDER BY id";
+
+        try (Connection conn = DatabaseManager.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setTimestamp(1, Timestamp.valueOf(since));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    tombstones.add(new Tombstone(
+                            rs.getString("entity_type"),
+                            rs.getString("entity_key"),
+                            rs.getTimestamp("deleted_at").toLocalDateTime()));
+                }
+            }
+        }
+        return tombstones;
+    }
+
+    /**
+     * 清理过期的删除记录
+     *
+     * @return 删除的行数
+     */
+    public int purgeTombstonesBefore(LocalDateTime before) throws SQLException {
+        String sql = "DELETE FROM sync_tombstones WHERE deleted_at < ?";
+
+        try (Connection conn = DatabaseManager.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setTimestamp(1, Timestamp.valueOf(before));
+            return stmt.executeUpdate();
+        }
+    }
+}
@@ -2,19 +2,24 @@ package com.example.dispatch.dao;
 
 import com.example.dispatch.database.DatabaseManager;
 import com.example.dispatch.model.Task;
+import com.example.dispatch.storage.TaskStore;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
-public class TaskDAO {
+public class TaskDAO implements TaskStore {
 
     // MySQL日期时间格式化器（yyyy-MM-dd HH:mm:ss）
     private static final DateTimeFormatter MYSQL_DATETIME_FORMATTER = DateTimeFormatter
             .ofPattern("yyyy-MM-dd HH:mm:ss");
 
+    // 批量保存时每个事务包含的默认行数
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
     /**
      * 获取所有任务
      */
@@ -34,6 +39,15 @@ public class TaskDAO {
         return tasks;
     }
 
+    /**
+     * 按findAll的顺序逐行遍历所有任务（游标分批读取，内存占用与表大小无关）
+     *
+     * @return 任务数
+     */
+    public int forEach(Consumer<? super Task> action) throws SQLException {
+        return CursorQuery.forEach("SELECT * FROM tasks ORDER BY created_at DESC", List.of(), this::mapResultSetToTask, action);
+    }
+
     /**
      * 根据名称查找任务
      */
@@ -53,6 +67,26 @@ public class TaskDAO {
         return null;
     }
 
+    /**
+     * 获取指定时间（含）之后新增或修改过的任务（增量同步用）
+     */
+    public List<Task> findUpdatedSince(LocalDateTime since) throws SQLException {
+        List<Task> result = new ArrayList<>();
+        String sql = "SELECT * FROM tasks WHERE updated_at >= ? ORDER BY name";
+
+        try (Connection conn = DatabaseManager.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setTimestamp(1, Timestamp.valueOf(since));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    result.add(mapResultSetToTask(rs));
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * 根据创建者查找任务
      */
@@ -131,47 +165,27 @@ public class TaskDAO {
      * 插入新任务
      */
     public void insert(Task task) throws SQLException {
-        // 首先尝试使用新字段，如果失败则使用旧字段
         String sql = "INSERT INTO tasks (name, destination, eta, vehicle_id, status, created_by) VALUES (?, ?, ?, ?, ?, ?)";
-        boolean useOldFormat = false;
-
-        try (Connection conn = DatabaseManager.getConnection()) {
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setString(1, task.getName());
-                stmt.setString(2, task.getDestination());
-                stmt.setString(3, task.getEta().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-                stmt.setString(4, task.getVehicleId());
-                stmt.setString(5, "待分配"); // 新任务默认状态
+
+        try (Connection conn = DatabaseManager.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, task.getName());
+            stmt.setString(2, task.getDestination());
+            stmt.setString(3, task.getEta().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            stmt.setString(4, task.getVehicleId());
+            stmt.setString(5, "待分配"); // 新任务默认状态
+            if (task.getCreatedBy() > 0) {
                 stmt.setInt(6, task.getCreatedBy());
-                stmt.executeUpdate();
-            }
-        } catch (SQLException e) {
-            // 如果新字段不存在，回退到旧格式
-            if (e.getMessage().contains("created_by")) {
-                useOldFormat = true;
             } else {
-                throw e;
+                stmt.setNull(6, Types.INTEGER);
             }
-        }
-
-        // 使用旧格式插入
-        if (useOldFormat) {
-            String oldSql = "INSERT INTO tasks (name, destination, eta, vehicle_id, status) VALUES (?, ?, ?, ?, ?)";
-            try (Connection conn = DatabaseManager.getConnection();
-                    PreparedStatement stmt = conn.prepareStatement(oldSql)) {
-
-                stmt.setString(1, task.getName());
-                stmt.setString(2, task.getDestination());
-                stmt.setString(3, task.getEta().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-                stmt.setString(4, task.getVehicleId());
-                stmt.setString(5, "待分配"); // 新任务默认状态
 
-                stmt.executeUpdate();
-            }
+            stmt.executeUpdate();
         }
 
         // 记录操作日志
-        logOperation("INSERT", "TASK", task.getName(), "新增任务: " + task.getName());
+        OperationLogSink.log("INSERT", "TASK", task.getName(), "新增任务: " + task.getName());
     }
 
     /**
@@ -192,7 +206,7 @@ public class TaskDAO {
             stmt.executeUpdate();
 
             // 记录操作日志
-            logOperation("UPDATE", "TASK", task.getName(), "更新任务: " + task.getName());
+            OperationLogSink.log("UPDATE", "TASK", task.getName(), "更新任务: " + task.getName());
         }
     }
 
@@ -206,18 +220,32 @@ public class TaskDAO {
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, name);
-            stmt.executeUpdate();
+
+            // 删除与删除记录在同一事务中提交
+            conn.setAutoCommit(false);
+            try {
+                if (stmt.executeUpdate() > 0) {
+                    SyncDAO.recordDeletion(conn, "TASK", name);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
 
             // 记录操作日志
-            logOperation("DELETE", "TASK", name, "删除任务: " + name);
+            OperationLogSink.log("DELETE", "TASK", name, "删除任务: " + name);
         }
     }
 
     /**
-     * 分配车辆给任务
+     * 分配车辆给任务（只更新仍处于待分配状态的任务，与assignVehicles一致）
      */
     public void assignVehicle(String taskName, String vehicleId) throws SQLException {
-        String sql = "UPDATE tasks SET vehicle_id = ?, status = '进行中', updated_at = CURRENT_TIMESTAMP WHERE name = ?";
+        String sql = "UPDATE tasks SET vehicle_id = ?, status = '进行中', updated_at = CURRENT_TIMESTAMP WHERE name = ?"
+                + (vehicleId != null ? " AND status = '待分配'" : "");
 
         try (Connection conn = DatabaseManager.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -225,13 +253,47 @@ public class TaskDAO {
             stmt.setString(1, vehicleId);
             stmt.setString(2, taskName);
 
-            stmt.executeUpdate();
+            if (stmt.executeUpdate() == 0 && vehicleId != null) {
+                throw new SQLException("分配冲突：任务 " + taskName + " 已不是待分配状态");
+            }
 
             // 记录操作日志
-            logOperation("ASSIGN", "TASK", taskName, "分配车辆 " + vehicleId + " 给任务 " + taskName);
+            OperationLogSink.log("ASSIGN", "TASK", taskName, "分配车辆 " + vehicleId + " 给任务 " + taskName);
         }
     }
 
+    /**
+     * 在调用方的事务中批量分配车辆，只更新仍处于待分配状态的任务
+     *
+     * @param assignments 任务名 → 车辆ID
+     * @return 实际更新的任务数，小于assignments.size()说明有任务已被并发修改
+     */
+    public int assignVehicles(Connection conn, java.util.Map<String, String> assignments) throws SQLException {
+        String sql = "UPDATE tasks SET vehicle_id = ?, status = '进行中', updated_at = CURRENT_TIMESTAMP "
+                + "WHERE name = ? AND status = '待分配'";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (java.util.Map.Entry<String, String> entry : assignments.entrySet()) {
+                stmt.setString(1, entry.getValue());
+                stmt.setString(2, entry.getKey());
+                stmt.addBatch();
+            }
+            return countUpdated(stmt.executeBatch());
+        }
+    }
+
+    static int countUpdated(int[] results) {
+        int updated = 0;
+        for (int result : results) {
+            if (result > 0) {
+                updated += result;
+            } else if (result == Statement.SUCCESS_NO_INFO) {
+                updated++;
+            }
+        }
+        return updated;
+    }
+
     /**
      * 完成任务
      */
@@ -245,28 +307,79 @@ public class TaskDAO {
             stmt.executeUpdate();
 
             // 记录操作日志
-            logOperation("COMPLETE", "TASK", taskName, "完成任务: " + taskName);
+            OperationLogSink.log("COMPLETE", "TASK", taskName, "完成任务: " + taskName);
         }
     }
 
     /**
      * 批量保存任务
      */
-    public void saveAll(List<Task> tasks) throws SQLException {
-        try (Connection conn = DatabaseManager.getConnection()) {
+    public int saveAll(List<Task> tasks) throws SQLException {
+        return saveAll(tasks, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * 批量保存任务（INSERT ... ON DUPLICATE KEY UPDATE + JDBC批处理）
+     * 与save()语义一致：新任务状态为"待分配"，已存在的任务（按名称）更新后状态为"进行中"。
+     * 每批batchSize行在一个事务内提交；某一批失败时回滚该批并抛出异常，之前的批次保持已提交
+     *
+     * @return 写入的行数
+     */
+    public int saveAll(List<Task> tasks, int batchSize) throws SQLException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("批量大小必须大于0: " + batchSize);
+        }
+        if (tasks.isEmpty()) {
+            return 0;
+        }
+
+        String sql = "INSERT INTO tasks (name, destination, eta, vehicle_id, status, created_by) "
+                + "VALUES (?, ?, ?, ?, '待分配', ?) "
+                + "ON DUPLICATE KEY UPDATE destination = VALUES(destination), eta = VALUES(eta), "
+                + "vehicle_id = VALUES(vehicle_id), status = '进行中', updated_at = CURRENT_TIMESTAMP";
+        long start = System.nanoTime();
+        int written = 0;
+
+        try (Connection conn = DatabaseManager.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
             conn.setAutoCommit(false);
             try {
-                for (Task task : tasks) {
-                    save(task);
+                for (int from = 0; from < tasks.size(); from += batchSize) {
+                    int to = Math.min(from + batchSize, tasks.size());
+                    for (Task task : tasks.subList(from, to)) {
+                        stmt.setString(1, task.getName());
+                        stmt.setString(2, task.getDestination());
+                        stmt.setTimestamp(3, Timestamp.valueOf(task.getEta()));
+                        stmt.setString(4, task.getVehicleId());
+                        if (task.getCreatedBy() > 0) {
+                            stmt.setInt(5, task.getCreatedBy());
+                        } else {
+                            stmt.setNull(5, Types.INTEGER);
+                        }
+                        stmt.addBatch();
+                    }
+                    try {
+                        stmt.executeBatch();
+                        conn.commit();
+                    } catch (SQLException e) {
+                        conn.rollback();
+                        throw new SQLException("批量保存任务失败（第 " + (from + 1) + "-" + to + " 行）: "
+                                + e.getMessage(), e);
+                    }
+                    written += to - from;
                 }
-                conn.commit();
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
             } finally {
                 conn.setAutoCommit(true);
             }
         }
+
+        double seconds = Math.max((System.nanoTime() - start) / 1_000_000_000.0, 1e-9);
+        System.out.println(String.format("批量保存任务 %d 条，耗时 %.3f 秒（%.0f 行/秒）",
+                written, seconds, written / seconds));
+
+        // 记录操作日志（整批一条）
+        OperationLogSink.log("IMPORT", "TASK", null, "批量保存任务: " + written + " 个");
+        return written;
     }
 
     /**
@@ -304,6 +417,25 @@ public class TaskDAO {
         return statusCount;
     }
 
+    /**
+     * 统计每辆车未完成的任务数（一次GROUP BY查询）
+     */
+    public java.util.Map<String, Integer> countActiveByVehicle() throws SQLException {
+        String sql = "SELECT vehicle_id, COUNT(*) as count FROM tasks "
+                + "WHERE vehicle_id IS NOT NULL AND status <> '已完成' GROUP BY vehicle_id";
+        java.util.Map<String, Integer> counts = new java.util.HashMap<>();
+
+        try (Connection conn = DatabaseManager.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql);
+                ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                counts.put(rs.getString("vehicle_id"), rs.getInt("count"));
+            }
+        }
+        return counts;
+    }
+
     /**
      * 获取超期任务
      */
@@ -327,49 +459,13 @@ public class TaskDAO {
      * ResultSet映射为Task对象
      */
     private Task mapResultSetToTask(ResultSet rs) throws SQLException {
-        try {
-            // 尝试读取created_by字段，如果不存在则使用默认值0
-            int createdBy = 0;
-            try {
-                createdBy = rs.getInt("created_by");
-                if (rs.wasNull()) {
-                    createdBy = 0;
-                }
-            } catch (SQLException e) {
-                // 字段不存在，使用默认值
-                createdBy = 0;
-            }
-
-            Task task = new Task(
-                    rs.getString("name"),
-                    rs.getString("destination"),
-                    LocalDateTime.parse(rs.getString("eta"), MYSQL_DATETIME_FORMATTER),
-                    createdBy);
-            task.assignVehicle(rs.getString("vehicle_id"));
-            return task;
-        } catch (SQLException e) {
-            throw new SQLException("读取任务数据失败: " + e.getMessage(), e);
-        }
-    }
-
-    /**
-     * 记录操作日志
-     */
-    private void logOperation(String operationType, String entityType, String entityId, String description) {
-        try {
-            String sql = "INSERT INTO operation_logs (operation_type, entity_type, entity_id, description) VALUES (?, ?, ?, ?)";
-
-            try (Connection conn = DatabaseManager.getConnection();
-                    PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-                stmt.setString(1, operationType);
-                stmt.setString(2, entityType);
-                stmt.setString(3, entityId);
-                stmt.setString(4, description);
-                stmt.executeUpdate();
-            }
-        } catch (SQLException e) {
-            System.err.println("记录操作日志失败: " + e.getMessage());
-        }
+        Task task = new Task(
+                rs.getString("name"),
+                rs.getString("destination"),
+                LocalDateTime.parse(rs.getString("eta"), MYSQL_DATETIME_FORMATTER),
+                rs.getInt("created_by")); // NULL（无创建者）读为0
+        task.assignVehicle(rs.getString("vehicle_id"));
+        task.setStatus(rs.getString("status"));
+        return task;
     }
 }
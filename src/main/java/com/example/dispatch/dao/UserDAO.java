@@ -2,13 +2,15 @@ package com.example.dispatch.dao;
 
 import com.example.dispatch.database.DatabaseManager;
 import com.example.dispatch.model.User;
+import com.example.dispatch.storage.UserStore;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
-public class UserDAO {
+public class UserDAO implements UserStore {
 
     /**
      * 根据用户名查找用户
@@ -66,6 +68,35 @@ public class UserDAO {
         return users;
     }
 
+    /**
+     * 按findAll的顺序逐行遍历所有用户（游标分批读取，内存占用与表大小无关）
+     *
+     * @return 用户数
+     */
+    public int forEach(Consumer<? super User> action) throws SQLException {
+        return CursorQuery.forEach("SELECT * FROM users ORDER BY id", List.of(), this::mapResultSetToUser, action);
+    }
+
+    /**
+     * 获取指定时间（含）之后新增或修改过的用户（增量同步用）
+     */
+    public List<User> findUpdatedSince(LocalDateTime since) throws SQLException {
+        List<User> result = new ArrayList<>();
+        String sql = "SELECT * FROM users WHERE updated_at >= ? ORDER BY id";
+
+        try (Connection conn = DatabaseManager.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setTimestamp(1, Timestamp.valueOf(since));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    result.add(mapResultSetToUser(rs));
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * 保存用户（新增或更新）
      */
@@ -93,7 +124,7 @@ public class UserDAO {
             stmt.executeUpdate();
 
             // 记录操作日志
-            logOperation("INSERT", "USER", user.getUsername(), "新增用户: " + user.getUsername());
+            OperationLogSink.log("INSERT", "USER", user.getUsername(), "新增用户: " + user.getUsername());
         }
     }
 
@@ -114,7 +145,7 @@ public class UserDAO {
             stmt.executeUpdate();
 
             // 记录操作日志
-            logOperation("UPDATE", "USER", user.getUsername(), "更新用户: " + user.getUsername());
+            OperationLogSink.log("UPDATE", "USER", user.getUsername(), "更新用户: " + user.getUsername());
         }
     }
 
@@ -125,14 +156,40 @@ public class UserDAO {
         String sql = "DELETE FROM users WHERE username = ?";
 
         try (Connection conn = DatabaseManager.getConnection();
+                PreparedStatement select = conn.prepareStatement("SELECT id FROM users WHERE username = ? FOR UPDATE");
+                PreparedStatement detachVehicles = conn.prepareStatement(
+                        "UPDATE vehicles SET created_by = NULL, updated_at = CURRENT_TIMESTAMP WHERE created_by = ?");
+                PreparedStatement detachTasks = conn.prepareStatement(
+                        "UPDATE tasks SET created_by = NULL, updated_at = CURRENT_TIMESTAMP WHERE created_by = ?");
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setString(1, username);
-
-            stmt.executeUpdate();
+            // 删除记录以用户ID为键，与删除在同一事务中提交
+            conn.setAutoCommit(false);
+            try {
+                select.setString(1, username);
+                try (ResultSet rs = select.executeQuery()) {
+                    if (rs.next()) {
+                        // 先显式清空创建者：外键ON DELETE SET NULL的级联修改不更新updated_at，增量同步和增量备份会漏掉
+                        int userId = rs.getInt("id");
+                        detachVehicles.setInt(1, userId);
+                        detachVehicles.executeUpdate();
+                        detachTasks.setInt(1, userId);
+                        detachTasks.executeUpdate();
+                        stmt.setString(1, username);
+                        stmt.executeUpdate();
+                        SyncDAO.recordDeletion(conn, "USER", String.valueOf(rs.getInt("id")));
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
 
             // 记录操作日志
-            logOperation("DELETE", "USER", username, "删除用户: " + username);
+            OperationLogSink.log("DELETE", "USER", username, "删除用户: " + username);
         }
     }
 
@@ -200,27 +257,4 @@ public class UserDAO {
                 rs.getString("role"),
                 rs.getTimestamp("created_at").toLocalDateTime());
     }
-
-    /**
-     * 记录操作日志
-     */
-    private void logOperation(String operationType, String entityType, String entityId, String description) {
-        try {
-            String sql = "INSERT INTO operation_logs (operation_type, entity_type, entity_id, description) VALUES (?, ?, ?, ?)";
-
-            try (Connection conn = DatabaseManager.getConnection();
-                    PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-                stmt.setString(1, operationType);
-                stmt.setString(2, entityType);
-                stmt.setString(3, entityId);
-                stmt.setString(4, description);
-
-                stmt.executeUpdate();
-            }
-        } catch (SQLException e) {
-            // 日志记录失败不影响主要操作
-            System.err.println("记录操作日志失败: " + e.getMessage());
-        }
-    }
-}
\ No newline at end of file
+}
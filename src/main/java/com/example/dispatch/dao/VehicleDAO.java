@@ -2,12 +2,18 @@ package com.example.dispatch.dao;
 
 import com.example.dispatch.database.DatabaseManager;
 import com.example.dispatch.model.Vehicle;
+import com.example.dispatch.storage.VehicleStore;
 
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
-public class VehicleDAO {
+public class VehicleDAO implements VehicleStore {
+
+    // 批量保存时每个事务包含的默认行数
+    public static final int DEFAULT_BATCH_SIZE = 1000;
 
     /**
      * 获取所有车辆
@@ -28,6 +34,15 @@ public class VehicleDAO {
         return vehicles;
     }
 
+    /**
+     * 按findAll的顺序逐行遍历所有车辆（游标分批读取，内存占用与表大小无关）
+     *
+     * @return 车辆数
+     */
+    public int forEach(Consumer<? super Vehicle> action) throws SQLException {
+        return CursorQuery.forEach("SELECT * FROM vehicles ORDER BY id", List.of(), this::mapResultSetToVehicle, action);
+    }
+
     /**
      * 根据ID查找车辆
      */
@@ -47,6 +62,26 @@ public class VehicleDAO {
         return null;
     }
 
+    /**
+     * 获取指定时间（含）之后新增或修改过的车辆（增量同步用）
+     */
+    public List<Vehicle> findUpdatedSince(LocalDateTime since) throws SQLException {
+        List<Vehicle> result = new ArrayList<>();
+        String sql = "SELECT * FROM vehicles WHERE updated_at >= ? ORDER BY id";
+
+        try (Connection conn = DatabaseManager.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setTimestamp(1, Timestamp.valueOf(since));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    result.add(mapResultSetToVehicle(rs));
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * 根据创建者查找车辆
      */
@@ -104,45 +139,26 @@ public class VehicleDAO {
      * 插入新车辆
      */
     public void insert(Vehicle vehicle) throws SQLException {
-        // 首先尝试使用新字段，如果失败则使用旧字段
         String sql = "INSERT INTO vehicles (id, driver, status, location, created_by) VALUES (?, ?, ?, ?, ?)";
-        boolean useOldFormat = false;
-
-        try (Connection conn = DatabaseManager.getConnection()) {
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setString(1, vehicle.getId());
-                stmt.setString(2, vehicle.getDriver());
-                stmt.setString(3, vehicle.getStatus());
-                stmt.setString(4, vehicle.getLocation());
+
+        try (Connection conn = DatabaseManager.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, vehicle.getId());
+            stmt.setString(2, vehicle.getDriver());
+            stmt.setString(3, vehicle.getStatus());
+            stmt.setString(4, vehicle.getLocation());
+            if (vehicle.getCreatedBy() > 0) {
                 stmt.setInt(5, vehicle.getCreatedBy());
-                stmt.executeUpdate();
-            }
-        } catch (SQLException e) {
-            // 如果新字段不存在，回退到旧格式
-            if (e.getMessage().contains("created_by")) {
-                useOldFormat = true;
             } else {
-                throw e;
+                stmt.setNull(5, Types.INTEGER);
             }
-        }
-
-        // 使用旧格式插入
-        if (useOldFormat) {
-            String oldSql = "INSERT INTO vehicles (id, driver, status, location) VALUES (?, ?, ?, ?)";
-            try (Connection conn = DatabaseManager.getConnection();
-                    PreparedStatement stmt = conn.prepareStatement(oldSql)) {
-
-                stmt.setString(1, vehicle.getId());
-                stmt.setString(2, vehicle.getDriver());
-                stmt.setString(3, vehicle.getStatus());
-                stmt.setString(4, vehicle.getLocation());
 
-                stmt.executeUpdate();
-            }
+            stmt.executeUpdate();
         }
 
         // 记录操作日志
-        logOperation("INSERT", "VEHICLE", vehicle.getId(), "新增车辆: " + vehicle.getId());
+        OperationLogSink.log("INSERT", "VEHICLE", vehicle.getId(), "新增车辆: " + vehicle.getId());
     }
 
     /**
@@ -162,7 +178,27 @@ public class VehicleDAO {
             stmt.executeUpdate();
 
             // 记录操作日志
-            logOperation("UPDATE", "VEHICLE", vehicle.getId(), "更新车辆: " + vehicle.getId());
+            OperationLogSink.log("UPDATE", "VEHICLE", vehicle.getId(), "更新车辆: " + vehicle.getId());
+        }
+    }
+
+    /**
+     * 在调用方的事务中批量修改车辆状态，只更新当前状态为expectedStatus的车辆
+     *
+     * @return 实际更新的车辆数
+     */
+    public int updateStatusIf(Connection conn, java.util.Collection<String> vehicleIds, String expectedStatus,
+            String newStatus) throws SQLException {
+        String sql = "UPDATE vehicles SET status = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ? AND status = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (String vehicleId : vehicleIds) {
+                stmt.setString(1, newStatus);
+                stmt.setString(2, vehicleId);
+                stmt.setString(3, expectedStatus);
+                stmt.addBatch();
+            }
+            return TaskDAO.countUpdated(stmt.executeBatch());
         }
     }
 
@@ -173,24 +209,101 @@ public class VehicleDAO {
         String sql = "DELETE FROM vehicles WHERE id = ?";
 
         try (Connection conn = DatabaseManager.getConnection();
+                PreparedStatement detach = conn.prepareStatement(
+                        "UPDATE tasks SET vehicle_id = NULL, updated_at = CURRENT_TIMESTAMP WHERE vehicle_id = ?");
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, id);
 
-            stmt.executeUpdate();
+            // 删除与删除记录在同一事务中提交
+            conn.setAutoCommit(false);
+            try {
+                // 先显式清空任务的车辆：外键ON DELETE SET NULL的级联修改不更新updated_at，增量同步和增量备份会漏掉
+                detach.setString(1, id);
+                detach.executeUpdate();
+                if (stmt.executeUpdate() > 0) {
+                    SyncDAO.recordDeletion(conn, "VEHICLE", id);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
 
             // 记录操作日志
-            logOperation("DELETE", "VEHICLE", id, "删除车辆: " + id);
+            OperationLogSink.log("DELETE", "VEHICLE", id, "删除车辆: " + id);
         }
     }
 
     /**
      * 批量保存车辆
      */
-    public void saveAll(List<Vehicle> vehicles) throws SQLException {
-        for (Vehicle vehicle : vehicles) {
-            save(vehicle);
+    public int saveAll(List<Vehicle> vehicles) throws SQLException {
+        return saveAll(vehicles, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * 批量保存车辆（INSERT ... ON DUPLICATE KEY UPDATE + JDBC批处理）
+     * 每批batchSize行在一个事务内提交；某一批失败时回滚该批并抛出异常，之前的批次保持已提交
+     *
+     * @return 写入的行数
+     */
+    public int saveAll(List<Vehicle> vehicles, int batchSize) throws SQLException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("批量大小必须大于0: " + batchSize);
+        }
+        if (vehicles.isEmpty()) {
+            return 0;
+        }
+
+        String sql = "INSERT INTO vehicles (id, driver, status, location, created_by) VALUES (?, ?, ?, ?, ?) "
+                + "ON DUPLICATE KEY UPDATE driver = VALUES(driver), status = VALUES(status), "
+                + "location = VALUES(location), updated_at = CURRENT_TIMESTAMP";
+        long start = System.nanoTime();
+        int written = 0;
+
+        try (Connection conn = DatabaseManager.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            try {
+                for (int from = 0; from < vehicles.size(); from += batchSize) {
+                    int to = Math.min(from + batchSize, vehicles.size());
+                    for (Vehicle vehicle : vehicles.subList(from, to)) {
+                        stmt.setString(1, vehicle.getId());
+                        stmt.setString(2, vehicle.getDriver());
+                        stmt.setString(3, vehicle.getStatus());
+                        stmt.setString(4, vehicle.getLocation());
+                        if (vehicle.getCreatedBy() > 0) {
+                            stmt.setInt(5, vehicle.getCreatedBy());
+                        } else {
+                            stmt.setNull(5, Types.INTEGER);
+                        }
+                        stmt.addBatch();
+                    }
+                    try {
+                        stmt.executeBatch();
+                        conn.commit();
+                    } catch (SQLException e) {
+                        conn.rollback();
+                        throw new SQLException("批量保存车辆失败（第 " + (from + 1) + "-" + to + " 行）: "
+                                + e.getMessage(), e);
+                    }
+                    written += to - from;
+                }
+            } finally {
+                conn.setAutoCommit(true);
+            }
         }
+
+        double seconds = Math.max((System.nanoTime() - start) / 1_000_000_000.0, 1e-9);
+        System.out.println(String.format("批量保存车辆 %d 条，耗时 %.3f 秒（%.0f 行/秒）",
+                written, seconds, written / seconds));
+
+        // 记录操作日志（整批一条）
+        OperationLogSink.log("IMPORT", "VEHICLE", null, "批量保存车辆: " + written + " 辆");
+        return written;
     }
 
     /**
@@ -229,50 +342,11 @@ public class VehicleDAO {
     }
 
     private Vehicle mapResultSetToVehicle(ResultSet rs) throws SQLException {
-        try {
-            // 尝试读取created_by字段，如果不存在则使用默认值0
-            int createdBy = 0;
-            try {
-                createdBy = rs.getInt("created_by");
-                if (rs.wasNull()) {
-                    createdBy = 0;
-                }
-            } catch (SQLException e) {
-                // 字段不存在，使用默认值
-                createdBy = 0;
-            }
-
-            return new Vehicle(
-                    rs.getString("id"),
-                    rs.getString("driver"),
-                    rs.getString("status"),
-                    rs.getString("location"),
-                    createdBy);
-        } catch (SQLException e) {
-            throw new SQLException("读取车辆数据失败: " + e.getMessage(), e);
-        }
-    }
-
-    /**
-     * 记录操作日志
-     */
-    private void logOperation(String operationType, String entityType, String entityId, String description) {
-        try {
-            String sql = "INSERT INTO operation_logs (operation_type, entity_type, entity_id, description) VALUES (?, ?, ?, ?)";
-
-            try (Connection conn = DatabaseManager.getConnection();
-                    PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-                stmt.setString(1, operationType);
-                stmt.setString(2, entityType);
-                stmt.setString(3, entityId);
-                stmt.setString(4, description);
-
-                stmt.executeUpdate();
-            }
-        } catch (SQLException e) {
-            // 日志记录失败不影响主要操作
-            System.err.println("记录操作日志失败: " + e.getMessage());
-        }
+        return new Vehicle(
+                rs.getString("id"),
+                rs.getString("driver"),
+                rs.getString("status"),
+                rs.getString("location"),
+                rs.getInt("created_by")); // NULL（无创建者）读为0
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,855 @@
+package com.example.dispatch.database;
+
+import com.example.dispatch.dao.OperationLogDAO;
+import com.example.dispatch.dao.SyncDAO;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 数据库备份与恢复
+ * 备份：在一个REPEATABLE READ一致性快照事务中读取各表，每张表由独立线程写入各自的校验文件，
+ * 所有表看到的是同一时刻的数据；先写入临时目录，全部成功后改名为备份目录。
+ * 增量备份只导出上一个备份的水位线之后变化的行（用户、车辆、任务按updated_at，日志按自增ID）和删除记录，
+ * 耗时与期间的变化量成正比；各备份的清单（{@link BackupManifest}）通过parent串成备份链。
+ * 恢复：先并行校验链上的全部文件，清空表并删除二级索引，各表在独立连接上用多行INSERT并行加载全量备份，
+ * 每张表一条ALTER TABLE一次性重建索引（比逐行维护索引快得多），再按顺序重放增量备份。
+ * 恢复后的第一次备份总是全量备份（见 {@link BackupManifest#markRestored}）。
+ */
+public class BackupManager {
+
+    // 备份的表；恢复时关闭外键检查，加载顺序无关
+    static final List<String> TABLES = List.of("users", "vehicles", "tasks", "operation_logs");
+    static final String FILE_SUFFIX = ".tbl";
+    static final String DELETIONS = "deletions"; // 增量备份中的删除记录文件
+    public static final Path BACKUP_ROOT = Paths.get("backups");
+
+    private static final int FETCH_SIZE = 1000;
+    private static final int INSERT_BATCH_ROWS = 500; // 每条INSERT的行数
+    private static final int MAX_PLACEHOLDERS = 60_000; // MySQL预编译语句最多65535个参数
+    private static final int COMMIT_EVERY_BATCHES = 20; // 恢复时每加载多少批提交一次，避免撤销日志过大
+
+    // 增量备份的筛选条件（参数为上一个备份的水位线）
+    private static final Map<String, String> INCREMENTAL_FILTERS = Map.of(
+            "users", "updated_at >= ?",
+            "vehicles", "updated_at >= ?",
+            "tasks", "updated_at >= ?",
+            "operation_logs", "id > ?");
+    // 删除记录；快照时仍存在的键（删除后又重建）不算删除
+    private static final String DELETIONS_SQL = "SELECT s.entity_type, s.entity_key FROM sync_tombstones s "
+            + "WHERE s.deleted_at >= ? "
+            + "AND NOT (s.entity_type = 'VEHICLE' AND EXISTS (SELECT 1 FROM vehicles v WHERE v.id = s.entity_key)) "
+            + "AND NOT (s.entity_type = 'TASK' AND EXISTS (SELECT 1 FROM tasks t WHERE t.name = s.entity_key)) "
+            + "AND NOT (s.entity_type = 'USER' AND EXISTS "
+            + "(SELECT 1 FROM users u WHERE u.id = CAST(s.entity_key AS UNSIGNED))) "
+            + "ORDER BY s.id";
+    // 水位线回退的秒数：在快照前开始、快照后才提交的修改，updated_at可能早于水位线（重叠部分按主键覆盖写入）
+    private static final long WATERMARK_OVERLAP_SECONDS = 60;
+    // 日志ID回退量：自增ID在插入时分配、提交时才可见，快照时未提交的较小ID留给下一次增量
+    private static final long LOG_ID_OVERLAP = 1000;
+    // 删除记录保留7天（见DataStore），基础备份更早时删除记录可能已被清理，只能做全量备份
+    private static final long MAX_INCREMENTAL_AGE_DAYS = 6;
+    private static final int MAX_CHAIN_LENGTH = 31; // 一个全量备份加30个增量，限制恢复时的重放次数
+
+    /**
+     * 备份或恢复的结果
+     */
+    public static final class Result {
+        private final Path directory;
+        private final boolean incremental;
+        private final int chainLength;
+        private final Map<String, Long> rows;
+        private final long bytes;
+        private final long elapsedNanos;
+
+        Result(Path directory, boolean incremental, int chainLength, Map<String, Long> rows, long bytes,
+                long elapsedNanos) {
+            this.directory = directory;
+            this.incremental = incremental;
+            this.chainLength = chainLength;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public Path getDirectory() {
+            return directory;
+        }
+
+        /**
+         * 是否为增量备份（恢复时表示目标备份是否为增量备份）
+         */
+        public boolean isIncremental() {
+            return incremental;
+        }
+
+        /**
+         * 备份链长度（备份：包括本次在内；恢复：重放的备份数）
+         */
+        public int getChainLength() {
+            return chainLength;
+        }
+
+        /**
+         * 各表行数（表名 → 行数）
+         */
+        public Map<String, Long> getRows() {
+            return rows;
+        }
+
+        public long getTotalRows() {
+            return rows.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public double getElapsedSeconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        public double getMegabytesPerSecond() {
+            return elapsedNanos > 0 ? bytes / 1048576.0 / (elapsedNanos / 1e9) : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s，备份链 %d，%d 行，%.2f MB，%.2f 秒，%.1f MB/s %s", incremental ? "增量" : "全量",
+                    chainLength, getTotalRows(), bytes / 1048576.0, getElapsedSeconds(), getMegabytesPerSecond(), rows);
+        }
+    }
+
+    /**
+     * 已删除、待重建的二级索引
+     */
+    private static final class IndexDef {
+        private final String name;
+        private final boolean unique;
+        private final String columns;
+
+        private IndexDef(String name, boolean unique, String columns) {
+            this.name = name;
+            this.unique = unique;
+            this.columns = columns;
+        }
+    }
+
+    private BackupManager() {
+    }
+
+    /**
+     * 备份到新的备份目录：已有可用的基础备份时做增量备份，否则做全量备份
+     */
+    public static Result backup() throws SQLException, IOException {
+        return backup(newBackupDirectory(), BackupManifest.latest(BACKUP_ROOT));
+    }
+
+    /**
+     * 全量备份到指定目录（目录不能已存在）
+     */
+    public static Result backup(Path directory) throws SQLException, IOException {
+        return backup(directory, null);
+    }
+
+    /**
+     * @param base 增量备份的基础备份目录，null表示全量备份；基础备份不可用时改为全量备份
+     */
+    private static Result backup(Path directory, Path base) throws SQLException, IOException {
+        if (Files.exists(directory)) {
+            throw new IOException("备份目录已存在: " + directory);
+        }
+        long start = System.nanoTime();
+        Path temp = directory.resolveSibling(directory.getFileName() + ".part");
+        Files.createDirectories(temp);
+
+        Map<String, Long> rows = new LinkedHashMap<>();
+        long bytes = 0;
+        BackupManifest manifest;
+        int chainLength = 1;
+        boolean success = false;
+        ExecutorService pool = newPool("backup-writer");
+        try (Connection conn = DatabaseManager.getConnection()) {
+            int isolation = conn.getTransactionIsolation();
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            conn.setAutoCommit(false);
+            try {
+                try (Statement stmt = conn.createStatement()) {
+                    // 立即建立读视图，之后各线程的查询都读取这一时刻的数据
+                    stmt.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY");
+                }
+                int schemaVersion = currentSchemaVersion(conn);
+                LocalDateTime watermark;
+                long maxLogId;
+                long minLogId;
+                try (Statement stmt = conn.createStatement();
+                        ResultSet rs = stmt.executeQuery(
+                                "SELECT CURRENT_TIMESTAMP, COALESCE(MAX(id), 0), MIN(id) FROM operation_logs")) {
+                    rs.next();
+                    watermark = rs.getTimestamp(1).toLocalDateTime();
+                    maxLogId = rs.getLong(2);
+                    long min = rs.getLong(3);
+                    minLogId = rs.wasNull() ? maxLogId + 1 : min; // 日志表为空：之前的日志都已清理
+                }
+
+                BackupManifest parent = null;
+                if (base != null) {
+                    parent = BackupManifest.read(base);
+                    String reason = incrementalBlocker(base, parent, schemaVersion, watermark);
+                    if (reason != null) {
+                        System.out.println("改为全量备份: " + reason);
+                        parent = null;
+                    } else {
+                        chainLength = BackupManifest.chain(base).size() + 1;
+                    }
+                }
+
+                // 各表共用同一事务连接：驱动串行化网络读取，解码、编码、校验和写文件在各线程并行
+                List<String> files = new ArrayList<>(TABLES);
+                List<Future<long[]>> futures = new ArrayList<>();
+                for (String table : TABLES) {
+                    String sql = "SELECT * FROM " + table;
+                    Object param = null;
+                    if (parent != null) {
+                        sql += " WHERE " + INCREMENTAL_FILTERS.get(table);
+                        param = "operation_logs".equals(table)
+                                ? (Object) (parent.maxLogId - LOG_ID_OVERLAP)
+                                : parent.watermark.minusSeconds(WATERMARK_OVERLAP_SECONDS);
+                    }
+                    String query = sql;
+                    Object queryParam = param;
+                    futures.add(pool.submit(() -> dumpTable(conn, table, query, queryParam, schemaVersion,
+                            fileOf(temp, table))));
+                }
+                if (parent != null) {
+                    Object since = parent.watermark.minusSeconds(WATERMARK_OVERLAP_SECONDS);
+                    files.add(DELETIONS);
+                    futures.add(pool.submit(() -> dumpTable(conn, DELETIONS, DELETIONS_SQL, since, schemaVersion,
+                            fileOf(temp, DELETIONS))));
+                }
+                List<long[]> results = awaitAll(futures);
+                for (int i = 0; i < files.size(); i++) {
+                    rows.put(files.get(i), results.get(i)[0]);
+                    bytes += results.get(i)[1];
+                }
+                conn.commit();
+
+                manifest = new BackupManifest(parent != null ? BackupManifest.INCREMENTAL : BackupManifest.FULL,
+                        parent != null ? base.getFileName().toString() : null, schemaVersion, watermark, maxLogId,
+                        minLogId, rows);
+            } finally {
+                if (!conn.getAutoCommit()) {
+                    conn.rollback();
+                }
+                conn.setAutoCommit(true);
+                conn.setTransactionIsolation(isolation);
+            }
+            manifest.write(temp);
+            Files.move(temp, directory, StandardCopyOption.ATOMIC_MOVE);
+            success = true;
+        } finally {
+            pool.shutdownNow();
+            if (!success) {
+                deleteDirectory(temp);
+            }
+        }
+
+        Result result = new Result(directory, !manifest.isFull(), chainLength, rows, bytes, System.nanoTime() - start);
+        System.out.println("数据备份完成: " + directory + "（" + result + "）");
+        return result;
+    }
+
+    /**
+     * 不能在基础备份上做增量备份的原因
+     *
+     * @return 原因，可以做增量备份时返回null
+     */
+    private static String incrementalBlocker(Path base, BackupManifest parent, int schemaVersion,
+            LocalDateTime now) throws IOException {
+        if (parent == null) {
+            return "基础备份 " + base.getFileName() + " 没有清单";
+        }
+        if (parent.schemaVersion != schemaVersion) {
+            return "基础备份之后数据库结构已升级";
+        }
+        if (parent.watermark.isBefore(now.minusDays(MAX_INCREMENTAL_AGE_DAYS))) {
+            return "基础备份早于 " + MAX_INCREMENTAL_AGE_DAYS + " 天，期间的删除记录可能已被清理";
+        }
+        if (BackupManifest.chain(base).size() >= MAX_CHAIN_LENGTH) {
+            return "备份链已有 " + MAX_CHAIN_LENGTH + " 个备份";
+        }
+        return null;
+    }
+
+    /**
+     * 恢复到指定备份时的数据，替换当前全部数据
+     * 目标是增量备份时，先恢复备份链开头的全量备份，再依次重放链上的增量备份。
+     * 恢复期间的DDL会隐式提交，失败时数据可能只恢复了一部分，修复问题后重新恢复即可。
+     * 恢复期间不能有其他客户端写入（清空后插入的行会占用恢复数据的自增ID），
+     * 有其他会话连接本数据库时拒绝恢复；本程序内的写入由调用方暂停（见DataStore.restoreBackup）。
+     * 恢复完成后写入一条RESYNC删除记录，其他实例下次同步时全量加载。
+     */
+    public static Result restore(Path directory) throws SQLException, IOException {
+        long start = System.nanoTime();
+        List<Path> chain = BackupManifest.chain(directory);
+        Map<String, Long> rows = new LinkedHashMap<>();
+        long bytes = 0;
+        ExecutorService pool = newPool("backup-restore");
+        try {
+            // 1. 并行校验，任何文件损坏都不修改数据库
+            List<Future<Long>> verified = new ArrayList<>();
+            for (Path backup : chain) {
+                for (String table : filesOf(backup)) {
+                    verified.add(pool.submit(() -> TableFile.verify(fileOf(backup, table))));
+                }
+                checkSchemaVersion(backup);
+            }
+            for (long size : awaitAll(verified)) {
+                bytes += size;
+            }
+
+            // 2. 确认没有其他客户端
+            checkNoOtherSessions();
+
+            // 3. 修改数据库前先记录恢复，即使恢复中途失败，下一次备份也不会以恢复前的备份为基础；
+            //    结束时再记录一次，恢复期间开始的备份看到的是恢复了一半的数据，同样不能作为基础
+            BackupManifest.markRestored(BACKUP_ROOT, currentTimestamp());
+            try {
+                restoreFull(pool, chain.get(0), rows);
+                for (Path backup : chain.subList(1, chain.size())) {
+                    applyIncremental(pool, backup, rows);
+                }
+
+                // 加载绕过了DAO，按恢复后的日志重建每日汇总；恢复的行保留原来的updated_at，通知其他实例全量加载
+                try (Connection conn = DatabaseManager.getConnection()) {
+                    OperationLogDAO.rebuildDailyRollup(conn);
+                    SyncDAO.recordResync(conn, directory.getFileName().toString());
+                }
+            } finally {
+                BackupManifest.markRestored(BACKUP_ROOT, currentTimestamp());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        Result result = new Result(directory, chain.size() > 1, chain.size(), rows, bytes, System.nanoTime() - start);
+        System.out.println("数据恢复完成: " + directory + "（" + result + "）");
+        return result;
+    }
+
+    /**
+     * 清空各表并加载全量备份
+     */
+    private static void restoreFull(ExecutorService pool, Path directory, Map<String, Long> rows)
+            throws SQLException, IOException {
+        // 清空表并删除二级索引
+        Map<String, List<IndexDef>> dropped = new LinkedHashMap<>();
+        try {
+            try (Connection conn = DatabaseManager.getConnection(); Statement stmt = conn.createStatement()) {
+                stmt.execute("SET FOREIGN_KEY_CHECKS = 0");
+                try {
+                    for (String table : TABLES) {
+                        stmt.execute("TRUNCATE TABLE " + table);
+                        List<IndexDef> indexes = deferrableIndexes(conn, table);
+                        if (!indexes.isEmpty()) {
+                            List<String> drops = new ArrayList<>();
+                            for (IndexDef index : indexes) {
+                                drops.add("DROP INDEX `" + index.name + "`");
+                            }
+                            stmt.execute("ALTER TABLE " + table + " " + String.join(", ", drops));
+                            dropped.put(table, indexes);
+                        }
+                    }
+                } finally {
+                    stmt.execute("SET FOREIGN_KEY_CHECKS = 1");
+                }
+            }
+
+            // 各表并行加载
+            loadTables(pool, directory, false, rows);
+        } catch (SQLException | IOException e) {
+            // 加载失败也要重建索引，否则表会一直缺少索引
+            try {
+                rebuildIndexes(dropped);
+            } catch (SQLException rebuildError) {
+                e.addSuppressed(rebuildError);
+            }
+            throw e;
+        }
+        // 重建索引
+        rebuildIndexes(dropped);
+    }
+
+    /**
+     * 重放一个增量备份：变化的行按主键覆盖写入，再执行删除和日志清理
+     */
+    private static void applyIncremental(ExecutorService pool, Path directory, Map<String, Long> rows)
+            throws SQLException, IOException {
+        BackupManifest manifest = BackupManifest.read(directory);
+        loadTables(pool, directory, true, rows);
+        rows.merge(DELETIONS, applyDeletions(fileOf(directory, DELETIONS), manifest.minLogId), Long::sum);
+    }
+
+    private static void loadTables(ExecutorService pool, Path directory, boolean upsert, Map<String, Long> rows)
+            throws SQLException, IOException {
+        List<Future<Long>> loads = new ArrayList<>();
+        for (String table : TABLES) {
+            loads.add(pool.submit(() -> loadTable(fileOf(directory, table), table, upsert)));
+        }
+        List<Long> counts = awaitAll(loads);
+        for (int i = 0; i < TABLES.size(); i++) {
+            rows.merge(TABLES.get(i), counts.get(i), Long::sum);
+        }
+    }
+
+    /**
+     * 删除增量备份期间被删除的行，以及已被清理的旧日志
+     * 外键检查保持开启，由外键的ON DELETE规则处理引用这些行的数据，与原删除操作一致
+     *
+     * @return 删除记录数
+     */
+    private static long applyDeletions(Path file, long minLogId) throws SQLException, IOException {
+        long count = 0;
+        try (TableFile.Reader reader = new TableFile.Reader(file);
+                Connection conn = DatabaseManager.getConnection();
+                PreparedStatement deleteVehicle = conn.prepareStatement("DELETE FROM vehicles WHERE id = ?");
+                PreparedStatement deleteTask = conn.prepareStatement("DELETE FROM tasks WHERE name = ?");
+                PreparedStatement deleteUser = conn.prepareStatement("DELETE FROM users WHERE id = ?");
+                PreparedStatement purgeLogs = conn.prepareStatement("DELETE FROM operation_logs WHERE id < ?")) {
+            conn.setAutoCommit(false);
+            try {
+                Object[] row;
+                while ((row = reader.next()) != null) {
+                    String key = (String) row[1];
+                    switch ((String) row[0]) {
+                        case "VEHICLE" -> {
+                            deleteVehicle.setString(1, key);
+                            deleteVehicle.addBatch();
+                        }
+                        case "TASK" -> {
+                            deleteTask.setString(1, key);
+                            deleteTask.addBatch();
+                        }
+                        case "USER" -> {
+                            deleteUser.setInt(1, Integer.parseInt(key));
+                            deleteUser.addBatch();
+                        }
+                        default -> {
+                            continue;
+                        }
+                    }
+                    count++;
+                }
+                // 任务引用车辆和用户，先删任务
+                deleteTask.executeBatch();
+                deleteVehicle.executeBatch();
+                deleteUser.executeBatch();
+                purgeLogs.setLong(1, minLogId);
+                purgeLogs.executeUpdate();
+                conn.commit();
+            } catch (SQLException | IOException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 新备份的默认目录：backups/backup_yyyyMMdd_HHmmss
+     */
+    public static Path newBackupDirectory() {
+        return BACKUP_ROOT.resolve("backup_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")));
+    }
+
+    static Path fileOf(Path directory, String table) {
+        return directory.resolve(table + FILE_SUFFIX);
+    }
+
+    /**
+     * 备份目录中的数据文件（不含扩展名）
+     */
+    private static List<String> filesOf(Path directory) throws IOException {
+        BackupManifest manifest = BackupManifest.read(directory);
+        if (manifest == null || manifest.isFull()) {
+            return TABLES;
+        }
+        List<String> files = new ArrayList<>(TABLES);
+        files.add(DELETIONS);
+        return files;
+    }
+
+    /**
+     * 在备份事务中把查询结果写入文件
+     * 全表扫描时InnoDB按主键顺序返回，恢复时按主键顺序插入最快
+     *
+     * @param param 查询的唯一参数，没有参数时为null
+     * @return {行数, 文件字节数}
+     */
+    private static long[] dumpTable(Connection conn, String table, String sql, Object param, int schemaVersion,
+            Path file) throws SQLException, IOException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(FETCH_SIZE);
+            if (param != null) {
+                stmt.setObject(1, param);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                int count = meta.getColumnCount();
+                List<String> columns = new ArrayList<>(count);
+                byte[] types = new byte[count];
+                for (int i = 0; i < count; i++) {
+                    columns.add(meta.getColumnName(i + 1));
+                    types[i] = TableFile.typeOf(meta.getColumnType(i + 1));
+                }
+
+                try (TableFile.Writer writer = new TableFile.Writer(file, table, schemaVersion, columns, types)) {
+                    Object[] values = new Object[count];
+                    while (rs.next()) {
+                        readRow(rs, types, values);
+                        writer.writeRow(values);
+                    }
+                    long bytes = writer.finish();
+                    return new long[] { writer.getRows(), bytes };
+                }
+            }
+        }
+    }
+
+    private static void readRow(ResultSet rs, byte[] types, Object[] values) throws SQLException {
+        for (int i = 0; i < types.length; i++) {
+            int column = i + 1;
+            Object value;
+            switch (types[i]) {
+                case TableFile.LONG -> {
+                    long v = rs.getLong(column);
+                    value = rs.wasNull() ? null : v;
+                }
+                case TableFile.DOUBLE -> {
+                    double v = rs.getDouble(column);
+                    value = rs.wasNull() ? null : v;
+                }
+                case TableFile.TIME -> value = rs.getObject(column, LocalDateTime.class);
+                case TableFile.BYTES -> value = rs.getBytes(column);
+                default -> value = rs.getString(column);
+            }
+            values[i] = value;
+        }
+    }
+
+    /**
+     * 在独立连接上把一张表的备份文件加载回数据库
+     *
+     * @param upsert true表示主键或唯一键已存在的行被覆盖（重放增量备份）
+     * @return 加载的行数
+     */
+    private static long loadTable(Path file, String table, boolean upsert) throws SQLException, IOException {
+        try (TableFile.Reader reader = new TableFile.Reader(file);
+                Connection conn = DatabaseManager.getConnection();
+                Statement session = conn.createStatement()) {
+            if (!table.equals(reader.getTable())) {
+                throw new IOException("备份文件 " + file + " 属于表 " + reader.getTable() + "，不是 " + table);
+            }
+            List<String> columns = reader.getColumns();
+            byte[] types = reader.getTypes();
+            int batchRows = Math.max(1, Math.min(INSERT_BATCH_ROWS, MAX_PLACEHOLDERS / columns.size()));
+
+            session.execute("SET FOREIGN_KEY_CHECKS = 0");
+            if (!upsert) {
+                // 覆盖写入依赖唯一键冲突检测，只有加载到空表时才能关闭唯一性检查
+                session.execute("SET UNIQUE_CHECKS = 0");
+            }
+            conn.setAutoCommit(false);
+            long rows = 0;
+            try {
+                // 多行INSERT的语句较大，不放进语句缓存
+                try (PreparedStatement insert = conn.prepareStatement(insertSql(table, columns, batchRows, upsert),
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    Object[][] pending = new Object[batchRows][];
+                    int size = 0;
+                    int batches = 0;
+                    Object[] row;
+                    while ((row = reader.next()) != null) {
+                        pending[size++] = row;
+                        rows++;
+                        if (size == batchRows) {
+                            bindRows(insert, pending, size, types);
+                            insert.executeUpdate();
+                            size = 0;
+                            if (++batches % COMMIT_EVERY_BATCHES == 0) {
+                                conn.commit();
+                            }
+                        }
+                    }
+                    if (size > 0) {
+                        try (PreparedStatement tail = conn.prepareStatement(insertSql(table, columns, size, upsert),
+                                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                            bindRows(tail, pending, size, types);
+                            tail.executeUpdate();
+                        }
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | IOException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+                // 会话变量不会被连接池还原
+                session.execute("SET FOREIGN_KEY_CHECKS = 1");
+                session.execute("SET UNIQUE_CHECKS = 1");
+            }
+            return rows;
+        }
+    }
+
+    private static String insertSql(String table, List<String> columns, int rows, boolean upsert) {
+        StringBuilder placeholders = new StringBuilder("(");
+        for (int i = 0; i < columns.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        placeholders.append(')');
+
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (");
+        for (int i = 0; i < columns.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append('`').append(columns.get(i)).append('`');
+        }
+        sql.append(") VALUES ");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "" : ", ").append(placeholders);
+        }
+        if (upsert) {
+            sql.append(" ON DUPLICATE KEY UPDATE ");
+            for (int i = 0; i < columns.size(); i++) {
+                String column = "`" + columns.get(i) + "`";
+                sql.append(i == 0 ? "" : ", ").append(column).append(" = VALUES(").append(column).append(')');
+            }
+        }
+        return sql.toString();
+    }
+
+    private static void bindRows(PreparedStatement stmt, Object[][] rows, int size, byte[] types)
+            throws SQLException {
+        int index = 1;
+        for (int r = 0; r < size; r++) {
+            Object[] row = rows[r];
+            for (int i = 0; i < types.length; i++, index++) {
+                Object value = row[i];
+                if (value == null) {
+                    stmt.setNull(index, Types.NULL);
+                    continue;
+                }
+                switch (types[i]) {
+                    case TableFile.LONG -> stmt.setLong(index, (Long) value);
+                    case TableFile.DOUBLE -> stmt.setDouble(index, (Double) value);
+                    case TableFile.TIME -> stmt.setObject(index, value);
+                    case TableFile.BYTES -> stmt.setBytes(index, (byte[]) value);
+                    default -> stmt.setString(index, (String) value);
+                }
+            }
+        }
+    }
+
+    /**
+     * 可以推迟到加载后重建的二级索引
+     * 外键依赖的索引（首列是外键列）MySQL不允许删除，保留
+     */
+    private static List<IndexDef> deferrableIndexes(Connection conn, String table) throws SQLException {
+        List<String> foreignKeyColumns = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT column_name FROM information_schema.key_column_usage "
+                + "WHERE table_schema = DATABASE() AND table_name = ? AND referenced_table_name IS NOT NULL")) {
+            stmt.setString(1, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    foreignKeyColumns.add(rs.getString(1));
+                }
+            }
+        }
+
+        Map<String, IndexDef> indexes = new LinkedHashMap<>();
+        Map<String, String> firstColumns = new LinkedHashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT index_name, non_unique, column_name, sub_part FROM information_schema.statistics "
+                        + "WHERE table_schema = DATABASE() AND table_name = ? AND index_name <> 'PRIMARY' "
+                        + "ORDER BY index_name, seq_in_index")) {
+            stmt.setString(1, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String name = rs.getString("index_name");
+                    String column = "`" + rs.getString("column_name") + "`";
+                    int subPart = rs.getInt("sub_part");
+                    if (!rs.wasNull()) {
+                        column += "(" + subPart + ")";
+                    }
+                    IndexDef existing = indexes.get(name);
+                    if (existing == null) {
+                        firstColumns.put(name, rs.getString("column_name"));
+                        indexes.put(name, new IndexDef(name, rs.getInt("non_unique") == 0, column));
+                    } else {
+                        indexes.put(name, new IndexDef(name, existing.unique, existing.columns + ", " + column));
+                    }
+                }
+            }
+        }
+
+        List<IndexDef> deferrable = new ArrayList<>();
+        for (IndexDef index : indexes.values()) {
+            if (!foreignKeyColumns.contains(firstColumns.get(index.name))) {
+                deferrable.add(index);
+            }
+        }
+        return deferrable;
+    }
+
+    private static void rebuildIndexes(Map<String, List<IndexDef>> dropped) throws SQLException {
+        if (dropped.isEmpty()) {
+            return;
+        }
+        try (Connection conn = DatabaseManager.getConnection(); Statement stmt = conn.createStatement()) {
+            for (Map.Entry<String, List<IndexDef>> entry : dropped.entrySet()) {
+                long start = System.nanoTime();
+                List<String> adds = new ArrayList<>();
+                for (IndexDef index : entry.getValue()) {
+                    adds.add("ADD " + (index.unique ? "UNIQUE " : "") + "INDEX `" + index.name + "` (" + index.columns
+                            + ")");
+                }
+                stmt.execute("ALTER TABLE " + entry.getKey() + " " + String.join(", ", adds));
+                System.out.printf("已重建 %s 的 %d 个索引（%.1f ms）%n", entry.getKey(), adds.size(),
+                        (System.nanoTime() - start) / 1e6);
+            }
+        }
+    }
+
+    /**
+     * 有其他会话（其他程序实例、无界面服务或数据库客户端）连接本数据库时拒绝恢复
+     */
+    private static void checkNoOtherSessions() throws SQLException {
+        Set<Long> own = DatabaseManager.getPool().getSessionIds();
+        List<String> others = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getConnection(); Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT ID, USER, HOST FROM information_schema.PROCESSLIST "
+                        + "WHERE DB = DATABASE() AND ID <> CONNECTION_ID()")) {
+            while (rs.next()) {
+                if (!own.contains(rs.getLong(1))) {
+                    others.add(rs.getString(2) + "@" + rs.getString(3));
+                }
+            }
+        }
+        if (!others.isEmpty()) {
+            throw new SQLException("还有 " + others.size() + " 个其他客户端连接着数据库 " + others
+                    + "，请先关闭其他程序实例和无界面服务再恢复");
+        }
+    }
+
+    /**
+     * 数据库当前时间（与备份水位线取自同一时钟）
+     */
+    private static LocalDateTime currentTimestamp() throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection(); Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT CURRENT_TIMESTAMP")) {
+            rs.next();
+            return rs.getTimestamp(1).toLocalDateTime();
+        }
+    }
+
+    private static int currentSchemaVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    /**
+     * 备份的结构版本不能比当前程序新（旧版本的备份可以恢复，缺少的列取默认值）
+     */
+    private static void checkSchemaVersion(Path directory) throws IOException {
+        for (String table : TABLES) {
+            try (TableFile.Reader reader = new TableFile.Reader(fileOf(directory, table))) {
+                if (reader.getSchemaVersion() > SchemaMigrator.latestVersion()) {
+                    throw new IOException("备份来自更新版本的程序（结构版本 " + reader.getSchemaVersion() + "，当前 "
+                            + SchemaMigrator.latestVersion() + "），无法恢复");
+                }
+            }
+        }
+    }
+
+    /**
+     * 等待全部任务结束（即使有任务失败也等其余任务结束，避免它们继续使用已归还的连接），抛出第一个异常
+     */
+    private static <T> List<T> awaitAll(List<Future<T>> futures) throws SQLException, IOException {
+        List<T> results = new ArrayList<>();
+        Throwable failure = null;
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+                results.add(null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("备份任务被中断", e);
+            }
+        }
+        if (failure instanceof SQLException sqlException) {
+            throw sqlException;
+        }
+        if (failure instanceof IOException ioException) {
+            throw ioException;
+        }
+        if (failure != null) {
+            throw new IOException(failure.getMessage(), failure);
+        }
+        return results;
+    }
+
+    private static ExecutorService newPool(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(TABLES.size(), r -> {
+            Thread t = new Thread(r, name + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static void deleteDirectory(Path directory) {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            System.err.println("删除未完成的备份目录失败: " + directory + " - " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.dispatch.database;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 备份清单（每个备份目录下的manifest.properties）
+ * 记录备份类型、上一个备份（增量备份的基础）、快照时刻的水位线和各表行数；
+ * 增量备份通过parent串成链，恢复时从全量备份开始依次重放到目标备份。
+ */
+final class BackupManifest {
+
+    static final String FILE_NAME = "manifest.properties";
+    // 备份根目录下的恢复标记：记录最近一次恢复开始时的数据库时间
+    static final String RESTORE_MARKER = "last_restore.properties";
+
+    static final String FULL = "full";
+    static final String INCREMENTAL = "incremental";
+
+    final String type;
+    final String parent; // 上一个备份的目录名，全量备份为null
+    final int schemaVersion;
+    final LocalDateTime watermark; // 快照时刻的数据库时间
+    final long maxLogId; // 快照中最大的日志ID
+    final long minLogId; // 快照中最小的日志ID，更早的日志已被清理
+    final Map<String, Long> rows;
+
+    BackupManifest(String type, String parent, int schemaVersion, LocalDateTime watermark, long maxLogId,
+            long minLogId, Map<String, Long> rows) {
+        this.type = type;
+        this.parent = parent;
+        this.schemaVersion = schemaVersion;
+        this.watermark = watermark;
+        this.maxLogId = maxLogId;
+        this.minLogId = minLogId;
+        this.rows = rows;
+    }
+
+    boolean isFull() {
+        return FULL.equals(type);
+    }
+
+    void write(Path directory) throws IOException {
+        Properties props = new Properties();
+        props.setProperty("type", type);
+        if (parent != null) {
+            props.setProperty("parent", parent);
+        }
+        props.setProperty("schemaVersion", String.valueOf(schemaVersion));
+        props.setProperty("watermark", watermark.toString());
+        props.setProperty("maxLogId", String.valueOf(maxLogId));
+        props.setProperty("minLogId", String.valueOf(minLogId));
+        rows.forEach((table, count) -> props.setProperty("rows." + table, String.valueOf(count)));
+        try (Writer out = Files.newBufferedWriter(directory.resolve(FILE_NAME), StandardCharsets.UTF_8)) {
+            props.store(out, "vehicle dispatch backup");
+        }
+    }
+
+    /**
+     * 读取备份目录的清单
+     *
+     * @return 清单；目录中没有清单时返回null
+     */
+    static BackupManifest read(Path directory) throws IOException {
+        Path file = directory.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        Properties props = new Properties();
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            props.load(in);
+        }
+        try {
+            Map<String, Long> rows = new LinkedHashMap<>();
+            for (String name : props.stringPropertyNames()) {
+                if (name.startsWith("rows.")) {
+                    rows.put(name.substring("rows.".length()), Long.parseLong(props.getProperty(name)));
+                }
+            }
+            return new BackupManifest(props.getProperty("type"), props.getProperty("parent"),
+                    Integer.parseInt(props.getProperty("schemaVersion")),
+                    LocalDateTime.parse(props.getProperty("watermark")),
+                    Long.parseLong(props.getProperty("maxLogId")),
+                    Long.parseLong(props.getProperty("minLogId")), rows);
+        } catch (RuntimeException e) {
+            throw new IOException("备份清单格式错误: " + file, e);
+        }
+    }
+
+    /**
+     * 从目标备份沿parent回溯到全量备份
+     *
+     * @return 按重放顺序排列的备份目录（第一个是全量备份，最后一个是目标）
+     */
+    static List<Path> chain(Path target) throws IOException {
+        List<Path> chain = new ArrayList<>();
+        Path current = target;
+        while (true) {
+            if (chain.contains(current)) {
+                throw new IOException("备份链存在循环: " + current);
+            }
+            chain.add(current);
+            BackupManifest manifest = read(current);
+            if (manifest == null || manifest.isFull()) {
+                break; // 没有清单的旧备份都是全量备份
+            }
+            Path parentDir = current.resolveSibling(manifest.parent);
+            if (!Files.isDirectory(parentDir)) {
+                throw new IOException("备份链不完整，缺少 " + manifest.parent + "（" + current.getFileName() + " 的基础备份）");
+            }
+            current = parentDir;
+        }
+        Collections.reverse(chain);
+        return chain;
+    }
+
+    /**
+     * 记录一次恢复（在修改数据库之前调用）
+     * 恢复写回的行保留原来的updated_at和日志ID，被清空的行也没有删除记录，
+     * 恢复前的备份无法作为增量备份的基础，之后的第一次备份必须是全量备份。
+     */
+    static void markRestored(Path root, LocalDateTime restoredAt) throws IOException {
+        Files.createDirectories(root);
+        Properties props = new Properties();
+        props.setProperty("restoredAt", restoredAt.toString());
+        Path temp = root.resolve(RESTORE_MARKER + ".part");
+        try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            props.store(out, "vehicle dispatch restore");
+        }
+        Files.move(temp, root.resolve(RESTORE_MARKER), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 最近一次恢复开始时的数据库时间
+     *
+     * @return 没有恢复记录时返回null
+     */
+    static LocalDateTime lastRestore(Path root) throws IOException {
+        Path file = root.resolve(RESTORE_MARKER);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        Properties props = new Properties();
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            props.load(in);
+        }
+        try {
+            return LocalDateTime.parse(props.getProperty("restoredAt"));
+        } catch (RuntimeException e) {
+            throw new IOException("恢复标记格式错误: " + file, e);
+        }
+    }
+
+    /**
+     * 备份根目录中水位线最新的备份（下一次增量备份的基础）
+     * 早于最近一次恢复的备份不能作为基础
+     *
+     * @return 备份目录，没有可用的带清单的备份时返回null
+     */
+    static Path latest(Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return null;
+        }
+        LocalDateTime restoredAt = lastRestore(root);
+        Path latest = null;
+        LocalDateTime latestWatermark = null;
+        try (var dirs = Files.list(root)) {
+            for (Path dir : (Iterable<Path>) dirs::iterator) {
+                if (!Files.isDirectory(dir) || dir.getFileName().toString().endsWith(".part")) {
+                    continue;
+                }
+                BackupManifest manifest = read(dir);
+                if (manifest == null || (restoredAt != null && !manifest.watermark.isAfter(restoredAt))) {
+                    continue;
+                }
+                if (latestWatermark == null || manifest.watermark.isAfter(latestWatermark)) {
+                    latest = dir;
+                    latestWatermark = manifest.watermark;
+                }
+            }
+        }
+        return latest;
+    }
+}
@@ -0,0 +1,391 @@
+package com.example.dispatch.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 有界JDBC连接池
+ * 支持最小/最大连接数、空闲校验、最大存活时间、借用超时和连接泄漏检测。
+ * 借出的连接是代理对象，调用close()时归还连接池而不是关闭物理连接。
+ * 每个物理连接附带一个PreparedStatement缓存（见 {@link StatementCache}）。
+ */
+public class ConnectionPool {
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final long idleTimeoutMillis;
+    private final long validationIdleMillis;
+    private final long leakThresholdMillis;
+    private final int statementCacheSize;
+    private final StatementCache.Metrics statementCacheMetrics = new StatementCache.Metrics();
+
+    // 空闲连接（后进先出，优先复用最近使用过的连接）
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    // 已借出的连接
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    // 本连接池物理连接的数据库会话ID（CONNECTION_ID()）
+    private final Set<Long> sessionIds = ConcurrentHashMap.newKeySet();
+    // 借用许可，数量等于最大连接数
+    private final Semaphore permits;
+    // 后台维护线程：淘汰过期连接、补足最小连接数、检测泄漏
+    private final ScheduledExecutorService housekeeper;
+
+    private volatile boolean closed = false;
+
+    public ConnectionPool(String url, String user, String password,
+            int minSize, int maxSize,
+            long borrowTimeoutMillis, long maxLifetimeMillis, long idleTimeoutMillis,
+            long validationIdleMillis, long leakThresholdMillis, int statementCacheSize) throws SQLException {
+        if (minSize < 0 || maxSize <= 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("连接池大小配置无效: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationIdleMillis = validationIdleMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        try {
+            // 加载MySQL驱动（只需一次）
+            Class.forName("com.mysql.cj.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("MySQL驱动未找到", e);
+        }
+
+        // 预先建立最小数量的连接
+        for (int i = 0; i < minSize; i++) {
+            idle.offerLast(createPooledConnection());
+        }
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000L, Math.min(idleTimeoutMillis, leakThresholdMillis) / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+
+        System.out.println("数据库连接池已创建: min=" + minSize + ", max=" + maxSize);
+    }
+
+    /**
+     * 从连接池借用连接，超时未获得则抛出SQLException
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("连接池已关闭");
+        }
+
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("获取数据库连接超时（" + borrowTimeoutMillis + "ms），活动连接: "
+                        + borrowed.size() + "/" + maxSize);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("等待数据库连接时被中断", e);
+        }
+
+        try {
+            PooledConnection pooled = takeHealthyIdle();
+            if (pooled == null) {
+                pooled = createPooledConnection();
+            }
+            pooled.markBorrowed();
+            borrowed.add(pooled);
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 取出一个可用的空闲连接，过期或失效的连接直接关闭
+     */
+    private PooledConnection takeHealthyIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            long now = System.currentTimeMillis();
+            if (now - pooled.createdAt >= maxLifetimeMillis) {
+                pooled.closePhysical();
+                continue;
+            }
+            if (now - pooled.lastUsedAt >= validationIdleMillis && !pooled.isValid()) {
+                pooled.closePhysical();
+                continue;
+            }
+            return pooled;
+        }
+        return null;
+    }
+
+    /**
+     * 归还连接（由代理连接的close()调用）
+     */
+    private void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        try {
+            boolean expired = System.currentTimeMillis() - pooled.createdAt >= maxLifetimeMillis;
+            if (closed || expired || !pooled.resetForReuse()) {
+                pooled.closePhysical();
+            } else {
+                pooled.lastUsedAt = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private PooledConnection createPooledConnection() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        long sessionId;
+        try (Statement stmt = physical.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT CONNECTION_ID()")) {
+            rs.next();
+            sessionId = rs.getLong(1);
+        } catch (SQLException e) {
+            physical.close();
+            throw e;
+        }
+        sessionIds.add(sessionId);
+        return new PooledConnection(physical, sessionId);
+    }
+
+    /**
+     * 后台维护：淘汰过期/长时间空闲连接，补足最小连接数，报告疑似泄漏
+     */
+    private void housekeep() {
+        if (closed) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        Iterator<PooledConnection> it = idle.iterator();
+        while (it.hasNext()) {
+            PooledConnection pooled = it.next();
+            boolean expired = now - pooled.createdAt >= maxLifetimeMillis;
+            boolean idleTooLong = now - pooled.lastUsedAt >= idleTimeoutMillis && getTotalCount() > minSize;
+            if ((expired || idleTooLong) && idle.remove(pooled)) {
+                pooled.closePhysical();
+            }
+        }
+
+        while (!closed && getTotalCount() < minSize) {
+            try {
+                idle.offerLast(createPooledConnection());
+            } catch (SQLException e) {
+                System.err.println("补充数据库连接失败: " + e.getMessage());
+                break;
+            }
+        }
+
+        for (PooledConnection pooled : borrowed) {
+            if (!pooled.leakReported && now - pooled.borrowedAt >= leakThresholdMillis) {
+                pooled.leakReported = true;
+                System.err.println("疑似数据库连接泄漏：连接已借出 " + (now - pooled.borrowedAt) + "ms 未归还，借用位置如下：");
+                pooled.borrowTrace.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 关闭连接池及所有空闲连接，已借出的连接在归还时关闭
+     */
+    public void shutdown() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.closePhysical();
+        }
+        System.out.println("数据库连接池已关闭");
+    }
+
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getTotalCount() {
+        return borrowed.size() + idle.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 本连接池持有的数据库会话ID，用于区分其它客户端的连接
+     */
+    public Set<Long> getSessionIds() {
+        return Set.copyOf(sessionIds);
+    }
+
+    /**
+     * 语句缓存命中/未命中/淘汰统计
+     */
+    public StatementCache.Metrics getStatementCacheMetrics() {
+        return statementCacheMetrics;
+    }
+
+    /**
+     * 连接池状态摘要
+     */
+    public String getStatus() {
+        return "活动连接=" + getActiveCount() + ", 空闲连接=" + getIdleCount() + ", 最大连接=" + maxSize
+                + ", 语句缓存[" + statementCacheMetrics + "]";
+    }
+
+    /**
+     * 池中的一个物理连接及其元数据
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        private final long sessionId;
+        private final StatementCache statementCache;
+        private final long createdAt;
+        private volatile long lastUsedAt;
+        private volatile long borrowedAt;
+        private volatile Throwable borrowTrace;
+        private volatile boolean leakReported;
+
+        private PooledConnection(Connection physical, long sessionId) {
+            this.physical = physical;
+            this.sessionId = sessionId;
+            this.statementCache = statementCacheSize > 0
+                    ? new StatementCache(statementCacheSize, statementCacheMetrics)
+                    : null;
+            this.createdAt = System.currentTimeMillis();
+            this.lastUsedAt = createdAt;
+        }
+
+        private void markBorrowed() {
+            borrowedAt = System.currentTimeMillis();
+            borrowTrace = new Throwable("连接借用位置");
+            leakReported = false;
+        }
+
+        private boolean isValid() {
+            try {
+                return physical.isValid(2);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         * 还原连接状态，防止上一个使用者的事务设置影响下一个使用者
+         */
+        private boolean resetForReuse() {
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                if (statementCache != null) {
+                    statementCache.releaseAll();
+                }
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                physical.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        private void closePhysical() {
+            if (statementCache != null) {
+                statementCache.closeAll();
+            }
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                System.err.println("关闭物理连接失败: " + e.getMessage());
+            }
+            sessionIds.remove(sessionId);
+        }
+
+        /**
+         * 为本次借用创建代理连接，close()只会生效一次
+         */
+        private Connection newHandle() {
+            AtomicBoolean handleClosed = new AtomicBoolean(false);
+            InvocationHandler handler = (proxy, method, args) -> invoke(proxy, method, args, handleClosed);
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, handler);
+        }
+
+        private Object invoke(Object proxy, Method method, Object[] args, AtomicBoolean handleClosed)
+                throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (handleClosed.compareAndSet(false, true)) {
+                        release(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return handleClosed.get() || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical + "]";
+                default:
+                    break;
+            }
+            if (handleClosed.get()) {
+                throw new SQLException("连接已归还连接池，不能继续使用");
+            }
+            if (statementCache != null && "prepareStatement".equals(method.getName())) {
+                Class<?>[] types = method.getParameterTypes();
+                if (types.length == 1) {
+                    return statementCache.prepare(physical, (Connection) proxy, (String) args[0]);
+                }
+                if (types.length == 2 && types[1] == int.class) {
+                    return statementCache.prepare(physical, (Connection) proxy, (String) args[0], (Integer) args[1]);
+                }
+            }
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
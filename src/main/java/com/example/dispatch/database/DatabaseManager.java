@@ -4,153 +4,84 @@ import com.example.dispatch.util.PasswordUtils;
 import com.example.dispatch.util.UserRoles;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
 
 public class DatabaseManager {
     // MySQL连接配置 - 请根据你的环境修改
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/vehicle_dispatch?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true";
+    // useCursorFetch：设置了fetchSize的查询使用服务器端游标分批读取（见dao.CursorQuery），其它查询不受影响
+    private static final String DB_URL = "jdbc:mysql://localhost:3306/vehicle_dispatch?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true"
+            + "&useServerPrepStmts=true&rewriteBatchedStatements=true&useCursorFetch=true";
     private static final String DB_USER = "root"; // 请修改为你的MySQL用户名
     private static final String DB_PASSWORD = "123456"; // 如果MySQL需要密码，请在这里设置
 
-    private static Connection connection;
+    // 连接池配置
+    private static final int POOL_MIN_SIZE = 2;
+    private static final int POOL_MAX_SIZE = 10;
+    private static final long POOL_BORROW_TIMEOUT_MS = 5_000; // 借用连接最长等待时间
+    private static final long POOL_MAX_LIFETIME_MS = 30 * 60_000; // 物理连接最长存活时间
+    private static final long POOL_IDLE_TIMEOUT_MS = 10 * 60_000; // 超出最小连接数的空闲连接回收时间
+    private static final long POOL_VALIDATION_IDLE_MS = 30_000; // 空闲超过此时间的连接借出前先校验
+    private static final long POOL_LEAK_THRESHOLD_MS = 60_000; // 借出超过此时间未归还视为疑似泄漏
+    private static final int STATEMENT_CACHE_SIZE = 64; // 每个连接缓存的预编译语句数量
+
+    private static volatile ConnectionPool pool;
 
     // 数据库初始化标志
     private static boolean initialized = false;
 
     /**
      * 获取数据库连接
+     * 连接来自连接池，使用完毕后调用close()即归还连接池
+     */
+    public static Connection getConnection() throws SQLException {
+        return getPool().borrow();
+    }
+
+    /**
+     * 获取连接池（首次调用时创建连接池并初始化数据库）
      */
-    public static synchronized Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            try {
-                // 加载MySQL驱动
-                Class.forName("com.mysql.cj.jdbc.Driver");
-                connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+    public static ConnectionPool getPool() throws SQLException {
+        ConnectionPool current = pool;
+        if (current != null) {
+            return current;
+        }
+        synchronized (DatabaseManager.class) {
+            if (pool == null) {
+                ConnectionPool created = new ConnectionPool(DB_URL, DB_USER, DB_PASSWORD,
+                        POOL_MIN_SIZE, POOL_MAX_SIZE,
+                        POOL_BORROW_TIMEOUT_MS, POOL_MAX_LIFETIME_MS, POOL_IDLE_TIMEOUT_MS,
+                        POOL_VALIDATION_IDLE_MS, POOL_LEAK_THRESHOLD_MS, STATEMENT_CACHE_SIZE);
                 System.out.println("MySQL数据库连接成功: " + DB_URL);
 
                 // 如果是首次连接，初始化数据库
                 if (!initialized) {
-                    initializeDatabase();
+                    try (Connection conn = created.borrow()) {
+                        initializeDatabase(conn);
+                    } catch (SQLException e) {
+                        created.shutdown();
+                        throw e;
+                    }
                     initialized = true;
                 }
-            } catch (ClassNotFoundException e) {
-                throw new SQLException("MySQL驱动未找到", e);
+                pool = created;
             }
+            return pool;
         }
-        return connection;
     }
 
     /**
-     * 初始化数据库表结构
+     * 初始化数据库：执行未执行的结构迁移（见 {@link SchemaMigrator}），再插入默认数据
      */
-    private static void initializeDatabase() throws SQLException {
-        try (Statement stmt = connection.createStatement()) {
-            // 创建车辆表
-            String createVehiclesTable = """
-                    CREATE TABLE IF NOT EXISTS vehicles (
-                        id VARCHAR(20) PRIMARY KEY,
-                        driver VARCHAR(50) NOT NULL,
-                        status VARCHAR(20) NOT NULL DEFAULT '空闲',
-                        location VARCHAR(100) NOT NULL DEFAULT '未知',
-                        created_by INT,
-                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                        updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
-                        FOREIGN KEY (created_by) REFERENCES users(id) ON DELETE SET NULL
-                    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
-                    """;
-
-            // 创建任务表
-            String createTasksTable = """
-                    CREATE TABLE IF NOT EXISTS tasks (
-                        id INT AUTO_INCREMENT PRIMARY KEY,
-                        name VARCHAR(100) NOT NULL UNIQUE,
-                        destination VARCHAR(100) NOT NULL,
-                        eta TIMESTAMP NOT NULL,
-                        vehicle_id VARCHAR(20),
-                        status VARCHAR(20) NOT NULL DEFAULT '待分配',
-                        created_by INT,
-                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                        updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
-                        FOREIGN KEY (vehicle_id) REFERENCES vehicles(id) ON DELETE SET NULL,
-                        FOREIGN KEY (created_by) REFERENCES users(id) ON DELETE SET NULL
-                    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
-                    """;
-
-            // 创建用户表（预留）
-            String createUsersTable = """
-                    CREATE TABLE IF NOT EXISTS users (
-                        id INT AUTO_INCREMENT PRIMARY KEY,
-                        username VARCHAR(50) NOT NULL UNIQUE,
-                        password_hash VARCHAR(255) NOT NULL,
-                        role VARCHAR(20) NOT NULL DEFAULT 'user',
-                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-                    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
-                    """;
-
-            // 创建操作日志表
-            String createLogsTable = """
-                    CREATE TABLE IF NOT EXISTS operation_logs (
-                        id INT AUTO_INCREMENT PRIMARY KEY,
-                        operation_type VARCHAR(20) NOT NULL,
-                        entity_type VARCHAR(20) NOT NULL,
-                        entity_id VARCHAR(50),
-                        description TEXT,
-                        user_id INT,
-                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-                    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
-                    """;
-
-            // 执行建表语句
-            stmt.execute(createVehiclesTable);
-            stmt.execute(createTasksTable);
-            stmt.execute(createUsersTable);
-            stmt.execute(createLogsTable);
-
-            // 创建索引（兼容低版本MySQL）
-            // 注意：如果索引已存在会抛出异常，但不影响系统运行
-            try {
-                stmt.execute("CREATE INDEX idx_vehicle_status ON vehicles(status)");
-            } catch (SQLException e) {
-                if (!e.getMessage().contains("Duplicate key name")) {
-                    throw e; // 只有索引已存在的错误才忽略
-                }
-            }
-            try {
-                stmt.execute("CREATE INDEX idx_task_status ON tasks(status)");
-            } catch (SQLException e) {
-                if (!e.getMessage().contains("Duplicate key name")) {
-                    throw e;
-                }
-            }
-            try {
-                stmt.execute("CREATE INDEX idx_task_vehicle ON tasks(vehicle_id)");
-            } catch (SQLException e) {
-                if (!e.getMessage().contains("Duplicate key name")) {
-                    throw e;
-                }
-            }
-            try {
-                stmt.execute("CREATE INDEX idx_log_operation ON operation_logs(operation_type)");
-            } catch (SQLException e) {
-                if (!e.getMessage().contains("Duplicate key name")) {
-                    throw e;
-                }
-            }
-            try {
-                stmt.execute("CREATE INDEX idx_log_created ON operation_logs(created_at)");
-            } catch (SQLException e) {
-                if (!e.getMessage().contains("Duplicate key name")) {
-                    throw e;
-                }
-            }
+    private static void initializeDatabase(Connection conn) throws SQLException {
+        SchemaMigrator.migrate(conn);
 
+        try (Statement stmt = conn.createStatement()) {
             // 插入默认数据（如果表为空）
             insertDefaultData(stmt);
-
-            System.out.println("MySQL数据库初始化完成");
         }
+
+        System.out.println("MySQL数据库初始化完成（结构版本 " + SchemaMigrator.latestVersion() + "）");
     }
 
     /**
@@ -178,6 +109,18 @@ public class DatabaseManager {
             System.out.println("已插入默认任务数据");
         }
 
+        // 检查地名坐标表是否为空（默认车辆位置和任务目的地）
+        rs = stmt.executeQuery("SELECT COUNT(*) FROM places");
+        if (rs.next() && rs.getInt(1) == 0) {
+            stmt.execute("INSERT INTO places (name, latitude, longitude) VALUES " +
+                    "('车库', 39.9000, 116.3900), " +
+                    "('机场', 40.0799, 116.6031), " +
+                    "('维修厂', 39.8650, 116.2870), " +
+                    "('市中心', 39.9087, 116.3975), " +
+                    "('火车站', 39.9029, 116.4272)");
+            System.out.println("已插入默认地名坐标数据");
+        }
+
         // 检查用户表是否为空，如果为空则创建默认管理员账户
         rs = stmt.executeQuery("SELECT COUNT(*) FROM users");
         if (rs.next() && rs.getInt(1) == 0) {
@@ -190,16 +133,14 @@ public class DatabaseManager {
     }
 
     /**
-     * 关闭数据库连接
+     * 关闭数据库连接池
      */
     public static void closeConnection() {
-        if (connection != null) {
-            try {
-                connection.close();
-                connection = null;
+        synchronized (DatabaseManager.class) {
+            if (pool != null) {
+                pool.shutdown();
+                pool = null;
                 System.out.println("数据库连接已关闭");
-            } catch (SQLException e) {
-                System.err.println("关闭数据库连接失败: " + e.getMessage());
             }
         }
     }
@@ -208,9 +149,8 @@ public class DatabaseManager {
      * 测试数据库连接
      */
     public static boolean testConnection() {
-        try {
-            Connection testConn = getConnection();
-            return testConn != null && !testConn.isClosed();
+        try (Connection testConn = getConnection()) {
+            return testConn.isValid(2);
         } catch (SQLException e) {
             System.err.println("数据库连接测试失败: " + e.getMessage());
             return false;
@@ -227,15 +167,22 @@ public class DatabaseManager {
 
             // 删除现有表
             stmt.execute("DROP TABLE IF EXISTS operation_logs");
+            stmt.execute("DROP TABLE IF EXISTS operation_log_daily");
+            stmt.execute("DROP TABLE IF EXISTS sync_tombstones");
+            stmt.execute("DROP TABLE IF EXISTS places");
+            stmt.execute("DROP TABLE IF EXISTS role_permissions");
+            // 按外键依赖倒序删除
             stmt.execute("DROP TABLE IF EXISTS tasks");
-            stmt.execute("DROP TABLE IF EXISTS users");
             stmt.execute("DROP TABLE IF EXISTS vehicles");
+            stmt.execute("DROP TABLE IF EXISTS users");
+            stmt.execute("DROP TABLE IF EXISTS schema_version");
 
             // 重置初始化标志
             initialized = false;
 
             // 重新初始化
-            initializeDatabase();
+            initializeDatabase(conn);
+            initialized = true;
 
             System.out.println("数据库已重置");
 
@@ -0,0 +1,300 @@
+package com.example.dispatch.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * 数据库结构迁移
+ * 表结构的每次变化是一个带版本号的迁移，已执行的版本记录在schema_version表中。
+ * 启动时只查询一次当前版本，已是最新版本时不执行任何DDL；否则按版本顺序执行未执行的迁移。
+ * 执行迁移时每一步都先检查对象是否已存在，已存在的跳过：没有schema_version表的旧数据库（由旧版本程序建表）
+ * 可以直接迁移，某一步失败后（之前的DDL已隐式提交）重新启动也会从失败的步骤继续。
+ */
+public class SchemaMigrator {
+
+    private static final String LOCK_NAME = "vehicle_dispatch_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    /**
+     * 迁移中的一条DDL及其存在性检查
+     */
+    private static final class Step {
+        private final String sql;
+        private final String existsSql; // 返回行即表示对象已存在（步骤已执行过）
+
+        private Step(String sql, String existsSql) {
+            this.sql = sql;
+            this.existsSql = existsSql;
+        }
+    }
+
+    private static final class Migration {
+        private final int version;
+        private final String description;
+        private final List<Step> steps;
+
+        private Migration(int version, String description, Step... steps) {
+            this.version = version;
+            this.description = description;
+            this.steps = List.of(steps);
+        }
+    }
+
+    private static Step table(String name, String createSql) {
+        return new Step(createSql, tableExistsSql(name));
+    }
+
+    private static String tableExistsSql(String name) {
+        return "SELECT 1 FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = '" + name + "'";
+    }
+
+    private static Step column(String table, String column, String alterSql) {
+        return new Step(alterSql, "SELECT 1 FROM information_schema.columns "
+                + "WHERE table_schema = DATABASE() AND table_name = '" + table + "' AND column_name = '" + column + "'");
+    }
+
+    private static Step index(String table, String name, String columns) {
+        return new Step("CREATE INDEX " + name + " ON " + table + "(" + columns + ")",
+                "SELECT 1 FROM information_schema.statistics "
+                        + "WHERE table_schema = DATABASE() AND table_name = '" + table + "' AND index_name = '" + name + "'");
+    }
+
+    // 按版本号递增排列，已发布的迁移不能修改，表结构变化只能追加新版本
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "初始表结构",
+                    // users必须先于引用它的表创建
+                    table("users", """
+                            CREATE TABLE users (
+                                id INT AUTO_INCREMENT PRIMARY KEY,
+                                username VARCHAR(50) NOT NULL UNIQUE,
+                                password_hash VARCHAR(255) NOT NULL,
+                                role VARCHAR(20) NOT NULL DEFAULT 'user',
+                                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+                            """),
+                    table("vehicles", """
+                            CREATE TABLE vehicles (
+                                id VARCHAR(20) PRIMARY KEY,
+                                driver VARCHAR(50) NOT NULL,
+                                status VARCHAR(20) NOT NULL DEFAULT '空闲',
+                                location VARCHAR(100) NOT NULL DEFAULT '未知',
+                                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                                updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+                            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+                            """),
+                    table("tasks", """
+                            CREATE TABLE tasks (
+                                id INT AUTO_INCREMENT PRIMARY KEY,
+                                name VARCHAR(100) NOT NULL UNIQUE,
+                                destination VARCHAR(100) NOT NULL,
+                                eta TIMESTAMP NOT NULL,
+                                vehicle_id VARCHAR(20),
+                                status VARCHAR(20) NOT NULL DEFAULT '待分配',
+                                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                                updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+                                FOREIGN KEY (vehicle_id) REFERENCES vehicles(id) ON DELETE SET NULL
+                            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+                            """),
+                    table("operation_logs", """
+                            CREATE TABLE operation_logs (
+                                id INT AUTO_INCREMENT PRIMARY KEY,
+                                operation_type VARCHAR(20) NOT NULL,
+                                entity_type VARCHAR(20) NOT NULL,
+                                entity_id VARCHAR(50),
+                                description TEXT,
+                                user_id INT,
+                                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+                            """),
+                    index("vehicles", "idx_vehicle_status", "status"),
+                    index("tasks", "idx_task_status", "status"),
+                    index("tasks", "idx_task_vehicle", "vehicle_id"),
+                    index("operation_logs", "idx_log_operation", "operation_type"),
+                    index("operation_logs", "idx_log_created", "created_at")),
+
+            new Migration(2, "车辆和任务记录创建者",
+                    column("vehicles", "created_by", "ALTER TABLE vehicles ADD COLUMN created_by INT, "
+                            + "ADD FOREIGN KEY (created_by) REFERENCES users(id) ON DELETE SET NULL"),
+                    column("tasks", "created_by", "ALTER TABLE tasks ADD COLUMN created_by INT, "
+                            + "ADD FOREIGN KEY (created_by) REFERENCES users(id) ON DELETE SET NULL")),
+
+            new Migration(3, "操作日志键集分页索引",
+                    // (筛选列, created_at, id)
+                    index("operation_logs", "idx_log_created_id", "created_at, id"),
+                    index("operation_logs", "idx_log_operation_created", "operation_type, created_at, id"),
+                    index("operation_logs", "idx_log_entity_created", "entity_type, created_at, id"),
+                    index("operation_logs", "idx_log_user_created", "user_id, created_at, id")),
+
+            new Migration(4, "增量同步：修改时间和删除记录",
+                    column("users", "updated_at", "ALTER TABLE users ADD COLUMN updated_at TIMESTAMP "
+                            + "DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP"),
+                    // 记录被删除行的主键
+                    table("sync_tombstones", """
+                            CREATE TABLE sync_tombstones (
+                                id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                                entity_type VARCHAR(20) NOT NULL,
+                                entity_key VARCHAR(100) NOT NULL,
+                                deleted_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+                            """),
+                    index("vehicles", "idx_vehicle_updated", "updated_at"),
+                    index("tasks", "idx_task_updated", "updated_at"),
+                    index("users", "idx_user_updated", "updated_at"),
+                    index("sync_tombstones", "idx_tombstone_deleted", "deleted_at")),
+
+            new Migration(5, "地名坐标表",
+                    // 车辆位置、任务目的地解析为坐标
+                    table("places", """
+                            CREATE TABLE places (
+                                name VARCHAR(100) PRIMARY KEY,
+                                latitude DOUBLE NOT NULL,
+                                longitude DOUBLE NOT NULL,
+                                updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+                            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+                            """)),
+
+            new Migration(6, "角色权限表",
+                    // 覆盖内置角色的默认权限或定义自定义角色
+                    table("role_permissions", """
+                            CREATE TABLE role_permissions (
+                                role VARCHAR(20) NOT NULL,
+                                permission VARCHAR(50) NOT NULL,
+                                PRIMARY KEY (role, permission)
+                            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+                            """)),
+
+            new Migration(7, "操作日志每日汇总",
+                    // 写日志时在同一事务中累加，统计只读汇总行；user_id为0表示系统操作（主键列不能为NULL）
+                    table("operation_log_daily", """
+                            CREATE TABLE operation_log_daily (
+                                day DATE NOT NULL,
+                                operation_type VARCHAR(20) NOT NULL,
+                                entity_type VARCHAR(20) NOT NULL,
+                                user_id INT NOT NULL DEFAULT 0,
+                                count INT NOT NULL,
+                                PRIMARY KEY (day, operation_type, entity_type, user_id)
+                            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+                            """),
+                    // 由已有日志生成汇总
+                    new Step("""
+                            INSERT INTO operation_log_daily (day, operation_type, entity_type, user_id, count)
+                            SELECT DATE(created_at), operation_type, entity_type, COALESCE(user_id, 0), COUNT(*)
+                            FROM operation_logs
+                            GROUP BY DATE(created_at), operation_type, entity_type, COALESCE(user_id, 0)
+                            """, "SELECT 1 FROM operation_log_daily LIMIT 1")));
+
+    private SchemaMigrator() {
+    }
+
+    /**
+     * 最新的结构版本
+     */
+    public static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    /**
+     * 把数据库迁移到最新版本
+     * 多个实例同时启动时用MySQL命名锁串行执行，拿到锁后重新读取版本
+     *
+     * @return 本次执行的迁移数
+     */
+    public static int migrate(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS schema_version (
+                        version INT PRIMARY KEY,
+                        description VARCHAR(200) NOT NULL,
+                        applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+                    """);
+            if (currentVersion(stmt) >= latestVersion()) {
+                return 0;
+            }
+
+            acquireLock(conn);
+            try {
+                int current = currentVersion(stmt);
+                boolean legacy = current == 0 && exists(conn, tableExistsSql("vehicles"));
+                if (legacy) {
+                    System.out.println("检测到未记录版本的旧数据库，已存在的表和索引将被跳过");
+                }
+
+                int applied = 0;
+                for (Migration migration : MIGRATIONS) {
+                    if (migration.version > current) {
+                        apply(conn, stmt, migration);
+                        applied++;
+                    }
+                }
+                System.out.println("数据库结构已从版本 " + current + " 迁移到 " + latestVersion() + "（执行 " + applied
+                        + " 个迁移）");
+                return applied;
+            } finally {
+                releaseLock(conn);
+            }
+        }
+    }
+
+    private static void apply(Connection conn, Statement stmt, Migration migration) throws SQLException {
+        long start = System.nanoTime();
+        for (Step step : migration.steps) {
+            // 检查只在执行迁移时进行，代价可以忽略
+            if (exists(conn, step.existsSql)) {
+                continue;
+            }
+            try {
+                stmt.execute(step.sql);
+            } catch (SQLException e) {
+                // MySQL的DDL会隐式提交，已执行的步骤无法回滚，版本不记录，修复后重新启动会从失败的步骤继续
+                throw new SQLException("数据库迁移 V" + migration.version + "（" + migration.description + "）失败: "
+                        + e.getMessage(), e);
+            }
+        }
+        try (PreparedStatement insert = conn.prepareStatement(
+                "INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+            insert.setInt(1, migration.version);
+            insert.setString(2, migration.description);
+            insert.executeUpdate();
+        }
+        System.out.printf("已执行数据库迁移 V%d: %s（%.1f ms）%n", migration.version, migration.description,
+                (System.nanoTime() - start) / 1e6);
+    }
+
+    private static int currentVersion(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static boolean exists(Connection conn, String existsSql) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(existsSql);
+                ResultSet rs = stmt.executeQuery()) {
+            return rs.next();
+        }
+    }
+
+    private static void acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("等待数据库迁移锁超时（" + LOCK_TIMEOUT_SECONDS + " 秒）");
+                }
+            }
+        }
+    }
+
+    private static void releaseLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.executeQuery().close();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.dispatch.database;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个物理连接上的PreparedStatement缓存
+ * 以SQL文本为键，按LRU淘汰。DAO对语句调用close()时只清空参数并放回缓存，
+ * 下次相同SQL直接复用已在服务器端预编译好的语句。
+ */
+public class StatementCache {
+
+    private static final int NO_GENERATED_KEYS_FLAG = -1;
+
+    private final int capacity;
+    private final Metrics metrics;
+    private final LinkedHashMap<String, CachedStatement> entries;
+    // 被淘汰时仍在使用中的语句：不在entries中，归还连接时仍要收回并关闭
+    private final Set<CachedStatement> evictedLeased = new HashSet<>();
+    // 同一SQL的缓存语句正在使用时另外创建的不缓存语句，归还连接时关闭仍未关闭的
+    private final List<PreparedStatement> uncached = new ArrayList<>();
+
+    StatementCache(int capacity, Metrics metrics) {
+        this.capacity = capacity;
+        this.metrics = metrics;
+        this.entries = new LinkedHashMap<>(capacity, 0.75f, true);
+    }
+
+    /**
+     * prepareStatement(sql)
+     */
+    synchronized PreparedStatement prepare(Connection physical, Connection handle, String sql)
+            throws SQLException {
+        return prepare(physical, handle, sql, NO_GENERATED_KEYS_FLAG);
+    }
+
+    /**
+     * prepareStatement(sql, autoGeneratedKeys)
+     */
+    synchronized PreparedStatement prepare(Connection physical, Connection handle, String sql,
+            int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == NO_GENERATED_KEYS_FLAG ? sql : autoGeneratedKeys + "#" + sql;
+        CachedStatement entry = entries.get(key);
+
+        if (entry != null && entry.owner == null) {
+            metrics.hits.increment();
+            return lease(entry, handle);
+        }
+
+        metrics.misses.increment();
+        PreparedStatement stmt = autoGeneratedKeys == NO_GENERATED_KEYS_FLAG
+                ? physical.prepareStatement(sql)
+                : physical.prepareStatement(sql, autoGeneratedKeys);
+
+        if (entry != null) {
+            // 同一SQL的缓存语句正在使用中（嵌套使用），返回不缓存的语句
+            metrics.uncached.increment();
+            uncached.add(stmt);
+            return stmt;
+        }
+
+        entry = new CachedStatement(stmt);
+        entries.put(key, entry);
+        evictIfNecessary();
+        return lease(entry, handle);
+    }
+
+    private void evictIfNecessary() {
+        Iterator<Map.Entry<String, CachedStatement>> it = entries.entrySet().iterator();
+        while (entries.size() > capacity && it.hasNext()) {
+            CachedStatement eldest = it.next().getValue();
+            it.remove();
+            metrics.evictions.increment();
+            if (eldest.owner == null) {
+                closeQuietly(eldest.statement);
+            } else {
+                eldest.evicted = true; // 归还时再关闭
+                evictedLeased.add(eldest);
+            }
+        }
+    }
+
+    /**
+     * 借出缓存语句：代理只在自己是当前持有者时可用，关闭或被收回（连接归还）后即失效，
+     * 不会碰到已借给其他调用方的同一语句
+     */
+    private PreparedStatement lease(CachedStatement entry, Connection handle) {
+        PreparedStatement[] self = new PreparedStatement[1];
+        self[0] = (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            giveBack(entry, proxy);
+                            return null;
+                        case "isClosed":
+                            return entry.owner != proxy || entry.statement.isClosed();
+                        case "getConnection":
+                            return handle;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "CachedStatement[" + entry.statement + "]";
+                        default:
+                            break;
+                    }
+                    if (entry.owner != proxy) {
+                        throw new SQLException("语句已关闭");
+                    }
+                    try {
+                        return method.invoke(entry.statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+        entry.owner = self[0];
+        return self[0];
+    }
+
+    /**
+     * 语句使用完毕，清空参数后放回缓存
+     */
+    private synchronized void giveBack(CachedStatement entry, Object proxy) {
+        if (entry.owner != proxy) {
+            return; // 已关闭或已被收回，此句柄已失效
+        }
+        entry.owner = null;
+        if (entry.evicted) {
+            evictedLeased.remove(entry);
+            closeQuietly(entry.statement);
+            return;
+        }
+        try {
+            entry.statement.clearParameters();
+            entry.statement.clearBatch();
+        } catch (SQLException e) {
+            closeQuietly(entry.statement);
+            entries.values().remove(entry);
+        }
+    }
+
+    /**
+     * 连接归还连接池时调用：收回所有未关闭的语句
+     */
+    synchronized void releaseAll() {
+        // giveBack可能从缓存中移除条目，遍历副本
+        for (CachedStatement entry : new ArrayList<>(entries.values())) {
+            if (entry.owner != null) {
+                Object owner = entry.owner;
+                giveBack(entry, owner);
+            }
+        }
+        for (CachedStatement entry : new ArrayList<>(evictedLeased)) {
+            giveBack(entry, entry.owner);
+        }
+        closeUncached();
+    }
+
+    private void closeUncached() {
+        for (PreparedStatement stmt : uncached) {
+            closeQuietly(stmt);
+        }
+        uncached.clear();
+    }
+
+    /**
+     * 物理连接关闭前调用：关闭所有缓存语句
+     */
+    synchronized void closeAll() {
+        for (CachedStatement entry : entries.values()) {
+            closeQuietly(entry.statement);
+        }
+        entries.clear();
+        for (CachedStatement entry : evictedLeased) {
+            closeQuietly(entry.statement);
+        }
+        evictedLeased.clear();
+        closeUncached();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private static void closeQuietly(Statement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            System.err.println("关闭缓存语句失败: " + e.getMessage());
+        }
+    }
+
+    private static final class CachedStatement {
+        private final PreparedStatement statement;
+        private volatile Object owner; // 当前持有者（代理对象），null表示空闲；代理在其它线程上读取
+        private boolean evicted;
+
+        private CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+    }
+
+    /**
+     * 语句缓存统计（整个连接池共享）
+     */
+    public static final class Metrics {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final LongAdder uncached = new LongAdder(); // 缓存语句正被占用时创建的不缓存语句（也计入未命中）
+
+        public long getHits() {
+            return hits.sum();
+        }
+
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        public long getEvictions() {
+            return evictions.sum();
+        }
+
+        public long getUncached() {
+            return uncached.sum();
+        }
+
+        /**
+         * 命中率（0~1）
+         */
+        public double getHitRatio() {
+            long h = getHits();
+            long total = h + getMisses();
+            return total == 0 ? 0.0 : (double) h / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("命中=%d, 未命中=%d（其中不缓存=%d）, 淘汰=%d, 命中率=%.1f%%",
+                    getHits(), getMisses(), getUncached(), getEvictions(), getHitRatio() * 100);
+        }
+    }
+}
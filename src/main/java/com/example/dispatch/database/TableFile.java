@@ -0,0 +1,337 @@
+package com.example.dispatch.database;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 备份表文件
+ * 文件头：魔数、格式版本、数据库结构版本、表名、各列的列名和类型；
+ * 之后每行以1开头，接空值位图和非空列的值（整数为zigzag变长编码，时间为UTC秒数+纳秒，字符串为长度+UTF-8），
+ * 以0结束并接总行数；最后4字节是之前全部内容的CRC32C，恢复前先整体校验。
+ */
+final class TableFile {
+
+    static final byte LONG = 'L';
+    static final byte DOUBLE = 'D';
+    static final byte TIME = 'T';
+    static final byte BYTES = 'B';
+    static final byte STRING = 'S';
+
+    private static final int MAGIC = 0x5644424B; // "VDBK"
+    private static final int FORMAT_VERSION = 1;
+    private static final int IO_BUFFER_SIZE = 256 * 1024;
+
+    private TableFile() {
+    }
+
+    /**
+     * JDBC列类型对应的文件列类型（DECIMAL、DATE等按字符串保存，不丢精度）
+     */
+    static byte typeOf(int sqlType) {
+        switch (sqlType) {
+            case Types.BIT:
+            case Types.BOOLEAN:
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return LONG;
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return DOUBLE;
+            case Types.TIMESTAMP:
+                return TIME;
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return BYTES;
+            default:
+                return STRING;
+        }
+    }
+
+    /**
+     * 顺序写出一张表
+     */
+    static final class Writer implements Closeable {
+        private final FileChannel channel;
+        private final CRC32C crc = new CRC32C();
+        private final DataOutputStream out;
+        private final byte[] types;
+        private final byte[] nullBits;
+        private long rows = 0;
+
+        Writer(Path file, String table, int schemaVersion, List<String> columns, byte[] types) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(channel), crc), IO_BUFFER_SIZE));
+            this.types = types;
+            this.nullBits = new byte[(types.length + 7) / 8];
+
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(schemaVersion);
+            writeString(out, table);
+            writeVarLong(out, columns.size());
+            for (int i = 0; i < columns.size(); i++) {
+                writeString(out, columns.get(i));
+                out.writeByte(types[i]);
+            }
+        }
+
+        /**
+         * 写出一行，values按列顺序，类型与列类型一致（LONG为Long，TIME为LocalDateTime……）
+         */
+        void writeRow(Object[] values) throws IOException {
+            Arrays.fill(nullBits, (byte) 0);
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == null) {
+                    nullBits[i >> 3] |= (byte) (1 << (i & 7));
+                }
+            }
+            out.writeByte(1);
+            out.write(nullBits);
+            for (int i = 0; i < values.length; i++) {
+                Object value = values[i];
+                if (value == null) {
+                    continue;
+                }
+                switch (types[i]) {
+                    case LONG -> writeVarLong(out, (Long) value);
+                    case DOUBLE -> out.writeDouble((Double) value);
+                    case TIME -> {
+                        LocalDateTime time = (LocalDateTime) value;
+                        writeVarLong(out, time.toEpochSecond(ZoneOffset.UTC));
+                        writeVarLong(out, time.getNano());
+                    }
+                    case BYTES -> {
+                        byte[] bytes = (byte[]) value;
+                        writeVarLong(out, bytes.length);
+                        out.write(bytes);
+                    }
+                    default -> writeString(out, (String) value);
+                }
+            }
+            rows++;
+        }
+
+        long getRows() {
+            return rows;
+        }
+
+        /**
+         * 写出结束标记、总行数和校验和并刷到磁盘
+         *
+         * @return 文件字节数
+         */
+        long finish() throws IOException {
+            out.writeByte(0);
+            writeVarLong(out, rows);
+            out.flush();
+            ByteBuffer trailer = ByteBuffer.allocate(4).putInt((int) crc.getValue());
+            trailer.flip();
+            while (trailer.hasRemaining()) {
+                channel.write(trailer);
+            }
+            channel.force(false);
+            return channel.size();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * 顺序读取一张表（调用前应先 {@link #verify} 校验）
+     */
+    static final class Reader implements Closeable {
+        private final DataInputStream in;
+        private final int schemaVersion;
+        private final String table;
+        private final List<String> columns;
+        private final byte[] types;
+        private final byte[] nullBits;
+        private long rows = 0;
+
+        Reader(Path file) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), IO_BUFFER_SIZE));
+            try {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException("不是备份表文件: " + file);
+                }
+                int formatVersion = in.readInt();
+                if (formatVersion != FORMAT_VERSION) {
+                    throw new IOException("不支持的备份文件版本 " + formatVersion + ": " + file);
+                }
+                this.schemaVersion = in.readInt();
+                this.table = readString(in);
+                int count = (int) readVarLong(in);
+                this.columns = new ArrayList<>(count);
+                this.types = new byte[count];
+                for (int i = 0; i < count; i++) {
+                    columns.add(readString(in));
+                    types[i] = in.readByte();
+                }
+                this.nullBits = new byte[(count + 7) / 8];
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        int getSchemaVersion() {
+            return schemaVersion;
+        }
+
+        String getTable() {
+            return table;
+        }
+
+        List<String> getColumns() {
+            return columns;
+        }
+
+        byte[] getTypes() {
+            return types;
+        }
+
+        /**
+         * 读取下一行
+         *
+         * @return 按列顺序的值，读完时返回null
+         */
+        Object[] next() throws IOException {
+            byte marker = in.readByte();
+            if (marker == 0) {
+                long expected = readVarLong(in);
+                if (expected != rows) {
+                    throw new IOException("备份文件 " + table + " 行数不符：应为 " + expected + "，实际 " + rows);
+                }
+                return null;
+            }
+            in.readFully(nullBits);
+            Object[] values = new Object[types.length];
+            for (int i = 0; i < types.length; i++) {
+                if ((nullBits[i >> 3] & (1 << (i & 7))) != 0) {
+                    continue;
+                }
+                switch (types[i]) {
+                    case LONG -> values[i] = readVarLong(in);
+                    case DOUBLE -> values[i] = in.readDouble();
+                    case TIME -> values[i] = LocalDateTime.ofEpochSecond(readVarLong(in), (int) readVarLong(in),
+                            ZoneOffset.UTC);
+                    case BYTES -> {
+                        byte[] bytes = new byte[(int) readVarLong(in)];
+                        in.readFully(bytes);
+                        values[i] = bytes;
+                    }
+                    default -> values[i] = readString(in);
+                }
+            }
+            rows++;
+            return values;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * 校验文件的CRC32C
+     *
+     * @return 文件字节数
+     * @throws IOException 文件损坏或被截断
+     */
+    static long verify(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 8) {
+                throw new IOException("备份文件被截断: " + file);
+            }
+            CRC32C crc = new CRC32C();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER_SIZE);
+            long remaining = size - 4;
+            while (remaining > 0) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), remaining));
+                int read = channel.read(buffer);
+                if (read < 0) {
+                    throw new EOFException("备份文件被截断: " + file);
+                }
+                buffer.flip();
+                crc.update(buffer);
+                remaining -= read;
+            }
+            ByteBuffer trailer = ByteBuffer.allocate(4);
+            while (trailer.hasRemaining()) {
+                if (channel.read(trailer) < 0) {
+                    throw new EOFException("备份文件被截断: " + file);
+                }
+            }
+            if (trailer.getInt(0) != (int) crc.getValue()) {
+                throw new IOException("备份文件校验失败（CRC32C不符）: " + file);
+            }
+            return size;
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        long v = (value << 1) ^ (value >> 63); // zigzag：小的负数也只占少量字节
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (v >>> 1) ^ -(v & 1);
+            }
+        }
+        throw new IOException("变长整数格式错误");
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -27,6 +27,7 @@ public class OperationLog {
         public static final String IMPORT = "IMPORT";
         public static final String BACKUP = "BACKUP";
         public static final String RESTORE = "RESTORE";
+        public static final String OVERDUE = "OVERDUE";
     }
 
     // 实体类型常量
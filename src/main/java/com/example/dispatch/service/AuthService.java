@@ -1,16 +1,18 @@
 package com.example.dispatch.service;
 
-import com.example.dispatch.dao.UserDAO;
 import com.example.dispatch.model.User;
+import com.example.dispatch.storage.Storage;
+import com.example.dispatch.storage.UserStore;
 import com.example.dispatch.util.PasswordUtils;
+import com.example.dispatch.util.PermissionManager;
 
 import java.sql.SQLException;
 
 public class AuthService {
-    private final UserDAO userDAO;
+    private final UserStore userStore;
 
     public AuthService() {
-        this.userDAO = new UserDAO();
+        this.userStore = Storage.get().users();
     }
 
     /**
@@ -30,13 +32,14 @@ public class AuthService {
         }
 
         // 查找用户
-        User user = userDAO.findByUsername(username.trim());
+        User user = userStore.findByUsername(username.trim());
         if (user == null) {
             return null; // 用户不存在
         }
 
         // 验证密码
         if (PasswordUtils.verifyPassword(password, user.getPasswordHash())) {
+            PermissionManager.ensureLoaded(); // 登录后按角色计算权限掩码
             return user; // 登录成功
         } else {
             return null; // 密码错误
@@ -64,7 +67,7 @@ public class AuthService {
         }
 
         // 检查用户名是否已存在
-        if (userDAO.existsByUsername(username.trim())) {
+        if (userStore.existsByUsername(username.trim())) {
             throw new IllegalArgumentException("用户名已存在");
         }
 
@@ -80,7 +83,8 @@ public class AuthService {
         User newUser = new User(username.trim(), passwordHash, role.trim());
 
         // 保存到数据库
-        userDAO.insert(newUser);
+        userStore.insert(newUser);
+        PermissionManager.ensureLoaded();
 
         return newUser;
     }
@@ -114,7 +118,7 @@ public class AuthService {
         // 更新用户密码
         User updatedUser = new User(user.getId(), user.getUsername(), newPasswordHash, user.getRole(),
                 user.getCreatedAt());
-        userDAO.update(updatedUser);
+        userStore.update(updatedUser);
 
         return true;
     }
@@ -123,13 +127,13 @@ public class AuthService {
      * 检查用户名是否存在
      */
     public boolean usernameExists(String username) throws SQLException {
-        return userDAO.existsByUsername(username);
+        return userStore.existsByUsername(username);
     }
 
     /**
      * 根据用户名获取用户信息（不包含密码）
      */
     public User getUserByUsername(String username) throws SQLException {
-        return userDAO.findByUsername(username);
+        return userStore.findByUsername(username);
     }
 }
\ No newline at end of file
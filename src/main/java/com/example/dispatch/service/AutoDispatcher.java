@@ -0,0 +1,303 @@
+package com.example.dispatch.service;
+
+import com.example.dispatch.model.Task;
+import com.example.dispatch.model.Vehicle;
+import com.example.dispatch.util.ObservableListIndex;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 自动调度器
+ * 后台线程按ETA从早到晚处理待分配任务，通过DispatchService的分配策略自动分配车辆。
+ * 新任务进入待分配状态或有车辆变为空闲时唤醒；没有可用车辆时等待下一次车辆空闲。
+ */
+public class AutoDispatcher {
+
+    private static final String PENDING = "待分配";
+    private static final String IDLE = "空闲";
+    private static final long MAX_WAIT_MS = 5_000; // 兜底的定期重试间隔
+    private static final long NO_VEHICLE_BACKOFF_MS = 1_000; // 分配不到车辆后，无车辆空闲事件时的重试间隔
+    private static final long FAILURE_BACKOFF_MS = 500; // 分配出错后的首次重试间隔，连续出错时加倍，不超过MAX_WAIT_MS
+
+    private final DispatchService dispatchService;
+    private final ObservableListIndex<String, Task> taskIndex;
+    private final VehicleLoadTracker loadTracker;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition wakeUp = lock.newCondition();
+    // 分配一个任务期间持有，pauseAndWait借此等待正在进行的分配结束
+    private final ReentrantLock inFlight = new ReentrantLock();
+    // 待分配任务，ETA最早的在队首
+    private final PriorityQueue<Task> queue = new PriorityQueue<>(
+            Comparator.comparing(Task::getEta).thenComparing(Task::getName));
+    private final Map<String, Task> queued = new HashMap<>();
+
+    private volatile String strategy = "nearest";
+    private volatile boolean paused = false;
+    private volatile boolean stopped = false;
+    private volatile String lastError;
+    private volatile long backoffUntil; // System.nanoTime()，车辆变为空闲时清零（连续出错期间除外）
+    private volatile int consecutiveFailures; // 只在调度线程上修改
+    private Thread worker;
+
+    // 统计
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder assigned = new LongAdder();
+    private final LongAdder noVehicle = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalAssignNanos = new LongAdder();
+    private volatile long startedAt;
+
+    public AutoDispatcher(DispatchService dispatchService, ObservableListIndex<String, Task> taskIndex,
+            ObservableListIndex<String, Vehicle> vehicleIndex, VehicleLoadTracker loadTracker) {
+        this.dispatchService = dispatchService;
+        this.taskIndex = taskIndex;
+        this.loadTracker = loadTracker;
+        taskIndex.addObserver(new ObservableListIndex.Observer<>() {
+            @Override
+            public void indexed(String name, Task task) {
+                if (task.getVehicleId() == null && PENDING.equals(task.getStatus())) {
+                    enqueue(task);
+                } else {
+                    dequeue(name);
+                }
+            }
+
+            @Override
+            public void removed(String name, Task task) {
+                dequeue(name);
+            }
+        });
+        vehicleIndex.addObserver(new ObservableListIndex.Observer<>() {
+            @Override
+            public void indexed(String id, Vehicle vehicle) {
+                if (IDLE.equals(vehicle.getStatus()) && consecutiveFailures == 0) {
+                    backoffUntil = 0;
+                    signal();
+                }
+            }
+
+            @Override
+            public void removed(String id, Vehicle vehicle) {
+            }
+        });
+    }
+
+    private void enqueue(Task task) {
+        lock.lock();
+        try {
+            Task old = queued.put(task.getName(), task);
+            if (old != null) {
+                queue.remove(old);
+            }
+            queue.add(task);
+            wakeUp.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dequeue(String taskName) {
+        lock.lock();
+        try {
+            Task old = queued.remove(taskName);
+            if (old != null) {
+                queue.remove(old);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void signal() {
+        lock.lock();
+        try {
+            wakeUp.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 启动调度线程（重复调用无效）
+     */
+    public synchronized void start() {
+        if (worker != null || stopped) {
+            return;
+        }
+        startedAt = System.nanoTime();
+        worker = new Thread(this::runLoop, "auto-dispatcher");
+        worker.setDaemon(true);
+        worker.start();
+        System.out.println("自动调度已启动，策略: " + strategy);
+    }
+
+    /**
+     * 停止调度线程
+     */
+    public synchronized void shutdown() {
+        stopped = true;
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+    }
+
+    public void pause() {
+        paused = true;
+        System.out.println("自动调度已暂停");
+    }
+
+    /**
+     * 暂停并等待正在进行的分配结束，返回后调度线程不再写入数据库，直到resume
+     */
+    public void pauseAndWait() {
+        lock.lock();
+        try {
+            pause();
+        } finally {
+            lock.unlock();
+        }
+        inFlight.lock();
+        inFlight.unlock();
+    }
+
+    public void resume() {
+        paused = false;
+        lastError = null;
+        signal();
+        System.out.println("自动调度已恢复");
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * 设置分配策略（同 {@link DispatchService#assignSmart(Task, String)}）
+     */
+    public void setStrategy(String strategy) {
+        this.strategy = strategy;
+    }
+
+    private void runLoop() {
+        while (!stopped) {
+            Task task;
+            lock.lock();
+            try {
+                while (!stopped && (paused || queue.isEmpty() || loadTracker.getAvailableCount() == 0
+                        || System.nanoTime() < backoffUntil)) {
+                    long backoff = backoffUntil - System.nanoTime();
+                    wakeUp.await(backoff > 0 ? Math.min(backoff, TimeUnit.MILLISECONDS.toNanos(MAX_WAIT_MS))
+                            : TimeUnit.MILLISECONDS.toNanos(MAX_WAIT_MS), TimeUnit.NANOSECONDS);
+                }
+                if (stopped) {
+                    return;
+                }
+                task = queue.poll();
+                queued.remove(task.getName());
+                inFlight.lock(); // 在释放lock之前取得，pauseAndWait不会错过这次分配
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                dispatch(task);
+            } finally {
+                inFlight.unlock();
+            }
+        }
+    }
+
+    private void dispatch(Task queuedTask) {
+        // 出队后任务可能已被手动或接口分配（索引观察者的出队通知在JavaFX线程上，可能晚于这里）
+        Task task = taskIndex.get(queuedTask.getName());
+        if (task == null || task.getVehicleId() != null || !PENDING.equals(task.getStatus())) {
+            return;
+        }
+        attempts.increment();
+        long start = System.nanoTime();
+        try {
+            Vehicle vehicle = dispatchService.assignSmart(task, strategy);
+            consecutiveFailures = 0;
+            if (vehicle != null) {
+                assigned.increment();
+                totalAssignNanos.add(System.nanoTime() - start);
+            } else {
+                // 没有可用车辆：任务放回队列，等待车辆空闲
+                noVehicle.increment();
+                backoffUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(NO_VEHICLE_BACKOFF_MS);
+                requeueIfPending(task);
+            }
+        } catch (SecurityException e) {
+            // 当前会话没有分配权限，暂停直到有权限的用户恢复
+            failures.increment();
+            lastError = e.getMessage();
+            requeueIfPending(task);
+            pause();
+        } catch (RuntimeException e) {
+            // 如数据库暂时不可用：任务放回队列，退避后重试，避免空转
+            failures.increment();
+            lastError = e.getMessage();
+            int failuresInRow = Math.min(++consecutiveFailures, 16);
+            long backoffMs = Math.min(FAILURE_BACKOFF_MS << (failuresInRow - 1), MAX_WAIT_MS);
+            backoffUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMs);
+            System.err.println("自动调度任务 " + task.getName() + " 失败（" + backoffMs + " ms后重试）: " + e.getMessage());
+            requeueIfPending(task);
+        }
+    }
+
+    private void requeueIfPending(Task task) {
+        if (task.getVehicleId() == null && PENDING.equals(task.getStatus())) {
+            lock.lock();
+            try {
+                if (!queued.containsKey(task.getName())) {
+                    queued.put(task.getName(), task);
+                    queue.add(task);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public int getQueuedCount() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getAssignedCount() {
+        return assigned.sum();
+    }
+
+    /**
+     * 运行以来平均每分钟分配的任务数
+     */
+    public double getAssignedPerMinute() {
+        long elapsed = System.nanoTime() - startedAt;
+        return startedAt == 0 || elapsed <= 0 ? 0 : assigned.sum() * 60e9 / elapsed;
+    }
+
+    public String getStatus() {
+        long done = assigned.sum();
+        String status = (paused ? "已暂停" : "运行中") + " | 待分配 " + getQueuedCount() + " | 已分配 " + done
+                + String.format(" (%.1f/分钟, 平均 %.1f ms)", getAssignedPerMinute(),
+                        done == 0 ? 0.0 : totalAssignNanos.sum() / 1e6 / done)
+                + " | 尝试 " + attempts.sum() + " | 无车 " + noVehicle.sum() + " | 失败 " + failures.sum();
+        String error = lastError;
+        return error == null ? status : status + " | " + error;
+    }
+}
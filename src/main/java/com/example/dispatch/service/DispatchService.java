@@ -1,36 +1,47 @@
 package com.example.dispatch.service;
 
+import com.example.dispatch.model.GeoPoint;
 import com.example.dispatch.model.Task;
 import com.example.dispatch.model.Vehicle;
 import com.example.dispatch.util.DataStore;
-import javafx.collections.ObservableList;
+import com.example.dispatch.util.GridSpatialIndex;
+import com.example.dispatch.util.MinCostMatching;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 
 public class DispatchService {
-    private final ObservableList<Vehicle> vehicles;
+    // 就近分配时一次取出的候选车辆数（候选可能已被并发调度预留）
+    private static final int NEAREST_CANDIDATES = 8;
 
-    public DispatchService(ObservableList<Vehicle> vehicles) {
-        this.vehicles = vehicles;
-    }
+    // 批量匹配参数（费用单位：公里）
+    private static final int BATCH_CANDIDATES = 16; // 每个任务保留的最近候选车辆数
+    private static final double LOAD_WEIGHT_KM = 5; // 每个未完成任务折算的距离
+    private static final double UNKNOWN_DISTANCE_KM = 50; // 目的地或车辆位置未知时的估计距离
+    private static final double UNASSIGNED_COST = 1_000_000; // 任务本批不分配的代价
 
     /**
      * 分配车辆给任务（简单策略：选择第一个空闲车辆）
+     * 与其它策略一样通过负载跟踪器预留车辆，跳过已被并发调度预留的车辆
      */
     public Vehicle assign(Task task) {
+        VehicleLoadTracker tracker = DataStore.getLoadTracker();
+        Vehicle selectedVehicle = null;
         try {
-            // 获取空闲车辆列表
-            List<Vehicle> availableVehicles = DataStore.getAvailableVehicles();
-
-            if (availableVehicles.isEmpty()) {
+            // 按ID顺序选择第一个能预留的空闲车辆
+            selectedVehicle = reserveFirstAvailable(DataStore.getAvailableVehiclesView(), tracker);
+            if (selectedVehicle == null) {
                 System.out.println("没有空闲车辆可用");
                 return null;
             }
 
-            // 选择第一个空闲车辆
-            Vehicle selectedVehicle = availableVehicles.get(0);
-
             // 分配车辆给任务
             DataStore.assignVehicleToTask(task.getName(), selectedVehicle.getId());
 
@@ -38,9 +49,17 @@ public class DispatchService {
             return selectedVehicle;
 
         } catch (SQLException e) {
+            if (selectedVehicle != null) {
+                tracker.release(selectedVehicle.getId());
+            }
             System.err.println("车辆分配失败: " + e.getMessage());
             e.printStackTrace();
             return null;
+        } catch (RuntimeException e) {
+            if (selectedVehicle != null) {
+                tracker.release(selectedVehicle.getId());
+            }
+            throw e;
         }
     }
 
@@ -63,13 +82,69 @@ public class DispatchService {
 
     /**
      * 按最近距离分配
+     * 目的地通过地名表解析为坐标，在空闲车辆空间索引中查询最近的候选车辆；
+     * 目的地或车辆位置无法解析时回退到简单策略
      */
     private Vehicle assignByNearest(Task task) {
-        // 这里可以实现基于GPS距离的分配逻辑
-        // 当前先使用简单策略
+        GeoPoint destination = DataStore.resolvePlace(task.getDestination());
+        if (destination == null) {
+            System.out.println("目的地坐标未知，使用简单策略: " + task.getDestination());
+            return assign(task);
+        }
+
+        VehicleLoadTracker tracker = DataStore.getLoadTracker();
+        GridSpatialIndex.Neighbor<String> candidate = reserveNearest(DataStore.getVehicleLocator(), tracker,
+                destination);
+        if (candidate != null) {
+            String vehicleId = candidate.getKey();
+            try {
+                Vehicle vehicle = DataStore.findVehicleById(vehicleId);
+                DataStore.assignVehicleToTask(task.getName(), vehicleId);
+                System.out.println(String.format("就近分配车辆 %s（距目的地 %.2f 公里）给任务 %s",
+                        vehicleId, candidate.getDistanceKm(), task.getName()));
+                return vehicle;
+            } catch (SQLException e) {
+                tracker.release(vehicleId);
+                System.err.println("就近分配失败: " + e.getMessage());
+                return assign(task);
+            } catch (RuntimeException e) {
+                tracker.release(vehicleId);
+                throw e;
+            }
+        }
+
+        System.out.println("没有已定位的空闲车辆，使用简单策略");
         return assign(task);
     }
 
+    /**
+     * 简单策略的选车步骤：按顺序预留第一辆能预留的车辆，没有时返回null
+     * 只做预留不写数据库，调用方分配失败时必须释放预留（基准测试直接调用）
+     */
+    public static Vehicle reserveFirstAvailable(Iterable<Vehicle> available, VehicleLoadTracker tracker) {
+        for (Vehicle vehicle : available) {
+            if (tracker.reserve(vehicle.getId())) {
+                return vehicle;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 就近策略的选车步骤：查询目的地附近的空闲候选，预留第一辆能预留的车辆，没有时返回null
+     * 只做预留不写数据库，调用方分配失败时必须释放预留（基准测试直接调用）
+     */
+    public static GridSpatialIndex.Neighbor<String> reserveNearest(VehicleLocator locator,
+            VehicleLoadTracker tracker, GeoPoint destination) {
+        for (GridSpatialIndex.Neighbor<String> candidate : locator.nearestIdle(destination, NEAREST_CANDIDATES,
+                tracker::isSelectable)) {
+            if (tracker.reserve(candidate.getKey())) { // 跳过已被其它调度预留的车辆
+                return candidate;
+            }
+        }
+        return null;
+    }
+
     /**
      * 按最快到达时间分配
      */
@@ -81,35 +156,30 @@ public class DispatchService {
 
     /**
      * 按负载均衡分配
+     * 从负载跟踪器的最小堆中取未完成任务最少的空闲车辆，不再逐车查询数据库
      */
     private Vehicle assignByLoadBalance(Task task) {
-        try {
-            // 获取所有空闲车辆
-            List<Vehicle> availableVehicles = DataStore.getAvailableVehicles();
-
-            if (availableVehicles.isEmpty()) {
-                return null;
-            }
-
-            // 统计每辆车的任务数量，选择任务最少的车辆
-            Vehicle bestVehicle = availableVehicles.get(0);
-            int minTasks = Integer.MAX_VALUE;
-
-            for (Vehicle vehicle : availableVehicles) {
-                List<Task> vehicleTasks = DataStore.getTaskDAO().findByVehicleId(vehicle.getId());
-                if (vehicleTasks.size() < minTasks) {
-                    minTasks = vehicleTasks.size();
-                    bestVehicle = vehicle;
-                }
-            }
+        VehicleLoadTracker tracker = DataStore.getLoadTracker();
+        String vehicleId = tracker.reserveLeastLoaded();
+        if (vehicleId == null) {
+            System.out.println("没有空闲车辆可用");
+            return null;
+        }
 
-            // 分配车辆
-            DataStore.assignVehicleToTask(task.getName(), bestVehicle.getId());
-            return bestVehicle;
+        try {
+            int load = tracker.getActiveTaskCount(vehicleId);
+            Vehicle vehicle = DataStore.findVehicleById(vehicleId);
+            DataStore.assignVehicleToTask(task.getName(), vehicleId);
+            System.out.println("负载均衡分配车辆 " + vehicleId + "（分配前未完成任务 " + load + "）给任务 " + task.getName());
+            return vehicle;
 
         } catch (SQLException e) {
+            tracker.release(vehicleId);
             System.err.println("负载均衡分配失败: " + e.getMessage());
             return assign(task); // 失败时回退到简单策略
+        } catch (RuntimeException e) {
+            tracker.release(vehicleId);
+            throw e;
         }
     }
 
@@ -123,10 +193,8 @@ public class DispatchService {
                 DataStore.assignVehicleToTask(task.getName(), null);
 
                 // 将车辆状态改为空闲
-                Vehicle vehicle = DataStore.findVehicleById(task.getVehicleId());
-                if (vehicle != null) {
-                    vehicle.setStatus("空闲");
-                    DataStore.updateVehicle(vehicle);
+                if (DataStore.findVehicleById(task.getVehicleId()) != null) {
+                    DataStore.updateVehicleStatus(task.getVehicleId(), "空闲");
                 }
 
                 System.out.println("已取消任务 " + task.getName() + " 的车辆分配");
@@ -139,16 +207,161 @@ public class DispatchService {
     }
 
     /**
-     * 批量分配任务
+     * 批量分配任务（最优匹配模式，见 {@link #assignBatch(List)}）
      */
     public int assignMultiple(List<Task> tasks) {
-        int successCount = 0;
+        return assignBatch(tasks).size();
+    }
+
+    /**
+     * 批量最优分配
+     * 对所有待分配任务一次性计算费用（距离 + 负载折算），每个任务只保留最近的若干候选车辆，
+     * 在候选配对组成的稀疏二分图上求总费用最小的匹配，结果在一个事务中提交。车辆不足时ETA较早的任务优先分配。
+     *
+     * @return 成功分配的任务 → 车辆
+     */
+    public Map<Task, Vehicle> assignBatch(List<Task> tasks) {
+        long start = System.nanoTime();
+        List<Task> pending = new ArrayList<>();
         for (Task task : tasks) {
-            if (assign(task) != null) {
-                successCount++;
+            if (task.getVehicleId() == null) {
+                pending.add(task);
+            }
+        }
+        pending.sort(Comparator.comparing(Task::getEta));
+
+        VehicleLoadTracker tracker = DataStore.getLoadTracker();
+        VehicleLocator locator = DataStore.getVehicleLocator();
+        List<Vehicle> idle = new ArrayList<>();
+        for (Vehicle vehicle : DataStore.getAvailableVehiclesView()) {
+            if (tracker.isSelectable(vehicle.getId())) {
+                idle.add(vehicle);
+            }
+        }
+        if (pending.isEmpty() || idle.isEmpty()) {
+            System.out.println("批量分配：没有待分配任务或空闲车辆");
+            return Collections.emptyMap();
+        }
+
+        // 距离无法计算时的候选也限制数量，保持费用矩阵稀疏：
+        // 目的地未知的任务按ETA顺序依次取负载最小的空闲车辆中的一段（每个任务BATCH_CANDIDATES辆，相邻任务错开一辆，
+        // 保证这些任务都能分到不同的车）；目的地已知的任务另加负载最小的若干辆位置未知的车辆
+        List<GeoPoint> destinations = new ArrayList<>(pending.size());
+        int unresolved = 0;
+        for (Task task : pending) {
+            GeoPoint destination = DataStore.resolvePlace(task.getDestination());
+            destinations.add(destination);
+            if (destination == null) {
+                unresolved++;
+            }
+        }
+        List<String> leastLoaded = unresolved == 0 ? Collections.emptyList()
+                : tracker.leastLoaded(unresolved + BATCH_CANDIDATES - 1);
+        List<String> unlocated = leastLoadedUnlocated(idle, locator, tracker, BATCH_CANDIDATES);
+
+        // 稀疏候选：任务 → (车辆ID → 费用)
+        Map<String, Integer> columns = new LinkedHashMap<>();
+        List<Map<String, Double>> candidates = new ArrayList<>(pending.size());
+        int unresolvedIndex = 0;
+        for (GeoPoint destination : destinations) {
+            Map<String, Double> costs = new HashMap<>();
+            List<String> fallback;
+            if (destination != null) {
+                for (GridSpatialIndex.Neighbor<String> neighbor : locator.nearestIdle(destination, BATCH_CANDIDATES,
+                        tracker::isSelectable)) {
+                    costs.put(neighbor.getKey(), neighbor.getDistanceKm()
+                            + LOAD_WEIGHT_KM * tracker.getActiveTaskCount(neighbor.getKey()));
+                }
+                fallback = unlocated;
+            } else {
+                int from = Math.min(unresolvedIndex++, leastLoaded.size());
+                fallback = leastLoaded.subList(from, Math.min(from + BATCH_CANDIDATES, leastLoaded.size()));
+            }
+            for (String vehicleId : fallback) {
+                costs.putIfAbsent(vehicleId, UNKNOWN_DISTANCE_KM
+                        + LOAD_WEIGHT_KM * tracker.getActiveTaskCount(vehicleId));
+            }
+            for (String vehicleId : costs.keySet()) {
+                columns.putIfAbsent(vehicleId, columns.size());
+            }
+            candidates.add(costs);
+        }
+
+        // 列只包括出现在某个任务候选中的车辆，另外每个任务一列"本批不分配"（只对该任务开放），保证总有可行解；
+        // 只传入候选配对，不建立n×(m+n)的稠密矩阵
+        int n = pending.size();
+        int m = columns.size();
+        int[][] rowColumns = new int[n][];
+        double[][] rowCosts = new double[n][];
+        for (int i = 0; i < n; i++) {
+            Map<String, Double> costs = candidates.get(i);
+            rowColumns[i] = new int[costs.size() + 1];
+            rowCosts[i] = new double[costs.size() + 1];
+            int k = 0;
+            for (Map.Entry<String, Double> entry : costs.entrySet()) {
+                rowColumns[i][k] = columns.get(entry.getKey());
+                rowCosts[i][k++] = entry.getValue();
+            }
+            rowColumns[i][k] = m + i;
+            rowCosts[i][k] = UNASSIGNED_COST * (2.0 - (double) i / n); // ETA越早，不分配的代价越高
+        }
+        int[] matched = MinCostMatching.solve(m + n, rowColumns, rowCosts);
+
+        String[] vehicleIds = columns.keySet().toArray(new String[0]);
+        Map<String, String> assignments = new LinkedHashMap<>();
+        Map<Task, Vehicle> result = new LinkedHashMap<>();
+        double totalKm = 0;
+        for (int i = 0; i < n; i++) {
+            int column = matched[i];
+            if (column < 0 || column >= m) {
+                continue;
+            }
+            String vehicleId = vehicleIds[column];
+            if (!tracker.reserve(vehicleId)) {
+                continue; // 求解期间被其它调度预留
+            }
+            assignments.put(pending.get(i).getName(), vehicleId);
+            totalKm += candidates.get(i).get(vehicleId);
+            try {
+                result.put(pending.get(i), DataStore.findVehicleById(vehicleId));
+            } catch (SQLException e) {
+                result.put(pending.get(i), null);
+            }
+        }
+
+        try {
+            DataStore.assignVehiclesToTasks(assignments);
+        } catch (SQLException | RuntimeException e) {
+            assignments.values().forEach(tracker::release);
+            System.err.println("批量分配失败: " + e.getMessage());
+            return Collections.emptyMap();
+        }
+
+        System.out.println(String.format("批量分配完成: %d 个任务, %d 辆候选车辆, 分配 %d 个, 总费用 %.1f, 耗时 %d ms",
+                n, m, assignments.size(), totalKm, (System.nanoTime() - start) / 1_000_000));
+        return result;
+    }
+
+    /**
+     * 位置未知的空闲车辆中负载最小的limit辆（有界最大堆选择，O(n log limit)）
+     */
+    private static List<String> leastLoadedUnlocated(List<Vehicle> idle, VehicleLocator locator,
+            VehicleLoadTracker tracker, int limit) {
+        Comparator<String> byLoad = Comparator.<String>comparingInt(tracker::getActiveTaskCount)
+                .thenComparing(Comparator.naturalOrder());
+        PriorityQueue<String> selected = new PriorityQueue<>(byLoad.reversed());
+        for (Vehicle vehicle : idle) {
+            if (locator.getPosition(vehicle.getId()) != null) {
+                continue;
+            }
+            selected.add(vehicle.getId());
+            if (selected.size() > limit) {
+                selected.poll();
             }
         }
-        return successCount;
+        List<String> result = new ArrayList<>(selected);
+        result.sort(byLoad);
+        return result;
     }
 
     /**
@@ -0,0 +1,62 @@
+package com.example.dispatch.service;
+
+import com.example.dispatch.model.GeoPoint;
+import com.example.dispatch.storage.Storage;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 地名解析器
+ * 把车辆位置、任务目的地等自由文本地名解析为坐标。地名表在启动时整表缓存到内存，解析不访问存储。
+ */
+public class Gazetteer {
+
+    private final Map<String, GeoPoint> places = new ConcurrentHashMap<>();
+
+    /**
+     * 从存储加载地名表
+     */
+    public void load() throws SQLException {
+        replaceAll(Storage.get().findPlaces());
+    }
+
+    /**
+     * 用已查询出的地名表替换缓存（启动时与其它表并行查询）
+     */
+    public void replaceAll(Map<String, GeoPoint> loaded) {
+        places.clear();
+        loaded.forEach((name, point) -> places.put(normalize(name), point));
+        System.out.println("已加载 " + places.size() + " 个地名坐标");
+    }
+
+    /**
+     * 解析地名
+     *
+     * @return 坐标，地名未登记时返回null
+     */
+    public GeoPoint resolve(String place) {
+        return place == null ? null : places.get(normalize(place));
+    }
+
+    /**
+     * 登记或修改地名坐标（写入存储并更新缓存）
+     */
+    public void register(String place, GeoPoint point) throws SQLException {
+        String name = normalize(place);
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("地名不能为空");
+        }
+        Storage.get().savePlace(name, point);
+        places.put(name, point);
+    }
+
+    public int size() {
+        return places.size();
+    }
+
+    private static String normalize(String place) {
+        return place.trim();
+    }
+}
@@ -0,0 +1,360 @@
+package com.example.dispatch.service;
+
+import com.example.dispatch.api.Json;
+import com.example.dispatch.dao.OperationLogQuery;
+import com.example.dispatch.model.OperationLog;
+import com.example.dispatch.model.User;
+import com.example.dispatch.util.DataStore;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 操作日志流式导出
+ * 日志经游标逐行读出，编码后写入固定大小的缓冲区，写满再刷到文件通道（可选gzip压缩），
+ * 任何时刻堆里只有一批游标数据和一个缓冲区，导出全年日志也不需要更多内存。
+ * 先写入临时文件，成功后原子替换目标文件；取消或失败时删除临时文件。
+ */
+public class OperationLogExporter {
+
+    /**
+     * 导出格式
+     */
+    public enum Format {
+        CSV("csv"),
+        NDJSON("ndjson");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    /**
+     * 导出进度回调（在导出线程上调用）
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(long rows, double rowsPerSecond);
+    }
+
+    /**
+     * 导出结果
+     */
+    public static final class Result {
+        private final Path file;
+        private final long rows;
+        private final long bytes;
+        private final long elapsedNanos;
+
+        private Result(Path file, long rows, long bytes, long elapsedNanos) {
+            this.file = file;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public double getElapsedSeconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos > 0 ? rows * 1e9 / elapsedNanos : 0;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PROGRESS_INTERVAL = 5000; // 每隔多少行回调一次进度
+    private static final byte[] UTF8_BOM = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+    private static final String CSV_HEADER = "id,created_at,operation_type,entity_type,entity_id,user_id,username,description\n";
+    private static final DateTimeFormatter CSV_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final OperationLogQuery query;
+    private final Path target;
+    private final Format format;
+    private final boolean gzip;
+    private volatile boolean cancelled = false;
+
+    // 导出线程内使用的状态
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final StringBuilder line = new StringBuilder(256);
+    private final Map<Integer, String> usernames = new HashMap<>();
+    private WritableByteChannel sink;
+
+    /**
+     * @param query  导出的日志条件（与界面当前筛选条件一致）
+     * @param target 目标文件
+     * @param format 导出格式
+     * @param gzip   是否gzip压缩
+     */
+    public OperationLogExporter(OperationLogQuery query, Path target, Format format, boolean gzip) {
+        this.query = query;
+        this.target = target;
+        this.format = format;
+        this.gzip = gzip;
+    }
+
+    /**
+     * 请求取消导出，导出线程在处理下一行时停止
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 在独立的后台线程中导出
+     *
+     * @return 导出结果；取消时以CancellationException结束
+     */
+    public CompletableFuture<Result> start(ProgressListener listener) {
+        CompletableFuture<Result> result = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                result.complete(export(listener));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }, "operation-log-export");
+        thread.setDaemon(true);
+        thread.start();
+        return result;
+    }
+
+    /**
+     * 在当前线程执行导出
+     *
+     * @throws CancellationException 导出被取消
+     */
+    public Result export(ProgressListener listener) throws SQLException, IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = target.resolveSibling(target.getFileName() + ".part");
+        long start = System.nanoTime();
+        long[] rows = { 0 };
+        boolean success = false;
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            GZIPOutputStream gzipStream = gzip
+                    ? new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE)
+                    : null;
+            sink = gzipStream != null ? Channels.newChannel(gzipStream) : channel;
+            try {
+                if (format == Format.CSV) {
+                    buffer.put(UTF8_BOM); // 便于Excel识别UTF-8中文
+                    writeLine(CSV_HEADER);
+                }
+                try {
+                    DataStore.forEachOperationLog(query, log -> {
+                        if (cancelled) {
+                            throw new CancellationException("导出已取消");
+                        }
+                        try {
+                            writeRow(log);
+                        } catch (IOException e) {
+                            throw new CompletionException(e);
+                        }
+                        rows[0]++;
+                        if (listener != null && rows[0] % PROGRESS_INTERVAL == 0) {
+                            listener.onProgress(rows[0], rate(rows[0], start));
+                        }
+                    });
+                } catch (CompletionException e) {
+                    throw (IOException) e.getCause();
+                }
+                drain();
+                if (gzipStream != null) {
+                    gzipStream.finish(); // 写出gzip尾部
+                }
+                channel.force(false);
+                success = true;
+            } finally {
+                if (gzipStream != null) {
+                    closeQuietly(gzipStream); // 释放Deflater的本地内存（同时关闭通道）
+                }
+            }
+        } finally {
+            sink = null;
+            buffer.clear();
+            if (!success) {
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        long elapsed = System.nanoTime() - start;
+        if (listener != null) {
+            listener.onProgress(rows[0], rate(rows[0], start));
+        }
+        Result result = new Result(target, rows[0], Files.size(target), elapsed);
+        System.out.printf("操作日志导出完成: %s（%d 条，%d 字节，%.1f 秒，%.0f 行/秒）%n", target, result.getRows(),
+                result.getBytes(), result.getElapsedSeconds(), result.getRowsPerSecond());
+        return result;
+    }
+
+    private static void closeQuietly(OutputStream out) {
+        try {
+            out.close();
+        } catch (IOException ignored) {
+            // 导出已失败，临时文件随后删除
+        }
+    }
+
+    private static double rate(long rows, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed > 0 ? rows * 1e9 / elapsed : 0;
+    }
+
+    private void writeRow(OperationLog log) throws IOException {
+        line.setLength(0);
+        if (format == Format.CSV) {
+            line.append(log.getId()).append(',')
+                    .append(log.getCreatedAt() != null ? log.getCreatedAt().format(CSV_TIME) : "").append(',');
+            appendCsv(log.getOperationType());
+            line.append(',');
+            appendCsv(log.getEntityType());
+            line.append(',');
+            appendCsv(log.getEntityId());
+            line.append(',');
+            if (log.getUserId() != null) {
+                line.append(log.getUserId());
+            }
+            line.append(',');
+            appendCsv(usernameOf(log.getUserId()));
+            line.append(',');
+            appendCsv(log.getDescription());
+        } else {
+            line.append("{\"id\":").append(log.getId())
+                    .append(",\"createdAt\":").append(Json.write(log.getCreatedAt()))
+                    .append(",\"operationType\":").append(Json.write(log.getOperationType()))
+                    .append(",\"entityType\":").append(Json.write(log.getEntityType()))
+                    .append(",\"entityId\":").append(Json.write(log.getEntityId()))
+                    .append(",\"userId\":").append(log.getUserId())
+                    .append(",\"username\":").append(Json.write(usernameOf(log.getUserId())))
+                    .append(",\"description\":").append(Json.write(log.getDescription()))
+                    .append('}');
+        }
+        line.append('\n');
+        writeLine(line);
+    }
+
+    /**
+     * CSV字段：包含逗号、引号或换行时加引号，内部引号加倍
+     */
+    private void appendCsv(String value) {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    /**
+     * 用户名缓存：同一用户只查询一次，已删除的用户记为空
+     */
+    private String usernameOf(Integer userId) {
+        if (userId == null) {
+            return null;
+        }
+        return usernames.computeIfAbsent(userId, id -> {
+            try {
+                User user = DataStore.findUserById(id);
+                return user != null ? user.getUsername() : "";
+            } catch (SQLException e) {
+                return "";
+            }
+        });
+    }
+
+    /**
+     * 把一行编码进缓冲区，缓冲区满时刷出
+     */
+    private void writeLine(CharSequence text) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(text);
+        encoder.reset();
+        while (true) {
+            CoderResult cr = encoder.encode(chars, buffer, true);
+            if (cr.isOverflow()) {
+                drain();
+            } else if (cr.isUnderflow()) {
+                break;
+            } else {
+                cr.throwException();
+            }
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            sink.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.dispatch.service;
+
+import com.example.dispatch.model.Task;
+import com.example.dispatch.util.HashedTimingWheel;
+import com.example.dispatch.util.ObservableListIndex;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 超期任务监控
+ * 每个未完成任务按ETA在时间轮上登记一个定时项，任务完成或删除时O(1)取消；
+ * ETA到达时任务仍未完成即视为超期，通知订阅者。不需要轮询数据库。
+ * 每个 (任务, ETA) 只通知一次：全量加载时列表整体替换，任务先移除再加入，重新登记后不会重复通知。
+ */
+public class OverdueTaskMonitor {
+
+    private static final String COMPLETED = "已完成";
+    private static final long TICK_MS = 500;
+    private static final int WHEEL_SIZE = 1024; // 一圈约8.5分钟，更远的ETA记录圈数
+
+    private final HashedTimingWheel<Task> wheel = new HashedTimingWheel<>(TICK_MS, TimeUnit.MILLISECONDS,
+            WHEEL_SIZE, this::onDeadline, "overdue-task-wheel");
+    // 任务名 → 当前登记的定时项
+    private final Map<String, HashedTimingWheel.Timeout<Task>> scheduled = new ConcurrentHashMap<>();
+    // 当前超期的任务
+    private final Map<String, Task> overdue = new ConcurrentHashMap<>();
+    // 已通知过的任务名 → 超期时的ETA，任务移除后保留（全量加载会立即重新加入），完成或ETA改变后失效；
+    // 已删除任务的记录保留到程序退出，每条只有任务名和ETA
+    private final Map<String, LocalDateTime> escalated = new ConcurrentHashMap<>();
+    private final List<Consumer<Task>> subscribers = new CopyOnWriteArrayList<>();
+
+    public OverdueTaskMonitor(ObservableListIndex<String, Task> taskIndex) {
+        taskIndex.addObserver(new ObservableListIndex.Observer<>() {
+            @Override
+            public void indexed(String name, Task task) {
+                if (COMPLETED.equals(task.getStatus())) {
+                    unschedule(name);
+                    escalated.remove(name);
+                } else {
+                    schedule(name, task);
+                }
+            }
+
+            @Override
+            public void removed(String name, Task task) {
+                unschedule(name);
+            }
+        });
+    }
+
+    private void schedule(String name, Task task) {
+        HashedTimingWheel.Timeout<Task> existing = scheduled.get(name);
+        if (existing != null) {
+            if (existing.getPayload() == task) {
+                return; // 原地修改（如分配车辆），ETA不变
+            }
+            if (existing.isExpired() && existing.getPayload().getEta().equals(task.getEta())) {
+                // 已超期的任务被替换为新对象（如增量同步）：只更新超期记录，不重复通知
+                overdue.replace(name, task);
+                return;
+            }
+            wheel.cancel(existing);
+            overdue.remove(name);
+        }
+        long delayMs = Duration.between(LocalDateTime.now(), task.getEta()).toMillis();
+        scheduled.put(name, wheel.schedule(task, delayMs, TimeUnit.MILLISECONDS));
+    }
+
+    private void unschedule(String name) {
+        HashedTimingWheel.Timeout<Task> timeout = scheduled.remove(name);
+        if (timeout != null) {
+            wheel.cancel(timeout);
+        }
+        overdue.remove(name);
+    }
+
+    private void onDeadline(Task task) {
+        HashedTimingWheel.Timeout<Task> current = scheduled.get(task.getName());
+        if (COMPLETED.equals(task.getStatus()) || current == null || current.getPayload() != task) {
+            return; // 到期的同时任务已完成、删除或被替换
+        }
+        overdue.put(task.getName(), task);
+        if (task.getEta().equals(escalated.put(task.getName(), task.getEta()))) {
+            return; // 移除后重新加入的任务，这个ETA已经通知过
+        }
+        for (Consumer<Task> subscriber : subscribers) {
+            try {
+                subscriber.accept(task);
+            } catch (RuntimeException e) {
+                System.err.println("超期通知处理失败: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 订阅超期事件（在时间轮线程上回调，更新界面需切换到JavaFX线程）
+     */
+    public void subscribe(Consumer<Task> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(Consumer<Task> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /**
+     * 当前超期且未完成的任务（按ETA排序）
+     */
+    public List<Task> getOverdueTasks() {
+        List<Task> tasks = new ArrayList<>(overdue.values());
+        tasks.sort((a, b) -> a.getEta().compareTo(b.getEta()));
+        return tasks;
+    }
+
+    public int getOverdueCount() {
+        return overdue.size();
+    }
+
+    public void shutdown() {
+        wheel.stop();
+    }
+}
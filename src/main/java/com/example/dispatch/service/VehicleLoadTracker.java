@@ -0,0 +1,204 @@
+package com.example.dispatch.service;
+
+import com.example.dispatch.model.Task;
+import com.example.dispatch.model.Vehicle;
+import com.example.dispatch.util.IndexedMinHeap;
+import com.example.dispatch.util.ObservableListIndex;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 车辆负载跟踪器
+ * 在内存中维护每辆车未完成的任务数，随任务分配、完成、删除事件增量更新；
+ * 空闲车辆放在按（负载, 车辆ID）排序的索引最小堆中，取负载最小的车辆为O(1)，调整为O(log n)。
+ * 启动时用一次GROUP BY查询校正计数（见 {@link #reconcile(Map)}）。
+ */
+public class VehicleLoadTracker {
+
+    private static final String IDLE = "空闲";
+    private static final String COMPLETED = "已完成";
+
+    // 车辆ID → 未完成任务数
+    private final Map<String, Integer> activeCounts = new HashMap<>();
+    // 任务名 → 该任务当前计入负载的车辆ID（只记录未完成且已分配的任务）
+    private final Map<String, String> countedTasks = new HashMap<>();
+    // 当前空闲的车辆
+    private final Set<String> idleVehicles = new HashSet<>();
+    // 已被调度选中、等待状态变为非空闲的车辆，不再参与选择
+    private final Set<String> reserved = new HashSet<>();
+    private final IndexedMinHeap<String> idleHeap = new IndexedMinHeap<>(
+            Comparator.<String>comparingInt(this::getActiveTaskCount).thenComparing(Comparator.naturalOrder()));
+
+    public VehicleLoadTracker(ObservableListIndex<String, Vehicle> vehicleIndex,
+            ObservableListIndex<String, Task> taskIndex) {
+        taskIndex.addObserver(new ObservableListIndex.Observer<>() {
+            @Override
+            public void indexed(String name, Task task) {
+                onTaskChanged(name, isActive(task) ? task.getVehicleId() : null);
+            }
+
+            @Override
+            public void removed(String name, Task task) {
+                onTaskChanged(name, null);
+            }
+        });
+        vehicleIndex.addObserver(new ObservableListIndex.Observer<>() {
+            @Override
+            public void indexed(String id, Vehicle vehicle) {
+                onVehicleChanged(id, IDLE.equals(vehicle.getStatus()));
+            }
+
+            @Override
+            public void removed(String id, Vehicle vehicle) {
+                onVehicleRemoved(id);
+            }
+        });
+    }
+
+    private static boolean isActive(Task task) {
+        return task.getVehicleId() != null && !COMPLETED.equals(task.getStatus());
+    }
+
+    private synchronized void onTaskChanged(String taskName, String newVehicleId) {
+        String oldVehicleId = newVehicleId == null ? countedTasks.remove(taskName)
+                : countedTasks.put(taskName, newVehicleId);
+        if (newVehicleId != null && newVehicleId.equals(oldVehicleId)) {
+            return;
+        }
+        if (oldVehicleId != null) {
+            adjust(oldVehicleId, -1);
+        }
+        if (newVehicleId != null) {
+            adjust(newVehicleId, 1);
+        }
+    }
+
+    private void adjust(String vehicleId, int delta) {
+        int count = Math.max(0, getActiveTaskCount(vehicleId) + delta);
+        if (count == 0) {
+            activeCounts.remove(vehicleId);
+        } else {
+            activeCounts.put(vehicleId, count);
+        }
+        idleHeap.update(vehicleId);
+    }
+
+    private synchronized void onVehicleChanged(String vehicleId, boolean idle) {
+        if (!idle) {
+            idleVehicles.remove(vehicleId);
+            reserved.remove(vehicleId); // 预留已兑现
+            idleHeap.remove(vehicleId);
+            return;
+        }
+        idleVehicles.add(vehicleId);
+        if (!reserved.contains(vehicleId)) {
+            idleHeap.add(vehicleId);
+        }
+    }
+
+    private synchronized void onVehicleRemoved(String vehicleId) {
+        idleVehicles.remove(vehicleId);
+        reserved.remove(vehicleId);
+        idleHeap.remove(vehicleId);
+    }
+
+    /**
+     * 用数据库统计结果校正内存计数，返回不一致的车辆数
+     */
+    public synchronized int reconcile(Map<String, Integer> databaseCounts) {
+        Set<String> vehicleIds = new HashSet<>(activeCounts.keySet());
+        vehicleIds.addAll(databaseCounts.keySet());
+
+        int drift = 0;
+        for (String vehicleId : vehicleIds) {
+            int expected = databaseCounts.getOrDefault(vehicleId, 0);
+            if (getActiveTaskCount(vehicleId) != expected) {
+                drift++;
+                if (expected == 0) {
+                    activeCounts.remove(vehicleId);
+                } else {
+                    activeCounts.put(vehicleId, expected);
+                }
+                idleHeap.update(vehicleId);
+            }
+        }
+        if (drift > 0) {
+            System.out.println("负载计数已校正，" + drift + " 辆车与数据库不一致");
+        }
+        return drift;
+    }
+
+    /**
+     * 选出负载最小的空闲车辆并预留，避免并发调度选中同一辆车
+     * 分配成功后车辆状态变为非空闲时预留自动解除；分配失败必须调用 {@link #release(String)}
+     *
+     * @return 车辆ID，没有空闲车辆时返回null
+     */
+    public synchronized String reserveLeastLoaded() {
+        String vehicleId = idleHeap.poll();
+        if (vehicleId != null) {
+            reserved.add(vehicleId);
+        }
+        return vehicleId;
+    }
+
+    /**
+     * 负载最小的若干空闲车辆（按负载、车辆ID排序，不预留）
+     */
+    public synchronized List<String> leastLoaded(int limit) {
+        return idleHeap.smallest(limit);
+    }
+
+    /**
+     * 预留指定的空闲车辆（其它调度策略选中车辆后调用）
+     *
+     * @return 车辆空闲且未被预留时返回true
+     */
+    public synchronized boolean reserve(String vehicleId) {
+        if (!idleHeap.remove(vehicleId)) {
+            return false;
+        }
+        reserved.add(vehicleId);
+        return true;
+    }
+
+    /**
+     * 释放预留（分配失败时调用），车辆仍空闲则重新参与选择
+     */
+    public synchronized void release(String vehicleId) {
+        if (reserved.remove(vehicleId) && idleVehicles.contains(vehicleId)) {
+            idleHeap.add(vehicleId);
+        }
+    }
+
+    /**
+     * 车辆当前是否空闲且未被预留
+     */
+    public synchronized boolean isSelectable(String vehicleId) {
+        return idleHeap.contains(vehicleId);
+    }
+
+    /**
+     * 车辆未完成的任务数
+     */
+    public synchronized int getActiveTaskCount(String vehicleId) {
+        return activeCounts.getOrDefault(vehicleId, 0);
+    }
+
+    /**
+     * 可供选择的空闲车辆数
+     */
+    public synchronized int getAvailableCount() {
+        return idleHeap.size();
+    }
+
+    public synchronized String getStatus() {
+        return "空闲可选=" + idleHeap.size() + ", 已预留=" + reserved.size() + ", 有未完成任务的车辆="
+                + activeCounts.size();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.dispatch.service;
+
+import com.example.dispatch.model.GeoPoint;
+import com.example.dispatch.model.Vehicle;
+import com.example.dispatch.util.GridSpatialIndex;
+import com.example.dispatch.util.ObservableListIndex;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * 空闲车辆空间索引
+ * 随车辆索引变化维护：车辆变为空闲或移动时按位置解析坐标放入网格，变为非空闲或删除时移出。
+ * 位置无法解析的空闲车辆暂存，地名表更新后调用 {@link #relocateUnresolved()} 重新解析。
+ */
+public class VehicleLocator {
+
+    private static final String IDLE = "空闲";
+    private static final double CELL_DEGREES = 0.01; // 约1公里
+
+    private final Gazetteer gazetteer;
+    private final GridSpatialIndex<String> idleIndex = new GridSpatialIndex<>(CELL_DEGREES);
+    // 空闲但位置无法解析的车辆（ID → 位置）
+    private final Map<String, String> unresolved = new ConcurrentHashMap<>();
+
+    public VehicleLocator(ObservableListIndex<String, Vehicle> vehicleIndex, Gazetteer gazetteer) {
+        this.gazetteer = gazetteer;
+        vehicleIndex.addObserver(new ObservableListIndex.Observer<>() {
+            @Override
+            public void indexed(String id, Vehicle vehicle) {
+                if (IDLE.equals(vehicle.getStatus())) {
+                    locate(id, vehicle.getLocation());
+                } else {
+                    forget(id);
+                }
+            }
+
+            @Override
+            public void removed(String id, Vehicle vehicle) {
+                forget(id);
+            }
+        });
+    }
+
+    private synchronized void locate(String vehicleId, String location) {
+        GeoPoint point = gazetteer.resolve(location);
+        if (point == null) {
+            idleIndex.remove(vehicleId);
+            unresolved.put(vehicleId, location == null ? "" : location);
+        } else {
+            unresolved.remove(vehicleId);
+            idleIndex.put(vehicleId, point);
+        }
+    }
+
+    private synchronized void forget(String vehicleId) {
+        idleIndex.remove(vehicleId);
+        unresolved.remove(vehicleId);
+    }
+
+    /**
+     * 重新解析位置未知的空闲车辆
+     */
+    public synchronized void relocateUnresolved() {
+        unresolved.forEach(this::locate);
+    }
+
+    /**
+     * 查询离目标最近的k辆空闲车辆
+     *
+     * @param filter 额外过滤条件（如排除已被预留的车辆），可为null
+     */
+    public List<GridSpatialIndex.Neighbor<String>> nearestIdle(GeoPoint target, int k, Predicate<String> filter) {
+        return idleIndex.nearest(target, k, filter);
+    }
+
+    /**
+     * 空闲车辆的坐标，非空闲或位置未知时返回null
+     */
+    public GeoPoint getPosition(String vehicleId) {
+        return idleIndex.get(vehicleId);
+    }
+
+    public String getStatus() {
+        return "已定位空闲车辆=" + idleIndex.size() + ", 位置未知=" + unresolved.size();
+    }
+}
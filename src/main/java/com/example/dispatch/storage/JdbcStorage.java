@@ -0,0 +1,112 @@
+package com.example.dispatch.storage;
+
+import com.example.dispatch.dao.OperationLogDAO;
+import com.example.dispatch.dao.PlaceDAO;
+import com.example.dispatch.dao.RolePermissionDAO;
+import com.example.dispatch.dao.SyncDAO;
+import com.example.dispatch.dao.TaskDAO;
+import com.example.dispatch.dao.UserDAO;
+import com.example.dispatch.dao.VehicleDAO;
+import com.example.dispatch.database.DatabaseManager;
+import com.example.dispatch.model.GeoPoint;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MySQL存储后端（连接来自 {@link DatabaseManager} 的连接池）
+ */
+public class JdbcStorage implements StorageBackend {
+
+    private final VehicleDAO vehicleDAO = new VehicleDAO();
+    private final TaskDAO taskDAO = new TaskDAO();
+    private final UserDAO userDAO = new UserDAO();
+    private final OperationLogDAO operationLogDAO = new OperationLogDAO();
+    private final SyncDAO syncDAO = new SyncDAO();
+    private final PlaceDAO placeDAO = new PlaceDAO();
+    private final RolePermissionDAO rolePermissionDAO = new RolePermissionDAO();
+
+    @Override
+    public String getName() {
+        return "MySQL";
+    }
+
+    @Override
+    public VehicleStore vehicles() {
+        return vehicleDAO;
+    }
+
+    @Override
+    public TaskStore tasks() {
+        return taskDAO;
+    }
+
+    @Override
+    public UserStore users() {
+        return userDAO;
+    }
+
+    @Override
+    public OperationLogStore operationLogs() {
+        return operationLogDAO;
+    }
+
+    @Override
+    public void assignVehicles(Map<String, String> assignments) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int tasksUpdated = taskDAO.assignVehicles(conn, assignments);
+                int vehiclesUpdated = vehicleDAO.updateStatusIf(conn, assignments.values(), "空闲", "出车");
+                if (tasksUpdated != assignments.size() || vehiclesUpdated != assignments.size()) {
+                    throw new SQLException("批量分配冲突：部分任务或车辆已被修改（任务 " + tasksUpdated + "/"
+                            + assignments.size() + "，车辆 " + vehiclesUpdated + "/" + assignments.size() + "）");
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    @Override
+    public LocalDateTime currentTimestamp() throws SQLException {
+        return syncDAO.currentTimestamp();
+    }
+
+    @Override
+    public List<SyncDAO.Tombstone> findTombstonesSince(LocalDateTime since) throws SQLException {
+        return syncDAO.findTombstonesSince(since);
+    }
+
+    @Override
+    public int purgeTombstonesBefore(LocalDateTime before) throws SQLException {
+        return syncDAO.purgeTombstonesBefore(before);
+    }
+
+    @Override
+    public Map<String, GeoPoint> findPlaces() throws SQLException {
+        return placeDAO.findAll();
+    }
+
+    @Override
+    public void savePlace(String name, GeoPoint point) throws SQLException {
+        placeDAO.save(name, point);
+    }
+
+    @Override
+    public Map<String, Long> findRolePermissions() throws SQLException {
+        return rolePermissionDAO.findAll();
+    }
+
+    @Override
+    public void close() {
+        DatabaseManager.closeConnection();
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.dispatch.storage;
+
+import com.example.dispatch.dao.OperationLogPage;
+import com.example.dispatch.dao.OperationLogQuery;
+import com.example.dispatch.model.OperationLog;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * 内存操作日志存储
+ * 日志按 (created_at, id) 倒序存放在跳表中，键集分页直接从游标位置向后遍历。
+ * 另按 (日期, 操作类型, 实体类型, 用户) 维护每日汇总，与数据库模式的operation_log_daily一致，统计只遍历汇总。
+ */
+class MemoryOperationLogStore implements OperationLogStore {
+
+    // 与分页顺序一致：created_at 倒序，再按 id 倒序
+    private static final Comparator<OperationLog> ORDER = Comparator.comparing(OperationLog::getCreatedAt)
+            .thenComparingInt(OperationLog::getId).reversed();
+
+    /**
+     * 每日汇总的键，按日期倒序，系统操作的用户记为0
+     */
+    private static final class DailyKey implements Comparable<DailyKey> {
+        private final LocalDate day;
+        private final String operationType;
+        private final String entityType;
+        private final int userId;
+
+        private DailyKey(OperationLog log) {
+            this.day = log.getCreatedAt().toLocalDate();
+            this.operationType = log.getOperationType();
+            this.entityType = log.getEntityType();
+            this.userId = log.getUserId() != null ? log.getUserId() : 0;
+        }
+
+        @Override
+        public int compareTo(DailyKey other) {
+            int c = other.day.compareTo(day);
+            if (c == 0) {
+                c = operationType.compareTo(other.operationType);
+            }
+            if (c == 0) {
+                c = entityType.compareTo(other.entityType);
+            }
+            return c != 0 ? c : Integer.compare(userId, other.userId);
+        }
+    }
+
+    private final MemoryStorage storage;
+    final NavigableMap<OperationLog, OperationLog> logs = new ConcurrentSkipListMap<>(ORDER);
+    private final Map<Integer, OperationLog> byId = new ConcurrentHashMap<>();
+    final AtomicInteger lastId = new AtomicInteger();
+    private final NavigableMap<DailyKey, Integer> daily = new ConcurrentSkipListMap<>();
+
+    MemoryOperationLogStore(MemoryStorage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * 从快照恢复一条日志（保留原ID）
+     */
+    void restore(OperationLog log) {
+        logs.put(log, log);
+        byId.put(log.getId(), log);
+        lastId.accumulateAndGet(log.getId(), Math::max);
+        daily.merge(new DailyKey(log), 1, Integer::sum);
+    }
+
+    private void append(OperationLog log) {
+        restore(new OperationLog(lastId.incrementAndGet(), log.getOperationType(), log.getEntityType(),
+                log.getEntityId(), log.getDescription(), log.getUserId(), log.getCreatedAt()));
+    }
+
+    private List<OperationLog> select(Predicate<OperationLog> filter) {
+        List<OperationLog> result = new ArrayList<>();
+        for (OperationLog log : logs.keySet()) {
+            if (filter.test(log)) {
+                result.add(log);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void save(OperationLog log) throws SQLException {
+        storage.write(() -> {
+            append(log);
+            return null;
+        });
+    }
+
+    @Override
+    public void saveBatch(List<OperationLog> batch) throws SQLException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        storage.write(() -> {
+            for (OperationLog log : batch) {
+                append(log);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public OperationLog findById(int id) {
+        return byId.get(id);
+    }
+
+    @Override
+    public List<OperationLog> findAll() {
+        return new ArrayList<>(logs.keySet());
+    }
+
+    @Override
+    public OperationLogPage findPage(OperationLogQuery query, OperationLogPage.Cursor after, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("每页条数必须大于0: " + pageSize);
+        }
+        Iterable<OperationLog> candidates = after == null ? logs.keySet()
+                : logs.tailMap(new OperationLog(after.getId(), null, null, null, null, null, after.getCreatedAt()),
+                        false).keySet();
+
+        List<OperationLog> page = new ArrayList<>(pageSize + 1);
+        Iterator<OperationLog> it = candidates.iterator();
+        while (page.size() <= pageSize && it.hasNext()) {
+            OperationLog log = it.next();
+            if (matches(query, log)) {
+                page.add(log);
+            }
+        }
+
+        OperationLogPage.Cursor next = null;
+        if (page.size() > pageSize) {
+            page.remove(pageSize);
+            OperationLog last = page.get(pageSize - 1);
+            next = new OperationLogPage.Cursor(last.getCreatedAt(), last.getId());
+        }
+        return new OperationLogPage(page, next);
+    }
+
+    @Override
+    public int forEach(OperationLogQuery query, Consumer<? super OperationLog> action) {
+        int rows = 0;
+        for (OperationLog log : logs.keySet()) {
+            if (matches(query, log)) {
+                action.accept(log);
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static boolean matches(OperationLogQuery query, OperationLog log) {
+        return (query.getOperationType() == null || query.getOperationType().equals(log.getOperationType()))
+                && (query.getEntityType() == null || query.getEntityType().equals(log.getEntityType()))
+                && (query.getUserId() == null || query.getUserId().equals(log.getUserId()))
+                && (query.getStartTime() == null || !log.getCreatedAt().isBefore(query.getStartTime()))
+                && (query.getEndTime() == null || !log.getCreatedAt().isAfter(query.getEndTime()));
+    }
+
+    @Override
+    public List<OperationLog> findByTimeRange(LocalDateTime startTime, LocalDateTime endTime) {
+        return select(log -> !log.getCreatedAt().isBefore(startTime) && !log.getCreatedAt().isAfter(endTime));
+    }
+
+    @Override
+    public List<OperationLog> findByOperationType(String operationType) {
+        return select(log -> operationType.equals(log.getOperationType()));
+    }
+
+    @Override
+    public List<OperationLog> findByEntityType(String entityType) {
+        return select(log -> entityType.equals(log.getEntityType()));
+    }
+
+    @Override
+    public List<OperationLog> findByUserId(int userId) {
+        return select(log -> log.getUserId() != null && log.getUserId() == userId);
+    }
+
+    @Override
+    public int deleteBefore(LocalDateTime beforeTime) throws SQLException {
+        return storage.write(() -> {
+            int deleted = 0;
+            Iterator<OperationLog> it = logs.descendingKeySet().iterator(); // 从最早的开始
+            while (it.hasNext()) {
+                OperationLog log = it.next();
+                if (!log.getCreatedAt().isBefore(beforeTime)) {
+                    break;
+                }
+                it.remove();
+                byId.remove(log.getId());
+                daily.computeIfPresent(new DailyKey(log), (key, count) -> count > 1 ? count - 1 : null);
+                deleted++;
+            }
+            return deleted;
+        });
+    }
+
+    @Override
+    public int count() {
+        return byId.size();
+    }
+
+    @Override
+    public Map<String, Integer> getOperationTypeStatistics() {
+        Map<String, Integer> stats = new HashMap<>();
+        daily.forEach((key, count) -> stats.merge(key.operationType, count, Integer::sum));
+        return stats;
+    }
+
+    @Override
+    public Map<String, Integer> getEntityTypeStatistics() {
+        Map<String, Integer> stats = new HashMap<>();
+        daily.forEach((key, count) -> stats.merge(key.entityType, count, Integer::sum));
+        return stats;
+    }
+
+    @Override
+    public Map<String, Integer> getRecentDaysStatistics(int days) {
+        LocalDate since = storage.now().minusDays(days).toLocalDate();
+        Map<String, Integer> stats = new HashMap<>();
+        for (Map.Entry<DailyKey, Integer> entry : daily.entrySet()) {
+            if (entry.getKey().day.isBefore(since)) {
+                break; // 按日期倒序，之后的都更早
+            }
+            stats.merge(entry.getKey().day.toString(), entry.getValue(), Integer::sum);
+        }
+        return stats;
+    }
+}
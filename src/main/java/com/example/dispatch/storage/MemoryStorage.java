@@ -0,0 +1,462 @@
+package com.example.dispatch.storage;
+
+import com.example.dispatch.dao.SyncDAO;
+import com.example.dispatch.model.GeoPoint;
+import com.example.dispatch.model.OperationLog;
+import com.example.dispatch.model.Task;
+import com.example.dispatch.model.User;
+import com.example.dispatch.model.Vehicle;
+import com.example.dispatch.util.PasswordUtils;
+import com.example.dispatch.util.UserRoles;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 内存存储后端
+ * 所有数据放在并发哈希表中，读写不经过网络和SQL解析；适合演示、离线使用和基准测试。
+ * 普通修改之间可以并发（共享锁），批量分配和快照持有排它锁，因此快照总是一致的。
+ * 有修改时后台线程定期把全部数据写入快照文件（先写临时文件再原子替换），关闭时再写一次；
+ * 启动时从快照恢复，快照不存在时插入与MySQL初始化相同的默认数据。
+ */
+public class MemoryStorage implements StorageBackend {
+
+    private static final int SNAPSHOT_MAGIC = 0x56445350; // "VDSP"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final long SNAPSHOT_INTERVAL_SECONDS = 30;
+
+    /**
+     * 可能抛出SQLException的修改操作（与JDBC实现的异常语义保持一致）
+     */
+    @FunctionalInterface
+    interface SqlAction<T> {
+        T run() throws SQLException;
+    }
+
+    private final Path snapshotFile;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean dirty = false;
+
+    private final MemoryVehicleStore vehicles = new MemoryVehicleStore(this);
+    private final MemoryTaskStore tasks = new MemoryTaskStore(this);
+    private final MemoryUserStore users = new MemoryUserStore(this);
+    private final MemoryOperationLogStore operationLogs = new MemoryOperationLogStore(this);
+    private final Map<String, GeoPoint> places = new ConcurrentHashMap<>();
+    private final Map<String, Long> rolePermissions = new ConcurrentHashMap<>();
+    private final Queue<SyncDAO.Tombstone> tombstones = new ConcurrentLinkedQueue<>();
+
+    private final ScheduledExecutorService snapshotWriter;
+
+    /**
+     * @param snapshotFile 快照文件，null表示不持久化
+     */
+    public MemoryStorage(Path snapshotFile) {
+        this.snapshotFile = snapshotFile;
+        if (!load()) {
+            insertDefaultData();
+        }
+        if (snapshotFile == null) {
+            snapshotWriter = null;
+            return;
+        }
+        snapshotWriter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "memory-snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotWriter.scheduleWithFixedDelay(this::snapshotIfDirty, SNAPSHOT_INTERVAL_SECONDS,
+                SNAPSHOT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public String getName() {
+        return snapshotFile != null ? "内存（快照: " + snapshotFile + "）" : "内存";
+    }
+
+    @Override
+    public VehicleStore vehicles() {
+        return vehicles;
+    }
+
+    @Override
+    public TaskStore tasks() {
+        return tasks;
+    }
+
+    @Override
+    public UserStore users() {
+        return users;
+    }
+
+    @Override
+    public OperationLogStore operationLogs() {
+        return operationLogs;
+    }
+
+    /**
+     * 执行一次修改（共享锁，与其它修改并发，与快照互斥）
+     */
+    <T> T write(SqlAction<T> action) throws SQLException {
+        lock.readLock().lock();
+        try {
+            dirty = true;
+            return action.run();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    LocalDateTime now() {
+        return LocalDateTime.now();
+    }
+
+    void recordDeletion(String entityType, String entityKey) {
+        tombstones.add(new SyncDAO.Tombstone(entityType, entityKey, now()));
+    }
+
+    /**
+     * 车辆删除后的级联：任务的车辆置空（对应外键 ON DELETE SET NULL）并记录删除
+     */
+    void vehicleDeleted(String vehicleId) {
+        tasks.clearVehicle(vehicleId, now());
+        recordDeletion("VEHICLE", vehicleId);
+    }
+
+    /**
+     * 用户删除后的级联：车辆和任务的创建者置空并记录删除
+     */
+    void userDeleted(int userId) {
+        LocalDateTime now = now();
+        vehicles.clearCreator(userId, now);
+        tasks.clearCreator(userId, now);
+        recordDeletion("USER", String.valueOf(userId));
+    }
+
+    @Override
+    public void assignVehicles(Map<String, String> assignments) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            int tasksMatched = tasks.countPending(assignments);
+            int vehiclesMatched = vehicles.countStatus(assignments.values(), "空闲");
+            if (tasksMatched != assignments.size() || vehiclesMatched != assignments.size()) {
+                throw new SQLException("批量分配冲突：部分任务或车辆已被修改（任务 " + tasksMatched + "/"
+                        + assignments.size() + "，车辆 " + vehiclesMatched + "/" + assignments.size() + "）");
+            }
+            LocalDateTime now = now();
+            tasks.assign(assignments, now);
+            vehicles.setStatus(assignments.values(), "出车", now);
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public LocalDateTime currentTimestamp() {
+        return now();
+    }
+
+    @Override
+    public List<SyncDAO.Tombstone> findTombstonesSince(LocalDateTime since) {
+        List<SyncDAO.Tombstone> result = new ArrayList<>();
+        for (SyncDAO.Tombstone tombstone : tombstones) {
+            if (!tombstone.getDeletedAt().isBefore(since)) {
+                result.add(tombstone);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int purgeTombstonesBefore(LocalDateTime before) {
+        int size = tombstones.size();
+        tombstones.removeIf(tombstone -> tombstone.getDeletedAt().isBefore(before));
+        return size - tombstones.size();
+    }
+
+    @Override
+    public Map<String, GeoPoint> findPlaces() {
+        return new HashMap<>(places);
+    }
+
+    @Override
+    public void savePlace(String name, GeoPoint point) throws SQLException {
+        write(() -> places.put(name, point));
+    }
+
+    @Override
+    public Map<String, Long> findRolePermissions() {
+        return new HashMap<>(rolePermissions);
+    }
+
+    @Override
+    public void close() {
+        if (snapshotWriter != null) {
+            snapshotWriter.shutdownNow();
+            snapshotIfDirty();
+        }
+    }
+
+    /**
+     * 插入默认数据（与MySQL初始化一致）
+     */
+    private void insertDefaultData() {
+        LocalDateTime now = now();
+        for (Vehicle vehicle : List.of(
+                new Vehicle("A001", "张三", "空闲", "车库"),
+                new Vehicle("A002", "李四", "出车", "机场"),
+                new Vehicle("A003", "王五", "维修", "维修厂"))) {
+            vehicles.rows.put(vehicle.getId(), new Row<>(vehicle, now, now));
+        }
+        for (Task task : List.of(
+                new Task("送货-1", "市中心", now.plusHours(2)),
+                new Task("接人-1", "火车站", now.plusHours(1)))) {
+            tasks.rows.put(task.getName(), new Row<>(task, now, now));
+        }
+        places.put("车库", new GeoPoint(39.9000, 116.3900));
+        places.put("机场", new GeoPoint(40.0799, 116.6031));
+        places.put("维修厂", new GeoPoint(39.8650, 116.2870));
+        places.put("市中心", new GeoPoint(39.9087, 116.3975));
+        places.put("火车站", new GeoPoint(39.9029, 116.4272));
+        users.restore(new Row<>(new User(1, "admin", PasswordUtils.hashPassword("admin123"), UserRoles.ADMIN, now),
+                now, now));
+        dirty = true;
+        System.out.println("内存存储已插入默认数据，默认管理员账户：admin / admin123");
+    }
+
+    private void snapshotIfDirty() {
+        if (!dirty) {
+            return;
+        }
+        try {
+            snapshot();
+        } catch (IOException e) {
+            System.err.println("写入内存存储快照失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 把全部数据写入快照文件（排它锁下执行，期间的修改等待快照完成）
+     */
+    public void snapshot() throws IOException {
+        if (snapshotFile == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        Path parent = snapshotFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, snapshotFile.getFileName().toString(), ".tmp");
+        lock.writeLock().lock();
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                writeSnapshot(out);
+            }
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } finally {
+            lock.writeLock().unlock();
+            Files.deleteIfExists(temp);
+        }
+        System.out.printf("内存存储快照已写入 %s（%d 辆车，%d 个任务，%d 条日志，%.1f ms）%n", snapshotFile,
+                vehicles.rows.size(), tasks.rows.size(), operationLogs.count(), (System.nanoTime() - start) / 1e6);
+    }
+
+    private void writeSnapshot(DataOutputStream out) throws IOException {
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(SNAPSHOT_VERSION);
+
+        out.writeInt(users.rows.size());
+        for (Row<User> row : users.rows.values()) {
+            User user = row.value;
+            out.writeInt(user.getId());
+            out.writeUTF(user.getUsername());
+            out.writeUTF(user.getPasswordHash());
+            out.writeUTF(user.getRole());
+            writeTimestamps(out, row);
+        }
+
+        out.writeInt(vehicles.rows.size());
+        for (Row<Vehicle> row : vehicles.rows.values()) {
+            Vehicle vehicle = row.value;
+            out.writeUTF(vehicle.getId());
+            writeString(out, vehicle.getDriver());
+            writeString(out, vehicle.getStatus());
+            writeString(out, vehicle.getLocation());
+            out.writeInt(vehicle.getCreatedBy());
+            writeTimestamps(out, row);
+        }
+
+        out.writeInt(tasks.rows.size());
+        for (Row<Task> row : tasks.rows.values()) {
+            Task task = row.value;
+            out.writeUTF(task.getName());
+            writeString(out, task.getDestination());
+            writeTime(out, task.getEta());
+            writeString(out, task.getVehicleId());
+            writeString(out, task.getStatus());
+            out.writeInt(task.getCreatedBy());
+            writeTimestamps(out, row);
+        }
+
+        List<OperationLog> logs = operationLogs.findAll();
+        out.writeInt(logs.size());
+        for (OperationLog log : logs) {
+            out.writeInt(log.getId());
+            writeString(out, log.getOperationType());
+            writeString(out, log.getEntityType());
+            writeString(out, log.getEntityId());
+            writeString(out, log.getDescription());
+            out.writeInt(log.getUserId() != null ? log.getUserId() : -1);
+            writeTime(out, log.getCreatedAt());
+        }
+
+        out.writeInt(places.size());
+        for (Map.Entry<String, GeoPoint> entry : places.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeDouble(entry.getValue().getLatitude());
+            out.writeDouble(entry.getValue().getLongitude());
+        }
+
+        out.writeInt(rolePermissions.size());
+        for (Map.Entry<String, Long> entry : rolePermissions.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+
+        List<SyncDAO.Tombstone> deletions = new ArrayList<>(tombstones);
+        out.writeInt(deletions.size());
+        for (SyncDAO.Tombstone tombstone : deletions) {
+            out.writeUTF(tombstone.getEntityType());
+            out.writeUTF(tombstone.getEntityKey());
+            writeTime(out, tombstone.getDeletedAt());
+        }
+    }
+
+    /**
+     * 从快照文件恢复
+     *
+     * @return 快照存在并已恢复时返回true
+     */
+    private boolean load() {
+        if (snapshotFile == null) {
+            return false;
+        }
+        long start = System.nanoTime();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            readSnapshot(in);
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalStateException("读取内存存储快照失败: " + snapshotFile + ": " + e.getMessage(), e);
+        }
+        System.out.printf("已从快照 %s 恢复内存存储（%d 辆车，%d 个任务，%d 条日志，%.1f ms）%n", snapshotFile,
+                vehicles.rows.size(), tasks.rows.size(), operationLogs.count(), (System.nanoTime() - start) / 1e6);
+        return true;
+    }
+
+    private void readSnapshot(DataInputStream in) throws IOException {
+        if (in.readInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("不是内存存储快照文件");
+        }
+        int version = in.readInt();
+        if (version != SNAPSHOT_VERSION) {
+            throw new IOException("不支持的快照版本: " + version);
+        }
+
+        for (int i = in.readInt(); i > 0; i--) {
+            int id = in.readInt();
+            String username = in.readUTF();
+            String passwordHash = in.readUTF();
+            String role = in.readUTF();
+            LocalDateTime createdAt = readTime(in);
+            LocalDateTime updatedAt = readTime(in);
+            users.restore(new Row<>(new User(id, username, passwordHash, role, createdAt), createdAt, updatedAt));
+        }
+
+        for (int i = in.readInt(); i > 0; i--) {
+            Vehicle vehicle = new Vehicle(in.readUTF(), readString(in), readString(in), readString(in), in.readInt());
+            vehicles.rows.put(vehicle.getId(), new Row<>(vehicle, readTime(in), readTime(in)));
+        }
+
+        for (int i = in.readInt(); i > 0; i--) {
+            String name = in.readUTF();
+            String destination = readString(in);
+            LocalDateTime eta = readTime(in);
+            String vehicleId = readString(in);
+            String status = readString(in);
+            Task task = new Task(name, destination, eta, in.readInt());
+            task.assignVehicle(vehicleId);
+            task.setStatus(status);
+            tasks.rows.put(name, new Row<>(task, readTime(in), readTime(in)));
+        }
+
+        for (int i = in.readInt(); i > 0; i--) {
+            int id = in.readInt();
+            String operationType = readString(in);
+            String entityType = readString(in);
+            String entityId = readString(in);
+            String description = readString(in);
+            int userId = in.readInt();
+            operationLogs.restore(new OperationLog(id, operationType, entityType, entityId, description,
+                    userId >= 0 ? userId : null, readTime(in)));
+        }
+
+        for (int i = in.readInt(); i > 0; i--) {
+            places.put(in.readUTF(), new GeoPoint(in.readDouble(), in.readDouble()));
+        }
+
+        for (int i = in.readInt(); i > 0; i--) {
+            rolePermissions.put(in.readUTF(), in.readLong());
+        }
+
+        for (int i = in.readInt(); i > 0; i--) {
+            tombstones.add(new SyncDAO.Tombstone(in.readUTF(), in.readUTF(), readTime(in)));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeTimestamps(DataOutputStream out, Row<?> row) throws IOException {
+        writeTime(out, row.createdAt);
+        writeTime(out, row.updatedAt);
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(time.getNano());
+    }
+
+    private static LocalDateTime readTime(DataInputStream in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.dispatch.storage;
+
+import com.example.dispatch.dao.OperationLogSink;
+import com.example.dispatch.model.Task;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * 内存任务存储（语义与TaskDAO一致：新增的任务为待分配，update后为进行中）
+ */
+class MemoryTaskStore implements TaskStore {
+
+    private static final String PENDING = "待分配";
+    private static final String IN_PROGRESS = "进行中";
+    private static final String COMPLETED = "已完成";
+
+    private final MemoryStorage storage;
+    final Map<String, Row<Task>> rows = new ConcurrentHashMap<>();
+
+    MemoryTaskStore(MemoryStorage storage) {
+        this.storage = storage;
+    }
+
+    static Task copy(Task t) {
+        return copy(t, t.getVehicleId(), t.getStatus());
+    }
+
+    private static Task copy(Task t, String vehicleId, String status) {
+        Task task = new Task(t.getName(), t.getDestination(), t.getEta(), t.getCreatedBy());
+        task.assignVehicle(vehicleId);
+        task.setStatus(status);
+        return task;
+    }
+
+    private List<Task> select(Predicate<Row<Task>> filter, Comparator<Row<Task>> order) {
+        List<Row<Task>> matched = new ArrayList<>();
+        for (Row<Task> row : rows.values()) {
+            if (filter.test(row)) {
+                matched.add(row);
+            }
+        }
+        matched.sort(order);
+        List<Task> result = new ArrayList<>(matched.size());
+        for (Row<Task> row : matched) {
+            result.add(copy(row.value));
+        }
+        return result;
+    }
+
+    private List<Task> select(Predicate<Row<Task>> filter) {
+        // 与TaskDAO一致：按创建时间倒序
+        return select(filter, Comparator.<Row<Task>, LocalDateTime>comparing(row -> row.createdAt).reversed()
+                .thenComparing(row -> row.value.getName()));
+    }
+
+    @Override
+    public List<Task> findAll() {
+        return select(row -> true);
+    }
+
+    @Override
+    public int forEach(Consumer<? super Task> action) {
+        List<Task> all = findAll();
+        all.forEach(action);
+        return all.size();
+    }
+
+    @Override
+    public Task findByName(String name) {
+        Row<Task> row = rows.get(name);
+        return row != null ? copy(row.value) : null;
+    }
+
+    @Override
+    public List<Task> findUpdatedSince(LocalDateTime since) {
+        return select(row -> !row.updatedAt.isBefore(since));
+    }
+
+    @Override
+    public List<Task> findByCreatedBy(int createdBy) {
+        return select(row -> row.value.getCreatedBy() == createdBy);
+    }
+
+    @Override
+    public List<Task> findByStatus(String status) {
+        return select(row -> status.equals(row.value.getStatus()));
+    }
+
+    @Override
+    public List<Task> findByVehicleId(String vehicleId) {
+        return select(row -> vehicleId.equals(row.value.getVehicleId()));
+    }
+
+    @Override
+    public void save(Task task) throws SQLException {
+        if (rows.containsKey(task.getName())) {
+            update(task);
+        } else {
+            insert(task);
+        }
+    }
+
+    @Override
+    public void insert(Task task) throws SQLException {
+        storage.write(() -> {
+            LocalDateTime now = storage.now();
+            Row<Task> row = new Row<>(copy(task, task.getVehicleId(), PENDING), now, now);
+            if (rows.putIfAbsent(task.getName(), row) != null) {
+                throw new SQLException("Duplicate entry '" + task.getName() + "' for key 'tasks.name'");
+            }
+            return null;
+        });
+        OperationLogSink.log("INSERT", "TASK", task.getName(), "新增任务: " + task.getName());
+    }
+
+    @Override
+    public void update(Task task) throws SQLException {
+        storage.write(() -> rows.computeIfPresent(task.getName(), (name, row) -> row.with(
+                withCreator(copy(task, task.getVehicleId(), IN_PROGRESS), row.value.getCreatedBy()), storage.now())));
+        OperationLogSink.log("UPDATE", "TASK", task.getName(), "更新任务: " + task.getName());
+    }
+
+    private static Task withCreator(Task task, int createdBy) {
+        task.setCreatedBy(createdBy);
+        return task;
+    }
+
+    @Override
+    public void delete(String name) throws SQLException {
+        storage.write(() -> {
+            if (rows.remove(name) != null) {
+                storage.recordDeletion("TASK", name);
+            }
+            return null;
+        });
+        OperationLogSink.log("DELETE", "TASK", name, "删除任务: " + name);
+    }
+
+    @Override
+    public void assignVehicle(String taskName, String vehicleId) throws SQLException {
+        boolean[] updated = { false };
+        storage.write(() -> rows.computeIfPresent(taskName, (name, row) -> {
+            if (vehicleId != null && !PENDING.equals(row.value.getStatus())) {
+                return row;
+            }
+            updated[0] = true;
+            return row.with(copy(row.value, vehicleId, IN_PROGRESS), storage.now());
+        }));
+        if (!updated[0] && vehicleId != null) {
+            throw new SQLException("分配冲突：任务 " + taskName + " 已不是待分配状态");
+        }
+        OperationLogSink.log("ASSIGN", "TASK", taskName, "分配车辆 " + vehicleId + " 给任务 " + taskName);
+    }
+
+    /**
+     * 满足“待分配”条件的任务数（调用方持有存储的排它锁）
+     */
+    int countPending(Map<String, String> assignments) {
+        int matched = 0;
+        for (String taskName : assignments.keySet()) {
+            Row<Task> row = rows.get(taskName);
+            if (row != null && PENDING.equals(row.value.getStatus())) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    void assign(Map<String, String> assignments, LocalDateTime now) {
+        assignments.forEach((taskName, vehicleId) -> rows.computeIfPresent(taskName,
+                (name, row) -> row.with(copy(row.value, vehicleId, IN_PROGRESS), now)));
+    }
+
+    @Override
+    public void completeTask(String taskName) throws SQLException {
+        storage.write(() -> rows.computeIfPresent(taskName,
+                (name, row) -> row.with(copy(row.value, row.value.getVehicleId(), COMPLETED), storage.now())));
+        OperationLogSink.log("COMPLETE", "TASK", taskName, "完成任务: " + taskName);
+    }
+
+    /**
+     * 车辆被删除时清空任务的车辆（对应外键 ON DELETE SET NULL）
+     */
+    void clearVehicle(String vehicleId, LocalDateTime now) {
+        rows.replaceAll((name, row) -> vehicleId.equals(row.value.getVehicleId())
+                ? row.with(copy(row.value, null, row.value.getStatus()), now)
+                : row);
+    }
+
+    /**
+     * 用户被删除时清空创建者
+     */
+    void clearCreator(int userId, LocalDateTime now) {
+        rows.replaceAll((name, row) -> row.value.getCreatedBy() == userId
+                ? row.with(withCreator(copy(row.value), 0), now)
+                : row);
+    }
+
+    @Override
+    public int saveAll(List<Task> tasks) throws SQLException {
+        storage.write(() -> {
+            LocalDateTime now = storage.now();
+            for (Task task : tasks) {
+                rows.merge(task.getName(), new Row<>(copy(task, task.getVehicleId(), PENDING), now, now),
+                        (old, added) -> old.with(withCreator(copy(task, task.getVehicleId(), IN_PROGRESS),
+                                old.value.getCreatedBy()), now));
+            }
+            return null;
+        });
+        OperationLogSink.log("IMPORT", "TASK", null, "批量保存任务: " + tasks.size() + " 个");
+        return tasks.size();
+    }
+
+    @Override
+    public int count() {
+        return rows.size();
+    }
+
+    @Override
+    public Map<String, Integer> getStatusCount() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Row<Task> row : rows.values()) {
+            counts.merge(row.value.getStatus(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Integer> countActiveByVehicle() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Row<Task> row : rows.values()) {
+            Task task = row.value;
+            if (task.getVehicleId() != null && !COMPLETED.equals(task.getStatus())) {
+                counts.merge(task.getVehicleId(), 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public List<Task> findOverdueTasks() {
+        LocalDateTime now = storage.now();
+        return select(row -> row.value.getEta().isBefore(now) && !COMPLETED.equals(row.value.getStatus()),
+                Comparator.comparing(row -> row.value.getEta()));
+    }
+}
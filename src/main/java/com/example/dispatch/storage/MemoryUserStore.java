@@ -0,0 +1,156 @@
+package com.example.dispatch.storage;
+
+import com.example.dispatch.dao.OperationLogSink;
+import com.example.dispatch.model.User;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * 内存用户存储（ID自增，用户名唯一）
+ */
+class MemoryUserStore implements UserStore {
+
+    private final MemoryStorage storage;
+    final Map<Integer, Row<User>> rows = new ConcurrentHashMap<>();
+    private final Map<String, Integer> idByUsername = new ConcurrentHashMap<>();
+    final AtomicInteger lastId = new AtomicInteger();
+
+    MemoryUserStore(MemoryStorage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * 从快照恢复一行
+     */
+    void restore(Row<User> row) {
+        rows.put(row.value.getId(), row);
+        idByUsername.put(row.value.getUsername(), row.value.getId());
+        lastId.accumulateAndGet(row.value.getId(), Math::max);
+    }
+
+    private List<User> select(Predicate<Row<User>> filter) {
+        List<User> result = new ArrayList<>();
+        for (Row<User> row : rows.values()) {
+            if (filter.test(row)) {
+                result.add(row.value);
+            }
+        }
+        result.sort(Comparator.comparingInt(User::getId));
+        return result;
+    }
+
+    @Override
+    public User findByUsername(String username) {
+        Integer id = idByUsername.get(username);
+        return id != null ? findById(id) : null;
+    }
+
+    @Override
+    public User findById(int id) {
+        Row<User> row = rows.get(id);
+        return row != null ? row.value : null;
+    }
+
+    @Override
+    public List<User> findAll() {
+        return select(row -> true);
+    }
+
+    @Override
+    public int forEach(Consumer<? super User> action) {
+        List<User> all = findAll();
+        all.forEach(action);
+        return all.size();
+    }
+
+    @Override
+    public List<User> findUpdatedSince(LocalDateTime since) {
+        return select(row -> !row.updatedAt.isBefore(since));
+    }
+
+    @Override
+    public void save(User user) throws SQLException {
+        if (rows.containsKey(user.getId())) {
+            update(user);
+        } else {
+            insert(user);
+        }
+    }
+
+    @Override
+    public void insert(User user) throws SQLException {
+        storage.write(() -> {
+            int id = lastId.incrementAndGet();
+            if (idByUsername.putIfAbsent(user.getUsername(), id) != null) {
+                throw new SQLException("Duplicate entry '" + user.getUsername() + "' for key 'users.username'");
+            }
+            LocalDateTime now = storage.now();
+            rows.put(id, new Row<>(new User(id, user.getUsername(), user.getPasswordHash(), user.getRole(), now),
+                    now, now));
+            return null;
+        });
+        OperationLogSink.log("INSERT", "USER", user.getUsername(), "新增用户: " + user.getUsername());
+    }
+
+    @Override
+    public void update(User user) throws SQLException {
+        storage.write(() -> {
+            synchronized (idByUsername) {
+                Row<User> row = rows.get(user.getId());
+                if (row == null) {
+                    return null;
+                }
+                String oldName = row.value.getUsername();
+                if (!oldName.equals(user.getUsername())) {
+                    if (idByUsername.putIfAbsent(user.getUsername(), user.getId()) != null) {
+                        throw new SQLException("Duplicate entry '" + user.getUsername() + "' for key 'users.username'");
+                    }
+                    idByUsername.remove(oldName, user.getId());
+                }
+                rows.put(user.getId(), row.with(new User(user.getId(), user.getUsername(), user.getPasswordHash(),
+                        user.getRole(), row.value.getCreatedAt()), storage.now()));
+            }
+            return null;
+        });
+        OperationLogSink.log("UPDATE", "USER", user.getUsername(), "更新用户: " + user.getUsername());
+    }
+
+    @Override
+    public void delete(String username) throws SQLException {
+        storage.write(() -> {
+            synchronized (idByUsername) {
+                Integer id = idByUsername.remove(username);
+                if (id != null) {
+                    rows.remove(id);
+                    storage.userDeleted(id);
+                }
+            }
+            return null;
+        });
+        OperationLogSink.log("DELETE", "USER", username, "删除用户: " + username);
+    }
+
+    @Override
+    public List<User> findByRole(String role) {
+        return select(row -> role.equals(row.value.getRole()));
+    }
+
+    @Override
+    public boolean existsByUsername(String username) {
+        return idByUsername.containsKey(username);
+    }
+
+    @Override
+    public int count() {
+        return rows.size();
+    }
+}
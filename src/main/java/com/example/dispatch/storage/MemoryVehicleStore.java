@@ -0,0 +1,186 @@
+package com.example.dispatch.storage;
+
+import com.example.dispatch.dao.OperationLogSink;
+import com.example.dispatch.model.Vehicle;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * 内存车辆存储（语义与VehicleDAO一致）
+ */
+class MemoryVehicleStore implements VehicleStore {
+
+    private final MemoryStorage storage;
+    final Map<String, Row<Vehicle>> rows = new ConcurrentHashMap<>();
+
+    MemoryVehicleStore(MemoryStorage storage) {
+        this.storage = storage;
+    }
+
+    static Vehicle copy(Vehicle v) {
+        return new Vehicle(v.getId(), v.getDriver(), v.getStatus(), v.getLocation(), v.getCreatedBy());
+    }
+
+    private List<Vehicle> select(Predicate<Row<Vehicle>> filter) {
+        List<Vehicle> result = new ArrayList<>();
+        for (Row<Vehicle> row : rows.values()) {
+            if (filter.test(row)) {
+                result.add(copy(row.value));
+            }
+        }
+        result.sort(Comparator.comparing(Vehicle::getId));
+        return result;
+    }
+
+    @Override
+    public List<Vehicle> findAll() {
+        return select(row -> true);
+    }
+
+    @Override
+    public int forEach(Consumer<? super Vehicle> action) {
+        List<Vehicle> all = findAll();
+        all.forEach(action);
+        return all.size();
+    }
+
+    @Override
+    public Vehicle findById(String id) {
+        Row<Vehicle> row = rows.get(id);
+        return row != null ? copy(row.value) : null;
+    }
+
+    @Override
+    public List<Vehicle> findUpdatedSince(LocalDateTime since) {
+        return select(row -> !row.updatedAt.isBefore(since));
+    }
+
+    @Override
+    public List<Vehicle> findByCreatedBy(int createdBy) {
+        return select(row -> row.value.getCreatedBy() == createdBy);
+    }
+
+    @Override
+    public List<Vehicle> findByStatus(String status) {
+        return select(row -> status.equals(row.value.getStatus()));
+    }
+
+    @Override
+    public void save(Vehicle vehicle) throws SQLException {
+        if (rows.containsKey(vehicle.getId())) {
+            update(vehicle);
+        } else {
+            insert(vehicle);
+        }
+    }
+
+    @Override
+    public void insert(Vehicle vehicle) throws SQLException {
+        storage.write(() -> {
+            LocalDateTime now = storage.now();
+            if (rows.putIfAbsent(vehicle.getId(), new Row<>(copy(vehicle), now, now)) != null) {
+                throw new SQLException("Duplicate entry '" + vehicle.getId() + "' for key 'vehicles.PRIMARY'");
+            }
+            return null;
+        });
+        OperationLogSink.log("INSERT", "VEHICLE", vehicle.getId(), "新增车辆: " + vehicle.getId());
+    }
+
+    @Override
+    public void update(Vehicle vehicle) throws SQLException {
+        storage.write(() -> rows.computeIfPresent(vehicle.getId(),
+                (id, row) -> row.with(new Vehicle(id, vehicle.getDriver(), vehicle.getStatus(),
+                        vehicle.getLocation(), row.value.getCreatedBy()), storage.now())));
+        OperationLogSink.log("UPDATE", "VEHICLE", vehicle.getId(), "更新车辆: " + vehicle.getId());
+    }
+
+    /**
+     * 只更新当前状态为expectedStatus的车辆（调用方持有存储的排它锁）
+     *
+     * @return 满足条件的车辆数
+     */
+    int countStatus(Collection<String> vehicleIds, String expectedStatus) {
+        int matched = 0;
+        for (String vehicleId : vehicleIds) {
+            Row<Vehicle> row = rows.get(vehicleId);
+            if (row != null && expectedStatus.equals(row.value.getStatus())) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    void setStatus(Collection<String> vehicleIds, String newStatus, LocalDateTime now) {
+        for (String vehicleId : vehicleIds) {
+            rows.computeIfPresent(vehicleId, (id, row) -> {
+                Vehicle updated = copy(row.value);
+                updated.setStatus(newStatus);
+                return row.with(updated, now);
+            });
+        }
+    }
+
+    /**
+     * 用户被删除时清空创建者（对应外键 ON DELETE SET NULL）
+     */
+    void clearCreator(int userId, LocalDateTime now) {
+        rows.replaceAll((id, row) -> {
+            if (row.value.getCreatedBy() != userId) {
+                return row;
+            }
+            Vehicle updated = copy(row.value);
+            updated.setCreatedBy(0);
+            return row.with(updated, now);
+        });
+    }
+
+    @Override
+    public void delete(String id) throws SQLException {
+        storage.write(() -> {
+            if (rows.remove(id) != null) {
+                storage.vehicleDeleted(id);
+            }
+            return null;
+        });
+        OperationLogSink.log("DELETE", "VEHICLE", id, "删除车辆: " + id);
+    }
+
+    @Override
+    public int saveAll(List<Vehicle> vehicles) throws SQLException {
+        storage.write(() -> {
+            LocalDateTime now = storage.now();
+            for (Vehicle vehicle : vehicles) {
+                rows.merge(vehicle.getId(), new Row<>(copy(vehicle), now, now),
+                        (old, added) -> old.with(new Vehicle(vehicle.getId(), vehicle.getDriver(),
+                                vehicle.getStatus(), vehicle.getLocation(), old.value.getCreatedBy()), now));
+            }
+            return null;
+        });
+        OperationLogSink.log("IMPORT", "VEHICLE", null, "批量保存车辆: " + vehicles.size() + " 辆");
+        return vehicles.size();
+    }
+
+    @Override
+    public int count() {
+        return rows.size();
+    }
+
+    @Override
+    public Map<String, Integer> getStatusCount() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Row<Vehicle> row : rows.values()) {
+            counts.merge(row.value.getStatus(), 1, Integer::sum);
+        }
+        return counts;
+    }
+}
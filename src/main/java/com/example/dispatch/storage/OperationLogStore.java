@@ -0,0 +1,70 @@
+package com.example.dispatch.storage;
+
+import com.example.dispatch.dao.OperationLogPage;
+import com.example.dispatch.dao.OperationLogQuery;
+import com.example.dispatch.model.OperationLog;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 操作日志存储接口（JDBC实现为 {@link com.example.dispatch.dao.OperationLogDAO}）
+ * 查询结果均按创建时间倒序
+ */
+public interface OperationLogStore {
+
+    void save(OperationLog log) throws SQLException;
+
+    /**
+     * 批量写入（整批成功或整批失败）
+     */
+    void saveBatch(List<OperationLog> logs) throws SQLException;
+
+    OperationLog findById(int id) throws SQLException;
+
+    List<OperationLog> findAll() throws SQLException;
+
+    /**
+     * 组合条件键集分页（按 created_at, id 倒序）
+     *
+     * @param after 上一页返回的游标，null表示第一页
+     */
+    OperationLogPage findPage(OperationLogQuery query, OperationLogPage.Cursor after, int pageSize)
+            throws SQLException;
+
+    /**
+     * 按查询条件逐行回调（按 created_at, id 倒序），不把结果读入内存，用于导出和统计
+     *
+     * @return 日志条数
+     */
+    int forEach(OperationLogQuery query, Consumer<? super OperationLog> action) throws SQLException;
+
+    List<OperationLog> findByTimeRange(LocalDateTime startTime, LocalDateTime endTime) throws SQLException;
+
+    List<OperationLog> findByOperationType(String operationType) throws SQLException;
+
+    List<OperationLog> findByEntityType(String entityType) throws SQLException;
+
+    List<OperationLog> findByUserId(int userId) throws SQLException;
+
+    /**
+     * 删除指定时间之前的日志
+     *
+     * @return 删除的条数
+     */
+    int deleteBefore(LocalDateTime beforeTime) throws SQLException;
+
+    int count() throws SQLException;
+
+    Map<String, Integer> getOperationTypeStatistics() throws SQLException;
+
+    Map<String, Integer> getEntityTypeStatistics() throws SQLException;
+
+    /**
+     * 最近N天每天的日志条数（键为 yyyy-MM-dd）
+     */
+    Map<String, Integer> getRecentDaysStatistics(int days) throws SQLException;
+}
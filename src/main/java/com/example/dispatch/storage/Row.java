@@ -0,0 +1,22 @@
+package com.example.dispatch.storage;
+
+import java.time.LocalDateTime;
+
+/**
+ * 内存存储中的一行：不可变的值和时间戳，修改时整体替换
+ */
+final class Row<T> {
+    final T value;
+    final LocalDateTime createdAt;
+    final LocalDateTime updatedAt;
+
+    Row(T value, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.value = value;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    Row<T> with(T newValue, LocalDateTime now) {
+        return new Row<>(newValue, createdAt, now);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.dispatch.storage;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 当前使用的存储后端
+ * 默认使用MySQL；启动参数 --memory[=快照文件] 或系统属性 dispatch.storage=memory 时使用内存存储。
+ * 必须在DataStore初始化之前选定。
+ */
+public class Storage {
+
+    private static final Path DEFAULT_SNAPSHOT = Paths.get("data", "dispatch.snapshot");
+
+    private static volatile StorageBackend backend;
+
+    private Storage() {
+    }
+
+    /**
+     * 获取存储后端（未显式选定时按系统属性创建）
+     */
+    public static StorageBackend get() {
+        StorageBackend current = backend;
+        if (current != null) {
+            return current;
+        }
+        synchronized (Storage.class) {
+            if (backend == null) {
+                backend = "memory".equalsIgnoreCase(System.getProperty("dispatch.storage"))
+                        ? new MemoryStorage(snapshotPath(System.getProperty("dispatch.snapshot")))
+                        : new JdbcStorage();
+                System.out.println("存储后端: " + backend.getName());
+            }
+            return backend;
+        }
+    }
+
+    /**
+     * 选定存储后端
+     */
+    public static synchronized void use(StorageBackend storage) {
+        if (backend != null && backend != storage) {
+            throw new IllegalStateException("存储后端已选定为 " + backend.getName());
+        }
+        backend = storage;
+        System.out.println("存储后端: " + storage.getName());
+    }
+
+    /**
+     * 按启动参数选定存储后端：--memory 使用内存存储（快照写入默认文件），--memory=文件 指定快照文件
+     */
+    public static void configure(String[] args) {
+        for (String arg : args) {
+            if (arg.equals("--memory")) {
+                use(new MemoryStorage(DEFAULT_SNAPSHOT));
+            } else if (arg.startsWith("--memory=")) {
+                use(new MemoryStorage(snapshotPath(arg.substring("--memory=".length()))));
+            }
+        }
+    }
+
+    private static Path snapshotPath(String value) {
+        return value == null || value.isBlank() ? DEFAULT_SNAPSHOT : Paths.get(value);
+    }
+
+    /**
+     * 关闭存储后端（后端仍保留，MySQL连接池在下次使用时重新创建）
+     */
+    public static synchronized void close() {
+        if (backend != null) {
+            backend.close();
+        }
+    }
+}
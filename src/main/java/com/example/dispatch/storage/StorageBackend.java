@@ -0,0 +1,67 @@
+package com.example.dispatch.storage;
+
+import com.example.dispatch.dao.SyncDAO;
+import com.example.dispatch.model.GeoPoint;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 存储后端
+ * 提供各实体的存储，以及需要跨表原子执行或与后端时钟相关的操作。
+ * 实现：{@link JdbcStorage}（MySQL）和 {@link MemoryStorage}（内存，定期快照到文件）。
+ */
+public interface StorageBackend {
+
+    String getName();
+
+    VehicleStore vehicles();
+
+    TaskStore tasks();
+
+    UserStore users();
+
+    OperationLogStore operationLogs();
+
+    /**
+     * 批量分配车辆：任务从待分配改为进行中、车辆从空闲改为出车，整批原子提交
+     * 任一任务已不是待分配或任一车辆已不空闲时整批放弃并抛出SQLException
+     *
+     * @param assignments 任务名 → 车辆ID
+     */
+    void assignVehicles(Map<String, String> assignments) throws SQLException;
+
+    /**
+     * 后端的当前时间（增量同步水位线，与updated_at使用同一时钟）
+     */
+    LocalDateTime currentTimestamp() throws SQLException;
+
+    /**
+     * 指定时间（含）之后的删除记录
+     */
+    List<SyncDAO.Tombstone> findTombstonesSince(LocalDateTime since) throws SQLException;
+
+    int purgeTombstonesBefore(LocalDateTime before) throws SQLException;
+
+    /**
+     * 全部地名坐标
+     */
+    Map<String, GeoPoint> findPlaces() throws SQLException;
+
+    /**
+     * 新增或更新地名坐标
+     */
+    void savePlace(String name, GeoPoint point) throws SQLException;
+
+    /**
+     * 自定义角色权限（角色 → 权限掩码），覆盖内置角色的默认权限
+     */
+    Map<String, Long> findRolePermissions() throws SQLException;
+
+    /**
+     * 关闭后端，释放连接或写出最后一次快照
+     */
+    void close();
+}
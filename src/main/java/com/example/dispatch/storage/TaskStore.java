@@ -0,0 +1,84 @@
+package com.example.dispatch.storage;
+
+import com.example.dispatch.model.Task;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 任务存储接口（JDBC实现为 {@link com.example.dispatch.dao.TaskDAO}）
+ * 返回的对象是存储中数据的副本，修改后需调用update写回
+ */
+public interface TaskStore {
+
+    /**
+     * 获取所有任务（按创建时间倒序）
+     */
+    List<Task> findAll() throws SQLException;
+
+    /**
+     * 按findAll的顺序逐行回调，不把整表读入内存（MySQL使用游标分批读取）
+     *
+     * @return 任务数
+     */
+    int forEach(Consumer<? super Task> action) throws SQLException;
+
+    Task findByName(String name) throws SQLException;
+
+    /**
+     * 获取指定时间（含）之后新增或修改过的任务（增量同步用）
+     */
+    List<Task> findUpdatedSince(LocalDateTime since) throws SQLException;
+
+    List<Task> findByCreatedBy(int createdBy) throws SQLException;
+
+    List<Task> findByStatus(String status) throws SQLException;
+
+    List<Task> findByVehicleId(String vehicleId) throws SQLException;
+
+    /**
+     * 保存任务（新增或更新）
+     */
+    void save(Task task) throws SQLException;
+
+    void insert(Task task) throws SQLException;
+
+    void update(Task task) throws SQLException;
+
+    void delete(String name) throws SQLException;
+
+    /**
+     * 分配车辆（任务状态变为进行中）
+     * 只分配仍处于待分配状态的任务，任务已被并发分配时抛出SQLException；vehicleId为null时取消分配，不检查状态
+     */
+    void assignVehicle(String taskName, String vehicleId) throws SQLException;
+
+    void completeTask(String taskName) throws SQLException;
+
+    /**
+     * 批量保存任务（新增或更新）
+     *
+     * @return 写入的任务数
+     */
+    int saveAll(List<Task> tasks) throws SQLException;
+
+    int count() throws SQLException;
+
+    /**
+     * 各状态的任务数量
+     */
+    Map<String, Integer> getStatusCount() throws SQLException;
+
+    /**
+     * 每辆车未完成的任务数（负载校正用）
+     */
+    Map<String, Integer> countActiveByVehicle() throws SQLException;
+
+    /**
+     * 已过ETA且未完成的任务（按ETA排序）
+     */
+    List<Task> findOverdueTasks() throws SQLException;
+}
@@ -0,0 +1,58 @@
+package com.example.dispatch.storage;
+
+import com.example.dispatch.model.User;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 用户存储接口（JDBC实现为 {@link com.example.dispatch.dao.UserDAO}）
+ */
+public interface UserStore {
+
+    User findByUsername(String username) throws SQLException;
+
+    User findById(int id) throws SQLException;
+
+    /**
+     * 获取所有用户（按ID排序）
+     */
+    List<User> findAll() throws SQLException;
+
+    /**
+     * 按findAll的顺序逐行回调，不把整表读入内存（MySQL使用游标分批读取）
+     *
+     * @return 用户数
+     */
+    int forEach(Consumer<? super User> action) throws SQLException;
+
+    /**
+     * 获取指定时间（含）之后新增或修改过的用户（增量同步用）
+     */
+    List<User> findUpdatedSince(LocalDateTime since) throws SQLException;
+
+    /**
+     * 保存用户（新增或更新）
+     */
+    void save(User user) throws SQLException;
+
+    /**
+     * 新增用户（ID由存储分配）
+     */
+    void insert(User user) throws SQLException;
+
+    /**
+     * 按ID更新用户名、密码和角色
+     */
+    void update(User user) throws SQLException;
+
+    void delete(String username) throws SQLException;
+
+    List<User> findByRole(String role) throws SQLException;
+
+    boolean existsByUsername(String username) throws SQLException;
+
+    int count() throws SQLException;
+}
@@ -0,0 +1,64 @@
+package com.example.dispatch.storage;
+
+import com.example.dispatch.model.Vehicle;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 车辆存储接口（JDBC实现为 {@link com.example.dispatch.dao.VehicleDAO}）
+ * 返回的对象是存储中数据的副本，修改后需调用update写回
+ */
+public interface VehicleStore {
+
+    /**
+     * 获取所有车辆（按ID排序）
+     */
+    List<Vehicle> findAll() throws SQLException;
+
+    /**
+     * 按findAll的顺序逐行回调，不把整表读入内存（MySQL使用游标分批读取）
+     *
+     * @return 车辆数
+     */
+    int forEach(Consumer<? super Vehicle> action) throws SQLException;
+
+    Vehicle findById(String id) throws SQLException;
+
+    /**
+     * 获取指定时间（含）之后新增或修改过的车辆（增量同步用）
+     */
+    List<Vehicle> findUpdatedSince(LocalDateTime since) throws SQLException;
+
+    List<Vehicle> findByCreatedBy(int createdBy) throws SQLException;
+
+    List<Vehicle> findByStatus(String status) throws SQLException;
+
+    /**
+     * 保存车辆（新增或更新）
+     */
+    void save(Vehicle vehicle) throws SQLException;
+
+    void insert(Vehicle vehicle) throws SQLException;
+
+    void update(Vehicle vehicle) throws SQLException;
+
+    void delete(String id) throws SQLException;
+
+    /**
+     * 批量保存车辆（新增或更新）
+     *
+     * @return 写入的车辆数
+     */
+    int saveAll(List<Vehicle> vehicles) throws SQLException;
+
+    int count() throws SQLException;
+
+    /**
+     * 各状态的车辆数量
+     */
+    Map<String, Integer> getStatusCount() throws SQLException;
+}
@@ -0,0 +1,236 @@
+package com.example.dispatch.util;
+
+import com.example.dispatch.dao.OperationLogPage;
+import com.example.dispatch.dao.OperationLogQuery;
+import com.example.dispatch.model.OperationLog;
+import com.example.dispatch.model.Task;
+import com.example.dispatch.model.Vehicle;
+import com.example.dispatch.service.DispatchService;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DataStore的异步门面
+ * 数据库操作在有界的后台线程池中执行，结果通过Platform.runLater交回JavaFX线程，
+ * 因此返回的CompletableFuture的回调可以直接更新界面。支持取消和单次操作超时。
+ */
+public class AsyncDataStore {
+
+    private static final int WORKER_THREADS = 16;
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(15);
+
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+            WORKER_THREADS, WORKER_THREADS, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY), daemonThreadFactory("datastore-async"));
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(
+            daemonThreadFactory("datastore-timeout"));
+
+    static {
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 可抛出受检异常的数据操作
+     */
+    @FunctionalInterface
+    public interface DataOperation<T> {
+        T call() throws Exception;
+    }
+
+    /**
+     * 无返回值的数据操作
+     */
+    @FunctionalInterface
+    public interface DataAction {
+        void run() throws Exception;
+    }
+
+    /**
+     * 在后台执行数据操作（默认超时）
+     */
+    public static <T> CompletableFuture<T> supply(DataOperation<T> operation) {
+        return supply(operation, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * 在后台执行数据操作
+     *
+     * @param operation 数据操作
+     * @param timeout   超时时间，超时后future以TimeoutException结束并尝试中断后台任务
+     * @return 在JavaFX线程上完成的future；调用cancel(true)会中断后台任务
+     */
+    public static <T> CompletableFuture<T> supply(DataOperation<T> operation, Duration timeout) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        Future<?> task;
+        try {
+            task = EXECUTOR.submit(() -> {
+                if (result.isDone()) {
+                    return; // 排队期间已被取消或超时
+                }
+                try {
+                    T value = operation.call();
+                    FxUtils.runOnFxThread(() -> result.complete(value));
+                } catch (Throwable e) {
+                    FxUtils.runOnFxThread(() -> result.completeExceptionally(e));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new RejectedExecutionException("后台任务队列已满，请稍后重试", e));
+            return result;
+        }
+
+        ScheduledFuture<?> timer = TIMER.schedule(() -> FxUtils.runOnFxThread(() -> {
+            if (result.completeExceptionally(new TimeoutException("数据操作超时（" + timeout.toMillis() + "ms）"))) {
+                task.cancel(true);
+            }
+        }), timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        result.whenComplete((value, error) -> {
+            timer.cancel(false);
+            if (result.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 在后台执行无返回值的数据操作（默认超时）
+     */
+    public static CompletableFuture<Void> run(DataAction action) {
+        return run(action, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * 在后台执行无返回值的数据操作
+     */
+    public static CompletableFuture<Void> run(DataAction action, Duration timeout) {
+        return supply(() -> {
+            action.run();
+            return null;
+        }, timeout);
+    }
+
+    // ==================== 车辆相关操作 ====================
+
+    public static CompletableFuture<Void> addVehicle(Vehicle vehicle) {
+        return run(() -> DataStore.addVehicle(vehicle));
+    }
+
+    public static CompletableFuture<Void> deleteVehicle(String vehicleId) {
+        return run(() -> DataStore.deleteVehicle(vehicleId));
+    }
+
+    public static CompletableFuture<Void> updateVehicleStatus(String vehicleId, String newStatus) {
+        return run(() -> DataStore.updateVehicleStatus(vehicleId, newStatus));
+    }
+
+    public static CompletableFuture<Void> updateVehicleLocation(String vehicleId, String newLocation) {
+        return run(() -> DataStore.updateVehicleLocation(vehicleId, newLocation));
+    }
+
+    public static CompletableFuture<Vehicle> findVehicleById(String id) {
+        return supply(() -> DataStore.findVehicleById(id));
+    }
+
+    public static CompletableFuture<List<Vehicle>> getAvailableVehicles() {
+        return supply(DataStore::getAvailableVehicles);
+    }
+
+    // ==================== 任务相关操作 ====================
+
+    public static CompletableFuture<Void> addTask(Task task) {
+        return run(() -> DataStore.addTask(task));
+    }
+
+    public static CompletableFuture<Void> deleteTask(String taskName) {
+        return run(() -> DataStore.deleteTask(taskName));
+    }
+
+    public static CompletableFuture<Void> completeTask(String taskName) {
+        return run(() -> DataStore.completeTask(taskName));
+    }
+
+    public static CompletableFuture<Task> findTaskByName(String name) {
+        return supply(() -> DataStore.findTaskByName(name));
+    }
+
+    public static CompletableFuture<List<Task>> getPendingTasks() {
+        return supply(DataStore::getPendingTasks);
+    }
+
+    /**
+     * 异步分配车辆
+     */
+    public static CompletableFuture<Vehicle> assign(DispatchService dispatchService, Task task) {
+        return supply(() -> dispatchService.assign(task));
+    }
+
+    // ==================== 操作日志相关操作 ====================
+
+    public static CompletableFuture<Void> addOperationLog(OperationLog log) {
+        return run(() -> DataStore.addOperationLog(log));
+    }
+
+    public static CompletableFuture<List<OperationLog>> getAllOperationLogs() {
+        return supply(DataStore::getAllOperationLogs);
+    }
+
+    public static CompletableFuture<OperationLogPage> getOperationLogPage(OperationLogQuery query,
+            OperationLogPage.Cursor after, int pageSize) {
+        return supply(() -> DataStore.getOperationLogPage(query, after, pageSize));
+    }
+
+    // ==================== 同步 ====================
+
+    public static CompletableFuture<Void> syncChanges() {
+        return run(DataStore::syncChanges);
+    }
+
+    /**
+     * 当前排队中的任务数
+     */
+    public static int getQueuedCount() {
+        return EXECUTOR.getQueue().size();
+    }
+
+    /**
+     * 正在执行的任务数
+     */
+    public static int getActiveCount() {
+        return EXECUTOR.getActiveCount();
+    }
+
+    /**
+     * 关闭后台线程池
+     */
+    public static void shutdown() {
+        EXECUTOR.shutdownNow();
+        TIMER.shutdownNow();
+    }
+
+    private static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
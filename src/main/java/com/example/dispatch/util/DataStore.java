@@ -1,97 +1,304 @@
 package com.example.dispatch.util;
 
-import com.example.dispatch.dao.OperationLogDAO;
-import com.example.dispatch.dao.TaskDAO;
-import com.example.dispatch.dao.UserDAO;
-import com.example.dispatch.dao.VehicleDAO;
-import com.example.dispatch.database.DatabaseManager;
+import com.example.dispatch.dao.OperationLogPage;
+import com.example.dispatch.dao.OperationLogQuery;
+import com.example.dispatch.dao.OperationLogSink;
+import com.example.dispatch.dao.SyncDAO;
+import com.example.dispatch.database.BackupManager;
+import com.example.dispatch.model.GeoPoint;
+import com.example.dispatch.model.OperationLog;
 import com.example.dispatch.model.Task;
 import com.example.dispatch.model.User;
 import com.example.dispatch.model.Vehicle;
+import com.example.dispatch.service.AutoDispatcher;
+import com.example.dispatch.service.DispatchService;
+import com.example.dispatch.service.Gazetteer;
+import com.example.dispatch.service.OverdueTaskMonitor;
+import com.example.dispatch.service.VehicleLoadTracker;
+import com.example.dispatch.service.VehicleLocator;
+import com.example.dispatch.storage.OperationLogStore;
+import com.example.dispatch.storage.Storage;
+import com.example.dispatch.storage.TaskStore;
+import com.example.dispatch.storage.UserStore;
+import com.example.dispatch.storage.VehicleStore;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
 
 public class DataStore {
         // 内存中的ObservableList，用于JavaFX数据绑定
+        // 注意：列表只在JavaFX线程上修改（见FxUtils.runOnFxThread），后台线程可以安全调用本类方法
         public static final ObservableList<Vehicle> VEHICLES = FXCollections.observableArrayList();
         public static final ObservableList<Task> TASKS = FXCollections.observableArrayList();
         public static final ObservableList<User> USERS = FXCollections.observableArrayList();
 
-        // DAO实例
-        private static final VehicleDAO vehicleDAO = new VehicleDAO();
-        private static final TaskDAO taskDAO = new TaskDAO();
-        private static final UserDAO userDAO = new UserDAO();
-        private static final OperationLogDAO operationLogDAO = new OperationLogDAO();
+        // 内存索引，随列表变化自动维护；对象被原地修改后需调用reindex
+        private static final ObservableListIndex<String, Vehicle> VEHICLE_INDEX = new ObservableListIndex<>(VEHICLES,
+                        Vehicle::getId);
+        private static final ObservableListIndex<String, Vehicle>.Secondary<String> VEHICLES_BY_STATUS = VEHICLE_INDEX
+                        .addSecondary(Vehicle::getStatus, Comparator.comparing(Vehicle::getId));
+        private static final ObservableListIndex<String, Vehicle>.Secondary<Integer> VEHICLES_BY_CREATOR = VEHICLE_INDEX
+                        .addSecondary(Vehicle::getCreatedBy);
+
+        private static final ObservableListIndex<String, Task> TASK_INDEX = new ObservableListIndex<>(TASKS,
+                        Task::getName);
+        private static final ObservableListIndex<String, Task>.Secondary<String> TASKS_BY_STATUS = TASK_INDEX
+                        .addSecondary(Task::getStatus,
+                                        Comparator.comparing(Task::getEta).thenComparing(Task::getName));
+        private static final ObservableListIndex<String, Task>.Secondary<String> TASKS_BY_VEHICLE = TASK_INDEX
+                        .addSecondary(Task::getVehicleId);
+        private static final ObservableListIndex<String, Task>.Secondary<Integer> TASKS_BY_CREATOR = TASK_INDEX
+                        .addSecondary(Task::getCreatedBy);
+
+        private static final ObservableListIndex<Integer, User> USER_INDEX = new ObservableListIndex<>(USERS,
+                        User::getId);
+
+        // 车辆负载（未完成任务数），随索引变化增量维护
+        private static final VehicleLoadTracker LOAD_TRACKER = new VehicleLoadTracker(VEHICLE_INDEX, TASK_INDEX);
+
+        // 地名→坐标解析和空闲车辆空间索引
+        private static final Gazetteer GAZETTEER = new Gazetteer();
+        private static final VehicleLocator VEHICLE_LOCATOR = new VehicleLocator(VEHICLE_INDEX, GAZETTEER);
+
+        // 超期任务监控（时间轮），超期时记录一条操作日志
+        private static final OverdueTaskMonitor OVERDUE_MONITOR = new OverdueTaskMonitor(TASK_INDEX);
+
+        static {
+                OVERDUE_MONITOR.subscribe(task -> OperationLogSink.log(OperationLog.OperationTypes.OVERDUE,
+                                OperationLog.EntityTypes.TASK, task.getName(),
+                                "任务超期: " + task.getName() + "（ETA " + task.getEta() + "，"
+                                                + (task.getVehicleId() == null ? "未分配车辆" : "车辆 " + task.getVehicleId())
+                                                + "）"));
+        }
+
+        // 后台自动调度（按ETA优先），由界面启动
+        private static final AutoDispatcher AUTO_DISPATCHER = new AutoDispatcher(new DispatchService(),
+                        TASK_INDEX, VEHICLE_INDEX, LOAD_TRACKER);
 
-        // 为了让DispatchService能访问taskDAO，提供公共访问方法
-        public static TaskDAO getTaskDAO() {
-                return taskDAO;
+        // 存储（MySQL或内存，见Storage），每次调用时取当前后端
+        private static VehicleStore vehicleStore() {
+                return Storage.get().vehicles();
         }
 
-        // 初始化标志
-        private static boolean initialized = false;
+        private static TaskStore taskStore() {
+                return Storage.get().tasks();
+        }
 
-        /**
-         * 初始化数据存储，从数据库加载数据
-         */
-        public static synchronized void initialize() {
-                if (initialized) {
-                        return; // 防止重复初始化
-                }
+        private static UserStore userStore() {
+                return Storage.get().users();
+        }
 
-                try {
-                        System.out.println("正在初始化数据存储...");
+        private static OperationLogStore operationLogStore() {
+                return Storage.get().operationLogs();
+        }
 
-                        // 从数据库加载车辆数据
-                        loadVehiclesFromDatabase();
+        // 为了让DispatchService能访问任务存储，提供公共访问方法
+        public static TaskStore getTaskStore() {
+                return taskStore();
+        }
 
-                        // 从数据库加载任务数据
-                        loadTasksFromDatabase();
+        public static VehicleLoadTracker getLoadTracker() {
+                return LOAD_TRACKER;
+        }
 
-                        // 从数据库加载用户数据
-                        loadUsersFromDatabase();
+        public static VehicleLocator getVehicleLocator() {
+                return VEHICLE_LOCATOR;
+        }
 
-                        initialized = true;
-                        System.out.println("数据存储初始化完成");
+        public static AutoDispatcher getAutoDispatcher() {
+                return AUTO_DISPATCHER;
+        }
 
-                } catch (SQLException e) {
-                        System.err.println("数据存储初始化失败: " + e.getMessage());
-                        e.printStackTrace();
-                        throw new RuntimeException("数据库初始化失败", e);
+        public static OverdueTaskMonitor getOverdueMonitor() {
+                return OVERDUE_MONITOR;
+        }
+
+        // 初始化（首次调用initializeAsync时开始，之后返回同一个结果）
+        private static CompletableFuture<Void> initialization;
+
+        // 启动和全量加载时并行查询各表：启动时同时查询5张表（地名、负载、车辆、任务、用户），线程数不超过连接池大小；
+        // 协调加载的线程不占用此线程池，等待查询时不会占掉一个查询线程
+        private static final int LOADER_THREADS = 5;
+        private static final ExecutorService LOADER = Executors.newFixedThreadPool(LOADER_THREADS, r -> {
+                Thread thread = new Thread(r, "datastore-loader");
+                thread.setDaemon(true);
+                return thread;
+        });
+
+        // 增量同步：水位线取自数据库时钟，每次同步回退一小段时间以覆盖同一秒内及提交较晚的修改
+        private static final Object SYNC_LOCK = new Object();
+        // 假设：修改在updated_at取值后SYNC_OVERLAP_SECONDS内提交（本程序的写事务都很短）；
+        // 提交更晚的修改可能被增量同步漏掉，由定期全量加载兜底
+        private static final long SYNC_OVERLAP_SECONDS = 5;
+        private static final long FULL_RESYNC_INTERVAL_MINUTES = 30;
+        private static final long TOMBSTONE_RETENTION_DAYS = 7; // 水位线早于此期限时改为全量加载
+        private static final long TOMBSTONE_PURGE_INTERVAL_HOURS = 1;
+        private static LocalDateTime syncWatermark;
+        private static LocalDateTime fullLoadWatermark; // 上次全量加载的水位线，更早的RESYNC记录已包含在内
+        private static LocalDateTime lastTombstonePurge;
+
+        /**
+         * 初始化数据存储，从数据库加载数据（阻塞直到加载完成）
+         */
+        public static void initialize() {
+                try {
+                        initializeAsync().join();
+                } catch (CompletionException e) {
+                        Throwable cause = e.getCause() != null ? e.getCause() : e;
+                        throw new RuntimeException("数据库初始化失败", cause);
                 }
         }
 
         /**
-         * 从数据库加载车辆数据到内存
+         * 在后台初始化数据存储，调用方（如界面线程）不等待
+         * 分两个阶段：先预热连接（首次连接时执行结构迁移），预热完成后再并行查询地名、车辆、任务、用户和车辆负载，
+         * 总耗时取决于最慢的一次查询而不是各次查询之和。
          */
-        private static void loadVehiclesFromDatabase() throws SQLException {
-                VEHICLES.clear();
-                List<Vehicle> vehicles = vehicleDAO.findAll();
-                VEHICLES.addAll(vehicles);
-                System.out.println("已加载 " + vehicles.size() + " 辆车辆数据");
+        public static synchronized CompletableFuture<Void> initializeAsync() {
+                if (initialization != null) {
+                        return initialization;
+                }
+                System.out.println("正在初始化数据存储...");
+                long start = System.nanoTime();
+                initialization = CompletableFuture.runAsync(() -> {
+                        try {
+                                synchronized (SYNC_LOCK) {
+                                        LocalDateTime watermark = warmUp();
+
+                                        // 地名表和车辆负载只在启动时加载，预热后与三张主表同时查询
+                                        CompletableFuture<Map<String, GeoPoint>> places = timedLoad("地名坐标",
+                                                        () -> Storage.get().findPlaces());
+                                        CompletableFuture<Map<String, Integer>> activeCounts = timedLoad("车辆负载",
+                                                        () -> taskStore().countActiveByVehicle());
+                                        loadAllFromDatabase(watermark, () -> GAZETTEER.replaceAll(places.join()));
+
+                                        // 列表加载完成后（同在JavaFX线程排队）用数据库统计校正车辆负载
+                                        Map<String, Integer> counts = activeCounts.join();
+                                        FxUtils.runOnFxThread(() -> LOAD_TRACKER.reconcile(counts));
+                                }
+                        } catch (SQLException e) {
+                                throw new CompletionException(e);
+                        }
+                }, command -> {
+                        Thread thread = new Thread(command, "datastore-init");
+                        thread.setDaemon(true);
+                        thread.start();
+                }).whenComplete((ignored, error) -> {
+                        if (error == null) {
+                                System.out.printf("数据存储初始化完成（%.1f ms）%n", (System.nanoTime() - start) / 1e6);
+                        } else {
+                                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                                ? error.getCause()
+                                                : error;
+                                System.err.println("数据存储初始化失败: " + cause.getMessage());
+                                cause.printStackTrace();
+                        }
+                });
+                return initialization;
         }
 
         /**
-         * 从数据库加载任务数据到内存
+         * 数据存储是否已初始化完成
          */
-        private static void loadTasksFromDatabase() throws SQLException {
-                TASKS.clear();
-                List<Task> tasks = taskDAO.findAll();
-                TASKS.addAll(tasks);
-                System.out.println("已加载 " + tasks.size() + " 个任务数据");
+        public static synchronized boolean isInitialized() {
+                return initialization != null && initialization.isDone()
+                                && !initialization.isCompletedExceptionally();
         }
 
         /**
-         * 从数据库加载用户数据到内存
+         * 可抛出SQLException的查询
          */
-        private static void loadUsersFromDatabase() throws SQLException {
-                USERS.clear();
-                List<User> users = userDAO.findAll();
-                USERS.addAll(users);
-                System.out.println("已加载 " + users.size() + " 个用户数据");
+        @FunctionalInterface
+        private interface Loader<T> {
+                T load() throws SQLException;
+        }
+
+        /**
+         * 在加载线程池中执行一次查询并记录耗时
+         */
+        private static <T> CompletableFuture<T> timedLoad(String phase, Loader<T> loader) {
+                return CompletableFuture.supplyAsync(() -> {
+                        long start = StartupTimer.begin();
+                        try {
+                                T result = loader.load();
+                                StartupTimer.end(phase, start);
+                                return result;
+                        } catch (SQLException e) {
+                                throw new CompletionException(e);
+                        }
+                }, LOADER);
+        }
+
+        /**
+         * 全量加载，并把同步水位线设为加载开始时的数据库时间
+         */
+        private static void loadAllFromDatabase() throws SQLException {
+                synchronized (SYNC_LOCK) {
+                        loadAllFromDatabase(warmUp(), () -> {
+                        });
+                }
+        }
+
+        /**
+         * 取全量加载的水位线，顺带预热连接（首次连接时创建连接池并执行结构迁移），必须持有同步锁
+         */
+        private static LocalDateTime warmUp() throws SQLException {
+                long start = StartupTimer.begin();
+                LocalDateTime watermark = Storage.get().currentTimestamp();
+                StartupTimer.end("连接预热", start);
+                return watermark;
+        }
+
+        /**
+         * 全量加载：并行查询三张表
+         *
+         * @param watermark   预热时取得的水位线
+         * @param beforeApply 查询完成后、更新内存列表之前执行（启动时用于先填充地名表，车辆入列时即可解析坐标）
+         */
+        private static void loadAllFromDatabase(LocalDateTime watermark, Runnable beforeApply) throws SQLException {
+                synchronized (SYNC_LOCK) {
+                        CompletableFuture<List<Vehicle>> vehicles = timedLoad("车辆", () -> vehicleStore().findAll());
+                        CompletableFuture<List<Task>> tasks = timedLoad("任务", () -> taskStore().findAll());
+                        CompletableFuture<List<User>> users = timedLoad("用户", () -> userStore().findAll());
+                        try {
+                                CompletableFuture.allOf(vehicles, tasks, users).join();
+                        } catch (CompletionException e) {
+                                if (e.getCause() instanceof SQLException) {
+                                        throw (SQLException) e.getCause();
+                                }
+                                throw e;
+                        }
+
+                        beforeApply.run();
+                        applyLoaded(VEHICLES, vehicles.join(), "已加载 %d 辆车辆数据");
+                        applyLoaded(TASKS, tasks.join(), "已加载 %d 个任务数据");
+                        applyLoaded(USERS, users.join(), "已加载 %d 个用户数据");
+                        syncWatermark = watermark;
+                        fullLoadWatermark = watermark;
+                }
+        }
+
+        private static <T> void applyLoaded(ObservableList<T> list, List<T> rows, String message) {
+                FxUtils.runOnFxThread(() -> list.setAll(rows));
+                System.out.println(String.format(message, rows.size()));
         }
 
         // ==================== 车辆相关操作 ====================
@@ -105,9 +312,9 @@ public class DataStore {
                         throw new SecurityException("您没有权限添加车辆");
                 }
                 // 保存到数据库
-                vehicleDAO.save(vehicle);
+                vehicleStore().save(vehicle);
                 // 添加到内存列表
-                VEHICLES.add(vehicle);
+                FxUtils.runOnFxThread(() -> VEHICLES.add(vehicle));
                 System.out.println("车辆已添加: " + vehicle.getId());
         }
 
@@ -116,15 +323,10 @@ public class DataStore {
          */
         public static void updateVehicle(Vehicle vehicle) throws SQLException {
                 // 更新数据库
-                vehicleDAO.update(vehicle);
+                vehicleStore().update(vehicle);
 
                 // 更新内存列表中的对应车辆
-                for (int i = 0; i < VEHICLES.size(); i++) {
-                        if (VEHICLES.get(i).getId().equals(vehicle.getId())) {
-                                VEHICLES.set(i, vehicle);
-                                break;
-                        }
-                }
+                FxUtils.runOnFxThread(() -> replaceIndexed(VEHICLES, VEHICLE_INDEX, vehicle.getId(), vehicle));
                 System.out.println("车辆已更新: " + vehicle.getId());
         }
 
@@ -143,10 +345,10 @@ public class DataStore {
                         throw new SecurityException("您没有权限删除此车辆");
                 }
                 // 从数据库删除
-                vehicleDAO.delete(vehicleId);
+                vehicleStore().delete(vehicleId);
 
                 // 从内存列表删除
-                VEHICLES.removeIf(v -> v.getId().equals(vehicleId));
+                FxUtils.runOnFxThread(() -> removeIndexed(VEHICLES, VEHICLE_INDEX, vehicleId));
                 System.out.println("车辆已删除: " + vehicleId);
         }
 
@@ -159,8 +361,9 @@ public class DataStore {
                         throw new IllegalArgumentException("车辆不存在: " + vehicleId);
                 }
 
-                vehicle.setStatus(newStatus);
-                updateVehicle(vehicle);
+                Vehicle updated = copyOf(vehicle);
+                updated.setStatus(newStatus);
+                updateVehicle(updated);
                 System.out.println("车辆状态已更新: " + vehicleId + " -> " + newStatus);
         }
 
@@ -173,23 +376,53 @@ public class DataStore {
                         throw new IllegalArgumentException("车辆不存在: " + vehicleId);
                 }
 
-                vehicle.setLocation(newLocation);
-                updateVehicle(vehicle);
+                Vehicle updated = copyOf(vehicle);
+                updated.setLocation(newLocation);
+                updateVehicle(updated);
                 System.out.println("车辆位置已更新: " + vehicleId + " -> " + newLocation);
         }
 
         /**
-         * 根据ID查找车辆
+         * 根据ID查找车辆（优先内存索引，未命中再查数据库）
          */
         public static Vehicle findVehicleById(String id) throws SQLException {
-                return vehicleDAO.findById(id);
+                Vehicle vehicle = VEHICLE_INDEX.get(id);
+                return vehicle != null ? vehicle : vehicleStore().findById(id);
         }
 
         /**
          * 获取空闲车辆列表
          */
         public static List<Vehicle> getAvailableVehicles() throws SQLException {
-                return vehicleDAO.findByStatus("空闲");
+                return getVehiclesByStatus("空闲");
+        }
+
+        /**
+         * 空闲车辆的只读实时视图（按ID顺序，不复制），供调度时逐个尝试预留，找到即可停止遍历
+         */
+        public static Collection<Vehicle> getAvailableVehiclesView() {
+                return VEHICLES_BY_STATUS.view("空闲");
+        }
+
+        /**
+         * 按状态获取车辆（内存索引，索引中已按ID排序）
+         */
+        public static List<Vehicle> getVehiclesByStatus(String status) {
+                return VEHICLES_BY_STATUS.get(status);
+        }
+
+        /**
+         * 按创建者获取车辆（内存索引）
+         */
+        public static List<Vehicle> getVehiclesByCreatedBy(int userId) {
+                return VEHICLES_BY_CREATOR.get(userId);
+        }
+
+        /**
+         * 某状态的车辆数量（内存索引）
+         */
+        public static int countVehiclesByStatus(String status) {
+                return VEHICLES_BY_STATUS.count(status);
         }
 
         // ==================== 任务相关操作 ====================
@@ -199,9 +432,9 @@ public class DataStore {
          */
         public static void addTask(Task task) throws SQLException {
                 // 保存到数据库
-                taskDAO.save(task);
+                taskStore().save(task);
                 // 添加到内存列表
-                TASKS.add(task);
+                FxUtils.runOnFxThread(() -> TASKS.add(task));
                 System.out.println("任务已添加: " + task.getName());
         }
 
@@ -210,15 +443,10 @@ public class DataStore {
          */
         public static void updateTask(Task task) throws SQLException {
                 // 更新数据库
-                taskDAO.update(task);
+                taskStore().update(task);
 
                 // 更新内存列表中的对应任务
-                for (int i = 0; i < TASKS.size(); i++) {
-                        if (TASKS.get(i).getName().equals(task.getName())) {
-                                TASKS.set(i, task);
-                                break;
-                        }
-                }
+                FxUtils.runOnFxThread(() -> replaceIndexed(TASKS, TASK_INDEX, task.getName(), task));
                 System.out.println("任务已更新: " + task.getName());
         }
 
@@ -238,10 +466,10 @@ public class DataStore {
                 }
 
                 // 从数据库删除
-                taskDAO.delete(taskName);
+                taskStore().delete(taskName);
 
                 // 从内存列表删除
-                TASKS.removeIf(t -> t.getName().equals(taskName));
+                FxUtils.runOnFxThread(() -> removeIndexed(TASKS, TASK_INDEX, taskName));
                 System.out.println("任务已删除: " + taskName);
         }
 
@@ -254,83 +482,160 @@ public class DataStore {
                         throw new SecurityException("您没有权限分配车辆");
                 }
                 // 更新数据库
-                taskDAO.assignVehicle(taskName, vehicleId);
+                taskStore().assignVehicle(taskName, vehicleId);
 
                 // 更新内存列表中的对应任务
-                for (Task task : TASKS) {
-                        if (task.getName().equals(taskName)) {
-                                task.assignVehicle(vehicleId);
-                                break;
+                FxUtils.runOnFxThread(() -> {
+                        Task task = TASK_INDEX.get(taskName);
+                        if (task != null) {
+                                replaceIndexed(TASKS, TASK_INDEX, taskName, assignedCopy(task, vehicleId));
                         }
-                }
+                });
 
                 // 更新车辆状态为"出车"
                 Vehicle vehicle = findVehicleById(vehicleId);
                 if (vehicle != null) {
-                        vehicle.setStatus("出车");
-                        updateVehicle(vehicle);
+                        Vehicle updated = copyOf(vehicle);
+                        updated.setStatus("出车");
+                        updateVehicle(updated);
                 }
 
                 System.out.println("已分配车辆 " + vehicleId + " 给任务 " + taskName);
         }
 
+        /**
+         * 批量分配车辆：所有任务和车辆状态在一个事务中提交
+         * 任一任务已不是待分配或任一车辆已不空闲（被并发修改）时整批回滚
+         *
+         * @param assignments 任务名 → 车辆ID
+         */
+        public static void assignVehiclesToTasks(Map<String, String> assignments) throws SQLException {
+                if (!SessionManager.canAssignVehicles()) {
+                        throw new SecurityException("您没有权限分配车辆");
+                }
+                if (assignments.isEmpty()) {
+                        return;
+                }
+
+                Storage.get().assignVehicles(assignments);
+
+                // 更新内存中的任务和车辆
+                FxUtils.runOnFxThread(() -> assignments.forEach((taskName, vehicleId) -> {
+                        Task task = TASK_INDEX.get(taskName);
+                        if (task != null) {
+                                replaceIndexed(TASKS, TASK_INDEX, taskName, assignedCopy(task, vehicleId));
+                        }
+                        Vehicle vehicle = VEHICLE_INDEX.get(vehicleId);
+                        if (vehicle != null) {
+                                Vehicle updated = copyOf(vehicle);
+                                updated.setStatus("出车");
+                                replaceIndexed(VEHICLES, VEHICLE_INDEX, vehicleId, updated);
+                        }
+                }));
+
+                // 记录操作日志（整批一条）
+                OperationLogSink.log("ASSIGN", "TASK", null, "批量分配车辆: " + assignments.size() + " 个任务");
+                System.out.println("已批量分配 " + assignments.size() + " 个任务");
+        }
+
         /**
          * 完成任务
          */
         public static void completeTask(String taskName) throws SQLException {
                 // 更新数据库
-                taskDAO.completeTask(taskName);
+                taskStore().completeTask(taskName);
 
                 // 更新车辆状态为空闲
-                Task task = taskDAO.findByName(taskName);
+                Task task = taskStore().findByName(taskName);
                 if (task != null && task.getVehicleId() != null) {
                         Vehicle vehicle = findVehicleById(task.getVehicleId());
                         if (vehicle != null) {
-                                vehicle.setStatus("空闲");
-                                updateVehicle(vehicle);
+                                Vehicle updated = copyOf(vehicle);
+                                updated.setStatus("空闲");
+                                updateVehicle(updated);
                         }
                 }
 
-                // 刷新内存数据
-                refreshData();
+                // 同步内存数据
+                syncChanges();
                 System.out.println("任务已完成: " + taskName);
         }
 
         /**
-         * 根据名称查找任务
+         * 根据名称查找任务（优先内存索引，未命中再查数据库）
          */
         public static Task findTaskByName(String name) throws SQLException {
-                return taskDAO.findByName(name);
+                Task task = TASK_INDEX.get(name);
+                return task != null ? task : taskStore().findByName(name);
         }
 
         /**
-         * 获取待分配任务列表
+         * 按状态获取任务（内存索引）
+         */
+        public static List<Task> getTasksByStatus(String status) {
+                return TASKS_BY_STATUS.get(status);
+        }
+
+        /**
+         * 获取分配给某车辆的任务（内存索引）
+         */
+        public static List<Task> getTasksByVehicleId(String vehicleId) {
+                return TASKS_BY_VEHICLE.get(vehicleId);
+        }
+
+        /**
+         * 按创建者获取任务（内存索引）
+         */
+        public static List<Task> getTasksByCreatedBy(int userId) {
+                return TASKS_BY_CREATOR.get(userId);
+        }
+
+        /**
+         * 获取待分配任务列表（按ETA从早到晚，最紧急的在前；索引中已排好序）
          */
         public static List<Task> getPendingTasks() throws SQLException {
-                return taskDAO.findByStatus("待分配");
+                return TASKS_BY_STATUS.get("待分配");
         }
 
         // ==================== 统计信息 ====================
 
+        // ==================== 地名坐标 ====================
+
+        /**
+         * 解析地名坐标（内存缓存，未登记返回null）
+         */
+        public static GeoPoint resolvePlace(String place) {
+                return GAZETTEER.resolve(place);
+        }
+
+        /**
+         * 登记地名坐标，并重新定位位置未知的空闲车辆
+         */
+        public static void registerPlace(String place, GeoPoint point) throws SQLException {
+                GAZETTEER.register(place, point);
+                FxUtils.runOnFxThread(VEHICLE_LOCATOR::relocateUnresolved);
+                System.out.println("地名坐标已登记: " + place + " " + point);
+        }
+
         /**
          * 获取车辆统计信息
          */
         public static java.util.Map<String, Integer> getVehicleStatistics() throws SQLException {
-                return vehicleDAO.getStatusCount();
+                return vehicleStore().getStatusCount();
         }
 
         /**
          * 获取任务统计信息
          */
         public static java.util.Map<String, Integer> getTaskStatistics() throws SQLException {
-                return taskDAO.getStatusCount();
+                return taskStore().getStatusCount();
         }
 
         /**
-         * 获取超期任务
+         * 获取超期任务（由超期监控实时维护，不查询数据库）
          */
         public static List<Task> getOverdueTasks() throws SQLException {
-                return taskDAO.findOverdueTasks();
+                return OVERDUE_MONITOR.getOverdueTasks();
         }
 
         // ==================== 用户相关操作 ====================
@@ -340,9 +645,9 @@ public class DataStore {
          */
         public static void addUser(User user) throws SQLException {
                 // 保存到数据库
-                userDAO.save(user);
+                userStore().save(user);
                 // 添加到内存列表
-                USERS.add(user);
+                FxUtils.runOnFxThread(() -> USERS.add(user));
                 System.out.println("用户已添加: " + user.getUsername());
         }
 
@@ -351,15 +656,10 @@ public class DataStore {
          */
         public static void updateUser(User user) throws SQLException {
                 // 更新数据库
-                userDAO.update(user);
+                userStore().update(user);
 
                 // 更新内存列表中的对应用户
-                for (int i = 0; i < USERS.size(); i++) {
-                        if (USERS.get(i).getId() == user.getId()) {
-                                USERS.set(i, user);
-                                break;
-                        }
-                }
+                FxUtils.runOnFxThread(() -> replaceIndexed(USERS, USER_INDEX, user.getId(), user));
                 System.out.println("用户已更新: " + user.getUsername());
         }
 
@@ -368,10 +668,11 @@ public class DataStore {
          */
         public static void deleteUser(String username) throws SQLException {
                 // 从数据库删除
-                userDAO.delete(username);
+                userStore().delete(username);
+                SessionManager.getRegistry().invalidateUser(username);
 
                 // 从内存列表删除
-                USERS.removeIf(user -> user.getUsername().equals(username));
+                FxUtils.runOnFxThread(() -> USERS.removeIf(user -> user.getUsername().equals(username)));
                 System.out.println("用户已删除: " + username);
         }
 
@@ -379,47 +680,89 @@ public class DataStore {
          * 根据用户名查找用户
          */
         public static User findUserByUsername(String username) throws SQLException {
-                return userDAO.findByUsername(username);
+                return userStore().findByUsername(username);
         }
 
         /**
          * 根据ID查找用户
          */
         public static User findUserById(int id) throws SQLException {
-                return userDAO.findById(id);
+                User user = USER_INDEX.get(id);
+                return user != null ? user : userStore().findById(id);
         }
 
         /**
          * 检查用户名是否存在
          */
         public static boolean usernameExists(String username) throws SQLException {
-                return userDAO.existsByUsername(username);
+                return userStore().existsByUsername(username);
         }
 
         /**
          * 根据角色查找用户
          */
         public static List<User> findUsersByRole(String role) throws SQLException {
-                return userDAO.findByRole(role);
+                return userStore().findByRole(role);
         }
 
         /**
          * 获取用户总数
          */
         public static int getUserCount() throws SQLException {
-                return userDAO.count();
+                return userStore().count();
         }
 
         // ==================== 工具方法 ====================
 
+        /**
+         * 用新对象替换列表中同键的对象（同一对象被原地修改时只重建索引），必须在JavaFX线程调用
+         * 位置取自索引记录的位置，不线性查找列表
+         */
+        private static <K, T> void replaceIndexed(ObservableList<T> list, ObservableListIndex<K, T> index, K key,
+                        T item) {
+                T existing = index.get(key);
+                if (existing == item) {
+                        index.reindex(item);
+                } else if (existing != null) {
+                        list.set(index.indexOf(key), item);
+                }
+        }
+
+        /**
+         * 删除列表中指定键的对象，必须在JavaFX线程调用
+         */
+        private static <K, T> void removeIndexed(ObservableList<T> list, ObservableListIndex<K, T> index, K key) {
+                int position = index.indexOf(key);
+                if (position >= 0) {
+                        list.remove(position);
+                }
+        }
+
+        /**
+         * 复制车辆：修改内存中的对象前先复制，写入存储后再替换，
+         * 其它线程通过索引读到的对象不会在写入途中被修改
+         */
+        private static Vehicle copyOf(Vehicle vehicle) {
+                return new Vehicle(vehicle.getId(), vehicle.getDriver(), vehicle.getStatus(), vehicle.getLocation(),
+                                vehicle.getCreatedBy());
+        }
+
+        /**
+         * 复制任务并标记为已分配给指定车辆（进行中）
+         */
+        private static Task assignedCopy(Task task, String vehicleId) {
+                Task copy = new Task(task.getName(), task.getDestination(), task.getEta(), task.getCreatedBy());
+                copy.assignVehicle(vehicleId);
+                copy.setStatus("进行中");
+                return copy;
+        }
+
         /**
          * 刷新内存数据（从数据库重新加载）
          */
         public static void refreshData() {
                 try {
-                        loadVehiclesFromDatabase();
-                        loadTasksFromDatabase();
-                        loadUsersFromDatabase();
+                        loadAllFromDatabase();
                         System.out.println("数据已刷新");
                 } catch (SQLException e) {
                         System.err.println("数据刷新失败: " + e.getMessage());
@@ -427,18 +770,173 @@ public class DataStore {
                 }
         }
 
+        /**
+         * 从备份恢复数据并重新全量加载
+         * 恢复期间暂停自动调度和操作日志写入（超期提醒等日志留在队列中，恢复后写入），
+         * 避免清空表后插入的行占用恢复数据的自增ID；同步锁保证恢复期间不会增量同步到一半的数据。
+         */
+        public static BackupManager.Result restoreBackup(Path directory) throws SQLException, IOException {
+                boolean dispatcherPaused = AUTO_DISPATCHER.isPaused();
+                AUTO_DISPATCHER.pauseAndWait();
+                OperationLogSink.pause();
+                try {
+                        synchronized (SYNC_LOCK) {
+                                BackupManager.Result result;
+                                try {
+                                        result = BackupManager.restore(directory);
+                                } catch (SQLException | IOException | RuntimeException e) {
+                                        refreshData(); // 恢复可能已完成一部分，按数据库的实际内容重新加载
+                                        throw e;
+                                }
+                                loadAllFromDatabase();
+                                return result;
+                        }
+                } finally {
+                        OperationLogSink.resume();
+                        if (!dispatcherPaused) {
+                                AUTO_DISPATCHER.resume();
+                        }
+                }
+        }
+
+        /**
+         * 增量同步：只拉取上次同步后修改过的行和删除记录，并把差异应用到内存列表
+         * 开销与变化量成正比，与表大小无关。水位线过旧（删除记录可能已被清理）时退化为全量加载。
+         */
+        public static void syncChanges() throws SQLException {
+                synchronized (SYNC_LOCK) {
+                        LocalDateTime now = Storage.get().currentTimestamp();
+                        if (syncWatermark == null || syncWatermark.isBefore(now.minusDays(TOMBSTONE_RETENTION_DAYS))
+                                        || fullLoadWatermark.isBefore(now.minusMinutes(FULL_RESYNC_INTERVAL_MINUTES))) {
+                                loadAllFromDatabase();
+                                return;
+                        }
+
+                        long start = System.nanoTime();
+                        LocalDateTime since = syncWatermark.minusSeconds(SYNC_OVERLAP_SECONDS);
+                        List<Vehicle> vehicles = vehicleStore().findUpdatedSince(since);
+                        List<Task> tasks = taskStore().findUpdatedSince(since);
+                        List<User> users = userStore().findUpdatedSince(since);
+
+                        Set<String> deletedVehicles = new HashSet<>();
+                        Set<String> deletedTasks = new HashSet<>();
+                        Set<Integer> deletedUsers = new HashSet<>();
+                        for (SyncDAO.Tombstone tombstone : Storage.get().findTombstonesSince(since)) {
+                                if (SyncDAO.RESYNC.equals(tombstone.getEntityType())
+                                                && !tombstone.getDeletedAt().isBefore(fullLoadWatermark)) {
+                                        // 其他实例从备份恢复了数据，恢复的行不带新的修改时间，只能全量加载
+                                        System.out.println("数据已从备份 " + tombstone.getEntityKey() + " 恢复，重新全量加载");
+                                        loadAllFromDatabase();
+                                        return;
+                                }
+                                switch (tombstone.getEntityType()) {
+                                        case "VEHICLE" -> deletedVehicles.add(tombstone.getEntityKey());
+                                        case "TASK" -> deletedTasks.add(tombstone.getEntityKey());
+                                        case "USER" -> deletedUsers.add(Integer.valueOf(tombstone.getEntityKey()));
+                                        default -> {
+                                        }
+                                }
+                        }
+                        syncWatermark = now;
+
+                        int fetched = vehicles.size() + tasks.size() + users.size();
+                        FxUtils.runOnFxThread(() -> {
+                                int[] counts = new int[3];
+                                applyDelta(VEHICLES, VEHICLE_INDEX, Vehicle::getId, vehicles, deletedVehicles,
+                                                DataStore::sameVehicle, counts);
+                                applyDelta(TASKS, TASK_INDEX, Task::getName, tasks, deletedTasks,
+                                                DataStore::sameTask, counts);
+                                applyDelta(USERS, USER_INDEX, User::getId, users, deletedUsers,
+                                                DataStore::sameUser, counts);
+                                System.out.println(String.format(
+                                                "增量同步完成: 拉取 %d 行, 新增 %d, 更新 %d, 删除 %d, 耗时 %d ms",
+                                                fetched, counts[0], counts[1], counts[2],
+                                                (System.nanoTime() - start) / 1_000_000));
+                        });
+
+                        if (lastTombstonePurge == null
+                                        || lastTombstonePurge.isBefore(now.minusHours(TOMBSTONE_PURGE_INTERVAL_HOURS))) {
+                                lastTombstonePurge = now;
+                                Storage.get().purgeTombstonesBefore(now.minusDays(TOMBSTONE_RETENTION_DAYS));
+                        }
+                }
+        }
+
+        /**
+         * 把一个实体的变化应用到列表：删除、替换内容变化的对象、批量追加新对象，必须在JavaFX线程调用
+         * 替换的位置取自索引，整个变化的代价是一次遍历列表加上变化数，而不是变化数乘以列表长度
+         *
+         * @param counts 累加 [新增, 更新, 删除]
+         */
+        private static <K, T> void applyDelta(ObservableList<T> list, ObservableListIndex<K, T> index,
+                        Function<T, K> keyFunction, List<T> changed, Set<K> deletedKeys,
+                        BiPredicate<T, T> sameContent, int[] counts) {
+                Set<K> changedKeys = new HashSet<>();
+                List<T> added = new ArrayList<>();
+                for (T item : changed) {
+                        K key = keyFunction.apply(item);
+                        changedKeys.add(key);
+                        T existing = index.get(key);
+                        if (existing == null) {
+                                added.add(item);
+                        } else if (!sameContent.test(existing, item)) {
+                                list.set(index.indexOf(key), item);
+                                counts[1]++;
+                        }
+                }
+
+                // 行仍存在（删除后又以相同主键新建）时忽略删除记录
+                Set<T> removed = new HashSet<>();
+                for (K key : deletedKeys) {
+                        T existing = index.get(key);
+                        if (existing != null && !changedKeys.contains(key)) {
+                                removed.add(existing);
+                        }
+                }
+                if (!removed.isEmpty()) {
+                        // 按对象集合一次遍历列表删除，不逐个查找位置
+                        list.removeAll(removed);
+                        counts[2] += removed.size();
+                }
+                if (!added.isEmpty()) {
+                        list.addAll(added);
+                        counts[0] += added.size();
+                }
+        }
+
+        private static boolean sameVehicle(Vehicle a, Vehicle b) {
+                return Objects.equals(a.getDriver(), b.getDriver())
+                                && Objects.equals(a.getStatus(), b.getStatus())
+                                && Objects.equals(a.getLocation(), b.getLocation())
+                                && a.getCreatedBy() == b.getCreatedBy();
+        }
+
+        private static boolean sameTask(Task a, Task b) {
+                return Objects.equals(a.getDestination(), b.getDestination())
+                                && Objects.equals(a.getEta(), b.getEta())
+                                && Objects.equals(a.getVehicleId(), b.getVehicleId())
+                                && Objects.equals(a.getStatus(), b.getStatus())
+                                && a.getCreatedBy() == b.getCreatedBy();
+        }
+
+        private static boolean sameUser(User a, User b) {
+                return Objects.equals(a.getUsername(), b.getUsername())
+                                && Objects.equals(a.getPasswordHash(), b.getPasswordHash())
+                                && Objects.equals(a.getRole(), b.getRole());
+        }
+
         /**
          * 获取车辆总数
          */
         public static int getVehicleCount() throws SQLException {
-                return vehicleDAO.count();
+                return vehicleStore().count();
         }
 
         /**
          * 获取任务总数
          */
         public static int getTaskCount() throws SQLException {
-                return taskDAO.count();
+                return taskStore().count();
         }
 
         // ==================== 操作日志相关操作 ==================== //
@@ -447,8 +945,8 @@ public class DataStore {
          * 添加操作日志
          */
         public static void addOperationLog(com.example.dispatch.model.OperationLog log) throws SQLException {
-                operationLogDAO.save(log);
-                System.out.println("操作日志已记录: " + log.getOperationType() + " - " + log.getEntityType());
+                // 异步批量写入，调用方不等待数据库
+                OperationLogSink.submit(log);
         }
 
         /**
@@ -456,7 +954,25 @@ public class DataStore {
          */
         public static java.util.List<com.example.dispatch.model.OperationLog> getAllOperationLogs()
                         throws SQLException {
-                return operationLogDAO.findAll();
+                return operationLogStore().findAll();
+        }
+
+        /**
+         * 按组合条件分页获取操作日志（筛选与分页均在数据库中完成）
+         */
+        public static OperationLogPage getOperationLogPage(OperationLogQuery query, OperationLogPage.Cursor after,
+                        int pageSize) throws SQLException {
+                return operationLogStore().findPage(query, after, pageSize);
+        }
+
+        /**
+         * 按组合条件逐条遍历操作日志（游标读取，不把结果读入内存，用于导出和统计）
+         *
+         * @return 日志条数
+         */
+        public static int forEachOperationLog(OperationLogQuery query,
+                        java.util.function.Consumer<? super OperationLog> action) throws SQLException {
+                return operationLogStore().forEach(query, action);
         }
 
         /**
@@ -464,7 +980,7 @@ public class DataStore {
          */
         public static java.util.List<com.example.dispatch.model.OperationLog> getOperationLogsByTimeRange(
                         java.time.LocalDateTime startTime, java.time.LocalDateTime endTime) throws SQLException {
-                return operationLogDAO.findByTimeRange(startTime, endTime);
+                return operationLogStore().findByTimeRange(startTime, endTime);
         }
 
         /**
@@ -472,7 +988,7 @@ public class DataStore {
          */
         public static java.util.List<com.example.dispatch.model.OperationLog> getOperationLogsByType(
                         String operationType) throws SQLException {
-                return operationLogDAO.findByOperationType(operationType);
+                return operationLogStore().findByOperationType(operationType);
         }
 
         /**
@@ -480,7 +996,7 @@ public class DataStore {
          */
         public static java.util.List<com.example.dispatch.model.OperationLog> getOperationLogsByEntityType(
                         String entityType) throws SQLException {
-                return operationLogDAO.findByEntityType(entityType);
+                return operationLogStore().findByEntityType(entityType);
         }
 
         /**
@@ -488,48 +1004,54 @@ public class DataStore {
          */
         public static java.util.List<com.example.dispatch.model.OperationLog> getOperationLogsByUserId(int userId)
                         throws SQLException {
-                return operationLogDAO.findByUserId(userId);
+                return operationLogStore().findByUserId(userId);
         }
 
         /**
          * 删除指定时间之前的操作日志
          */
         public static int deleteOperationLogsBefore(java.time.LocalDateTime beforeTime) throws SQLException {
-                return operationLogDAO.deleteBefore(beforeTime);
+                return operationLogStore().deleteBefore(beforeTime);
         }
 
         /**
          * 获取操作日志总数
          */
         public static int getOperationLogCount() throws SQLException {
-                return operationLogDAO.count();
+                return operationLogStore().count();
         }
 
         /**
          * 获取操作日志统计信息
          */
         public static java.util.Map<String, Integer> getOperationLogStatistics() throws SQLException {
-                return operationLogDAO.getOperationTypeStatistics();
+                return operationLogStore().getOperationTypeStatistics();
         }
 
         /**
          * 获取实体类型统计信息
          */
         public static java.util.Map<String, Integer> getEntityTypeStatistics() throws SQLException {
-                return operationLogDAO.getEntityTypeStatistics();
+                return operationLogStore().getEntityTypeStatistics();
         }
 
         /**
          * 获取最近N天的日志统计
          */
         public static java.util.Map<String, Integer> getRecentDaysLogStatistics(int days) throws SQLException {
-                return operationLogDAO.getRecentDaysStatistics(days);
+                return operationLogStore().getRecentDaysStatistics(days);
         }
 
         /**
          * 关闭数据库连接
          */
         public static void shutdown() {
-                DatabaseManager.closeConnection();
+                AUTO_DISPATCHER.shutdown();
+                OVERDUE_MONITOR.shutdown();
+                LOADER.shutdownNow();
+                AsyncDataStore.shutdown();
+                OperationLogSink.shutdown();
+                SessionManager.shutdown();
+                Storage.close();
         }
 }
@@ -0,0 +1,78 @@
+package com.example.dispatch.util;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * JavaFX线程工具类
+ */
+public class FxUtils {
+
+    // JavaFX工具包未启动（例如无界面模式）时在当前线程执行，用同一把锁串行化，代替FX线程的单线程语义
+    private static volatile boolean toolkitUnavailable = false;
+    private static final Object HEADLESS_LOCK = new Object();
+
+    /**
+     * 无界面模式：不再尝试使用JavaFX工具包
+     */
+    public static void setHeadless() {
+        toolkitUnavailable = true;
+    }
+
+    public static boolean isHeadless() {
+        return toolkitUnavailable;
+    }
+
+    /**
+     * 在JavaFX应用线程上执行操作
+     * 当前已在FX线程则立即执行，否则通过Platform.runLater排队执行
+     */
+    public static void runOnFxThread(Runnable action) {
+        if (toolkitUnavailable) {
+            synchronized (HEADLESS_LOCK) {
+                action.run();
+            }
+            return;
+        }
+        if (Platform.isFxApplicationThread()) {
+            action.run();
+            return;
+        }
+        try {
+            Platform.runLater(action);
+        } catch (IllegalStateException e) {
+            toolkitUnavailable = true;
+            runOnFxThread(action);
+        }
+    }
+
+    /**
+     * 在JavaFX应用线程上计算结果并等待返回（用于后台线程读取内存列表的一致快照）
+     */
+    public static <T> T callOnFxThread(Supplier<T> action) {
+        if (toolkitUnavailable) {
+            synchronized (HEADLESS_LOCK) {
+                return action.get();
+            }
+        }
+        if (Platform.isFxApplicationThread()) {
+            return action.get();
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        runOnFxThread(() -> {
+            try {
+                result.complete(action.get());
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+}
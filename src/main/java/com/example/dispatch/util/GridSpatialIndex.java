@@ -0,0 +1,211 @@
+package com.example.dispatch.util;
+
+import com.example.dispatch.model.GeoPoint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * 均匀网格空间索引
+ * 按经纬度把点放入固定大小的格子，k近邻查询从查询点所在格子开始按环向外扩展，
+ * 当下一环的最近可能距离已超过当前第k近的距离时停止，只访问查询点附近的少量格子。
+ * 所有方法线程安全。
+ */
+public class GridSpatialIndex<K> {
+
+    private static final double KM_PER_DEGREE_LAT = 110.574;
+    private static final double KM_PER_DEGREE_LON_EQUATOR = 111.320;
+
+    /**
+     * 查询结果
+     */
+    public static final class Neighbor<K> {
+        private final K key;
+        private final GeoPoint point;
+        private final double distanceKm;
+
+        private Neighbor(K key, GeoPoint point, double distanceKm) {
+            this.key = key;
+            this.point = point;
+            this.distanceKm = distanceKm;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public GeoPoint getPoint() {
+            return point;
+        }
+
+        public double getDistanceKm() {
+            return distanceKm;
+        }
+    }
+
+    private final double cellDegrees;
+    private final Map<Long, Set<K>> cells = new HashMap<>();
+    private final Map<K, GeoPoint> points = new HashMap<>();
+    // 已占用格子的行列范围，用于确定扩展的最大环数
+    private int minRow = Integer.MAX_VALUE;
+    private int maxRow = Integer.MIN_VALUE;
+    private int minCol = Integer.MAX_VALUE;
+    private int maxCol = Integer.MIN_VALUE;
+
+    /**
+     * @param cellDegrees 格子边长（度），城市范围内0.01度约1公里
+     */
+    public GridSpatialIndex(double cellDegrees) {
+        if (cellDegrees <= 0) {
+            throw new IllegalArgumentException("格子大小必须大于0: " + cellDegrees);
+        }
+        this.cellDegrees = cellDegrees;
+    }
+
+    /**
+     * 加入或移动一个点
+     */
+    public synchronized void put(K key, GeoPoint point) {
+        GeoPoint old = points.put(key, point);
+        if (old != null) {
+            if (cellKey(row(old), col(old)) == cellKey(row(point), col(point))) {
+                return;
+            }
+            removeFromCell(key, old);
+        }
+        int row = row(point);
+        int col = col(point);
+        cells.computeIfAbsent(cellKey(row, col), c -> new HashSet<>()).add(key);
+        minRow = Math.min(minRow, row);
+        maxRow = Math.max(maxRow, row);
+        minCol = Math.min(minCol, col);
+        maxCol = Math.max(maxCol, col);
+    }
+
+    /**
+     * 移除一个点
+     */
+    public synchronized boolean remove(K key) {
+        GeoPoint old = points.remove(key);
+        if (old == null) {
+            return false;
+        }
+        removeFromCell(key, old);
+        return true;
+    }
+
+    public synchronized GeoPoint get(K key) {
+        return points.get(key);
+    }
+
+    public synchronized int size() {
+        return points.size();
+    }
+
+    /**
+     * 查询距离最近的k个点
+     *
+     * @param filter 只返回满足条件的点，可为null
+     * @return 按距离从近到远排序
+     */
+    public synchronized List<Neighbor<K>> nearest(GeoPoint target, int k, Predicate<K> filter) {
+        if (k <= 0 || points.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // 大顶堆保存当前最近的k个
+        PriorityQueue<Neighbor<K>> best = new PriorityQueue<>(
+                Comparator.comparingDouble((Neighbor<K> n) -> n.distanceKm).reversed());
+        int centerRow = row(target);
+        int centerCol = col(target);
+        int maxRing = Math.max(Math.max(Math.abs(centerRow - minRow), Math.abs(maxRow - centerRow)),
+                Math.max(Math.abs(centerCol - minCol), Math.abs(maxCol - centerCol)));
+        for (int ring = 0; ring <= maxRing; ring++) {
+            if (best.size() == k && minDistanceKm(target, ring) > best.peek().distanceKm) {
+                break;
+            }
+            if ((2L * ring + 1) * (2L * ring + 1) > 4L * cells.size() + 64) {
+                // 点分布稀疏，继续扩环要访问的空格子比已占用格子还多，改为直接扫描全部点
+                best.clear();
+                points.forEach((key, point) -> offer(best, k, target, key, point, filter));
+                break;
+            }
+            for (int r = centerRow - ring; r <= centerRow + ring; r++) {
+                boolean edgeRow = r == centerRow - ring || r == centerRow + ring;
+                int step = edgeRow ? 1 : 2 * ring;
+                for (int c = centerCol - ring; c <= centerCol + ring; c += Math.max(step, 1)) {
+                    Set<K> cell = cells.get(cellKey(r, c));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (K key : cell) {
+                        offer(best, k, target, key, points.get(key), filter);
+                    }
+                }
+            }
+        }
+
+        List<Neighbor<K>> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(n -> n.distanceKm));
+        return result;
+    }
+
+    private static <K> void offer(PriorityQueue<Neighbor<K>> best, int k, GeoPoint target, K key, GeoPoint point,
+            Predicate<K> filter) {
+        if (filter != null && !filter.test(key)) {
+            return;
+        }
+        double distance = target.distanceKm(point);
+        if (best.size() < k) {
+            best.add(new Neighbor<>(key, point, distance));
+        } else if (distance < best.peek().distanceKm) {
+            best.poll();
+            best.add(new Neighbor<>(key, point, distance));
+        }
+    }
+
+    /**
+     * 第ring环内的点到查询点的最短可能距离：至少隔着ring-1个完整格子，
+     * 经度方向按该环可能到达的最高纬度计算（纬度越高每度经度越短）
+     */
+    private double minDistanceKm(GeoPoint target, int ring) {
+        if (ring <= 1) {
+            return 0;
+        }
+        double latitude = Math.min(89, Math.abs(target.getLatitude()) + ring * cellDegrees);
+        double cellKm = cellDegrees * Math.min(KM_PER_DEGREE_LAT,
+                KM_PER_DEGREE_LON_EQUATOR * Math.cos(Math.toRadians(latitude)));
+        return (ring - 1) * cellKm;
+    }
+
+    private void removeFromCell(K key, GeoPoint point) {
+        long cellKey = cellKey(row(point), col(point));
+        Set<K> cell = cells.get(cellKey);
+        if (cell != null) {
+            cell.remove(key);
+            if (cell.isEmpty()) {
+                cells.remove(cellKey);
+            }
+        }
+    }
+
+    private int row(GeoPoint point) {
+        return (int) Math.floor(point.getLatitude() / cellDegrees);
+    }
+
+    private int col(GeoPoint point) {
+        return (int) Math.floor(point.getLongitude() / cellDegrees);
+    }
+
+    private static long cellKey(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+}
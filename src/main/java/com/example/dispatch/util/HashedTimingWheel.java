@@ -0,0 +1,224 @@
+package com.example.dispatch.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 哈希时间轮
+ * 时间被划分为固定长度的刻度，定时项按到期刻度散列到环形桶中（到期时间超过一圈的记录剩余圈数）。
+ * 单个后台线程每个刻度只处理当前桶，调度和取消都是O(1)，适合大量长时间、多数会被取消的定时项。
+ * 到期精度为一个刻度。到期回调在时间轮线程上执行，应尽快返回。
+ */
+public class HashedTimingWheel<T> {
+
+    private final long tickNanos;
+    private final Bucket<T>[] wheel;
+    private final int mask;
+    private final Consumer<T> onExpire;
+
+    // 其它线程提交的新增/取消，由时间轮线程在每个刻度开始时处理，桶本身只在时间轮线程上访问
+    private final Queue<Timeout<T>> pendingAdds = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout<T>> pendingCancels = new ConcurrentLinkedQueue<>();
+
+    private final Thread worker;
+    private final long startNanos;
+    private volatile boolean stopped = false;
+    private long tick = 0;
+
+    /**
+     * 定时项句柄
+     */
+    public static final class Timeout<T> {
+        private final T payload;
+        private final long deadlineNanos;
+        private long remainingRounds;
+        private Bucket<T> bucket;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private volatile int state = 0; // 0=等待, 1=已取消, 2=已到期
+
+        private Timeout(T payload, long deadlineNanos) {
+            this.payload = payload;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        public boolean isCancelled() {
+            return state == 1;
+        }
+
+        public boolean isExpired() {
+            return state == 2;
+        }
+    }
+
+    private static final class Bucket<T> {
+        private Timeout<T> head;
+        private Timeout<T> tail;
+
+        void add(Timeout<T> timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(Timeout<T> timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.prev = timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+
+    /**
+     * @param tick      刻度长度
+     * @param unit      刻度单位
+     * @param wheelSize 桶数，向上取整为2的幂
+     * @param onExpire  到期回调
+     * @param name      时间轮线程名
+     */
+    public HashedTimingWheel(long tick, TimeUnit unit, int wheelSize, Consumer<T> onExpire, String name) {
+        if (tick <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("刻度和桶数必须大于0");
+        }
+        int size = Integer.highestOneBit(Math.max(wheelSize, 2) - 1) << 1;
+        this.tickNanos = unit.toNanos(tick);
+        this.wheel = newBuckets(size);
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket<>();
+        }
+        this.mask = size - 1;
+        this.onExpire = onExpire;
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Bucket<T>[] newBuckets(int size) {
+        return (Bucket<T>[]) new Bucket<?>[size];
+    }
+
+    /**
+     * 在指定延迟后到期（延迟为0或负数时在下一个刻度到期）
+     */
+    public Timeout<T> schedule(T payload, long delay, TimeUnit unit) {
+        Timeout<T> timeout = new Timeout<>(payload, System.nanoTime() + Math.max(0, unit.toNanos(delay)));
+        pendingAdds.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * 取消定时项（O(1)）
+     *
+     * @return 定时项尚未到期且之前未被取消时返回true
+     */
+    public boolean cancel(Timeout<T> timeout) {
+        synchronized (timeout) {
+            if (timeout.state != 0) {
+                return false;
+            }
+            timeout.state = 1;
+        }
+        pendingCancels.add(timeout);
+        return true;
+    }
+
+    /**
+     * 停止时间轮，未到期的定时项不再触发
+     */
+    public void stop() {
+        stopped = true;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (!stopped) {
+            long deadline = startNanos + (tick + 1) * tickNanos;
+            long sleep = deadline - System.nanoTime();
+            if (sleep > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    if (stopped) {
+                        return;
+                    }
+                }
+                continue;
+            }
+
+            processCancels();
+            transferAdds();
+            expire(wheel[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    private void processCancels() {
+        Timeout<T> timeout;
+        while ((timeout = pendingCancels.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void transferAdds() {
+        Timeout<T> timeout;
+        while ((timeout = pendingAdds.poll()) != null) {
+            if (timeout.state != 0) {
+                continue; // 放入桶之前已取消
+            }
+            // 到期所在的刻度（不早于当前刻度）
+            long expireTick = Math.max(tick, (timeout.deadlineNanos - startNanos + tickNanos - 1) / tickNanos - 1);
+            timeout.remainingRounds = (expireTick - tick) / wheel.length;
+            wheel[(int) (expireTick & mask)].add(timeout);
+        }
+    }
+
+    private void expire(Bucket<T> bucket) {
+        Timeout<T> timeout = bucket.head;
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+            } else {
+                bucket.remove(timeout);
+                boolean fire;
+                synchronized (timeout) {
+                    fire = timeout.state == 0;
+                    if (fire) {
+                        timeout.state = 2;
+                    }
+                }
+                if (fire) {
+                    try {
+                        onExpire.accept(timeout.payload);
+                    } catch (RuntimeException e) {
+                        System.err.println("定时任务回调失败: " + e.getMessage());
+                    }
+                }
+            }
+            timeout = next;
+        }
+    }
+}
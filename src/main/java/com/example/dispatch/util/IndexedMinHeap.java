@@ -0,0 +1,167 @@
+package com.example.dispatch.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 带位置索引的二叉最小堆
+ * 记录每个元素在数组中的位置，因此删除任意元素和元素优先级变化后的调整都是O(log n)。
+ * 元素的比较结果改变后必须调用 {@link #update(Object)}。非线程安全。
+ */
+public class IndexedMinHeap<E> {
+
+    private final Comparator<? super E> comparator;
+    private final List<E> heap = new ArrayList<>();
+    private final Map<E, Integer> positions = new HashMap<>();
+
+    public IndexedMinHeap(Comparator<? super E> comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * 加入元素，已存在时按新的优先级调整位置
+     */
+    public void add(E element) {
+        if (positions.containsKey(element)) {
+            update(element);
+            return;
+        }
+        heap.add(element);
+        positions.put(element, heap.size() - 1);
+        siftUp(heap.size() - 1);
+    }
+
+    /**
+     * 元素优先级变化后重新调整位置
+     */
+    public void update(E element) {
+        Integer index = positions.get(element);
+        if (index != null) {
+            siftDown(siftUp(index));
+        }
+    }
+
+    /**
+     * 删除任意元素
+     *
+     * @return 元素是否在堆中
+     */
+    public boolean remove(E element) {
+        Integer index = positions.remove(element);
+        if (index == null) {
+            return false;
+        }
+        E last = heap.remove(heap.size() - 1);
+        if (index < heap.size()) {
+            heap.set(index, last);
+            positions.put(last, index);
+            siftDown(siftUp(index));
+        }
+        return true;
+    }
+
+    /**
+     * 最小元素，堆为空返回null
+     */
+    public E peek() {
+        return heap.isEmpty() ? null : heap.get(0);
+    }
+
+    /**
+     * 取出最小元素，堆为空返回null
+     */
+    public E poll() {
+        E top = peek();
+        if (top != null) {
+            remove(top);
+        }
+        return top;
+    }
+
+    /**
+     * 按顺序返回最小的limit个元素，不修改堆
+     * 从堆顶开始按优先级展开子节点，只访问O(limit)个节点，耗时O(limit log limit)，与堆大小无关
+     */
+    public List<E> smallest(int limit) {
+        List<E> result = new ArrayList<>(Math.max(0, Math.min(limit, heap.size())));
+        if (limit <= 0 || heap.isEmpty()) {
+            return result;
+        }
+        PriorityQueue<Integer> frontier = new PriorityQueue<>((a, b) -> comparator.compare(heap.get(a), heap.get(b)));
+        frontier.add(0);
+        while (result.size() < limit && !frontier.isEmpty()) {
+            int index = frontier.poll();
+            result.add(heap.get(index));
+            int child = 2 * index + 1;
+            if (child < heap.size()) {
+                frontier.add(child);
+            }
+            if (child + 1 < heap.size()) {
+                frontier.add(child + 1);
+            }
+        }
+        return result;
+    }
+
+    public boolean contains(E element) {
+        return positions.containsKey(element);
+    }
+
+    public int size() {
+        return heap.size();
+    }
+
+    public boolean isEmpty() {
+        return heap.isEmpty();
+    }
+
+    public void clear() {
+        heap.clear();
+        positions.clear();
+    }
+
+    private int siftUp(int index) {
+        E element = heap.get(index);
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            E p = heap.get(parent);
+            if (comparator.compare(element, p) >= 0) {
+                break;
+            }
+            heap.set(index, p);
+            positions.put(p, index);
+            index = parent;
+        }
+        heap.set(index, element);
+        positions.put(element, index);
+        return index;
+    }
+
+    private int siftDown(int index) {
+        E element = heap.get(index);
+        int size = heap.size();
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && comparator.compare(heap.get(child + 1), heap.get(child)) < 0) {
+                child++;
+            }
+            E c = heap.get(child);
+            if (comparator.compare(c, element) >= 0) {
+                break;
+            }
+            heap.set(index, c);
+            positions.put(c, index);
+            index = child;
+        }
+        heap.set(index, element);
+        positions.put(element, index);
+        return index;
+    }
+}
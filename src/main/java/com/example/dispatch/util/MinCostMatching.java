@@ -0,0 +1,121 @@
+package com.example.dispatch.util;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * 稀疏二分图的最小费用匹配（带势函数的最短增广路径，即稀疏图上的匈牙利算法）
+ * 每一行只给出允许的列和费用，不需要完整的费用矩阵；逐行用Dijkstra沿已匹配边寻找到空闲列的最短增广路径，
+ * 复杂度O(n·E·log E)，E为允许的配对数。所有行都能匹配时总费用最小。
+ */
+public class MinCostMatching {
+
+    private MinCostMatching() {
+    }
+
+    /**
+     * 求解
+     *
+     * @param columns    列数
+     * @param rowColumns 每一行允许匹配的列号
+     * @param rowCosts   与rowColumns一一对应的费用
+     * @return 长度为行数的数组，第i行匹配的列号，无法匹配时为-1
+     */
+    public static int[] solve(int columns, int[][] rowColumns, double[][] rowCosts) {
+        int n = rowColumns.length;
+        double[] u = new double[n]; // 行势
+        double[] v = new double[columns]; // 列势
+        int[] rowOf = new int[columns]; // 列 → 匹配的行
+        int[] columnOf = new int[n]; // 行 → 匹配的列
+        Arrays.fill(rowOf, -1);
+        Arrays.fill(columnOf, -1);
+
+        double[] dist = new double[columns];
+        int[] parentRow = new int[columns]; // 最短路径上到达该列的行
+        boolean[] done = new boolean[columns];
+        int[] touched = new int[columns]; // 本轮访问过的列，用于重置
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+
+        for (int root = 0; root < n; root++) {
+            int touchedCount = 0;
+            int free = -1;
+            double reached = 0;
+            queue.clear();
+
+            int row = root;
+            double rowDist = 0;
+            while (true) {
+                // 从当前行出发松弛它的所有允许列（约化费用非负）
+                int[] cols = rowColumns[row];
+                double[] costs = rowCosts[row];
+                for (int k = 0; k < cols.length; k++) {
+                    int j = cols[k];
+                    if (done[j]) {
+                        continue;
+                    }
+                    double d = rowDist + costs[k] - u[row] - v[j];
+                    if (d < dist[j]) {
+                        if (dist[j] == Double.POSITIVE_INFINITY) {
+                            touched[touchedCount++] = j;
+                        }
+                        dist[j] = d;
+                        parentRow[j] = row;
+                        queue.add(new double[] { d, j });
+                    }
+                }
+
+                // 取距离最小的未确定列；空闲列即为增广路径终点，否则沿匹配边走到它的行继续
+                int next = -1;
+                while (!queue.isEmpty()) {
+                    double[] top = queue.poll();
+                    int j = (int) top[1];
+                    if (!done[j] && top[0] == dist[j]) {
+                        next = j;
+                        break;
+                    }
+                }
+                if (next < 0) {
+                    break; // 没有可达的空闲列，该行无法匹配
+                }
+                done[next] = true;
+                if (rowOf[next] < 0) {
+                    free = next;
+                    reached = dist[next];
+                    break;
+                }
+                row = rowOf[next];
+                rowDist = dist[next];
+            }
+
+            if (free >= 0) {
+                // 更新势：保持已匹配边的约化费用为0、其它边非负
+                u[root] += reached;
+                for (int t = 0; t < touchedCount; t++) {
+                    int j = touched[t];
+                    if (done[j] && j != free) {
+                        double shift = reached - dist[j];
+                        v[j] -= shift;
+                        u[rowOf[j]] += shift;
+                    }
+                }
+                // 沿增广路径翻转匹配
+                int j = free;
+                while (j >= 0) {
+                    int i = parentRow[j];
+                    int previous = columnOf[i];
+                    rowOf[j] = i;
+                    columnOf[i] = j;
+                    j = i == root ? -1 : previous;
+                }
+            }
+
+            for (int t = 0; t < touchedCount; t++) {
+                int j = touched[t];
+                dist[j] = Double.POSITIVE_INFINITY;
+                done[j] = false;
+            }
+        }
+        return columnOf;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.dispatch.util;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界无锁环形队列（多生产者、单消费者）
+ * 生产者通过CAS抢占序号，每个槽位带序列号标记是否可读/可写，不使用锁。
+ * poll/drainTo只能由同一个消费者线程调用。
+ */
+public class MpscRingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong(); // 生产者下一个写入位置
+    private volatile long head = 0; // 消费者下一个读取位置（仅消费者线程写）
+
+    /**
+     * @param requestedCapacity 容量，向上取整为2的幂
+     */
+    public MpscRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 2) {
+            throw new IllegalArgumentException("容量至少为2: " + requestedCapacity);
+        }
+        int cap = Integer.highestOneBit(requestedCapacity - 1) << 1;
+        this.capacity = cap;
+        this.mask = cap - 1;
+        this.elements = new AtomicReferenceArray<>(cap);
+        this.sequences = new AtomicLongArray(cap);
+        for (int i = 0; i < cap; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 入队，队列已满时立即返回false
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException("元素不能为null");
+        }
+        long pos;
+        while (true) {
+            pos = tail.get();
+            long seq = sequences.get((int) (pos & mask));
+            long diff = seq - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    break;
+                }
+            } else if (diff < 0) {
+                return false; // 已满
+            }
+            // diff > 0：其它生产者已抢占该位置，重试
+        }
+        int index = (int) (pos & mask);
+        elements.lazySet(index, element);
+        sequences.lazySet(index, pos + 1); // 发布，消费者可见
+        return true;
+    }
+
+    /**
+     * 出队（仅消费者线程），队列为空返回null
+     */
+    public E poll() {
+        long pos = head;
+        int index = (int) (pos & mask);
+        if (sequences.get(index) != pos + 1) {
+            return null;
+        }
+        E element = elements.get(index);
+        elements.lazySet(index, null);
+        sequences.lazySet(index, pos + capacity); // 释放槽位给下一轮生产者
+        head = pos + 1;
+        return element;
+    }
+
+    /**
+     * 批量出队（仅消费者线程）
+     *
+     * @return 实际取出的元素数
+     */
+    public int drainTo(List<? super E> target, int maxElements) {
+        int count = 0;
+        E element;
+        while (count < maxElements && (element = poll()) != null) {
+            target.add(element);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 当前元素数（近似值）
+     */
+    public int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
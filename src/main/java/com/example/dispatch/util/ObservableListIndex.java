@@ -0,0 +1,253 @@
+package com.example.dispatch.util;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * ObservableList的内存索引
+ * 通过ListChangeListener与列表保持同步：主键索引（键→对象）和任意数量的二级多值索引（值→对象集合）。
+ * 索引使用并发Map，可在任意线程读取；对象被原地修改后需调用 {@link #reindex(Object)}。
+ * 另外记录每个对象在列表中的位置，替换或删除单个对象时不必线性查找（见 {@link #indexOf(Object)}）。
+ */
+public class ObservableListIndex<K, T> {
+
+    private final ObservableList<T> list;
+    private final Function<T, K> keyFunction;
+    private final Map<K, T> byKey = new ConcurrentHashMap<>();
+    // 键 → 对象加入列表（或上次查找到）时的位置；前面的对象被删除后会偏移，只在修改列表的线程上访问
+    private final Map<K, Integer> positions = new HashMap<>();
+    private final List<Secondary<?>> secondaries = new ArrayList<>();
+    private final List<Observer<K, T>> observers = new CopyOnWriteArrayList<>();
+
+    /**
+     * 索引变化监听器，在修改列表的线程（JavaFX线程）上回调
+     */
+    public interface Observer<K, T> {
+        /**
+         * 对象加入索引或重新索引（新增、替换、原地修改后reindex）
+         */
+        void indexed(K key, T item);
+
+        /**
+         * 对象从索引中移除
+         */
+        void removed(K key, T item);
+    }
+
+    public ObservableListIndex(ObservableList<T> list, Function<T, K> keyFunction) {
+        this.list = list;
+        this.keyFunction = keyFunction;
+        list.addListener((ListChangeListener<T>) this::onChanged);
+        for (int i = 0; i < list.size(); i++) {
+            put(list.get(i), i);
+        }
+    }
+
+    /**
+     * 添加二级索引（值为null的对象不进入索引）
+     */
+    public <S> Secondary<S> addSecondary(Function<T, S> valueFunction) {
+        return addSecondary(valueFunction, null);
+    }
+
+    /**
+     * 添加有序二级索引：每组内按order排序，查询直接按序返回，不必每次排序
+     *
+     * @param order 组内顺序，只能依赖对象的不可变字段，且同组内不同键的对象不能相等（可用键作最后一级比较）
+     */
+    public <S> Secondary<S> addSecondary(Function<T, S> valueFunction, Comparator<T> order) {
+        Secondary<S> secondary = new Secondary<>(valueFunction, order);
+        secondaries.add(secondary);
+        byKey.values().forEach(item -> secondary.put(keyFunction.apply(item), item));
+        return secondary;
+    }
+
+    /**
+     * 添加监听器，当前已索引的对象会立即回放给它
+     */
+    public void addObserver(Observer<K, T> observer) {
+        observers.add(observer);
+        byKey.forEach(observer::indexed);
+    }
+
+    /**
+     * 按主键查找
+     */
+    public T get(K key) {
+        return key == null ? null : byKey.get(key);
+    }
+
+    public int size() {
+        return byKey.size();
+    }
+
+    /**
+     * 主键对应的对象在列表中的位置，不在列表中时返回-1，必须在修改列表的线程（JavaFX线程）调用
+     * 从记录的位置向两侧查找，代价与记录之后前面被删除的对象数成正比，而不是列表长度
+     */
+    public int indexOf(K key) {
+        T item = get(key);
+        if (item == null) {
+            return -1;
+        }
+        int size = list.size();
+        int hint = Math.min(positions.getOrDefault(key, 0), size - 1);
+        for (int distance = 0; hint - distance >= 0 || hint + distance < size; distance++) {
+            int before = hint - distance;
+            int after = hint + distance;
+            int found = before >= 0 && list.get(before) == item ? before
+                    : after < size && list.get(after) == item ? after : -1;
+            if (found >= 0) {
+                positions.put(key, found);
+                return found;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 对象被原地修改（如状态变化）后重新计算其二级索引
+     */
+    public void reindex(T item) {
+        put(item, -1);
+    }
+
+    private void onChanged(ListChangeListener.Change<? extends T> change) {
+        while (change.next()) {
+            if (change.wasPermutated()) {
+                for (int i = change.getFrom(); i < change.getTo(); i++) {
+                    int moved = change.getPermutation(i);
+                    positions.put(keyFunction.apply(change.getList().get(moved)), moved);
+                }
+                continue;
+            }
+            for (T removed : change.getRemoved()) {
+                remove(removed);
+            }
+            List<? extends T> added = change.getAddedSubList();
+            for (int i = 0; i < added.size(); i++) {
+                put(added.get(i), change.getFrom() + i);
+            }
+        }
+    }
+
+    /**
+     * @param position 对象在列表中的位置，-1表示位置未变（原地修改后重新索引）
+     */
+    private void put(T item, int position) {
+        K key = keyFunction.apply(item);
+        byKey.put(key, item);
+        if (position >= 0) {
+            positions.put(key, position);
+        }
+        for (Secondary<?> secondary : secondaries) {
+            secondary.put(key, item);
+        }
+        for (Observer<K, T> observer : observers) {
+            observer.indexed(key, item);
+        }
+    }
+
+    private void remove(T item) {
+        K key = keyFunction.apply(item);
+        // 只有当前索引中的对象就是被移除的对象时才删除（替换为同键新对象的情况由put处理）
+        if (byKey.remove(key, item)) {
+            positions.remove(key);
+            for (Secondary<?> secondary : secondaries) {
+                secondary.remove(key);
+            }
+            for (Observer<K, T> observer : observers) {
+                observer.removed(key, item);
+            }
+        }
+    }
+
+    /**
+     * 二级多值索引
+     */
+    public final class Secondary<S> {
+        private final Function<T, S> valueFunction;
+        private final Comparator<T> order; // null表示组内不排序
+        // 值 → 组；不排序的组以键为键，有序的组以对象本身为键（按order排序的跳表）
+        private final Map<S, Map<Object, T>> buckets = new ConcurrentHashMap<>();
+        // 记录每个对象建立索引时的值（有序索引还记录对象本身），对象被原地修改或替换后仍能从旧分组中移除
+        private final Map<K, S> indexedValues = new ConcurrentHashMap<>();
+        private final Map<K, T> indexedItems = new ConcurrentHashMap<>();
+
+        private Secondary(Function<T, S> valueFunction, Comparator<T> order) {
+            this.valueFunction = valueFunction;
+            this.order = order;
+        }
+
+        /**
+         * 按二级索引值查找（返回快照，有序索引按组内顺序）
+         */
+        public List<T> get(S value) {
+            Map<Object, T> bucket = value == null ? null : buckets.get(value);
+            return bucket == null ? new ArrayList<>() : new ArrayList<>(bucket.values());
+        }
+
+        /**
+         * 按二级索引值查找（只读的实时视图，不复制；有序索引按组内顺序遍历，遍历期间的修改可能可见也可能不可见）
+         */
+        public Collection<T> view(S value) {
+            Map<Object, T> bucket = value == null ? null : buckets.get(value);
+            return bucket == null ? Collections.emptyList() : Collections.unmodifiableCollection(bucket.values());
+        }
+
+        /**
+         * 某个索引值下的对象数量
+         */
+        public int count(S value) {
+            Map<Object, T> bucket = value == null ? null : buckets.get(value);
+            return bucket == null ? 0 : bucket.size();
+        }
+
+        private void put(K key, T item) {
+            remove(key);
+            S value = valueFunction.apply(item);
+            if (value != null) {
+                buckets.computeIfAbsent(value, v -> newBucket()).put(bucketKey(key, item), item);
+                indexedValues.put(key, value);
+                if (order != null) {
+                    indexedItems.put(key, item);
+                }
+            }
+        }
+
+        private void remove(K key) {
+            S old = indexedValues.remove(key);
+            T oldItem = indexedItems.remove(key);
+            if (old != null) {
+                Map<Object, T> bucket = buckets.get(old);
+                if (bucket != null) {
+                    bucket.remove(bucketKey(key, oldItem));
+                }
+            }
+        }
+
+        private Object bucketKey(K key, T item) {
+            return order == null ? key : item;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map<Object, T> newBucket() {
+            if (order == null) {
+                return new ConcurrentHashMap<>();
+            }
+            return new ConcurrentSkipListMap<>((a, b) -> order.compare((T) a, (T) b));
+        }
+    }
+}
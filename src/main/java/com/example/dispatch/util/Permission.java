@@ -0,0 +1,64 @@
+package com.example.dispatch.util;
+
+/**
+ * 系统功能权限
+ * 每个权限对应long中的一位，角色的权限集合用位掩码表示（最多64种权限）
+ */
+public enum Permission {
+    // 车辆
+    VIEW_VEHICLES,
+    CREATE_VEHICLES,
+    EDIT_VEHICLES,
+    DELETE_VEHICLES,
+    DELETE_ANY_VEHICLE, // 删除他人创建的车辆
+    UPDATE_VEHICLE_STATUS,
+
+    // 任务
+    VIEW_TASKS,
+    VIEW_ASSIGNED_TASKS,
+    CREATE_TASKS,
+    EDIT_TASKS,
+    ASSIGN_VEHICLES,
+    COMPLETE_TASKS,
+    DELETE_TASKS,
+    DELETE_ANY_TASK, // 删除他人创建的任务
+
+    // 用户管理
+    VIEW_USERS,
+    CREATE_USERS,
+    EDIT_USERS,
+    DELETE_USERS,
+
+    // 操作日志
+    VIEW_OPERATION_LOGS;
+
+    /** 全部权限的掩码 */
+    public static final long ALL = (1L << values().length) - 1;
+
+    private final long bit = 1L << ordinal();
+
+    /**
+     * 该权限在掩码中对应的位
+     */
+    public long bit() {
+        return bit;
+    }
+
+    /**
+     * 掩码是否包含该权限
+     */
+    public boolean in(long mask) {
+        return (mask & bit) != 0;
+    }
+
+    /**
+     * 多个权限合并为掩码
+     */
+    public static long maskOf(Permission... permissions) {
+        long mask = 0;
+        for (Permission permission : permissions) {
+            mask |= permission.bit;
+        }
+        return mask;
+    }
+}
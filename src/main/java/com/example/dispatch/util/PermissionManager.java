@@ -1,58 +1,114 @@
 package com.example.dispatch.util;
 
 import com.example.dispatch.model.User;
+import com.example.dispatch.storage.Storage;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.example.dispatch.util.Permission.*;
 
 /**
  * 权限管理类
- * 定义不同角色对系统功能的访问权限
+ * 定义不同角色对系统功能的访问权限。
+ * 每个角色的权限预先计算为位掩码（角色→long），权限检查只是一次按位与；
+ * 内置角色有默认权限，role_permissions表中的记录可覆盖内置角色或定义自定义角色。
  */
 public class PermissionManager {
 
+    // 内置角色的默认权限
+    private static final Map<String, Long> DEFAULT_MASKS = Map.of(
+            UserRoles.ADMIN, Permission.ALL,
+            UserRoles.DISPATCHER, maskOf(VIEW_VEHICLES, CREATE_VEHICLES, EDIT_VEHICLES, DELETE_VEHICLES,
+                    DELETE_ANY_VEHICLE, UPDATE_VEHICLE_STATUS, VIEW_TASKS, VIEW_ASSIGNED_TASKS, CREATE_TASKS,
+                    EDIT_TASKS, ASSIGN_VEHICLES, COMPLETE_TASKS, DELETE_TASKS, DELETE_ANY_TASK,
+                    VIEW_OPERATION_LOGS),
+            UserRoles.DRIVER, maskOf(VIEW_VEHICLES, UPDATE_VEHICLE_STATUS, VIEW_TASKS, VIEW_ASSIGNED_TASKS,
+                    COMPLETE_TASKS),
+            UserRoles.CUSTOMER, maskOf(VIEW_TASKS, VIEW_ASSIGNED_TASKS, CREATE_TASKS),
+            UserRoles.USER, 0L);
+
+    // 角色 → 权限掩码（整体替换，读取无需加锁）
+    private static volatile Map<String, Long> roleMasks = DEFAULT_MASKS;
+    private static volatile boolean loaded = false;
+
+    /**
+     * 首次调用时从role_permissions表加载角色权限，之后直接返回
+     */
+    public static void ensureLoaded() throws SQLException {
+        if (!loaded) {
+            reloadRolePermissions();
+        }
+    }
+
+    /**
+     * 重新加载角色权限矩阵
+     * 表中出现的角色以表中记录为准，其余内置角色使用默认权限
+     */
+    public static synchronized void reloadRolePermissions() throws SQLException {
+        Map<String, Long> masks = new HashMap<>(DEFAULT_MASKS);
+        masks.putAll(Storage.get().findRolePermissions());
+        roleMasks = Collections.unmodifiableMap(masks);
+        loaded = true;
+        System.out.println("已加载 " + masks.size() + " 个角色的权限");
+    }
+
+    /**
+     * 角色的权限掩码，未知角色没有任何权限
+     */
+    public static long getRoleMask(String role) {
+        if (role == null) {
+            return 0L;
+        }
+        Long mask = roleMasks.get(role);
+        return mask != null ? mask : 0L;
+    }
+
+    /**
+     * 用户的权限掩码（未登录为0）
+     * 需要反复检查时应取一次掩码后用 {@link Permission#in(long)} 判断
+     */
+    public static long getPermissions(User user) {
+        return user == null ? 0L : getRoleMask(user.getRole());
+    }
+
+    /**
+     * 检查用户是否拥有指定权限
+     */
+    public static boolean hasPermission(User user, Permission permission) {
+        return permission.in(getPermissions(user));
+    }
+
     // ========== 车辆相关权限 ==========
 
     /**
      * 检查用户是否有权限查看车辆
      */
     public static boolean canViewVehicles(User user) {
-        if (user == null)
-            return false;
-        String role = user.getRole();
-        return UserRoles.ADMIN.equals(role) ||
-                UserRoles.DISPATCHER.equals(role) ||
-                UserRoles.DRIVER.equals(role);
+        return VIEW_VEHICLES.in(getPermissions(user));
     }
 
     /**
      * 检查用户是否有权限创建车辆
      */
     public static boolean canCreateVehicles(User user) {
-        if (user == null)
-            return false;
-        String role = user.getRole();
-        return UserRoles.ADMIN.equals(role) ||
-                UserRoles.DISPATCHER.equals(role);
+        return CREATE_VEHICLES.in(getPermissions(user));
     }
 
     /**
      * 检查用户是否有权限编辑车辆
      */
     public static boolean canEditVehicles(User user) {
-        if (user == null)
-            return false;
-        String role = user.getRole();
-        return UserRoles.ADMIN.equals(role) ||
-                UserRoles.DISPATCHER.equals(role);
+        return EDIT_VEHICLES.in(getPermissions(user));
     }
 
     /**
      * 检查用户是否有权限删除车辆
      */
     public static boolean canDeleteVehicles(User user) {
-        if (user == null)
-            return false;
-        String role = user.getRole();
-        return UserRoles.ADMIN.equals(role) ||
-                UserRoles.DISPATCHER.equals(role);
+        return DELETE_VEHICLES.in(getPermissions(user));
     }
 
     /**
@@ -61,11 +117,7 @@ public class PermissionManager {
     public static boolean canDeleteVehicle(User user, int vehicleCreatedBy) {
         if (user == null)
             return false;
-        if (UserRoles.ADMIN.equals(user.getRole()))
-            return true;
-        if (UserRoles.DISPATCHER.equals(user.getRole()))
-            return true;
-        return user.getId() == vehicleCreatedBy;
+        return DELETE_ANY_VEHICLE.in(getPermissions(user)) || user.getId() == vehicleCreatedBy;
     }
 
     // ========== 任务相关权限 ==========
@@ -74,70 +126,42 @@ public class PermissionManager {
      * 检查用户是否有权限查看任务
      */
     public static boolean canViewTasks(User user) {
-        if (user == null)
-            return false;
-        String role = user.getRole();
-        return UserRoles.ADMIN.equals(role) ||
-                UserRoles.DISPATCHER.equals(role) ||
-                UserRoles.DRIVER.equals(role) ||
-                UserRoles.CUSTOMER.equals(role);
+        return VIEW_TASKS.in(getPermissions(user));
     }
 
     /**
      * 检查用户是否有权限创建任务
      */
     public static boolean canCreateTasks(User user) {
-        if (user == null)
-            return false;
-        String role = user.getRole();
-        return UserRoles.ADMIN.equals(role) ||
-                UserRoles.DISPATCHER.equals(role) ||
-                UserRoles.CUSTOMER.equals(role);
+        return CREATE_TASKS.in(getPermissions(user));
     }
 
     /**
      * 检查用户是否有权限编辑任务
      */
     public static boolean canEditTasks(User user) {
-        if (user == null)
-            return false;
-        String role = user.getRole();
-        return UserRoles.ADMIN.equals(role) ||
-                UserRoles.DISPATCHER.equals(role);
+        return EDIT_TASKS.in(getPermissions(user));
     }
 
     /**
      * 检查用户是否有权限分配车辆给任务
      */
     public static boolean canAssignVehicles(User user) {
-        if (user == null)
-            return false;
-        String role = user.getRole();
-        return UserRoles.ADMIN.equals(role) ||
-                UserRoles.DISPATCHER.equals(role);
+        return ASSIGN_VEHICLES.in(getPermissions(user));
     }
 
     /**
      * 检查用户是否有权限完成任务
      */
     public static boolean canCompleteTasks(User user) {
-        if (user == null)
-            return false;
-        String role = user.getRole();
-        return UserRoles.ADMIN.equals(role) ||
-                UserRoles.DISPATCHER.equals(role) ||
-                UserRoles.DRIVER.equals(role);
+        return COMPLETE_TASKS.in(getPermissions(user));
     }
 
     /**
      * 检查用户是否有权限删除任务
      */
     public static boolean canDeleteTasks(User user) {
-        if (user == null)
-            return false;
-        String role = user.getRole();
-        return UserRoles.ADMIN.equals(role) ||
-                UserRoles.DISPATCHER.equals(role);
+        return DELETE_TASKS.in(getPermissions(user));
     }
 
     /**
@@ -146,11 +170,7 @@ public class PermissionManager {
     public static boolean canDeleteTask(User user, int taskCreatedBy) {
         if (user == null)
             return false;
-        if (UserRoles.ADMIN.equals(user.getRole()))
-            return true;
-        if (UserRoles.DISPATCHER.equals(user.getRole()))
-            return true;
-        return user.getId() == taskCreatedBy;
+        return DELETE_ANY_TASK.in(getPermissions(user)) || user.getId() == taskCreatedBy;
     }
 
     // ========== 用户管理权限 ==========
@@ -159,40 +179,28 @@ public class PermissionManager {
      * 检查用户是否有权限查看用户列表
      */
     public static boolean canViewUsers(User user) {
-        if (user == null)
-            return false;
-        String role = user.getRole();
-        return UserRoles.ADMIN.equals(role);
+        return VIEW_USERS.in(getPermissions(user));
     }
 
     /**
      * 检查用户是否有权限创建用户
      */
     public static boolean canCreateUsers(User user) {
-        if (user == null)
-            return false;
-        String role = user.getRole();
-        return UserRoles.ADMIN.equals(role);
+        return CREATE_USERS.in(getPermissions(user));
     }
 
     /**
      * 检查用户是否有权限编辑用户
      */
     public static boolean canEditUsers(User user) {
-        if (user == null)
-            return false;
-        String role = user.getRole();
-        return UserRoles.ADMIN.equals(role);
+        return EDIT_USERS.in(getPermissions(user));
     }
 
     /**
      * 检查用户是否有权限删除用户
      */
     public static boolean canDeleteUsers(User user) {
-        if (user == null)
-            return false;
-        String role = user.getRole();
-        return UserRoles.ADMIN.equals(role);
+        return DELETE_USERS.in(getPermissions(user));
     }
 
     // ========== 操作日志权限 ==========
@@ -201,11 +209,7 @@ public class PermissionManager {
      * 检查用户是否有权限查看操作日志
      */
     public static boolean canViewOperationLogs(User user) {
-        if (user == null)
-            return false;
-        String role = user.getRole();
-        return UserRoles.ADMIN.equals(role) ||
-                UserRoles.DISPATCHER.equals(role);
+        return VIEW_OPERATION_LOGS.in(getPermissions(user));
     }
 
     // ========== 司机特定权限 ==========
@@ -214,25 +218,14 @@ public class PermissionManager {
      * 检查用户是否有权限更新车辆状态（司机专用）
      */
     public static boolean canUpdateVehicleStatus(User user) {
-        if (user == null)
-            return false;
-        String role = user.getRole();
-        return UserRoles.ADMIN.equals(role) ||
-                UserRoles.DISPATCHER.equals(role) ||
-                UserRoles.DRIVER.equals(role);
+        return UPDATE_VEHICLE_STATUS.in(getPermissions(user));
     }
 
     /**
      * 检查用户是否有权限查看分配给自己的任务
      */
     public static boolean canViewAssignedTasks(User user) {
-        if (user == null)
-            return false;
-        String role = user.getRole();
-        return UserRoles.ADMIN.equals(role) ||
-                UserRoles.DISPATCHER.equals(role) ||
-                UserRoles.DRIVER.equals(role) ||
-                UserRoles.CUSTOMER.equals(role);
+        return VIEW_ASSIGNED_TASKS.in(getPermissions(user));
     }
 
     // ========== 便捷方法 ==========
@@ -0,0 +1,71 @@
+package com.example.dispatch.util;
+
+import com.example.dispatch.model.User;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 登录会话
+ * 创建时按用户角色保存一份权限掩码快照，会话期间的权限检查不受角色权限重新加载的影响。
+ */
+public final class Session {
+
+    private final String token;
+    private final User user;
+    private final long permissions;
+    private final LocalDateTime createdAt;
+    private final long idleTimeoutNanos; // 0表示不过期
+    private volatile long lastAccessNanos;
+
+    Session(String token, User user, long idleTimeout, TimeUnit unit) {
+        this.token = token;
+        this.user = user;
+        this.permissions = PermissionManager.getPermissions(user);
+        this.createdAt = LocalDateTime.now();
+        this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+        this.lastAccessNanos = System.nanoTime();
+    }
+
+    /**
+     * 会话令牌（不透明的随机字符串）
+     */
+    public String getToken() {
+        return token;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    /**
+     * 创建会话时的权限掩码
+     */
+    public long getPermissions() {
+        return permissions;
+    }
+
+    public boolean hasPermission(Permission permission) {
+        return permission.in(permissions);
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * 空闲超时后视为过期（滑动过期，每次访问重新计时）
+     */
+    public boolean isExpired(long nowNanos) {
+        return idleTimeoutNanos > 0 && nowNanos - lastAccessNanos > idleTimeoutNanos;
+    }
+
+    void touch(long nowNanos) {
+        lastAccessNanos = nowNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "Session{user=" + user.getUsername() + ", role=" + user.getRole() + ", createdAt=" + createdAt + '}';
+    }
+}
@@ -2,8 +2,63 @@ package com.example.dispatch.util;
 
 import com.example.dispatch.model.User;
 
+import java.util.concurrent.TimeUnit;
+
+import static com.example.dispatch.util.Permission.*;
+
+/**
+ * 会话管理
+ * 会话保存在 {@link SessionRegistry} 中，一个进程可以同时服务多个用户。
+ * 当前会话的解析顺序：绑定到当前线程的会话（服务端按请求绑定）→ 默认会话（桌面客户端登录的用户）。
+ * 下面的静态方法都针对当前会话，权限检查使用会话创建时的权限掩码快照。
+ */
 public class SessionManager {
-    private static User currentUser = null;
+    private static final long SESSION_IDLE_TIMEOUT_MINUTES = 30;
+    private static final long SESSION_EVICT_INTERVAL_MINUTES = 1;
+
+    private static final SessionRegistry REGISTRY = new SessionRegistry(SESSION_IDLE_TIMEOUT_MINUTES,
+            SESSION_EVICT_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    private static final ThreadLocal<Session> BOUND_SESSION = new ThreadLocal<>();
+    private static volatile Session defaultSession = null;
+
+    /**
+     * 获取会话注册表
+     */
+    public static SessionRegistry getRegistry() {
+        return REGISTRY;
+    }
+
+    /**
+     * 获取当前会话：线程绑定的会话优先，否则为默认会话
+     *
+     * @return 当前会话，null表示未登录
+     */
+    public static Session getCurrentSession() {
+        Session bound = BOUND_SESSION.get();
+        return bound != null ? bound : defaultSession;
+    }
+
+    /**
+     * 按令牌把会话绑定到当前线程（处理完请求后必须调用 {@link #unbind()}）
+     *
+     * @return 绑定的会话，令牌无效或已过期返回null
+     */
+    public static Session bind(String token) {
+        Session session = REGISTRY.get(token);
+        if (session != null) {
+            BOUND_SESSION.set(session);
+        } else {
+            BOUND_SESSION.remove();
+        }
+        return session;
+    }
+
+    /**
+     * 解除当前线程绑定的会话
+     */
+    public static void unbind() {
+        BOUND_SESSION.remove();
+    }
 
     /**
      * 获取当前登录用户
@@ -11,16 +66,39 @@ public class SessionManager {
      * @return 当前用户，null表示未登录
      */
     public static User getCurrentUser() {
-        return currentUser;
+        Session session = getCurrentSession();
+        return session != null ? session.getUser() : null;
     }
 
     /**
-     * 设置当前登录用户
+     * 设置当前登录用户（桌面客户端）
+     * 为用户创建不过期的默认会话，替换之前的默认会话
      *
      * @param user 用户对象
      */
     public static void setCurrentUser(User user) {
-        currentUser = user;
+        Session previous = defaultSession;
+        defaultSession = user != null ? REGISTRY.create(user, 0, TimeUnit.MILLISECONDS) : null;
+        if (previous != null) {
+            REGISTRY.invalidate(previous.getToken());
+        }
+    }
+
+    /**
+     * 获取当前用户的权限掩码
+     *
+     * @return 权限掩码，未登录返回0
+     */
+    public static long getCurrentPermissions() {
+        Session session = getCurrentSession();
+        return session != null ? session.getPermissions() : 0L;
+    }
+
+    /**
+     * 检查当前用户是否拥有指定权限
+     */
+    public static boolean hasPermission(Permission permission) {
+        return permission.in(getCurrentPermissions());
     }
 
     /**
@@ -29,14 +107,32 @@ public class SessionManager {
      * @return 是否已登录
      */
     public static boolean isLoggedIn() {
-        return currentUser != null;
+        return getCurrentSession() != null;
     }
 
     /**
-     * 登出当前用户
+     * 登出当前用户（注销当前会话）
      */
     public static void logout() {
-        currentUser = null;
+        Session bound = BOUND_SESSION.get();
+        if (bound != null) {
+            BOUND_SESSION.remove();
+            REGISTRY.invalidate(bound.getToken());
+            return;
+        }
+        Session session = defaultSession;
+        defaultSession = null;
+        if (session != null) {
+            REGISTRY.invalidate(session.getToken());
+        }
+    }
+
+    /**
+     * 关闭会话注册表
+     */
+    public static void shutdown() {
+        defaultSession = null;
+        REGISTRY.shutdown();
     }
 
     /**
@@ -45,7 +141,8 @@ public class SessionManager {
      * @return 用户名，未登录返回null
      */
     public static String getCurrentUsername() {
-        return currentUser != null ? currentUser.getUsername() : null;
+        User user = getCurrentUser();
+        return user != null ? user.getUsername() : null;
     }
 
     /**
@@ -54,7 +151,8 @@ public class SessionManager {
      * @return 用户角色，未登录返回null
      */
     public static String getCurrentUserRole() {
-        return currentUser != null ? currentUser.getRole() : null;
+        User user = getCurrentUser();
+        return user != null ? user.getRole() : null;
     }
 
     /**
@@ -63,7 +161,7 @@ public class SessionManager {
      * @return 角色显示名称，未登录返回"未登录"
      */
     public static String getCurrentUserRoleDisplayName() {
-        return PermissionManager.getRoleDisplayName(currentUser);
+        return PermissionManager.getRoleDisplayName(getCurrentUser());
     }
 
     // ========== 便捷权限检查方法 ==========
@@ -74,7 +172,7 @@ public class SessionManager {
      * @return 是否为管理员
      */
     public static boolean isAdmin() {
-        return PermissionManager.isAdmin(currentUser);
+        return PermissionManager.isAdmin(getCurrentUser());
     }
 
     /**
@@ -83,7 +181,7 @@ public class SessionManager {
      * @return 是否为调度员
      */
     public static boolean isDispatcher() {
-        return PermissionManager.isDispatcher(currentUser);
+        return PermissionManager.isDispatcher(getCurrentUser());
     }
 
     /**
@@ -92,7 +190,7 @@ public class SessionManager {
      * @return 是否为司机
      */
     public static boolean isDriver() {
-        return PermissionManager.isDriver(currentUser);
+        return PermissionManager.isDriver(getCurrentUser());
     }
 
     /**
@@ -101,90 +199,94 @@ public class SessionManager {
      * @return 是否为客户
      */
     public static boolean isCustomer() {
-        return PermissionManager.isCustomer(currentUser);
+        return PermissionManager.isCustomer(getCurrentUser());
     }
 
     // ========== 功能权限检查 ==========
 
     // 车辆权限
     public static boolean canViewVehicles() {
-        return PermissionManager.canViewVehicles(currentUser);
+        return VIEW_VEHICLES.in(getCurrentPermissions());
     }
 
     public static boolean canCreateVehicles() {
-        return PermissionManager.canCreateVehicles(currentUser);
+        return CREATE_VEHICLES.in(getCurrentPermissions());
     }
 
     public static boolean canEditVehicles() {
-        return PermissionManager.canEditVehicles(currentUser);
+        return EDIT_VEHICLES.in(getCurrentPermissions());
     }
 
     public static boolean canDeleteVehicles() {
-        return PermissionManager.canDeleteVehicles(currentUser);
+        return DELETE_VEHICLES.in(getCurrentPermissions());
     }
 
     public static boolean canDeleteVehicle(int vehicleCreatedBy) {
-        return PermissionManager.canDeleteVehicle(currentUser, vehicleCreatedBy);
+        Session session = getCurrentSession();
+        return session != null && (session.hasPermission(DELETE_ANY_VEHICLE)
+                || session.getUser().getId() == vehicleCreatedBy);
     }
 
     // 任务权限
     public static boolean canViewTasks() {
-        return PermissionManager.canViewTasks(currentUser);
+        return VIEW_TASKS.in(getCurrentPermissions());
     }
 
     public static boolean canCreateTasks() {
-        return PermissionManager.canCreateTasks(currentUser);
+        return CREATE_TASKS.in(getCurrentPermissions());
     }
 
     public static boolean canEditTasks() {
-        return PermissionManager.canEditTasks(currentUser);
+        return EDIT_TASKS.in(getCurrentPermissions());
     }
 
     public static boolean canAssignVehicles() {
-        return PermissionManager.canAssignVehicles(currentUser);
+        return ASSIGN_VEHICLES.in(getCurrentPermissions());
     }
 
     public static boolean canCompleteTasks() {
-        return PermissionManager.canCompleteTasks(currentUser);
+        return COMPLETE_TASKS.in(getCurrentPermissions());
     }
 
     public static boolean canDeleteTasks() {
-        return PermissionManager.canDeleteTasks(currentUser);
+        return DELETE_TASKS.in(getCurrentPermissions());
     }
 
     public static boolean canDeleteTask(int taskCreatedBy) {
-        return PermissionManager.canDeleteTask(currentUser, taskCreatedBy);
+        Session session = getCurrentSession();
+        return session != null && (session.hasPermission(DELETE_ANY_TASK)
+                || session.getUser().getId() == taskCreatedBy);
     }
 
     // 用户管理权限
     public static boolean canViewUsers() {
-        return PermissionManager.canViewUsers(currentUser);
+        return VIEW_USERS.in(getCurrentPermissions());
     }
 
     public static boolean canCreateUsers() {
-        return PermissionManager.canCreateUsers(currentUser);
+        return CREATE_USERS.in(getCurrentPermissions());
     }
 
     public static boolean canEditUsers() {
-        return PermissionManager.canEditUsers(currentUser);
+        return EDIT_USERS.in(getCurrentPermissions());
     }
 
     public static boolean canDeleteUsers() {
-        return PermissionManager.canDeleteUsers(currentUser);
+        return DELETE_USERS.in(getCurrentPermissions());
     }
 
     // 操作日志权限
     public static boolean canViewOperationLogs() {
-        return PermissionManager.canViewOperationLogs(currentUser);
+        return VIEW_OPERATION_LOGS.in(getCurrentPermissions());
     }
 
     // 司机特定权限
     public static boolean canUpdateVehicleStatus() {
-        return PermissionManager.canUpdateVehicleStatus(currentUser);
+        return UPDATE_VEHICLE_STATUS.in(getCurrentPermissions());
     }
 
     public static boolean canViewAssignedTasks() {
-        return PermissionManager.canViewAssignedTasks(currentUser);
+        return VIEW_ASSIGNED_TASKS.in(getCurrentPermissions());
     }
 
     // ========== 向后兼容的方法 ==========
@@ -0,0 +1,149 @@
+package com.example.dispatch.util;
+
+import com.example.dispatch.model.User;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 并发会话注册表
+ * 令牌 → 会话保存在ConcurrentHashMap中，查找无锁。会话空闲超时后过期：
+ * 访问时发现过期立即移除（惰性淘汰），后台线程定期清理无人访问的过期会话。
+ */
+public class SessionRegistry {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final long idleTimeoutNanos;
+    private final ScheduledExecutorService evictor;
+
+    /**
+     * @param idleTimeout   会话空闲超时
+     * @param evictInterval 定期清理间隔
+     * @param unit          时间单位
+     */
+    public SessionRegistry(long idleTimeout, long evictInterval, TimeUnit unit) {
+        this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictExpired, evictInterval, evictInterval, unit);
+    }
+
+    /**
+     * 为用户创建会话（使用注册表的空闲超时）
+     */
+    public Session create(User user) {
+        return create(user, idleTimeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 为用户创建会话
+     *
+     * @param idleTimeout 空闲超时，0表示不过期（桌面客户端的默认会话）
+     */
+    public Session create(User user, long idleTimeout, TimeUnit unit) {
+        if (user == null) {
+            throw new IllegalArgumentException("用户不能为空");
+        }
+        while (true) {
+            Session session = new Session(newToken(), user, idleTimeout, unit);
+            if (sessions.putIfAbsent(session.getToken(), session) == null) {
+                return session;
+            }
+        }
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * 按令牌查找会话并刷新空闲计时
+     *
+     * @return 会话，令牌无效或已过期返回null
+     */
+    public Session get(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        if (session.isExpired(now)) {
+            sessions.remove(token, session);
+            return null;
+        }
+        session.touch(now);
+        return session;
+    }
+
+    /**
+     * 注销会话
+     */
+    public void invalidate(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    /**
+     * 注销某个用户的所有会话（用户被删除时调用）
+     *
+     * @return 注销的会话数
+     */
+    public int invalidateUser(String username) {
+        int removed = 0;
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            if (entry.getValue().getUser().getUsername().equals(username)
+                    && sessions.remove(entry.getKey(), entry.getValue())) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * 清理所有过期会话
+     *
+     * @return 清理的会话数
+     */
+    public int evictExpired() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            if (entry.getValue().isExpired(now) && sessions.remove(entry.getKey(), entry.getValue())) {
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            System.out.println("已清理 " + evicted + " 个过期会话");
+        }
+        return evicted;
+    }
+
+    /**
+     * 当前会话数（可能包含尚未清理的过期会话）
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    public void shutdown() {
+        evictor.shutdownNow();
+        sessions.clear();
+    }
+}
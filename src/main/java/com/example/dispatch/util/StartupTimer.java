@@ -0,0 +1,81 @@
+package com.example.dispatch.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 启动阶段计时
+ * 各阶段结束时记录耗时，启动完成后输出报告：并行执行的阶段之和大于实际耗时，差值即并行节省的时间。
+ */
+public class StartupTimer {
+
+    private static final class Phase {
+        private final String name;
+        private final String thread;
+        private final long startNanos;
+        private final long endNanos;
+
+        private Phase(String name, String thread, long startNanos, long endNanos) {
+            this.name = name;
+            this.thread = thread;
+            this.startNanos = startNanos;
+            this.endNanos = endNanos;
+        }
+    }
+
+    private static final List<Phase> PHASES = new CopyOnWriteArrayList<>();
+    private static volatile boolean reported = false;
+
+    private StartupTimer() {
+    }
+
+    /**
+     * 记录阶段开始时间
+     */
+    public static long begin() {
+        return System.nanoTime();
+    }
+
+    /**
+     * 记录阶段结束并输出耗时（启动报告输出后不再记录，运行期间的重新加载不计入）
+     */
+    public static void end(String phase, long startNanos) {
+        if (reported) {
+            return;
+        }
+        long now = System.nanoTime();
+        PHASES.add(new Phase(phase, Thread.currentThread().getName(), startNanos, now));
+        System.out.printf("启动阶段 [%s] %.1f ms%n", phase, (now - startNanos) / 1e6);
+    }
+
+    /**
+     * 输出启动报告（按开始时间排列），只在启动完成时调用一次
+     */
+    public static void report() {
+        reported = true;
+        List<Phase> phases = new ArrayList<>(PHASES);
+        if (phases.isEmpty()) {
+            return;
+        }
+        phases.sort(Comparator.comparingLong(phase -> phase.startNanos));
+        long first = phases.get(0).startNanos;
+        long last = first;
+        long sum = 0;
+        StringBuilder sb = new StringBuilder("========== 启动报告 ==========\n");
+        for (Phase phase : phases) {
+            long duration = phase.endNanos - phase.startNanos;
+            sum += duration;
+            last = Math.max(last, phase.endNanos);
+            sb.append(String.format("  %-16s +%8.1f ms  %8.1f ms  (%s)%n", phase.name,
+                    (phase.startNanos - first) / 1e6, duration / 1e6, phase.thread));
+        }
+        long wall = last - first;
+        sb.append(String.format("  各阶段合计 %.1f ms，实际耗时 %.1f ms，并行节省 %.1f ms%n", sum / 1e6, wall / 1e6,
+                Math.max(0, sum - wall) / 1e6));
+        sb.append(String.format("  JVM启动至今 %d ms", ManagementFactory.getRuntimeMXBean().getUptime()));
+        System.out.println(sb);
+    }
+}
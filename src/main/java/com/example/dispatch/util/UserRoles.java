@@ -23,6 +23,9 @@ public class UserRoles {
      * 获取角色显示名称
      */
     public static String getRoleDisplayName(String role) {
+        if (role == null) {
+            return "未知角色";
+        }
         switch (role) {
             case ADMIN:
                 return ADMIN_DISPLAY;
@@ -35,7 +38,7 @@ public class UserRoles {
             case USER:
                 return USER_DISPLAY;
             default:
-                return "未知角色";
+                return role; // role_permissions表中定义的自定义角色
         }
     }
 
@@ -1,15 +1,28 @@
 package com.example.dispatch.view;
 
 import com.example.dispatch.MainApp;
+import com.example.dispatch.dao.OperationLogPage;
+import com.example.dispatch.dao.OperationLogQuery;
+import com.example.dispatch.database.BackupManager;
 import com.example.dispatch.model.OperationLog;
 import com.example.dispatch.model.Task;
 import com.example.dispatch.model.User;
 import com.example.dispatch.model.Vehicle;
+import com.example.dispatch.service.AutoDispatcher;
 import com.example.dispatch.service.DispatchService;
+import com.example.dispatch.service.OperationLogExporter;
+import com.example.dispatch.service.OverdueTaskMonitor;
+import com.example.dispatch.storage.JdbcStorage;
+import com.example.dispatch.storage.Storage;
+import com.example.dispatch.util.AsyncDataStore;
 import com.example.dispatch.util.DataStore;
+import com.example.dispatch.util.FxUtils;
 import com.example.dispatch.util.PasswordUtils;
 import com.example.dispatch.util.SessionManager;
 import com.example.dispatch.util.UserRoles;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.collections.FXCollections;
 import javafx.geometry.Insets;
@@ -23,14 +36,35 @@ import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Region;
 import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.function.Consumer;
 
 public class MainView extends BorderPane {
     private final TableView<Vehicle> vehicleTable = new TableView<>();
     private final TableView<Task> taskTable = new TableView<>();
-    private final DispatchService dispatchService = new DispatchService(DataStore.VEHICLES);
+    private final DispatchService dispatchService = new DispatchService();
+
+    // 备份和恢复在后台执行，耗时与数据量成正比
+    private static final java.time.Duration BACKUP_TIMEOUT = java.time.Duration.ofHours(2);
+
+    // 操作日志分页状态
+    private static final int LOG_PAGE_SIZE = 200;
+    private OperationLogQuery logQuery = new OperationLogQuery();
+    private OperationLogPage.Cursor logCursor;
+    private Button loadMoreLogsBtn;
+
+    // 自动调度统计的定时刷新
+    private Timeline autoDispatchRefresh;
+
+    // 超期任务角标的订阅，登出时取消
+    private Consumer<Task> overdueSubscriber;
+    private javafx.collections.ListChangeListener<Task> overdueListListener;
 
     public MainView() {
         setPadding(new Insets(12));
@@ -202,7 +236,11 @@ public class MainView extends BorderPane {
         backupBtn.setStyle("-fx-background-color: #607D8B; -fx-text-fill: white;");
         backupBtn.setOnAction(e -> performBackup());
 
-        adminButtonBar.getChildren().addAll(userManagementBtn, operationLogsBtn, systemConfigBtn, backupBtn);
+        Button restoreBtn = new Button("数据恢复");
+        restoreBtn.setStyle("-fx-background-color: #795548; -fx-text-fill: white;");
+        restoreBtn.setOnAction(e -> performRestore());
+
+        adminButtonBar.getChildren().addAll(userManagementBtn, operationLogsBtn, systemConfigBtn, backupBtn, restoreBtn);
 
         // 将按钮栏添加到主界面底部
         if (getBottom() == null) {
@@ -267,6 +305,13 @@ public class MainView extends BorderPane {
                     }
                 }
 
+                if (autoDispatchRefresh != null) {
+                    autoDispatchRefresh.stop();
+                }
+                if (overdueSubscriber != null) {
+                    DataStore.getOverdueMonitor().unsubscribe(overdueSubscriber);
+                    DataStore.TASKS.removeListener(overdueListListener);
+                }
                 SessionManager.logout();
                 Stage stage = (Stage) getScene().getWindow();
                 MainApp.showLoginView(stage);
@@ -312,11 +357,16 @@ public class MainView extends BorderPane {
                     // 设置创建者为当前用户
                     newVehicle.setCreatedBy(SessionManager.getCurrentUser().getId());
 
-                    // 保存到数据库并更新UI
-                    DataStore.addVehicle(newVehicle);
+                    // 后台保存到数据库，完成后在界面线程更新UI
+                    addBtn.setDisable(true);
+                    AsyncDataStore.addVehicle(newVehicle).whenComplete((result, error) -> {
+                        addBtn.setDisable(false);
+                        if (error != null) {
+                            showOperationError(error, "添加失败", "添加车辆失败");
+                            return;
+                        }
 
-                    // 记录操作日志
-                    try {
+                        // 记录操作日志
                         OperationLog addVehicleLog = new OperationLog(
                                 OperationLog.OperationTypes.CREATE,
                                 OperationLog.EntityTypes.VEHICLE,
@@ -324,36 +374,22 @@ public class MainView extends BorderPane {
                                 "添加新车辆: " + newVehicle.getId() + " (司机: " + newVehicle.getDriver() + ", 位置: "
                                         + newVehicle.getLocation() + ")",
                                 SessionManager.getCurrentUser().getId());
-                        DataStore.addOperationLog(addVehicleLog);
-                    } catch (Exception logEx) {
-                        System.err.println("记录添加车辆日志失败: " + logEx.getMessage());
-                    }
+                        logOperationAsync(addVehicleLog, "记录添加车辆日志失败");
+
+                        idField.clear();
+                        driverField.clear();
+                        locField.clear();
+
+                        // 显示成功消息
+                        Alert successAlert = new Alert(Alert.AlertType.INFORMATION);
+                        successAlert.setTitle("添加成功");
+                        successAlert.setHeaderText(null);
+                        successAlert.setContentText("车辆 " + newVehicle.getId() + " 已成功添加！");
+                        successAlert.showAndWait();
+                    });
 
-                    idField.clear();
-                    driverField.clear();
-                    locField.clear();
-
-                    // 显示成功消息
-                    Alert successAlert = new Alert(Alert.AlertType.INFORMATION);
-                    successAlert.setTitle("添加成功");
-                    successAlert.setHeaderText(null);
-                    successAlert.setContentText("车辆 " + newVehicle.getId() + " 已成功添加！");
-                    successAlert.showAndWait();
-
-                } catch (SecurityException ex) {
-                    // 显示权限错误消息
-                    Alert errorAlert = new Alert(Alert.AlertType.WARNING);
-                    errorAlert.setTitle("权限不足");
-                    errorAlert.setHeaderText("操作被拒绝");
-                    errorAlert.setContentText(ex.getMessage());
-                    errorAlert.showAndWait();
                 } catch (Exception ex) {
-                    // 显示错误消息
-                    Alert errorAlert = new Alert(Alert.AlertType.ERROR);
-                    errorAlert.setTitle("添加失败");
-                    errorAlert.setHeaderText("添加车辆失败");
-                    errorAlert.setContentText("错误信息: " + ex.getMessage());
-                    errorAlert.showAndWait();
+                    showOperationError(ex, "添加失败", "添加车辆失败");
                 }
             }
         });
@@ -486,39 +522,37 @@ public class MainView extends BorderPane {
                     // 设置创建者为当前用户
                     newTask.setCreatedBy(SessionManager.getCurrentUser().getId());
 
-                    // 保存到数据库并更新UI
-                    DataStore.addTask(newTask);
+                    // 后台保存到数据库，完成后在界面线程更新UI
+                    addTaskBtn.setDisable(true);
+                    AsyncDataStore.addTask(newTask).whenComplete((result, error) -> {
+                        addTaskBtn.setDisable(false);
+                        if (error != null) {
+                            showOperationError(error, "添加失败", "添加任务失败");
+                            return;
+                        }
 
-                    // 记录操作日志
-                    try {
+                        // 记录操作日志
                         OperationLog addTaskLog = new OperationLog(
                                 OperationLog.OperationTypes.CREATE,
                                 OperationLog.EntityTypes.TASK,
                                 newTask.getName(),
                                 "创建新任务: " + newTask.getName() + " (目的地: " + newTask.getDestination() + ")",
                                 SessionManager.getCurrentUser().getId());
-                        DataStore.addOperationLog(addTaskLog);
-                    } catch (Exception logEx) {
-                        System.err.println("记录添加任务日志失败: " + logEx.getMessage());
-                    }
+                        logOperationAsync(addTaskLog, "记录添加任务日志失败");
 
-                    nameField.clear();
-                    destField.clear();
+                        nameField.clear();
+                        destField.clear();
 
-                    // 显示成功消息
-                    Alert successAlert = new Alert(Alert.AlertType.INFORMATION);
-                    successAlert.setTitle("添加成功");
-                    successAlert.setHeaderText(null);
-                    successAlert.setContentText("任务 '" + newTask.getName() + "' 已成功添加！");
-                    successAlert.showAndWait();
+                        // 显示成功消息
+                        Alert successAlert = new Alert(Alert.AlertType.INFORMATION);
+                        successAlert.setTitle("添加成功");
+                        successAlert.setHeaderText(null);
+                        successAlert.setContentText("任务 '" + newTask.getName() + "' 已成功添加！");
+                        successAlert.showAndWait();
+                    });
 
                 } catch (Exception ex) {
-                    // 显示错误消息
-                    Alert errorAlert = new Alert(Alert.AlertType.ERROR);
-                    errorAlert.setTitle("添加失败");
-                    errorAlert.setHeaderText("添加任务失败");
-                    errorAlert.setContentText("错误信息: " + ex.getMessage());
-                    errorAlert.showAndWait();
+                    showOperationError(ex, "添加失败", "添加任务失败");
                 }
             }
         });
@@ -528,29 +562,21 @@ public class MainView extends BorderPane {
         assignBtn.setOnAction(e -> {
             Task selected = taskTable.getSelectionModel().getSelectedItem();
             if (selected != null) {
-                try {
-                    Vehicle v = dispatchService.assign(selected);
+                // 分配在后台执行，避免数据库较慢时界面卡死
+                assignBtn.setDisable(true);
+                AsyncDataStore.assign(dispatchService, selected).whenComplete((v, error) -> {
+                    assignBtn.setDisable(false);
+                    if (error != null) {
+                        showOperationError(error, "分配失败", "分配车辆失败");
+                        return;
+                    }
                     Alert alert = new Alert(Alert.AlertType.INFORMATION);
                     alert.setHeaderText("分配结果");
                     alert.setContentText(v == null ? "无空闲车辆" : "已分配车辆 " + v.getId());
                     alert.showAndWait();
                     vehicleTable.refresh();
                     taskTable.refresh();
-                } catch (SecurityException ex) {
-                    // 显示权限错误消息
-                    Alert errorAlert = new Alert(Alert.AlertType.WARNING);
-                    errorAlert.setTitle("权限不足");
-                    errorAlert.setHeaderText("操作被拒绝");
-                    errorAlert.setContentText(ex.getMessage());
-                    errorAlert.showAndWait();
-                } catch (Exception ex) {
-                    // 显示错误消息
-                    Alert errorAlert = new Alert(Alert.AlertType.ERROR);
-                    errorAlert.setTitle("分配失败");
-                    errorAlert.setHeaderText("分配车辆失败");
-                    errorAlert.setContentText("错误信息: " + ex.getMessage());
-                    errorAlert.showAndWait();
-                }
+                });
             }
         });
 
@@ -643,13 +669,83 @@ public class MainView extends BorderPane {
         // 创建输入控件行
         HBox inputRow = new HBox(6, nameField, destField);
 
-        // 创建按钮行
-        HBox buttonRow = new HBox(6, addTaskBtn, assignBtn, deleteTaskBtn);
+        // 创建按钮行（右侧显示超期任务数）
+        Label overdueBadge = buildOverdueBadge();
+        Region buttonSpacer = new Region();
+        HBox.setHgrow(buttonSpacer, javafx.scene.layout.Priority.ALWAYS);
+        HBox buttonRow = new HBox(6, addTaskBtn, assignBtn, deleteTaskBtn, buttonSpacer, overdueBadge);
+        buttonRow.setAlignment(Pos.CENTER_LEFT);
 
         VBox box = new VBox(8, taskTable, inputRow, buttonRow);
+        if (SessionManager.canAssignVehicles()) {
+            box.getChildren().add(buildAutoDispatchBar());
+        }
         return box;
     }
 
+    /**
+     * 超期任务角标：时间轮到期时实时更新，任务完成/删除后随任务列表变化刷新
+     */
+    private Label buildOverdueBadge() {
+        OverdueTaskMonitor monitor = DataStore.getOverdueMonitor();
+        Label badge = new Label();
+        Tooltip tooltip = new Tooltip();
+        badge.setTooltip(tooltip);
+        Runnable update = () -> {
+            List<Task> overdue = monitor.getOverdueTasks();
+            badge.setText("超期任务: " + overdue.size());
+            badge.setStyle(overdue.isEmpty() ? "-fx-text-fill: #757575;"
+                    : "-fx-background-color: #F44336; -fx-text-fill: white; -fx-padding: 2 8 2 8; "
+                            + "-fx-background-radius: 10;");
+            StringBuilder names = new StringBuilder();
+            for (Task task : overdue) {
+                names.append(task.getName()).append("  ETA ").append(task.getEta().format(
+                        DateTimeFormatter.ofPattern("MM-dd HH:mm"))).append('\n');
+            }
+            tooltip.setText(overdue.isEmpty() ? "没有超期任务" : names.toString().trim());
+        };
+        update.run();
+
+        overdueSubscriber = task -> FxUtils.runOnFxThread(update);
+        monitor.subscribe(overdueSubscriber);
+        overdueListListener = change -> update.run();
+        DataStore.TASKS.addListener(overdueListListener);
+        return badge;
+    }
+
+    /**
+     * 自动调度控制栏：暂停/恢复和吞吐统计
+     */
+    private HBox buildAutoDispatchBar() {
+        AutoDispatcher dispatcher = DataStore.getAutoDispatcher();
+        dispatcher.start();
+
+        Label statusLabel = new Label(dispatcher.getStatus());
+        statusLabel.setWrapText(true);
+        Button toggleBtn = new Button(dispatcher.isPaused() ? "恢复自动调度" : "暂停自动调度");
+        toggleBtn.setOnAction(e -> {
+            if (dispatcher.isPaused()) {
+                dispatcher.resume();
+            } else {
+                dispatcher.pause();
+            }
+            toggleBtn.setText(dispatcher.isPaused() ? "恢复自动调度" : "暂停自动调度");
+            statusLabel.setText(dispatcher.getStatus());
+        });
+
+        // 每秒刷新统计；调度器可能因权限问题自行暂停，按钮文字同步更新
+        autoDispatchRefresh = new Timeline(new KeyFrame(Duration.seconds(1), e -> {
+            statusLabel.setText(dispatcher.getStatus());
+            toggleBtn.setText(dispatcher.isPaused() ? "恢复自动调度" : "暂停自动调度");
+        }));
+        autoDispatchRefresh.setCycleCount(Animation.INDEFINITE);
+        autoDispatchRefresh.play();
+
+        HBox bar = new HBox(6, toggleBtn, statusLabel);
+        bar.setAlignment(Pos.CENTER_LEFT);
+        return bar;
+    }
+
     // ========== 司机专用功能 ==========
 
     /**
@@ -673,17 +769,14 @@ public class MainView extends BorderPane {
         statusDialog.setContentText("车辆: " + selected.getId());
 
         statusDialog.showAndWait().ifPresent(newStatus -> {
-            try {
-                DataStore.updateVehicleStatus(selected.getId(), newStatus);
+            AsyncDataStore.updateVehicleStatus(selected.getId(), newStatus).whenComplete((result, error) -> {
+                if (error != null) {
+                    showOperationError(error, "更新失败", "车辆状态更新失败");
+                    return;
+                }
                 refreshVehicleTable();
                 System.out.println("司机更新车辆状态: " + selected.getId() + " -> " + newStatus);
-            } catch (Exception ex) {
-                Alert errorAlert = new Alert(AlertType.ERROR);
-                errorAlert.setTitle("更新失败");
-                errorAlert.setHeaderText("车辆状态更新失败");
-                errorAlert.setContentText("错误信息: " + ex.getMessage());
-                errorAlert.showAndWait();
-            }
+            });
         });
     }
 
@@ -715,17 +808,14 @@ public class MainView extends BorderPane {
                 return;
             }
 
-            try {
-                DataStore.updateVehicleLocation(selected.getId(), newLocation.trim());
+            AsyncDataStore.updateVehicleLocation(selected.getId(), newLocation.trim()).whenComplete((result, error) -> {
+                if (error != null) {
+                    showOperationError(error, "更新失败", "车辆位置更新失败");
+                    return;
+                }
                 refreshVehicleTable();
                 System.out.println("司机更新车辆位置: " + selected.getId() + " -> " + newLocation);
-            } catch (Exception ex) {
-                Alert errorAlert = new Alert(AlertType.ERROR);
-                errorAlert.setTitle("更新失败");
-                errorAlert.setHeaderText("车辆位置更新失败");
-                errorAlert.setContentText("错误信息: " + ex.getMessage());
-                errorAlert.showAndWait();
-            }
+            });
         });
     }
 
@@ -1311,14 +1401,15 @@ public class MainView extends BorderPane {
      * 刷新用户表格
      */
     private void refreshUserTable(TableView<User> userTable) {
-        try {
-            DataStore.refreshData();
+        AsyncDataStore.syncChanges().whenComplete((ignored, ex) -> {
+            if (ex != null) {
+                showErrorAlert("刷新失败: " + ex.getMessage());
+                System.err.println("刷新用户表格失败: " + ex.getMessage());
+                return;
+            }
             userTable.refresh();
             System.out.println("用户表格已刷新");
-        } catch (Exception ex) {
-            showErrorAlert("刷新失败: " + ex.getMessage());
-            System.err.println("刷新用户表格失败: " + ex.getMessage());
-        }
+        });
     }
 
     /**
@@ -1372,6 +1463,39 @@ public class MainView extends BorderPane {
         alert.showAndWait();
     }
 
+    /**
+     * 显示操作失败提示（权限不足显示警告，其它显示错误）
+     */
+    private void showOperationError(Throwable error, String title, String header) {
+        if (error instanceof java.util.concurrent.CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error instanceof SecurityException) {
+            Alert errorAlert = new Alert(AlertType.WARNING);
+            errorAlert.setTitle("权限不足");
+            errorAlert.setHeaderText("操作被拒绝");
+            errorAlert.setContentText(error.getMessage());
+            errorAlert.showAndWait();
+            return;
+        }
+        Alert errorAlert = new Alert(AlertType.ERROR);
+        errorAlert.setTitle(title);
+        errorAlert.setHeaderText(header);
+        errorAlert.setContentText("错误信息: " + error.getMessage());
+        errorAlert.showAndWait();
+    }
+
+    /**
+     * 后台记录操作日志，失败只打印错误
+     */
+    private void logOperationAsync(OperationLog log, String failureMessage) {
+        AsyncDataStore.addOperationLog(log).whenComplete((result, error) -> {
+            if (error != null) {
+                System.err.println(failureMessage + ": " + error.getMessage());
+            }
+        });
+    }
+
     /**
      * 显示操作日志
      */
@@ -1467,8 +1591,10 @@ public class MainView extends BorderPane {
 
         Button statisticsBtn = new Button("日志统计");
         Button closeBtn = new Button("关闭");
+        loadMoreLogsBtn = new Button("加载更多");
+        loadMoreLogsBtn.setDisable(true);
 
-        buttonPanel.getChildren().addAll(statisticsBtn, closeBtn);
+        buttonPanel.getChildren().addAll(loadMoreLogsBtn, statisticsBtn, closeBtn);
 
         // 设置对话框布局
         VBox contentBox = new VBox(5, filterPanel, logTable, buttonPanel);
@@ -1487,6 +1613,9 @@ public class MainView extends BorderPane {
         // 刷新按钮事件
         refreshBtn.setOnAction(e -> loadOperationLogs(logTable));
 
+        // 加载下一页
+        loadMoreLogsBtn.setOnAction(e -> fetchLogPage(logTable, false));
+
         // 清理旧日志按钮事件
         clearOldLogsBtn.setOnAction(e -> showClearOldLogsDialog(logTable));
 
@@ -1519,14 +1648,40 @@ public class MainView extends BorderPane {
      * 加载操作日志数据
      */
     private void loadOperationLogs(TableView<OperationLog> logTable) {
-        try {
-            var logs = DataStore.getAllOperationLogs();
-            logTable.setItems(FXCollections.observableArrayList(logs));
-            System.out.println("已加载 " + logs.size() + " 条操作日志");
-        } catch (Exception ex) {
-            showErrorAlert("加载日志失败: " + ex.getMessage());
-            System.err.println("加载操作日志失败: " + ex.getMessage());
+        logQuery = new OperationLogQuery();
+        fetchLogPage(logTable, true);
+    }
+
+    /**
+     * 按当前查询条件加载一页日志
+     *
+     * @param reset true表示从第一页重新加载，false表示追加下一页
+     */
+    private void fetchLogPage(TableView<OperationLog> logTable, boolean reset) {
+        OperationLogPage.Cursor after = reset ? null : logCursor;
+        if (!reset && after == null) {
+            return;
         }
+        if (reset) {
+            logTable.setPlaceholder(new Label("正在加载..."));
+        }
+        loadMoreLogsBtn.setDisable(true);
+        AsyncDataStore.getOperationLogPage(logQuery, after, LOG_PAGE_SIZE).whenComplete((page, error) -> {
+            logTable.setPlaceholder(null);
+            if (error != null) {
+                showErrorAlert("加载日志失败: " + error.getMessage());
+                System.err.println("加载操作日志失败: " + error.getMessage());
+                return;
+            }
+            if (reset) {
+                logTable.setItems(FXCollections.observableArrayList(page.getLogs()));
+            } else {
+                logTable.getItems().addAll(page.getLogs());
+            }
+            logCursor = page.getNextCursor();
+            loadMoreLogsBtn.setDisable(!page.hasMore());
+            System.out.println("已加载 " + logTable.getItems().size() + " 条操作日志" + (page.hasMore() ? "（还有更多）" : ""));
+        });
     }
 
     /**
@@ -1560,24 +1715,12 @@ public class MainView extends BorderPane {
             java.time.LocalDateTime startTime = startDate.atStartOfDay();
             java.time.LocalDateTime endTime = endDate.atTime(23, 59, 59);
 
-            var allLogs = DataStore.getAllOperationLogs();
-            var filteredLogs = allLogs.stream()
-                    .filter(log -> {
-                        // 按操作类型筛选
-                        if (!"全部".equals(operationTypeDisplay) && !operationType.equals(log.getOperationType())) {
-                            return false;
-                        }
-                        // 按实体类型筛选
-                        if (!"全部".equals(entityTypeDisplay) && !entityType.equals(log.getEntityType())) {
-                            return false;
-                        }
-                        // 按时间范围筛选
-                        return !log.getCreatedAt().isBefore(startTime) && !log.getCreatedAt().isAfter(endTime);
-                    })
-                    .collect(java.util.stream.Collectors.toList());
-
-            logTable.setItems(FXCollections.observableArrayList(filteredLogs));
-            System.out.println("筛选结果: " + filteredLogs.size() + " 条日志");
+            // 筛选条件下推到数据库执行
+            logQuery = new OperationLogQuery()
+                    .operationType("全部".equals(operationTypeDisplay) ? null : operationType)
+                    .entityType("全部".equals(entityTypeDisplay) ? null : entityType)
+                    .timeRange(startTime, endTime);
+            fetchLogPage(logTable, true);
 
         } catch (Exception ex) {
             showErrorAlert("筛选日志失败: " + ex.getMessage());
@@ -1645,34 +1788,89 @@ public class MainView extends BorderPane {
 
     /**
      * 导出操作日志
+     * 按当前筛选条件从数据库流式导出全部匹配的日志（不限于表格中已加载的页），导出在后台线程执行
      */
     private void exportOperationLogs(TableView<OperationLog> logTable) {
-        try {
-            var logs = logTable.getItems();
+        Dialog<ButtonType> exportDialog = new Dialog<>();
+        exportDialog.setTitle("导出日志");
+        exportDialog.setHeaderText("按当前筛选条件导出操作日志");
 
-            if (logs.isEmpty()) {
-                showWarningAlert("没有日志数据可以导出");
-                return;
-            }
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.setPadding(new Insets(20));
 
-            // 创建导出文件名
-            String filename = "operation_logs_" +
-                    java.time.LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) +
-                    ".csv";
+        ComboBox<OperationLogExporter.Format> formatBox = new ComboBox<>();
+        formatBox.getItems().addAll(OperationLogExporter.Format.values());
+        formatBox.setValue(OperationLogExporter.Format.CSV);
+        CheckBox gzipBox = new CheckBox("gzip压缩");
 
-            Alert exportAlert = new Alert(AlertType.INFORMATION);
-            exportAlert.setTitle("导出完成");
-            exportAlert.setHeaderText("操作日志导出成功");
-            exportAlert.setContentText("日志文件已导出到系统目录：\n" + filename +
-                    "\n\n共导出 " + logs.size() + " 条日志记录");
-            exportAlert.showAndWait();
+        grid.add(new Label("格式:"), 0, 0);
+        grid.add(formatBox, 1, 0);
+        grid.add(gzipBox, 1, 1);
 
-            System.out.println("操作日志已导出: " + filename);
+        exportDialog.getDialogPane().setContent(grid);
+        exportDialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        if (exportDialog.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) {
+            return;
+        }
 
-        } catch (Exception ex) {
-            showErrorAlert("导出失败: " + ex.getMessage());
-            System.err.println("导出操作日志失败: " + ex.getMessage());
+        OperationLogExporter.Format format = formatBox.getValue();
+        boolean gzip = gzipBox.isSelected();
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("保存导出文件");
+        chooser.setInitialFileName("operation_logs_" +
+                java.time.LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) +
+                "." + format.getExtension() + (gzip ? ".gz" : ""));
+        java.io.File file = chooser.showSaveDialog(logTable.getScene().getWindow());
+        if (file == null) {
+            return;
         }
+
+        OperationLogExporter exporter = new OperationLogExporter(logQuery, file.toPath(), format, gzip);
+
+        // 进度对话框：总行数未知，只显示已导出行数和速度
+        Alert progressAlert = new Alert(AlertType.NONE);
+        progressAlert.setTitle("导出日志");
+        progressAlert.setHeaderText("正在导出到 " + file.getName());
+        Label progressLabel = new Label("已导出 0 条");
+        progressAlert.getDialogPane().setContent(new VBox(10, new ProgressBar(), progressLabel));
+        progressAlert.getButtonTypes().setAll(ButtonType.CANCEL);
+        progressAlert.setOnCloseRequest(e -> exporter.cancel());
+
+        exporter.start((rows, rowsPerSecond) -> FxUtils.runOnFxThread(() -> progressLabel.setText(
+                String.format("已导出 %d 条（%.0f 条/秒）", rows, rowsPerSecond))))
+                .whenComplete((result, error) -> FxUtils.runOnFxThread(() -> {
+                    progressAlert.setOnCloseRequest(null);
+                    progressAlert.close();
+                    if (error instanceof java.util.concurrent.CancellationException) {
+                        System.out.println("操作日志导出已取消");
+                        return;
+                    }
+                    if (error != null) {
+                        showErrorAlert("导出失败: " + error.getMessage());
+                        System.err.println("导出操作日志失败: " + error.getMessage());
+                        return;
+                    }
+
+                    // 记录操作日志
+                    try {
+                        OperationLog exportLog = new OperationLog(
+                                OperationLog.OperationTypes.EXPORT,
+                                OperationLog.EntityTypes.LOG,
+                                file.getName(),
+                                "管理员导出 " + result.getRows() + " 条操作日志",
+                                SessionManager.getCurrentUser().getId());
+                        DataStore.addOperationLog(exportLog);
+                    } catch (Exception logEx) {
+                        System.err.println("记录导出日志失败: " + logEx.getMessage());
+                    }
+
+                    showSuccessAlert("导出完成", String.format("日志文件已导出到：%n%s%n%n共导出 %d 条日志记录（%.1f KB，%.1f 秒，%.0f 条/秒）",
+                            result.getFile(), result.getRows(), result.getBytes() / 1024.0,
+                            result.getElapsedSeconds(), result.getRowsPerSecond()));
+                }));
+        progressAlert.show();
     }
 
     /**
@@ -1781,6 +1979,8 @@ public class MainView extends BorderPane {
                 return "备份";
             case OperationLog.OperationTypes.RESTORE:
                 return "恢复";
+            case OperationLog.OperationTypes.OVERDUE:
+                return "超期";
             default:
                 return operationType;
         }
@@ -1804,37 +2004,111 @@ public class MainView extends BorderPane {
      * 执行数据备份
      */
     private void performBackup() {
+        if (!(Storage.get() instanceof JdbcStorage)) {
+            showWarningAlert("当前使用内存存储，数据已定期快照到文件，不需要数据库备份");
+            return;
+        }
         Alert backupAlert = new Alert(AlertType.CONFIRMATION);
         backupAlert.setTitle("数据备份");
         backupAlert.setHeaderText("确认执行数据备份");
-        backupAlert.setContentText("将备份以下数据：\n\n• 用户数据\n• 车辆信息\n• 任务记录\n• 操作日志\n\n备份文件将保存在系统目录中");
+        backupAlert.setContentText("将备份以下数据：\n\n• 用户数据\n• 车辆信息\n• 任务记录\n• 操作日志\n\n备份将保存到目录：\n"
+                + BackupManager.BACKUP_ROOT.toAbsolutePath() + "\n\n已有近期备份时只备份之后变化的数据（增量备份）");
 
         backupAlert.showAndWait().ifPresent(response -> {
-            if (response == ButtonType.OK) {
-                String backupFileName = "backup_" +
-                        java.time.LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".sql";
+            if (response != ButtonType.OK) {
+                return;
+            }
+            AsyncDataStore.supply(BackupManager::backup, BACKUP_TIMEOUT).whenComplete((result, error) -> {
+                if (error != null) {
+                    showErrorAlert("备份失败: " + error.getMessage());
+                    System.err.println("数据备份失败: " + error.getMessage());
+                    return;
+                }
 
                 // 记录操作日志
                 try {
                     OperationLog backupLog = new OperationLog(
                             OperationLog.OperationTypes.BACKUP,
                             OperationLog.EntityTypes.SYSTEM,
-                            backupFileName,
-                            "管理员执行数据备份",
+                            result.getDirectory().getFileName().toString(),
+                            "管理员执行" + (result.isIncremental() ? "增量" : "全量") + "数据备份（" + result.getTotalRows() + " 行）",
                             SessionManager.getCurrentUser().getId());
                     DataStore.addOperationLog(backupLog);
                 } catch (Exception logEx) {
                     System.err.println("记录备份日志失败: " + logEx.getMessage());
                 }
 
-                Alert resultAlert = new Alert(AlertType.INFORMATION);
-                resultAlert.setTitle("备份完成");
-                resultAlert.setHeaderText("数据备份成功");
-                resultAlert.setContentText("备份文件已生成：\n" + backupFileName);
-                resultAlert.showAndWait();
-
+                showSuccessAlert("备份完成", String.format("备份已保存到：%n%s%n%n%s",
+                        result.getDirectory().toAbsolutePath(), describeBackupResult(result)));
                 System.out.println("管理员执行数据备份");
+            });
+        });
+    }
+
+    /**
+     * 从备份目录恢复数据
+     */
+    private void performRestore() {
+        if (!(Storage.get() instanceof JdbcStorage)) {
+            showWarningAlert("当前使用内存存储，不支持数据库恢复");
+            return;
+        }
+        DirectoryChooser chooser = new DirectoryChooser();
+        chooser.setTitle("选择备份目录");
+        if (java.nio.file.Files.isDirectory(BackupManager.BACKUP_ROOT)) {
+            chooser.setInitialDirectory(BackupManager.BACKUP_ROOT.toFile());
+        }
+        java.io.File dir = chooser.showDialog(getScene().getWindow());
+        if (dir == null) {
+            return;
+        }
+
+        Alert confirmAlert = new Alert(AlertType.CONFIRMATION);
+        confirmAlert.setTitle("数据恢复");
+        confirmAlert.setHeaderText("确认从备份恢复数据");
+        confirmAlert.setContentText("将用备份 " + dir.getName() + " 替换当前的用户、车辆、任务和操作日志数据。\n"
+                + "增量备份会从它所基于的全量备份开始依次重放。\n"
+                + "恢复前请关闭其他程序实例和无界面服务，恢复期间自动调度暂停。\n\n此操作无法撤销！");
+
+        confirmAlert.showAndWait().ifPresent(response -> {
+            if (response != ButtonType.OK) {
+                return;
             }
+            AsyncDataStore.supply(() -> {
+                return DataStore.restoreBackup(dir.toPath());
+            }, BACKUP_TIMEOUT).whenComplete((result, error) -> {
+                if (error != null) {
+                    showErrorAlert("恢复失败: " + error.getMessage());
+                    System.err.println("数据恢复失败: " + error.getMessage());
+                    return;
+                }
+
+                // 记录操作日志
+                try {
+                    OperationLog restoreLog = new OperationLog(
+                            OperationLog.OperationTypes.RESTORE,
+                            OperationLog.EntityTypes.SYSTEM,
+                            dir.getName(),
+                            "管理员从备份恢复数据（" + result.getTotalRows() + " 行）",
+                            SessionManager.getCurrentUser().getId());
+                    DataStore.addOperationLog(restoreLog);
+                } catch (Exception logEx) {
+                    System.err.println("记录恢复日志失败: " + logEx.getMessage());
+                }
+
+                showSuccessAlert("恢复完成", "已从备份 " + dir.getName() + " 恢复数据\n\n" + describeBackupResult(result));
+                System.out.println("管理员执行数据恢复");
+            });
         });
     }
+
+    private static String describeBackupResult(BackupManager.Result result) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(result.isIncremental() ? "增量备份" : "全量备份").append("，备份链长度 ").append(result.getChainLength())
+                .append("\n\n");
+        result.getRows().forEach((table, rows) -> sb.append("• ").append(table).append(": ").append(rows).append(" 行\n"));
+        sb.append(String.format("%n共 %.2f MB，耗时 %.1f 秒（%.1f MB/s）", result.getBytes() / 1048576.0,
+                result.getElapsedSeconds(), result.getMegabytesPerSecond()));
+        return sb.toString();
+    }
 }